@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -248,6 +249,14 @@ public class ApplicationConnection implements HasHandlers {
      */
     private Set<Object> responseHandlingLocks = new HashSet<Object>();
 
+    /**
+     * The response handling lock of the message that is currently being
+     * handled in chunks, or <code>null</code> if no message is waiting for its
+     * next chunk to be handled. This lock is not removed by
+     * {@link #forceHandleMessage}.
+     */
+    private Object chunkedMessageLock = null;
+
     /**
      * Data structure holding information about pending UIDL messages.
      */
@@ -528,6 +537,13 @@ public class ApplicationConnection implements HasHandlers {
 
     private boolean updatingState = false;
 
+    /**
+     * The maximum number of milliseconds to spend on creating connectors and
+     * updating their states before yielding to the browser, or 0 to handle
+     * each message in one go
+     */
+    private int messageHandlingFrameBudget = 0;
+
     public ApplicationConnection() {
         // Assuming UI data is eagerly loaded
         ConnectorBundleLoader.get().loadBundle(
@@ -1364,15 +1380,71 @@ public class ApplicationConnection implements HasHandlers {
     private void checkForPendingVariableBursts() {
         cleanVariableBurst(pendingInvocations);
         if (pendingBursts.size() > 0) {
+            Profiler.enter("ApplicationConnection.mergePendingBursts");
             for (LinkedHashMap<String, MethodInvocation> pendingBurst : pendingBursts) {
                 cleanVariableBurst(pendingBurst);
             }
-            LinkedHashMap<String, MethodInvocation> nextBurst = pendingBursts
-                    .remove(0);
+            LinkedHashMap<String, MethodInvocation> nextBurst = mergeVariableBursts(pendingBursts);
+            pendingBursts.clear();
+            Profiler.leave("ApplicationConnection.mergePendingBursts");
+
             buildAndSendVariableBurst(nextBurst);
         }
     }
 
+    /**
+     * Merges variable bursts that have been queued while waiting for a
+     * response into one burst that can be sent in a single request.
+     * <p>
+     * All the bursts have been created before the response to the previous
+     * request was handled, so none of them depends on the server response to
+     * another. The invocations are kept in their original order. An invocation
+     * enqueued with lastonly only replaces the previous invocation of the same
+     * method if that invocation is the last one merged so far. If any other
+     * invocation was enqueued in between, both are kept so that the server
+     * sees the value that was current when the other invocation happened,
+     * e.g. the text of a field when a button was clicked.
+     *
+     * @param bursts
+     *            the bursts to merge, in the order they were queued
+     * @return a burst containing the invocations of all the given bursts
+     */
+    static LinkedHashMap<String, MethodInvocation> mergeVariableBursts(
+            List<LinkedHashMap<String, MethodInvocation>> bursts) {
+        if (bursts.size() == 1) {
+            return bursts.get(0);
+        }
+
+        LinkedHashMap<String, MethodInvocation> merged = new LinkedHashMap<String, MethodInvocation>();
+        String lastKey = null;
+        String lastOnlyTag = null;
+        for (LinkedHashMap<String, MethodInvocation> burst : bursts) {
+            for (Entry<String, MethodInvocation> entry : burst.entrySet()) {
+                String tag = entry.getKey();
+                if (tag.equals(lastOnlyTag)) {
+                    // Nothing in between, replace the previous value
+                    merged.put(lastKey, entry.getValue());
+                    continue;
+                }
+                // Tags are only unique within a burst
+                lastKey = Integer.toString(merged.size());
+                lastOnlyTag = isLastOnlyTag(tag) ? tag : null;
+                merged.put(lastKey, entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    private static boolean isLastOnlyTag(String tag) {
+        // Tags generated from lastInvocationTag consist of digits only
+        for (int i = 0; i < tag.length(); i++) {
+            if (!Character.isDigit(tag.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Cleans given queue of variable changes of such changes that came from
      * components that do not exist anymore.
@@ -1608,6 +1680,32 @@ public class ApplicationConnection implements HasHandlers {
         Command c = new Command() {
             private boolean onlyNoLayoutUpdates = true;
 
+            private ValueMap meta = null;
+
+            private double processUidlStart;
+
+            /*
+             * Progress of creating connectors and updating their states, which
+             * might be split into multiple chunks
+             */
+            private JsArrayString typeKeys;
+            private JsArrayString stateKeys;
+            private int nextConnectorIndex = 0;
+            private final JsArrayString createdConnectorIds = JavaScriptObject
+                    .createArray().cast();
+            private FastStringSet remainingNewConnectors;
+            private final JsArrayObject<StateChangeEvent> pendingStateChangeEvents = JavaScriptObject
+                    .createArray().cast();
+            private int chunkCount = 0;
+            private double longestChunk = 0;
+
+            private final ScheduledCommand handleNextChunk = new ScheduledCommand() {
+                @Override
+                public void execute() {
+                    handleConnectorChunk();
+                }
+            };
+
             @Override
             public void execute() {
                 assert syncId == -1 || syncId == lastSeenServerSyncId;
@@ -1616,7 +1714,6 @@ public class ApplicationConnection implements HasHandlers {
                         10);
 
                 Profiler.enter("Handling meta information");
-                ValueMap meta = null;
                 if (json.containsKey("meta")) {
                     VConsole.log(" * Handling meta information");
                     meta = json.getValueMap("meta");
@@ -1647,15 +1744,96 @@ public class ApplicationConnection implements HasHandlers {
 
                 updatingState = true;
 
-                double processUidlStart = Duration.currentTimeMillis();
+                processUidlStart = Duration.currentTimeMillis();
 
-                // Ensure that all connectors that we are about to update exist
-                JsArrayString createdConnectorIds = createConnectorsIfNeeded(json);
+                VConsole.log(" * Creating connectors (if needed)");
+                if (json.containsKey("types")) {
+                    typeKeys = json.getValueMap("types").getKeyArray();
+                } else {
+                    typeKeys = JavaScriptObject.createArray().cast();
+                }
+                if (json.containsKey("state")) {
+                    stateKeys = json.getValueMap("state").getKeyArray();
+                } else {
+                    stateKeys = JavaScriptObject.createArray().cast();
+                }
+
+                handleConnectorChunk();
+            }
 
-                // Update states, do not fire events
-                JsArrayObject<StateChangeEvent> pendingStateChangeEvents = updateConnectorState(
-                        json, createdConnectorIds);
+            /**
+             * Creates the connectors that do not yet exist and updates the
+             * connector states without firing any events. If a frame budget
+             * for message handling has been set, only as many connectors as
+             * fit within the budget are handled and the rest are handled in
+             * subsequent chunks scheduled to run after the browser has had a
+             * chance to update the screen and react to user input.
+             * <p>
+             * No events are fired and layouts are prevented by
+             * {@link #isUpdatingState()} until all the states have been
+             * updated, so connectors never see a partially handled message.
+             */
+            private void handleConnectorChunk() {
+                Profiler.enter("Handling connector chunk");
+                double chunkStart = Duration.currentTimeMillis();
+                double deadline = Double.POSITIVE_INFINITY;
+                if (messageHandlingFrameBudget > 0) {
+                    deadline = chunkStart + messageHandlingFrameBudget;
+                }
+                chunkCount++;
+
+                if (remainingNewConnectors == null) {
+                    // Ensure that all connectors that we are about to update
+                    // exist
+                    nextConnectorIndex = createConnectorsIfNeeded(
+                            json.getValueMap("types"), nextConnectorIndex,
+                            deadline);
+                    if (nextConnectorIndex == typeKeys.length()) {
+                        VConsole.log(" * Updating connector states");
+                        remainingNewConnectors = FastStringSet.create();
+                        remainingNewConnectors.addAll(createdConnectorIds);
+                        nextConnectorIndex = 0;
+                    }
+                }
 
+                boolean done = false;
+                if (remainingNewConnectors != null
+                        && !isDeadlinePassed(deadline)) {
+                    // Update states, do not fire events
+                    nextConnectorIndex = updateConnectorState(
+                            json.getValueMap("state"), nextConnectorIndex,
+                            deadline);
+                    if (nextConnectorIndex == stateKeys.length()) {
+                        addEventsForNewConnectorsWithoutState();
+                        done = true;
+                    }
+                }
+
+                longestChunk = Math.max(longestChunk,
+                        Duration.currentTimeMillis() - chunkStart);
+                Profiler.leave("Handling connector chunk");
+
+                if (!done) {
+                    chunkedMessageLock = lock;
+                    Scheduler.get().scheduleDeferred(handleNextChunk);
+                    return;
+                }
+                chunkedMessageLock = null;
+
+                if (chunkCount > 1) {
+                    VConsole.log(" * Connectors handled in " + chunkCount
+                            + " chunks, longest chunk took " + longestChunk
+                            + " ms");
+                }
+                finishMessageHandling();
+            }
+
+            private boolean isDeadlinePassed(double deadline) {
+                return deadline != Double.POSITIVE_INFINITY
+                        && Duration.currentTimeMillis() > deadline;
+            }
+
+            private void finishMessageHandling() {
                 /*
                  * Doing this here so that locales are available also to the
                  * connectors which get a state change event before the UI.
@@ -2011,20 +2189,33 @@ public class ApplicationConnection implements HasHandlers {
                 Profiler.leave("unregisterRemovedConnectors");
             }
 
-            private JsArrayString createConnectorsIfNeeded(ValueMap json) {
-                VConsole.log(" * Creating connectors (if needed)");
-
-                JsArrayString createdConnectors = JavaScriptObject
-                        .createArray().cast();
-                if (!json.containsKey("types")) {
-                    return createdConnectors;
+            /**
+             * Creates the connectors in the types map of the message that do
+             * not yet exist, starting from the given index.
+             *
+             * @param types
+             *            the connector types of the message
+             * @param firstIndex
+             *            the index of the first connector id to handle
+             * @param deadline
+             *            the time after which no more connectors should be
+             *            handled
+             * @return the index of the first connector id that was not handled
+             */
+            private int createConnectorsIfNeeded(ValueMap types,
+                    int firstIndex, double deadline) {
+                JsArrayString keyArray = typeKeys;
+                if (firstIndex == keyArray.length()) {
+                    return firstIndex;
                 }
 
                 Profiler.enter("Creating connectors");
 
-                ValueMap types = json.getValueMap("types");
-                JsArrayString keyArray = types.getKeyArray();
-                for (int i = 0; i < keyArray.length(); i++) {
+                int i;
+                for (i = firstIndex; i < keyArray.length(); i++) {
+                    if (i > firstIndex && isDeadlinePassed(deadline)) {
+                        break;
+                    }
                     try {
                         String connectorId = keyArray.get(i);
                         ServerConnector connector = connectorMap
@@ -2050,7 +2241,7 @@ public class ApplicationConnection implements HasHandlers {
                             connector = getConnector(connectorId, connectorType);
                             Profiler.leave("ApplicationConnection.getConnector");
 
-                            createdConnectors.push(connectorId);
+                            createdConnectorIds.push(connectorId);
                         } else {
                             // First UIConnector update. Before this the
                             // UIConnector has been created but not
@@ -2060,7 +2251,7 @@ public class ApplicationConnection implements HasHandlers {
                                     uIConnector);
                             uIConnector.doInit(connectorId,
                                     ApplicationConnection.this);
-                            createdConnectors.push(connectorId);
+                            createdConnectorIds.push(connectorId);
                         }
                     } catch (final Throwable e) {
                         VConsole.error(e);
@@ -2069,7 +2260,7 @@ public class ApplicationConnection implements HasHandlers {
 
                 Profiler.leave("Creating connectors");
 
-                return createdConnectors;
+                return i;
             }
 
             private void updateVaadin6StyleConnectors(ValueMap json) {
@@ -2172,24 +2363,36 @@ public class ApplicationConnection implements HasHandlers {
                 VConsole.log(newChildren);
             }
 
-            private JsArrayObject<StateChangeEvent> updateConnectorState(
-                    ValueMap json, JsArrayString createdConnectorIds) {
-                JsArrayObject<StateChangeEvent> events = JavaScriptObject
-                        .createArray().cast();
-                VConsole.log(" * Updating connector states");
-                if (!json.containsKey("state")) {
-                    return events;
+            /**
+             * Updates the states of the connectors in the state map of the
+             * message, starting from the given index. State change events are
+             * added to {@link #pendingStateChangeEvents} but not fired.
+             *
+             * @param states
+             *            the connector states of the message
+             * @param firstIndex
+             *            the index of the first connector id to handle
+             * @param deadline
+             *            the time after which no more states should be
+             *            updated
+             * @return the index of the first connector id that was not handled
+             */
+            private int updateConnectorState(ValueMap states, int firstIndex,
+                    double deadline) {
+                JsArrayObject<StateChangeEvent> events = pendingStateChangeEvents;
+                JsArrayString keyArray = stateKeys;
+                if (firstIndex == keyArray.length()) {
+                    return firstIndex;
                 }
 
                 Profiler.enter("updateConnectorState");
 
-                FastStringSet remainingNewConnectors = FastStringSet.create();
-                remainingNewConnectors.addAll(createdConnectorIds);
-
                 // set states for all paintables mentioned in "state"
-                ValueMap states = json.getValueMap("state");
-                JsArrayString keyArray = states.getKeyArray();
-                for (int i = 0; i < keyArray.length(); i++) {
+                int i;
+                for (i = firstIndex; i < keyArray.length(); i++) {
+                    if (i > firstIndex && isDeadlinePassed(deadline)) {
+                        break;
+                    }
                     try {
                         String connectorId = keyArray.get(i);
                         ServerConnector connector = connectorMap
@@ -2258,6 +2461,14 @@ public class ApplicationConnection implements HasHandlers {
                     }
                 }
 
+                Profiler.leave("updateConnectorState");
+
+                return i;
+            }
+
+            private void addEventsForNewConnectorsWithoutState() {
+                JsArrayObject<StateChangeEvent> events = pendingStateChangeEvents;
+
                 Profiler.enter("updateConnectorState newWithoutState");
                 // Fire events for properties using the default value for newly
                 // created connectors even if there were no state changes
@@ -2275,10 +2486,6 @@ public class ApplicationConnection implements HasHandlers {
 
                 }
                 Profiler.leave("updateConnectorState newWithoutState");
-
-                Profiler.leave("updateConnectorState");
-
-                return events;
             }
 
             /**
@@ -2813,74 +3020,81 @@ public class ApplicationConnection implements HasHandlers {
      */
     private void buildAndSendVariableBurst(
             LinkedHashMap<String, MethodInvocation> pendingInvocations) {
-        boolean showLoadingIndicator = false;
-        JsonArray reqJson = Json.createArray();
-        if (!pendingInvocations.isEmpty()) {
-            if (ApplicationConfiguration.isDebugMode()) {
-                Util.logVariableBurst(this, pendingInvocations.values());
-            }
-
-            for (MethodInvocation invocation : pendingInvocations.values()) {
-                JsonArray invocationJson = Json.createArray();
-                invocationJson.set(0, invocation.getConnectorId());
-                invocationJson.set(1, invocation.getInterfaceName());
-                invocationJson.set(2, invocation.getMethodName());
-                JsonArray paramJson = Json.createArray();
+        Profiler.enter("ApplicationConnection.buildAndSendVariableBurst");
+        try {
+            boolean showLoadingIndicator = false;
+            JsonArray reqJson = Json.createArray();
+            if (!pendingInvocations.isEmpty()) {
+                if (ApplicationConfiguration.isDebugMode()) {
+                    Util.logVariableBurst(this, pendingInvocations.values());
+                }
 
-                Type[] parameterTypes = null;
-                if (!isLegacyVariableChange(invocation)
-                        && !isJavascriptRpc(invocation)) {
-                    try {
-                        Type type = new Type(invocation.getInterfaceName(),
-                                null);
-                        Method method = type.getMethod(invocation
-                                .getMethodName());
-                        parameterTypes = method.getParameterTypes();
-
-                        showLoadingIndicator |= !TypeDataStore
-                                .isNoLoadingIndicator(method);
-                    } catch (NoDataException e) {
-                        throw new RuntimeException("No type data for "
-                                + invocation.toString(), e);
+                for (MethodInvocation invocation : pendingInvocations
+                        .values()) {
+                    JsonArray invocationJson = Json.createArray();
+                    invocationJson.set(0, invocation.getConnectorId());
+                    invocationJson.set(1, invocation.getInterfaceName());
+                    invocationJson.set(2, invocation.getMethodName());
+                    JsonArray paramJson = Json.createArray();
+
+                    Type[] parameterTypes = null;
+                    if (!isLegacyVariableChange(invocation)
+                            && !isJavascriptRpc(invocation)) {
+                        try {
+                            Type type = new Type(
+                                    invocation.getInterfaceName(), null);
+                            Method method = type.getMethod(invocation
+                                    .getMethodName());
+                            parameterTypes = method.getParameterTypes();
+
+                            showLoadingIndicator |= !TypeDataStore
+                                    .isNoLoadingIndicator(method);
+                        } catch (NoDataException e) {
+                            throw new RuntimeException("No type data for "
+                                    + invocation.toString(), e);
+                        }
+                    } else {
+                        // Always show loading indicator for legacy requests
+                        showLoadingIndicator = true;
                     }
-                } else {
-                    // Always show loading indicator for legacy requests
-                    showLoadingIndicator = true;
-                }
 
-                for (int i = 0; i < invocation.getParameters().length; ++i) {
-                    // TODO non-static encoder?
-                    Type type = null;
-                    if (parameterTypes != null) {
-                        type = parameterTypes[i];
+                    for (int i = 0; i < invocation.getParameters().length; ++i) {
+                        // TODO non-static encoder?
+                        Type type = null;
+                        if (parameterTypes != null) {
+                            type = parameterTypes[i];
+                        }
+                        Object value = invocation.getParameters()[i];
+                        JsonValue jsonValue = JsonEncoder.encode(value, type,
+                                this);
+                        paramJson.set(i, jsonValue);
                     }
-                    Object value = invocation.getParameters()[i];
-                    JsonValue jsonValue = JsonEncoder.encode(value, type, this);
-                    paramJson.set(i, jsonValue);
+                    invocationJson.set(3, paramJson);
+                    reqJson.set(reqJson.length(), invocationJson);
                 }
-                invocationJson.set(3, paramJson);
-                reqJson.set(reqJson.length(), invocationJson);
+
+                pendingInvocations.clear();
+                // Keep tag string short
+                lastInvocationTag = 0;
             }
 
-            pendingInvocations.clear();
-            // Keep tag string short
-            lastInvocationTag = 0;
-        }
+            String extraParams = "";
+            if (!getConfiguration().isWidgetsetVersionSent()) {
+                if (!extraParams.isEmpty()) {
+                    extraParams += "&";
+                }
+                String widgetsetVersion = Version.getFullVersion();
+                extraParams += "v-wsver=" + widgetsetVersion;
 
-        String extraParams = "";
-        if (!getConfiguration().isWidgetsetVersionSent()) {
-            if (!extraParams.isEmpty()) {
-                extraParams += "&";
+                getConfiguration().setWidgetsetVersionSent();
             }
-            String widgetsetVersion = Version.getFullVersion();
-            extraParams += "v-wsver=" + widgetsetVersion;
-
-            getConfiguration().setWidgetsetVersionSent();
-        }
-        if (showLoadingIndicator) {
-            getLoadingIndicator().trigger();
+            if (showLoadingIndicator) {
+                getLoadingIndicator().trigger();
+            }
+            makeUidlRequest(reqJson, extraParams);
+        } finally {
+            Profiler.leave("ApplicationConnection.buildAndSendVariableBurst");
         }
-        makeUidlRequest(reqJson, extraParams);
     }
 
     private boolean isJavascriptRpc(MethodInvocation invocation) {
@@ -3517,11 +3731,36 @@ public class ApplicationConnection implements HasHandlers {
         @Override
         public void run() {
             VConsole.log("WARNING: reponse handling was never resumed, forcibly removing locks...");
-            responseHandlingLocks.clear();
-            handlePendingMessages();
+            if (forceRemoveLocks(responseHandlingLocks, chunkedMessageLock)) {
+                handlePendingMessages();
+            }
         }
     };
 
+    /**
+     * Removes all the given response handling locks except the lock of a
+     * message that is being handled in chunks. Such a message has not been
+     * applied completely, so pending messages must not be handled before it
+     * resumes response handling after its last chunk.
+     *
+     * @param locks
+     *            the response handling locks to remove
+     * @param chunkedMessageLock
+     *            the lock of the message being handled in chunks, or
+     *            <code>null</code> if there is no such message
+     * @return <code>true</code> if no locks remain and pending messages can be
+     *         handled, <code>false</code> otherwise
+     */
+    static boolean forceRemoveLocks(Set<Object> locks,
+            Object chunkedMessageLock) {
+        locks.clear();
+        if (chunkedMessageLock != null) {
+            locks.add(chunkedMessageLock);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * This method can be used to postpone rendering of a response for a short
      * period of time (e.g. to avoid the rendering process during animation).
@@ -3729,4 +3968,45 @@ public class ApplicationConnection implements HasHandlers {
     public boolean isUpdatingState() {
         return updatingState;
     }
+
+    /**
+     * Sets the frame budget for handling messages from the server. When the
+     * budget is positive, creating connectors and updating their states is
+     * split into chunks that take roughly the given number of milliseconds.
+     * Between the chunks, the browser is allowed to update the screen and
+     * handle user input, which keeps the page responsive while handling
+     * messages that create or update thousands of connectors.
+     * <p>
+     * No state change or hierarchy change events are fired and no layouts are
+     * run before all the connectors of a message have been handled, so
+     * connectors see the same order of events in both modes. The chunks show
+     * up as "Handling connector chunk" in the profiler output.
+     * <p>
+     * The default budget is 0, which means that each message is handled in
+     * one go.
+     *
+     * @since 7.5
+     * @param messageHandlingFrameBudget
+     *            the maximum number of milliseconds to spend in one chunk, or
+     *            0 to disable chunking
+     */
+    public void setMessageHandlingFrameBudget(int messageHandlingFrameBudget) {
+        if (messageHandlingFrameBudget < 0) {
+            throw new IllegalArgumentException(
+                    "Frame budget cannot be negative");
+        }
+        this.messageHandlingFrameBudget = messageHandlingFrameBudget;
+    }
+
+    /**
+     * Gets the frame budget for handling messages from the server.
+     *
+     * @since 7.5
+     * @return the maximum number of milliseconds to spend in one chunk, or 0
+     *         if chunking is disabled
+     * @see #setMessageHandlingFrameBudget(int)
+     */
+    public int getMessageHandlingFrameBudget() {
+        return messageHandlingFrameBudget;
+    }
 }
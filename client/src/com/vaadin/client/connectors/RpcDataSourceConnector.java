@@ -17,6 +17,7 @@
 package com.vaadin.client.connectors;
 
 import java.util.ArrayList;
+import java.util.Collections;
 
 import com.vaadin.client.ServerConnector;
 import com.vaadin.client.data.AbstractRemoteDataSource;
@@ -59,6 +60,35 @@ public class RpcDataSourceConnector extends AbstractExtensionConnector {
                     dataSource.setRowData(firstRow, rows);
                 }
 
+                @Override
+                public void updateRowCells(int rowIndex, JsonObject rowObject) {
+                    JsonObject row = dataSource.getRow(rowIndex);
+                    if (row == null
+                            || !getRowKey(rowObject).equals(getRowKey(row))) {
+                        /*
+                         * The row is not cached and will be requested with
+                         * up-to-date data if needed.
+                         */
+                        return;
+                    }
+
+                    JsonObject data = Json.createObject();
+                    JsonObject oldData = row
+                            .getObject(GridState.JSONKEY_DATA);
+                    for (String key : oldData.keys()) {
+                        data.put(key, oldData.get(key));
+                    }
+                    JsonObject changedData = rowObject
+                            .getObject(GridState.JSONKEY_DATA);
+                    for (String key : changedData.keys()) {
+                        data.put(key, changedData.get(key));
+                    }
+                    rowObject.put(GridState.JSONKEY_DATA, data);
+
+                    dataSource.setRowData(rowIndex,
+                            Collections.singletonList(rowObject));
+                }
+
                 @Override
                 public void removeRowData(int firstRow, int count) {
                     dataSource.removeRowData(firstRow, count);
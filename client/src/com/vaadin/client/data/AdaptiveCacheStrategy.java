@@ -0,0 +1,255 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.client.data;
+
+import com.google.gwt.core.client.Duration;
+import com.vaadin.shared.ui.grid.Range;
+
+/**
+ * A cache strategy that adapts the amount of prefetched rows to the measured
+ * server round trip time and to the current scrolling speed.
+ * <p>
+ * While the displayed range is not moving, a number of pages based on the
+ * minimum and maximum ratios is kept cached on both sides of it, just like
+ * {@link CacheStrategy.DefaultCacheStrategy} does. While scrolling, the
+ * minimum cache range is additionally extended in the scrolling direction by
+ * the number of rows that are expected to scroll into view during the time it
+ * takes to fetch new rows from the server.
+ * <p>
+ * The total number of cached rows is capped by a memory budget. When the
+ * budget is exceeded, rows behind the scrolling direction are the first to be
+ * discarded.
+ *
+ * @since 7.5
+ * @author Vaadin Ltd
+ */
+public class AdaptiveCacheStrategy implements CacheStrategy {
+
+    /**
+     * The weight of a new measurement in the moving averages of the round trip
+     * time and the scrolling speed.
+     */
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    /**
+     * The number of milliseconds after which the displayed range is
+     * considered to have stopped moving if it has not changed.
+     */
+    private static final double IDLE_TIME = 500;
+
+    /**
+     * The number of round trips worth of scrolling to prefetch. One round trip
+     * is needed for the request that fills the current gap and another one for
+     * the request that is sent after it.
+     */
+    private static final int PREFETCH_ROUND_TRIPS = 2;
+
+    private static final int DEFAULT_MEMORY_BUDGET = 5 * 1024 * 1024;
+    private static final int DEFAULT_ROW_SIZE = 1024;
+
+    private final int minimumRatio;
+    private final int maximumRatio;
+
+    private int maximumCachedRows = DEFAULT_MEMORY_BUDGET / DEFAULT_ROW_SIZE;
+
+    private double roundTripTime = 100;
+    private boolean roundTripMeasured = false;
+
+    /** Scrolling speed in rows per millisecond, positive when moving down */
+    private double velocity = 0;
+    private int lastDisplayedStart = -1;
+    private double lastMoveTime;
+
+    /**
+     * Creates an adaptive cache strategy keeping between 3 and 4 pages worth of
+     * data cached both before and after the active range while not scrolling.
+     */
+    public AdaptiveCacheStrategy() {
+        this(3, 4);
+    }
+
+    /**
+     * Creates an adaptive cache strategy with custom ratios for how much data
+     * to cache when not scrolling. The ratios denote how many multiples of the
+     * currently used page size are kept in the cache in each direction.
+     *
+     * @param minimumRatio
+     *            the minimum number of pages to keep in the cache in each
+     *            direction
+     * @param maximumRatio
+     *            the maximum number of pages to keep in the cache in each
+     *            direction
+     */
+    public AdaptiveCacheStrategy(int minimumRatio, int maximumRatio) {
+        if (minimumRatio < 0 || maximumRatio < minimumRatio) {
+            throw new IllegalArgumentException("Invalid ratios: "
+                    + minimumRatio + ", " + maximumRatio);
+        }
+        this.minimumRatio = minimumRatio;
+        this.maximumRatio = maximumRatio;
+    }
+
+    /**
+     * Sets the amount of memory that cached rows may use. The number of cached
+     * rows is limited to the budget divided by the estimated size of one row.
+     * The displayed rows are always kept regardless of the budget.
+     * <p>
+     * The default budget is 5 MB with an estimated row size of 1 kB.
+     *
+     * @param budget
+     *            the memory budget in bytes
+     * @param estimatedRowSize
+     *            the estimated size of one cached row in bytes
+     */
+    public void setMemoryBudget(int budget, int estimatedRowSize) {
+        if (budget < 0 || estimatedRowSize <= 0) {
+            throw new IllegalArgumentException("Invalid memory budget: "
+                    + budget + ", " + estimatedRowSize);
+        }
+        maximumCachedRows = budget / estimatedRowSize;
+    }
+
+    /**
+     * Gets the maximum number of rows to keep cached, as determined by the
+     * memory budget.
+     *
+     * @return the maximum number of cached rows
+     */
+    public int getMaximumCachedRows() {
+        return maximumCachedRows;
+    }
+
+    /**
+     * Gets the current estimate of the time it takes to fetch rows from the
+     * server.
+     *
+     * @return the estimated round trip time in milliseconds
+     */
+    public double getRoundTripTime() {
+        return roundTripTime;
+    }
+
+    /**
+     * Gets the current scrolling speed. The speed is zero if the displayed
+     * range has not moved recently.
+     *
+     * @return the scrolling speed in rows per millisecond, positive when
+     *         scrolling towards the end
+     */
+    public double getScrollVelocity() {
+        if (lastDisplayedStart < 0
+                || getCurrentTime() - lastMoveTime > IDLE_TIME) {
+            return 0;
+        }
+        return velocity;
+    }
+
+    @Override
+    public void onDataArrive(double roundTripTime, int rowCount) {
+        if (roundTripMeasured) {
+            this.roundTripTime += SMOOTHING_FACTOR
+                    * (roundTripTime - this.roundTripTime);
+        } else {
+            this.roundTripTime = roundTripTime;
+            roundTripMeasured = true;
+        }
+    }
+
+    @Override
+    public Range getMinCacheRange(Range displayedRange, Range cachedRange,
+            Range estimatedAvailableRange) {
+        return getCacheRange(displayedRange, estimatedAvailableRange, false);
+    }
+
+    @Override
+    public Range getMaxCacheRange(Range displayedRange, Range cachedRange,
+            Range estimatedAvailableRange) {
+        return getCacheRange(displayedRange, estimatedAvailableRange, true);
+    }
+
+    private Range getCacheRange(Range displayedRange,
+            Range estimatedAvailableRange, boolean maximum) {
+        updateScrollVelocity(displayedRange);
+
+        int pageSize = displayedRange.length();
+        double currentVelocity = getScrollVelocity();
+        int prefetch = (int) Math.ceil(Math.abs(currentVelocity)
+                * roundTripTime * PREFETCH_ROUND_TRIPS);
+
+        int maxBehind = pageSize * maximumRatio;
+        int maxAhead = maxBehind + prefetch;
+
+        // Stay within the budget by dropping rows behind the scroll first
+        int budget = Math.max(0, maximumCachedRows - pageSize);
+        int excess = maxBehind + maxAhead - budget;
+        if (excess > 0) {
+            int fromBehind = Math.min(excess, maxBehind);
+            maxBehind -= fromBehind;
+            maxAhead -= excess - fromBehind;
+        }
+
+        int behind;
+        int ahead;
+        if (maximum) {
+            behind = maxBehind;
+            ahead = maxAhead;
+        } else {
+            int minimum = pageSize * minimumRatio;
+            behind = Math.min(minimum, maxBehind);
+            ahead = Math.min(minimum + prefetch, maxAhead);
+        }
+
+        Range range;
+        if (currentVelocity < 0) {
+            range = displayedRange.expand(ahead, behind);
+        } else {
+            range = displayedRange.expand(behind, ahead);
+        }
+        return range.restrictTo(estimatedAvailableRange);
+    }
+
+    private void updateScrollVelocity(Range displayedRange) {
+        int start = displayedRange.getStart();
+        if (start == lastDisplayedStart) {
+            return;
+        }
+
+        double now = getCurrentTime();
+        if (lastDisplayedStart >= 0) {
+            double elapsed = now - lastMoveTime;
+            double measured = (start - lastDisplayedStart)
+                    / Math.max(elapsed, 1);
+            if (elapsed > IDLE_TIME || velocity * measured <= 0) {
+                // Started moving again or changed direction
+                velocity = measured;
+            } else {
+                velocity += SMOOTHING_FACTOR * (measured - velocity);
+            }
+        }
+        lastDisplayedStart = start;
+        lastMoveTime = now;
+    }
+
+    /**
+     * Gets the current time used for measuring the scrolling speed.
+     *
+     * @return the current time in milliseconds
+     */
+    protected double getCurrentTime() {
+        return Duration.currentTimeMillis();
+    }
+}
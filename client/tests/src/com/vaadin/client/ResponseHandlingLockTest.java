@@ -0,0 +1,51 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ResponseHandlingLockTest {
+
+    private final Set<Object> locks = new HashSet<Object>();
+
+    @Test
+    public void forceRemoveLocks_noChunkedMessage_allLocksRemoved() {
+        locks.add(new Object());
+        locks.add(new Object());
+
+        assertTrue(ApplicationConnection.forceRemoveLocks(locks, null));
+        assertTrue(locks.isEmpty());
+    }
+
+    @Test
+    public void forceRemoveLocks_chunkedMessage_messageLockKept() {
+        Object messageLock = new Object();
+        locks.add(new Object());
+        locks.add(messageLock);
+
+        assertFalse(ApplicationConnection.forceRemoveLocks(locks,
+                messageLock));
+        assertEquals(Collections.singleton(messageLock), locks);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.shared.communication.MethodInvocation;
+
+public class VariableBurstMergeTest {
+
+    private final List<LinkedHashMap<String, MethodInvocation>> bursts = new ArrayList<LinkedHashMap<String, MethodInvocation>>();
+
+    private LinkedHashMap<String, MethodInvocation> burst() {
+        LinkedHashMap<String, MethodInvocation> burst = new LinkedHashMap<String, MethodInvocation>();
+        bursts.add(burst);
+        return burst;
+    }
+
+    private static MethodInvocation invocation(String method, Object value) {
+        return new MethodInvocation("1", "Rpc", method, new Object[] { value });
+    }
+
+    private List<String> mergedOrder() {
+        List<String> order = new ArrayList<String>();
+        for (MethodInvocation invocation : ApplicationConnection
+                .mergeVariableBursts(bursts).values()) {
+            order.add(invocation.getMethodName() + "="
+                    + invocation.getParameters()[0]);
+        }
+        return order;
+    }
+
+    @Test
+    public void lastOnlyReplacedWhenNothingInBetween() {
+        LinkedHashMap<String, MethodInvocation> first = burst();
+        first.put("0", invocation("click", "save"));
+        first.put("1-Rpc-text", invocation("text", "foo"));
+        burst().put("1-Rpc-text", invocation("text", "foobar"));
+
+        assertEquals("[click=save, text=foobar]", mergedOrder().toString());
+    }
+
+    @Test
+    public void lastOnlyKeptWhenOtherInvocationInBetween() {
+        LinkedHashMap<String, MethodInvocation> first = burst();
+        first.put("1-Rpc-text", invocation("text", "a"));
+        first.put("0", invocation("click", "save"));
+        burst().put("1-Rpc-text", invocation("text", "ab"));
+
+        assertEquals("[text=a, click=save, text=ab]", mergedOrder()
+                .toString());
+    }
+
+    @Test
+    public void incrementalTagsKeptInQueueOrder() {
+        LinkedHashMap<String, MethodInvocation> first = burst();
+        first.put("0", invocation("click", "a"));
+        first.put("1", invocation("click", "b"));
+        LinkedHashMap<String, MethodInvocation> second = burst();
+        second.put("0", invocation("click", "c"));
+        second.put("1-Rpc-text", invocation("text", "x"));
+
+        assertEquals("[click=a, click=b, click=c, text=x]", mergedOrder()
+                .toString());
+    }
+
+    @Test
+    public void newLastOnlyAppendedAfterEarlierBursts() {
+        burst().put("0", invocation("click", "a"));
+        burst().put("1-Rpc-text", invocation("text", "x"));
+
+        assertEquals("[click=a, text=x]", mergedOrder().toString());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.client.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.shared.ui.grid.Range;
+
+public class AdaptiveCacheStrategyTest {
+
+    private static final Range AVAILABLE = Range.withLength(0, 100000);
+
+    private double time = 1000;
+
+    private AdaptiveCacheStrategy strategy;
+
+    @Before
+    public void setUp() {
+        strategy = new AdaptiveCacheStrategy() {
+            @Override
+            protected double getCurrentTime() {
+                return time;
+            }
+        };
+    }
+
+    private Range min(Range displayed) {
+        return strategy.getMinCacheRange(displayed, displayed, AVAILABLE);
+    }
+
+    private Range max(Range displayed) {
+        return strategy.getMaxCacheRange(displayed, displayed, AVAILABLE);
+    }
+
+    private void scroll(int start, int rowsPerStep, double millisPerStep,
+            int steps) {
+        for (int i = 0; i <= steps; i++) {
+            min(Range.withLength(start + i * rowsPerStep, 10));
+            time += millisPerStep;
+        }
+        time -= millisPerStep;
+    }
+
+    @Test
+    public void notScrolling_symmetricRanges() {
+        Range displayed = Range.withLength(1000, 10);
+        assertEquals(Range.between(970, 1040), min(displayed));
+        assertEquals(Range.between(960, 1050), max(displayed));
+    }
+
+    @Test
+    public void onDataArrive_roundTripTimeSmoothed() {
+        strategy.onDataArrive(200, 50);
+        assertEquals(200, strategy.getRoundTripTime(), 0.001);
+        strategy.onDataArrive(300, 50);
+        assertEquals(230, strategy.getRoundTripTime(), 0.001);
+    }
+
+    @Test
+    public void scrollingDown_prefetchAhead() {
+        strategy.onDataArrive(200, 50);
+        // 10 rows every 20 ms = 0.5 rows per ms
+        scroll(1000, 10, 20, 10);
+        assertEquals(0.5, strategy.getScrollVelocity(), 0.001);
+
+        // 0.5 rows/ms * 200 ms * 2 round trips = 200 rows ahead
+        Range displayed = Range.withLength(1100, 10);
+        assertEquals(Range.between(1070, 1340), min(displayed));
+        assertEquals(Range.between(1060, 1350), max(displayed));
+    }
+
+    @Test
+    public void scrollingUp_prefetchBefore() {
+        strategy.onDataArrive(200, 50);
+        scroll(1000, -10, 20, 10);
+        assertEquals(-0.5, strategy.getScrollVelocity(), 0.001);
+
+        Range displayed = Range.withLength(900, 10);
+        assertEquals(Range.between(670, 940), min(displayed));
+    }
+
+    @Test
+    public void scrollingStopped_symmetricAgain() {
+        strategy.onDataArrive(200, 50);
+        scroll(1000, 10, 20, 10);
+        time += 1000;
+
+        assertEquals(0, strategy.getScrollVelocity(), 0.001);
+        assertEquals(Range.between(1070, 1140),
+                min(Range.withLength(1100, 10)));
+    }
+
+    @Test
+    public void memoryBudget_rowsBehindDroppedFirst() {
+        strategy.setMemoryBudget(100 * 1024, 1024);
+        assertEquals(100, strategy.getMaximumCachedRows());
+        strategy.onDataArrive(200, 50);
+        scroll(1000, 10, 20, 10);
+
+        Range displayed = Range.withLength(1100, 10);
+        Range max = max(displayed);
+        assertEquals(100, max.length());
+        assertEquals(displayed.getStart(), max.getStart());
+        assertTrue(min(displayed).isSubsetOf(max));
+    }
+
+    @Test
+    public void nearEnd_restrictedToAvailable() {
+        Range available = Range.withLength(0, 1005);
+        Range displayed = Range.withLength(995, 10);
+        assertEquals(Range.between(965, 1005),
+                strategy.getMinCacheRange(displayed, displayed, available));
+    }
+}
@@ -19,12 +19,15 @@ package com.vaadin.data;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -331,6 +334,12 @@ public class RpcDataProviderExtension extends AbstractExtension {
          */
         private final Map<Integer, GridValueChangeListener> valueChangeListeners = new HashMap<Integer, GridValueChangeListener>();
 
+        /**
+         * A map from item id to the value change listener of the active row
+         * showing that item
+         */
+        private final Map<Object, GridValueChangeListener> itemIdToListener = new HashMap<Object, GridValueChangeListener>();
+
         /**
          * The currently active range. Practically, it's the range of row
          * indices being cached currently.
@@ -399,6 +408,7 @@ public class RpcDataProviderExtension extends AbstractExtension {
                 GridValueChangeListener listener = new GridValueChangeListener(
                         itemId, item);
                 valueChangeListeners.put(i, listener);
+                itemIdToListener.put(itemId, listener);
             }
         }
 
@@ -410,9 +420,38 @@ public class RpcDataProviderExtension extends AbstractExtension {
                 assert listener != null : "Trying to remove nonexisting listener";
 
                 listener.removeListener();
+                if (itemIdToListener.get(listener.itemId) == listener) {
+                    itemIdToListener.remove(listener.itemId);
+                }
             }
         }
 
+        /**
+         * Removes all value change listeners without changing the active
+         * range.
+         */
+        private void clearValueChangeListeners() {
+            for (GridValueChangeListener listener : valueChangeListeners
+                    .values()) {
+                listener.removeListener();
+            }
+            valueChangeListeners.clear();
+            itemIdToListener.clear();
+        }
+
+        /**
+         * Gets the value change listener of the active row showing the given
+         * item.
+         * 
+         * @param itemId
+         *            the item id to look for
+         * @return the value change listener of the row, or <code>null</code>
+         *         if the item is not in the active range
+         */
+        public GridValueChangeListener getListener(Object itemId) {
+            return itemIdToListener.get(itemId);
+        }
+
         /**
          * Manages removed columns in active rows.
          * <p>
@@ -560,9 +599,12 @@ public class RpcDataProviderExtension extends AbstractExtension {
      * item.
      * <p>
      * One instance of this class can (and should) be reused for all the
-     * properties in an item, since this class will inform that the entire row
-     * needs to be re-evaluated (in contrast to a property-based change
-     * management)
+     * properties in an item. The changed property is looked up from the event
+     * so that only the changed cells need to be sent to the client.
+     * <p>
+     * The listener also caches the encoded cell data of the row for as long as
+     * the row is active, provided that all of its properties notify about
+     * value changes.
      * <p>
      * Since there's no Container-wide possibility to listen to any kind of
      * value changes, an instance of this class needs to be attached to each and
@@ -575,6 +617,14 @@ public class RpcDataProviderExtension extends AbstractExtension {
         private final Object itemId;
         private final Item item;
 
+        /**
+         * Whether all the column properties of the item notify about value
+         * changes, i.e. whether the encoded data can be kept
+         */
+        private boolean cacheable = true;
+        private transient JsonObject encodedData;
+        private int encodedDataVersion;
+
         public GridValueChangeListener(Object itemId, Item item) {
             /*
              * Using an assert instead of an exception throw, just to optimize
@@ -589,7 +639,46 @@ public class RpcDataProviderExtension extends AbstractExtension {
 
         @Override
         public void valueChange(ValueChangeEvent event) {
-            updateRowData(itemId);
+            Object propertyId = getPropertyId(event.getProperty());
+            if (propertyId != null) {
+                updateRowCell(itemId, propertyId);
+            } else {
+                updateRowData(itemId);
+            }
+        }
+
+        private Object getPropertyId(Property<?> property) {
+            for (Column column : getGrid().getColumns()) {
+                Object propertyId = column.getPropertyId();
+                if (property.equals(item.getItemProperty(propertyId))) {
+                    return propertyId;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gets the cached encoded cell data of the row.
+         * 
+         * @return the encoded data, or <code>null</code> if the data has not
+         *         been cached or has been invalidated since
+         */
+        public JsonObject getEncodedData() {
+            if (encodedDataVersion != RpcDataProviderExtension.this.encodedDataVersion) {
+                encodedData = null;
+            }
+            return encodedData;
+        }
+
+        public void setEncodedData(JsonObject encodedData) {
+            if (cacheable) {
+                this.encodedData = encodedData;
+                encodedDataVersion = RpcDataProviderExtension.this.encodedDataVersion;
+            }
+        }
+
+        public void clearEncodedData() {
+            encodedData = null;
         }
 
         public void removeListener() {
@@ -608,6 +697,9 @@ public class RpcDataProviderExtension extends AbstractExtension {
                 if (property instanceof ValueChangeNotifier) {
                     ((ValueChangeNotifier) property)
                             .addValueChangeListener(this);
+                } else {
+                    cacheable = false;
+                    encodedData = null;
                 }
             }
         }
@@ -688,12 +780,7 @@ public class RpcDataProviderExtension extends AbstractExtension {
                  * taking all the corner cases into account.
                  */
 
-                Map<Integer, GridValueChangeListener> listeners = activeRowHandler.valueChangeListeners;
-                for (GridValueChangeListener listener : listeners.values()) {
-                    listener.removeListener();
-                }
-
-                listeners.clear();
+                activeRowHandler.clearValueChangeListeners();
                 activeRowHandler.activeRange = Range.withLength(0, 0);
                 keyMapper.setActiveRange(Range.withLength(0, 0));
                 keyMapper.indexToItemId.clear();
@@ -718,6 +805,24 @@ public class RpcDataProviderExtension extends AbstractExtension {
     /** Set of updated item ids */
     private Set<Object> updatedItemIds = new LinkedHashSet<Object>();
 
+    /**
+     * Map from item id to the ids of changed properties for items that have
+     * only some of their cells updated
+     */
+    private Map<Object, Set<Object>> updatedCells = new LinkedHashMap<Object, Set<Object>>();
+
+    /**
+     * Version of the encoded cell data cached by the value change listeners.
+     * Incremented whenever the cached data may no longer be valid.
+     */
+    private int encodedDataVersion = 0;
+
+    /**
+     * The locale and the properties, keys, renderers and converters of the
+     * columns used for encoding the currently cached cell data
+     */
+    private List<Object> encodedDataSignature = Collections.emptyList();
+
     /**
      * Queued RPC calls for adding and removing rows. Queue will be handled in
      * {@link beforeClientResponse}
@@ -776,6 +881,8 @@ public class RpcDataProviderExtension extends AbstractExtension {
      */
     @Override
     public void beforeClientResponse(boolean initial) {
+        validateEncodedData();
+
         if (initial || bareItemSetTriggeredSizeChange) {
             /*
              * Push initial set of rows, assuming Grid will initially be
@@ -807,11 +914,15 @@ public class RpcDataProviderExtension extends AbstractExtension {
         for (Object itemId : updatedItemIds) {
             internalUpdateRowData(itemId);
         }
+        for (Entry<Object, Set<Object>> entry : updatedCells.entrySet()) {
+            internalUpdateRowCells(entry.getKey(), entry.getValue());
+        }
 
         // Clear all changes.
         rowChanges.clear();
         refreshCache = false;
         updatedItemIds.clear();
+        updatedCells.clear();
         bareItemSetTriggeredSizeChange = false;
 
         super.beforeClientResponse(initial);
@@ -827,33 +938,74 @@ public class RpcDataProviderExtension extends AbstractExtension {
 
         keyMapper.setActiveRange(active);
 
+        /*
+         * Activate the rows before encoding them, so that the encoded data can
+         * be cached by their value change listeners.
+         */
+        validateEncodedData();
+        activeRowHandler.setActiveRows(active.getStart(), active.length());
+
         List<?> itemIds = container.getItemIds(firstRowToPush, numberOfRows);
         JsonArray rows = Json.createArray();
         for (int i = 0; i < itemIds.size(); ++i) {
             rows.set(i, getRowData(getGrid().getColumns(), itemIds.get(i)));
         }
         rpc.setRowData(firstRowToPush, rows);
-
-        activeRowHandler.setActiveRows(active.getStart(), active.length());
     }
 
     private JsonValue getRowData(Collection<Column> columns, Object itemId) {
-        Item item = container.getItem(itemId);
+        GridValueChangeListener listener = activeRowHandler
+                .getListener(itemId);
+        JsonObject rowData = null;
+        if (listener != null) {
+            rowData = listener.getEncodedData();
+        }
 
-        JsonObject rowData = Json.createObject();
+        if (rowData == null) {
+            rowData = Json.createObject();
+            encodeCells(rowData, columns, container.getItem(itemId), null);
+            if (listener != null) {
+                listener.setEncodedData(rowData);
+            }
+        }
 
-        Grid grid = getGrid();
+        return createRowObject(columns, itemId, rowData);
+    }
+
+    /**
+     * Encodes the values of the given item for the given columns.
+     * 
+     * @param rowData
+     *            the object to add the encoded values to
+     * @param columns
+     *            the columns to encode
+     * @param item
+     *            the item to get the values from
+     * @param propertyIds
+     *            the ids of the properties to encode, or <code>null</code> to
+     *            encode all columns
+     */
+    private void encodeCells(JsonObject rowData, Collection<Column> columns,
+            Item item, Set<Object> propertyIds) {
+        Locale locale = getGrid().getLocale();
 
         for (Column column : columns) {
             Object propertyId = column.getPropertyId();
+            if (propertyIds != null && !propertyIds.contains(propertyId)) {
+                continue;
+            }
 
             Object propertyValue = item.getItemProperty(propertyId).getValue();
             JsonValue encodedValue = encodeValue(propertyValue,
-                    column.getRenderer(), column.getConverter(),
-                    grid.getLocale());
+                    column.getRenderer(), column.getConverter(), locale);
 
             rowData.put(columnKeys.key(propertyId), encodedValue);
         }
+    }
+
+    private JsonObject createRowObject(Collection<Column> columns,
+            Object itemId, JsonObject rowData) {
+        Grid grid = getGrid();
 
         final JsonObject rowObject = Json.createObject();
         rowObject.put(GridState.JSONKEY_DATA, rowData);
@@ -978,18 +1130,52 @@ public class RpcDataProviderExtension extends AbstractExtension {
      *            the item Id the row that was updated
      */
     public void updateRowData(Object itemId) {
-        if (updatedItemIds.isEmpty()) {
+        if (updatedItemIds.isEmpty() && updatedCells.isEmpty()) {
             // At least one new item will be updated. Mark as dirty to actually
             // update before response to client.
             markAsDirty();
         }
 
         updatedItemIds.add(itemId);
+        updatedCells.remove(itemId);
+    }
+
+    /**
+     * Informs the client side that the value of a single cell has been
+     * modified in the data source. Only the changed cells of the row are sent
+     * to the client, unless the whole row is updated anyway.
+     * 
+     * @param itemId
+     *            the item id of the updated row
+     * @param propertyId
+     *            the property id of the updated cell
+     */
+    private void updateRowCell(Object itemId, Object propertyId) {
+        if (updatedItemIds.contains(itemId)) {
+            return;
+        }
+
+        if (updatedItemIds.isEmpty() && updatedCells.isEmpty()) {
+            markAsDirty();
+        }
+
+        Set<Object> propertyIds = updatedCells.get(itemId);
+        if (propertyIds == null) {
+            propertyIds = new HashSet<Object>();
+            updatedCells.put(itemId, propertyIds);
+        }
+        propertyIds.add(propertyId);
     }
 
     private void internalUpdateRowData(Object itemId) {
         int index = container.indexOfId(itemId);
         if (index >= 0) {
+            GridValueChangeListener listener = activeRowHandler
+                    .getListener(itemId);
+            if (listener != null) {
+                listener.clearEncodedData();
+            }
+
             JsonValue row = getRowData(getGrid().getColumns(), itemId);
             JsonArray rowArray = Json.createArray();
             rowArray.set(0, row);
@@ -997,10 +1183,81 @@ public class RpcDataProviderExtension extends AbstractExtension {
         }
     }
 
+    private void internalUpdateRowCells(Object itemId, Set<Object> propertyIds) {
+        GridValueChangeListener listener = activeRowHandler
+                .getListener(itemId);
+        JsonObject cachedData = null;
+        if (listener != null) {
+            cachedData = listener.getEncodedData();
+        }
+
+        if (cachedData == null) {
+            // The other cells are not known either, send the whole row
+            internalUpdateRowData(itemId);
+            return;
+        }
+
+        int index = container.indexOfId(itemId);
+        if (index < 0) {
+            return;
+        }
+
+        Collection<Column> columns = getGrid().getColumns();
+        JsonObject changedData = Json.createObject();
+        encodeCells(changedData, columns, container.getItem(itemId),
+                propertyIds);
+
+        /*
+         * The cached object might still be referenced by a pending RPC call,
+         * so a new object is created instead of modifying it.
+         */
+        JsonObject rowData = Json.createObject();
+        for (String key : cachedData.keys()) {
+            JsonValue value = cachedData.get(key);
+            rowData.put(key, value);
+        }
+        for (String key : changedData.keys()) {
+            JsonValue value = changedData.get(key);
+            rowData.put(key, value);
+        }
+        listener.setEncodedData(rowData);
+
+        rpc.updateRowCells(index, createRowObject(columns, itemId, changedData));
+    }
+
+    /**
+     * Invalidates the cached cell data if the locale or the properties, keys,
+     * renderers or converters of the columns have changed.
+     */
+    private void validateEncodedData() {
+        Grid grid = getGrid();
+        if (grid == null) {
+            return;
+        }
+
+        List<Object> signature = new ArrayList<Object>();
+        signature.add(grid.getLocale());
+        for (Column column : grid.getColumns()) {
+            signature.add(column.getPropertyId());
+            signature.add(columnKeys.key(column.getPropertyId()));
+            signature.add(column.getRenderer());
+            signature.add(column.getConverter());
+        }
+
+        if (!signature.equals(encodedDataSignature)) {
+            encodedDataSignature = signature;
+            encodedDataVersion++;
+        }
+    }
+
     /**
      * Pushes a new version of all the rows in the active cache range.
+     * <p>
+     * Cell values are encoded again, which makes this method useful also when
+     * the data has changed without the container notifying about it.
      */
     public void refreshCache() {
+        encodedDataVersion++;
         if (!refreshCache) {
             refreshCache = true;
             markAsDirty();
@@ -323,6 +323,9 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
      */
     @Override
     public void valueChange(ValueChangeEvent event) {
+        // the event does not tell which item changed, rebuild indexes lazily
+        invalidatePropertyIndexes();
+        invalidatePreviousFiltering();
         // if a property that is used in a filter is changed, refresh filtering
         filterAll();
     }
@@ -355,8 +358,15 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
     public void removeAllContainerFilters() {
         if (!getFilters().isEmpty()) {
             for (Item item : itemIdToItem.values()) {
-                removeAllValueChangeListeners(item);
+                for (Object propertyId : item.getItemPropertyIds()) {
+                    // indexed properties are still listened to
+                    if (!isPropertyIndexed(propertyId)) {
+                        removeValueChangeListener(item, propertyId);
+                    }
+                }
             }
+            // value changes are no longer tracked
+            invalidatePreviousFiltering();
             removeAllFilters();
         }
     }
@@ -371,11 +381,12 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
     @Override
     public void removeContainerFilters(Object propertyId) {
         Collection<Filter> removedFilters = super.removeFilters(propertyId);
-        if (!removedFilters.isEmpty()) {
+        if (!removedFilters.isEmpty() && !isPropertyIndexed(propertyId)) {
             // stop listening to change events for the property
             for (Item item : itemIdToItem.values()) {
                 removeValueChangeListener(item, propertyId);
             }
+            invalidatePreviousFiltering();
         }
     }
 
@@ -410,6 +421,58 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
         return super.getContainerFilters();
     }
 
+    /**
+     * Adds a secondary index on the values of a property to speed up filtering
+     * the container using {@link com.vaadin.data.util.filter.Compare Compare},
+     * {@link com.vaadin.data.util.filter.Between Between} and prefix matching
+     * {@link SimpleStringFilter} filters on the property.
+     * <p>
+     * The index is kept up to date when items are added or removed and when
+     * property values are changed through the items of the container. As with
+     * filtering, changes made directly to the beans are not detected.
+     * 
+     * @since 7.5
+     * @param propertyId
+     *            the id of the property to index, not null
+     */
+    @Override
+    public void addPropertyIndex(Object propertyId) {
+        super.addPropertyIndex(propertyId);
+        for (Item item : itemIdToItem.values()) {
+            addValueChangeListener(item, propertyId);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.vaadin.data.util.AbstractInMemoryContainer#removePropertyIndex(java
+     * .lang.Object)
+     */
+    @Override
+    public boolean removePropertyIndex(Object propertyId) {
+        if (!super.removePropertyIndex(propertyId)) {
+            return false;
+        }
+        if (!isPropertyFiltered(propertyId)) {
+            for (Item item : itemIdToItem.values()) {
+                removeValueChangeListener(item, propertyId);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.util.AbstractInMemoryContainer#getIndexedPropertyIds()
+     */
+    @Override
+    public Collection<Object> getIndexedPropertyIds() {
+        return super.getIndexedPropertyIds();
+    }
+
     /**
      * Make this container listen to the given property provided it notifies
      * when its value changes.
@@ -504,6 +567,9 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
                 }
             }
         }
+        for (Object propertyId : getIndexedPropertyIds()) {
+            addValueChangeListener(item, propertyId);
+        }
     }
 
     /**
@@ -840,6 +906,12 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
         for (BeanItem<BEANTYPE> item : itemIdToItem.values()) {
             item.addItemProperty(propertyId,
                     propertyDescriptor.createProperty(item.getBean()));
+            if (isPropertyIndexed(propertyId)) {
+                addValueChangeListener(item, propertyId);
+            }
+        }
+        if (isPropertyIndexed(propertyId)) {
+            invalidatePropertyIndexes();
         }
 
         // Sends a change event
@@ -897,6 +969,8 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
                 item.removeItemProperty(propertyId);
             }
         }
+        invalidatePropertyIndexes();
+        invalidatePreviousFiltering();
 
         // Sends a change event
         fireContainerPropertySetChange();
@@ -917,6 +991,10 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE> extends
         for (final Iterator<IDTYPE> i = getAllItemIds().iterator(); i.hasNext();) {
             getUnfilteredItem(i.next()).removeItemProperty(propertyId);
         }
+        if (isPropertyIndexed(propertyId)) {
+            invalidatePropertyIndexes();
+        }
+        invalidatePreviousFiltering();
 
         // Sends a change event
         fireContainerPropertySetChange();
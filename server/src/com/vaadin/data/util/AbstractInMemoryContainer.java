@@ -16,18 +16,22 @@
 package com.vaadin.data.util;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EventObject;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.ItemSetChangeNotifier;
 import com.vaadin.data.Item;
+import com.vaadin.data.Property;
 import com.vaadin.data.util.filter.SimpleStringFilter;
 import com.vaadin.data.util.filter.UnsupportedFilterException;
 
@@ -127,6 +131,26 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      */
     private ItemSorter itemSorter = new DefaultItemSorter();
 
+    /**
+     * Secondary indexes on property values used to speed up filtering, by
+     * property id. Null if no indexes have been added.
+     */
+    private Map<Object, PropertyValueIndex> propertyIndexes;
+
+    /**
+     * The filters used in the latest filtering and the item ids that passed
+     * them. When the filters are only narrowed down, just these items need to
+     * be checked again. Null if not known or no longer valid.
+     */
+    private Set<Filter> previousFilters;
+    private List<ITEMIDTYPE> previousFilteredItemIds;
+
+    /**
+     * True if the latest filtering only removed items from the previously
+     * visible ones.
+     */
+    private boolean narrowedByLatestFiltering = false;
+
     // Constructors
 
     /**
@@ -484,11 +508,46 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      * way.
      */
     protected void filterAll() {
+        List<ITEMIDTYPE> visibleBefore = getVisibleItemIds();
+        narrowedByLatestFiltering = false;
         if (doFilterContainer(!getFilters().isEmpty())) {
-            fireItemSetChange();
+            if (!narrowedByLatestFiltering
+                    || !fireRemovedRange(visibleBefore, getVisibleItemIds())) {
+                fireItemSetChange();
+            }
         }
     }
 
+    /**
+     * Fires an item remove event if the items visible after filtering are the
+     * items visible before it with a single contiguous range removed.
+     * 
+     * @param before
+     *            the visible item ids before filtering
+     * @param after
+     *            the visible item ids after filtering, a subset of before in
+     *            the same order
+     * @return true if an event was fired
+     */
+    private boolean fireRemovedRange(List<ITEMIDTYPE> before,
+            List<ITEMIDTYPE> after) {
+        int removed = before.size() - after.size();
+        if (removed <= 0) {
+            return false;
+        }
+        int first = 0;
+        while (first < after.size() && before.get(first) == after.get(first)) {
+            first++;
+        }
+        for (int i = first; i < after.size(); i++) {
+            if (before.get(i + removed) != after.get(i)) {
+                return false;
+            }
+        }
+        fireItemsRemoved(first, before.get(first), removed);
+        return true;
+    }
+
     /**
      * Filters the data in the container and updates internal data structures.
      * This method should reset any internal data structures and then repopulate
@@ -517,23 +576,53 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         }
         setFilteredItemIds(new ListSet<ITEMIDTYPE>());
 
+        // If the filters have only been narrowed down, just the items that
+        // passed the previous filters need to be checked
+        List<ITEMIDTYPE> itemIdsToFilter = getAllItemIds();
+        if (previousFilters != null
+                && FilterNarrowing.isNarrowing(previousFilters, getFilters())) {
+            itemIdsToFilter = previousFilteredItemIds;
+            narrowedByLatestFiltering = true;
+        }
+
+        // Items that can pass the filters according to the property indexes,
+        // null to check all items
+        Set<Object> candidates = findIndexedCandidates();
+
         // Filter
         boolean equal = true;
         Iterator<ITEMIDTYPE> origIt = originalFilteredItemIds.iterator();
-        for (final Iterator<ITEMIDTYPE> i = getAllItemIds().iterator(); i
+        for (final Iterator<ITEMIDTYPE> i = itemIdsToFilter.iterator(); i
                 .hasNext();) {
             final ITEMIDTYPE id = i.next();
-            if (passesFilters(id)) {
+            if ((candidates == null || candidates.contains(id))
+                    && passesFilters(id)) {
                 // filtered list comes from the full list, can use ==
                 equal = equal && origIt.hasNext() && origIt.next() == id;
                 getFilteredItemIds().add(id);
             }
         }
 
+        previousFilters = new HashSet<Filter>(getFilters());
+        previousFilteredItemIds = getFilteredItemIds();
+
         return (wasUnfiltered && !getAllItemIds().isEmpty()) || !equal
                 || origIt.hasNext();
     }
 
+    /**
+     * Forgets the result of the previous filtering so that the next filtering
+     * checks all items, even if the filters have only been narrowed down.
+     * Subclasses must call this when property values of items may have changed
+     * or the order of items has changed.
+     * 
+     * @since 7.5
+     */
+    protected void invalidatePreviousFiltering() {
+        previousFilters = null;
+        previousFilteredItemIds = null;
+    }
+
     /**
      * Checks if the given itemId passes the filters set for the container. The
      * caller should make sure the itemId exists in the container. For
@@ -732,6 +821,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
                 ascending);
 
         // Perform the actual sort
+        invalidatePreviousFiltering();
         doSort();
 
         // Post sort updates
@@ -752,7 +842,25 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      * 
      */
     protected void doSort() {
-        Collections.sort(getAllItemIds(), getItemSorter());
+        sortItemIds(getAllItemIds());
+    }
+
+    /**
+     * Sorts a list of item ids using the item sorter. If the item sorter is a
+     * {@link DefaultItemSorter}, its faster {@link DefaultItemSorter#sort(List)}
+     * is used instead of <code>Collections.sort</code>.
+     * 
+     * @since 7.5
+     * @param itemIds
+     *            the item ids to sort
+     */
+    protected void sortItemIds(List<?> itemIds) {
+        ItemSorter sorter = getItemSorter();
+        if (sorter instanceof DefaultItemSorter) {
+            ((DefaultItemSorter) sorter).sort(itemIds);
+        } else {
+            Collections.sort(itemIds, sorter);
+        }
     }
 
     /**
@@ -773,6 +881,172 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
 
     // removing items
 
+    // Property indexes
+
+    /**
+     * Adds a secondary index on the values of a property. The index is used
+     * when filtering the container to only check the items that can pass
+     * {@link com.vaadin.data.util.filter.Compare Compare},
+     * {@link com.vaadin.data.util.filter.Between Between} and prefix matching
+     * {@link SimpleStringFilter} filters on the property, also when combined
+     * using {@link com.vaadin.data.util.filter.And And} and
+     * {@link com.vaadin.data.util.filter.Or Or}. Other filters are evaluated
+     * for all items as before.
+     * <p>
+     * The index is built when it is first needed and kept up to date when
+     * items are added or removed and when subclasses report value changes
+     * using {@link #updatePropertyIndexes(Object, Object)} or
+     * {@link #invalidatePropertyIndexes()}.
+     * 
+     * @since 7.5
+     * @param propertyId
+     *            the id of the property to index, not null
+     */
+    protected void addPropertyIndex(Object propertyId) {
+        if (propertyId == null) {
+            throw new IllegalArgumentException("Property id cannot be null");
+        }
+        if (propertyIndexes == null) {
+            propertyIndexes = new LinkedHashMap<Object, PropertyValueIndex>();
+        }
+        if (!propertyIndexes.containsKey(propertyId)) {
+            propertyIndexes.put(propertyId, new PropertyValueIndex(propertyId));
+        }
+    }
+
+    /**
+     * Removes a secondary index added using {@link #addPropertyIndex(Object)}.
+     * 
+     * @since 7.5
+     * @param propertyId
+     *            the id of the indexed property
+     * @return true if an index was removed
+     */
+    protected boolean removePropertyIndex(Object propertyId) {
+        if (propertyIndexes == null
+                || propertyIndexes.remove(propertyId) == null) {
+            return false;
+        }
+        if (propertyIndexes.isEmpty()) {
+            propertyIndexes = null;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ids of the properties that have a secondary index.
+     * 
+     * @since 7.5
+     * @return an unmodifiable collection of property ids, not null
+     */
+    protected Collection<Object> getIndexedPropertyIds() {
+        if (propertyIndexes == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(propertyIndexes.keySet());
+    }
+
+    /**
+     * Checks if a property has a secondary index.
+     * 
+     * @since 7.5
+     * @param propertyId
+     *            the id of the property
+     * @return true if the property is indexed
+     */
+    protected boolean isPropertyIndexed(Object propertyId) {
+        return propertyIndexes != null
+                && propertyIndexes.containsKey(propertyId);
+    }
+
+    /**
+     * Updates the secondary index of a property after the value of the
+     * property has changed in an item. Does nothing if the property is not
+     * indexed.
+     * 
+     * @since 7.5
+     * @param itemId
+     *            the id of the item whose property value has changed
+     * @param propertyId
+     *            the id of the property that has changed
+     */
+    protected void updatePropertyIndexes(Object itemId, Object propertyId) {
+        if (propertyIndexes == null) {
+            return;
+        }
+        PropertyValueIndex index = propertyIndexes.get(propertyId);
+        if (index != null && !index.isStale()) {
+            index.update(itemId, getIndexedValue(itemId, propertyId));
+        }
+    }
+
+    /**
+     * Marks all secondary indexes as out of date, causing them to be rebuilt
+     * the next time they are needed. Subclasses should call this when property
+     * values may have changed in a way that cannot be reported using
+     * {@link #updatePropertyIndexes(Object, Object)}.
+     * 
+     * @since 7.5
+     */
+    protected void invalidatePropertyIndexes() {
+        if (propertyIndexes != null) {
+            for (PropertyValueIndex index : propertyIndexes.values()) {
+                index.markStale();
+            }
+        }
+    }
+
+    /**
+     * Finds the ids of the items that can pass the current filters using the
+     * property indexes. Stale indexes are rebuilt first.
+     * 
+     * @return the candidate item ids, or null if the indexes cannot be used
+     *         for any of the filters
+     */
+    private Set<Object> findIndexedCandidates() {
+        if (propertyIndexes == null || getFilters().isEmpty()) {
+            return null;
+        }
+        for (PropertyValueIndex index : propertyIndexes.values()) {
+            if (index.isStale()) {
+                index.reset();
+                for (ITEMIDTYPE itemId : getAllItemIds()) {
+                    index.add(itemId,
+                            getIndexedValue(itemId, index.getPropertyId()));
+                }
+            }
+        }
+
+        Set<Object> candidates = null;
+        for (Filter filter : getFilters()) {
+            Set<Object> ids = PropertyValueIndex.lookup(filter,
+                    propertyIndexes);
+            if (ids != null) {
+                candidates = candidates == null ? ids : PropertyValueIndex
+                        .intersect(candidates, ids);
+            }
+        }
+        return candidates;
+    }
+
+    private Object getIndexedValue(Object itemId, Object propertyId) {
+        Item item = getUnfilteredItem(itemId);
+        Property<?> property = item == null ? null : item
+                .getItemProperty(propertyId);
+        return property == null ? null : property.getValue();
+    }
+
+    private void addToPropertyIndexes(Object itemId) {
+        if (propertyIndexes != null) {
+            for (PropertyValueIndex index : propertyIndexes.values()) {
+                if (!index.isStale()) {
+                    index.add(itemId,
+                            getIndexedValue(itemId, index.getPropertyId()));
+                }
+            }
+        }
+    }
+
     /**
      * Removes all items from the internal data structures of this class. This
      * can be used to implement {@link #removeAllItems()} in subclasses.
@@ -786,6 +1060,8 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         if (isFiltered()) {
             getFilteredItemIds().clear();
         }
+        invalidatePropertyIndexes();
+        invalidatePreviousFiltering();
     }
 
     /**
@@ -809,10 +1085,73 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         if (result && isFiltered()) {
             getFilteredItemIds().remove(itemId);
         }
+        if (result) {
+            invalidatePreviousFiltering();
+        }
+        if (result && propertyIndexes != null) {
+            for (PropertyValueIndex index : propertyIndexes.values()) {
+                index.remove(itemId);
+            }
+        }
 
         return result;
     }
 
+    /**
+     * Removes multiple items from the internal data structures of this class
+     * using a single pass over the item identifier lists. This can be used to
+     * implement bulk removal in subclasses, removing the items one by one
+     * using {@link #internalRemoveItem(Object)} takes time proportional to the
+     * size of the container for every item.
+     * 
+     * No notification is sent, the caller has to fire a suitable item set
+     * change notification.
+     * 
+     * @since 7.5
+     * @param itemIds
+     *            the identifiers of the items to remove
+     * @return the number of items that were removed
+     */
+    protected int internalRemoveItems(Set<?> itemIds) {
+        int removed = removeAll(getAllItemIds(), itemIds);
+        if (removed > 0) {
+            if (isFiltered()) {
+                removeAll(getFilteredItemIds(), itemIds);
+            }
+            invalidatePreviousFiltering();
+            if (propertyIndexes != null) {
+                for (PropertyValueIndex index : propertyIndexes.values()) {
+                    for (Object itemId : itemIds) {
+                        index.remove(itemId);
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all the given elements from a list, keeping the order of the
+     * remaining elements. Unlike {@link List#removeAll(Collection)} this does
+     * not remove the elements one at a time.
+     * 
+     * @return the number of removed elements
+     */
+    private static <T> int removeAll(List<T> list, Set<?> elements) {
+        List<T> retained = new ArrayList<T>(list.size());
+        for (T element : list) {
+            if (!elements.contains(element)) {
+                retained.add(element);
+            }
+        }
+        int removed = list.size() - retained.size();
+        if (removed > 0) {
+            list.clear();
+            list.addAll(retained);
+        }
+        return removed;
+    }
+
     // adding items
 
     /**
@@ -854,6 +1193,8 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         // by the caller after calling this method.
         getAllItemIds().add(position, itemId);
         registerNewItem(position, itemId, item);
+        addToPropertyIndexes(itemId);
+        invalidatePreviousFiltering();
 
         return item;
     }
@@ -1125,6 +1466,7 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
     @Deprecated
     protected void setAllItemIds(List<ITEMIDTYPE> allItemIds) {
         this.allItemIds = allItemIds;
+        invalidatePreviousFiltering();
     }
 
     /**
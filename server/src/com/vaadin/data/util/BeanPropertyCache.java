@@ -0,0 +1,213 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.beans.PropertyDescriptor;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.vaadin.util.ReflectTools;
+
+/**
+ * Shared cache of bean property metadata keyed by bean class. Introspecting a
+ * bean class and looking up its getter and setter methods is much slower than
+ * invoking them, so the results are computed once per class and then shared by
+ * all {@link BeanItem}, {@link MethodProperty} and
+ * {@link NestedMethodProperty} instances.
+ * <p>
+ * Cached methods are made accessible when possible. This only skips the access
+ * checks done on every invocation; methods that would not otherwise be
+ * accessible are left as they are.
+ * 
+ * For internal use only. May change or be removed in future versions.
+ * 
+ * @since 7.5
+ */
+final class BeanPropertyCache implements Serializable {
+
+    /**
+     * Resolved chain of getters and the optional setter for a possibly nested
+     * property.
+     */
+    static final class PropertyAccessors implements Serializable {
+        private final transient List<Method> getters;
+        private final transient Method setter;
+
+        private PropertyAccessors(List<Method> getters, Method setter) {
+            this.getters = Collections.unmodifiableList(getters);
+            this.setter = setter;
+        }
+
+        /**
+         * Returns the getters to call in order, starting from the bean.
+         * 
+         * @return an unmodifiable list of getter methods, not empty
+         */
+        List<Method> getGetters() {
+            return getters;
+        }
+
+        /**
+         * Returns the setter to call on the value returned by all but the last
+         * getter.
+         * 
+         * @return the setter method or null if the property is read-only
+         */
+        Method getSetter() {
+            return setter;
+        }
+    }
+
+    private static final ConcurrentMap<Class<?>, Map<String, VaadinPropertyDescriptor<?>>> descriptors = new ConcurrentHashMap<Class<?>, Map<String, VaadinPropertyDescriptor<?>>>();
+
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, PropertyAccessors>> accessors = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, PropertyAccessors>>();
+
+    private BeanPropertyCache() {
+        // static methods only
+    }
+
+    /**
+     * Returns the introspected property descriptors of a bean class.
+     * 
+     * @param beanClass
+     *            the bean class, not null
+     * @return an unmodifiable ordered map from property names to descriptors
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static <BT> Map<String, VaadinPropertyDescriptor<BT>> getPropertyDescriptors(
+            Class<BT> beanClass) {
+        Map<String, VaadinPropertyDescriptor<?>> cached = descriptors
+                .get(beanClass);
+        if (cached == null) {
+            Map<String, VaadinPropertyDescriptor<?>> pdMap = new LinkedHashMap<String, VaadinPropertyDescriptor<?>>();
+
+            // Try to introspect, if it fails, we just have an empty Item
+            try {
+                List<PropertyDescriptor> propertyDescriptors = BeanUtil
+                        .getBeanPropertyDescriptor(beanClass);
+
+                // later entries on the list overwrite earlier ones
+                for (PropertyDescriptor pd : propertyDescriptors) {
+                    final Method getMethod = pd.getReadMethod();
+                    if ((getMethod != null)
+                            && getMethod.getDeclaringClass() != Object.class) {
+                        pdMap.put(pd.getName(), new MethodPropertyDescriptor(
+                                pd.getName(), pd.getPropertyType(),
+                                ReflectTools.makeAccessible(getMethod),
+                                ReflectTools.makeAccessible(pd
+                                        .getWriteMethod())));
+                    }
+                }
+            } catch (final java.beans.IntrospectionException ignored) {
+            }
+
+            cached = Collections.unmodifiableMap(pdMap);
+            descriptors.putIfAbsent(beanClass, cached);
+        }
+        return (Map) cached;
+    }
+
+    /**
+     * Returns the getter chain and setter of a possibly nested bean property,
+     * e.g. "name" or "manager.address.street".
+     * 
+     * @param beanClass
+     *            the class of the top-level bean
+     * @param propertyName
+     *            the property name, nested properties separated by dots
+     * @return the accessors, not null
+     * @throws IllegalArgumentException
+     *             if the property name is invalid
+     * @throws NoSuchMethodException
+     *             if a getter is not found, the message is the name of the
+     *             missing property
+     */
+    static PropertyAccessors getAccessors(Class<?> beanClass,
+            String propertyName) throws NoSuchMethodException {
+        ConcurrentMap<String, PropertyAccessors> classAccessors = accessors
+                .get(beanClass);
+        if (classAccessors == null) {
+            classAccessors = new ConcurrentHashMap<String, PropertyAccessors>();
+            ConcurrentMap<String, PropertyAccessors> existing = accessors
+                    .putIfAbsent(beanClass, classAccessors);
+            if (existing != null) {
+                classAccessors = existing;
+            }
+        }
+        PropertyAccessors result = classAccessors.get(propertyName);
+        if (result == null) {
+            result = resolveAccessors(beanClass, propertyName);
+            classAccessors.putIfAbsent(propertyName, result);
+        }
+        return result;
+    }
+
+    private static PropertyAccessors resolveAccessors(Class<?> beanClass,
+            String propertyName) throws NoSuchMethodException {
+        String[] simplePropertyNames = propertyName.split("\\.");
+        if (propertyName.endsWith(".") || 0 == simplePropertyNames.length) {
+            throw new IllegalArgumentException("Invalid property name '"
+                    + propertyName + "'");
+        }
+
+        List<Method> getters = new ArrayList<Method>();
+        String lastSimplePropertyName = propertyName;
+        Class<?> lastClass = beanClass;
+        Class<?> propertyClass = beanClass;
+        for (String name : simplePropertyNames) {
+            String simplePropertyName = name.trim();
+            if (simplePropertyName.length() == 0) {
+                throw new IllegalArgumentException(
+                        "Empty or invalid bean property identifier in '"
+                                + propertyName + "'");
+            }
+            lastSimplePropertyName = simplePropertyName;
+            lastClass = propertyClass;
+            Method getter;
+            try {
+                getter = MethodProperty.initGetterMethod(simplePropertyName,
+                        propertyClass);
+            } catch (NoSuchMethodException e) {
+                throw new NoSuchMethodException(simplePropertyName);
+            }
+            propertyClass = getter.getReturnType();
+            getters.add(ReflectTools.makeAccessible(getter));
+        }
+
+        // Assure that the first letter is upper cased (it is a common
+        // mistake to write firstName, not FirstName).
+        if (Character.isLowerCase(lastSimplePropertyName.charAt(0))) {
+            final char[] buf = lastSimplePropertyName.toCharArray();
+            buf[0] = Character.toUpperCase(buf[0]);
+            lastSimplePropertyName = new String(buf);
+        }
+        Method setter = null;
+        try {
+            setter = ReflectTools.makeAccessible(lastClass.getMethod("set"
+                    + lastSimplePropertyName, new Class[] { propertyClass }));
+        } catch (final NoSuchMethodException skipped) {
+        }
+
+        return new PropertyAccessors(getters, setter);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Item;
+import com.vaadin.data.Property;
+import com.vaadin.data.Property.ValueChangeEvent;
+import com.vaadin.data.Property.ValueChangeListener;
+import com.vaadin.data.Property.ValueChangeNotifier;
+import com.vaadin.data.sort.SortOrder;
+import com.vaadin.data.util.filter.UnsupportedFilterException;
+
+/**
+ * PropertyValueGenerator that remembers the values generated by another
+ * generator. Values are cached by item id and reused until a property of the
+ * item fires a {@link ValueChangeEvent}, the item is removed from the
+ * container or the least recently used values are evicted because the cache is
+ * full.
+ * <p>
+ * Use this for generators that are expensive to evaluate, e.g. when values are
+ * looked up or converted:
+ *
+ * <pre>
+ * container.addGeneratedProperty(&quot;price&quot;,
+ *         new CachingPropertyValueGenerator&lt;String&gt;(priceGenerator, 1000));
+ * </pre>
+ * <p>
+ * Only changes made through item properties implementing
+ * {@link ValueChangeNotifier} are noticed. If the data the wrapped generator
+ * depends on is changed in some other way, use {@link #invalidate(Object)} or
+ * {@link #clearCache()}. Filters returned by {@link #modifyFilter(Filter)} that
+ * need the generated values can call {@link #getValue(Item, Object, Object)} on
+ * this generator to use the cached values.
+ * <p>
+ * Values are cached by item id only, so an instance should be used for only
+ * one generated property.
+ *
+ * @param <T>
+ *            Property data type
+ * @since 7.5
+ * @author Vaadin Ltd
+ */
+public class CachingPropertyValueGenerator<T> extends PropertyValueGenerator<T> {
+
+    /**
+     * The default maximum number of cached values.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    /**
+     * A cached value and the property value change notifiers it listens to.
+     */
+    private class CachedValue implements ValueChangeListener {
+        private final Object itemId;
+        private final T value;
+        private final List<ValueChangeNotifier> notifiers = new ArrayList<ValueChangeNotifier>();
+
+        private CachedValue(Object itemId, T value) {
+            this.itemId = itemId;
+            this.value = value;
+        }
+
+        private void listen(Item item) {
+            for (Object propertyId : item.getItemPropertyIds()) {
+                Property<?> property = item.getItemProperty(propertyId);
+                if (property instanceof ValueChangeNotifier) {
+                    ValueChangeNotifier notifier = (ValueChangeNotifier) property;
+                    notifier.addValueChangeListener(this);
+                    notifiers.add(notifier);
+                }
+            }
+        }
+
+        private void stopListening() {
+            for (ValueChangeNotifier notifier : notifiers) {
+                notifier.removeValueChangeListener(this);
+            }
+            notifiers.clear();
+        }
+
+        @Override
+        public void valueChange(ValueChangeEvent event) {
+            invalidate(itemId);
+        }
+    }
+
+    /**
+     * Access ordered map that releases the least recently used values when
+     * full.
+     */
+    private class ValueCache extends LinkedHashMap<Object, CachedValue> {
+
+        private ValueCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, CachedValue> eldest) {
+            if (size() > maxSize) {
+                eldest.getValue().stopListening();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final PropertyValueGenerator<T> generator;
+    private final int maxSize;
+    private final ValueCache cache = new ValueCache();
+
+    /**
+     * Creates a caching generator with the default maximum size.
+     *
+     * @param generator
+     *            the generator whose values are cached, not <code>null</code>
+     */
+    public CachingPropertyValueGenerator(PropertyValueGenerator<T> generator) {
+        this(generator, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a caching generator.
+     *
+     * @param generator
+     *            the generator whose values are cached, not <code>null</code>
+     * @param maxSize
+     *            the maximum number of cached values, at least 1
+     */
+    public CachingPropertyValueGenerator(PropertyValueGenerator<T> generator,
+            int maxSize) {
+        if (generator == null) {
+            throw new IllegalArgumentException("Generator cannot be null");
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum size must be at least 1");
+        }
+        this.generator = generator;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public T getValue(Item item, Object itemId, Object propertyId) {
+        CachedValue cached = cache.get(itemId);
+        if (cached == null) {
+            cached = new CachedValue(itemId, generator.getValue(item, itemId,
+                    propertyId));
+            cached.listen(item);
+            cache.put(itemId, cached);
+        }
+        return cached.value;
+    }
+
+    @Override
+    public Class<T> getType() {
+        return generator.getType();
+    }
+
+    @Override
+    public SortOrder[] getSortProperties(SortOrder order) {
+        return generator.getSortProperties(order);
+    }
+
+    @Override
+    public Filter modifyFilter(Filter filter) throws UnsupportedFilterException {
+        return generator.modifyFilter(filter);
+    }
+
+    /**
+     * Removes the cached value of an item, so that it is generated again the
+     * next time it is needed.
+     *
+     * @param itemId
+     *            the id of the item
+     */
+    public void invalidate(Object itemId) {
+        CachedValue cached = cache.remove(itemId);
+        if (cached != null) {
+            cached.stopListening();
+        }
+    }
+
+    /**
+     * Removes the cached values of items that are no longer in the given
+     * container.
+     *
+     * @param container
+     *            the container the cached items belong to
+     */
+    void invalidateRemoved(Container container) {
+        Iterator<CachedValue> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            CachedValue cached = iterator.next();
+            if (!container.containsId(cached.itemId)) {
+                cached.stopListening();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public void clearCache() {
+        for (CachedValue cached : cache.values()) {
+            cached.stopListening();
+        }
+        cache.clear();
+    }
+
+    /**
+     * Gets the number of currently cached values.
+     *
+     * @return the number of cached values
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Gets the maximum number of cached values.
+     *
+     * @return the maximum number of cached values
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the generator whose values are cached.
+     *
+     * @return the wrapped generator
+     */
+    public PropertyValueGenerator<T> getWrappedGenerator() {
+        return generator;
+    }
+}
@@ -18,8 +18,14 @@ package com.vaadin.data.util;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.Sortable;
@@ -36,14 +42,37 @@ import com.vaadin.data.Property;
  * A Comparator is used for comparing the individual <code>Property</code>
  * values. The comparator can be set using the constructor. If no comparator is
  * provided a default comparator is used.
+ * <p>
+ * {@link #sort(List)} sorts a list of item ids by first extracting the sort
+ * property values of all items and then sorting on the extracted values. Large
+ * lists can be sorted in parallel by setting an executor using
+ * {@link #setSortExecutor(ExecutorService)}.
  * 
  */
 public class DefaultItemSorter implements ItemSorter {
 
+    /**
+     * Lists with fewer items than this are sorted by comparing the items
+     * directly.
+     */
+    private static final int KEY_EXTRACTION_THRESHOLD = 32;
+
+    /**
+     * Lists with at least this many items are sorted in parallel if a sort
+     * executor has been set.
+     * 
+     * @since 7.5
+     * @see #setSortExecutor(ExecutorService)
+     */
+    public static final int PARALLEL_SORT_THRESHOLD = 50000;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
     private java.lang.Object[] sortPropertyIds;
     private boolean[] sortDirections;
     private Container container;
     private Comparator<Object> propertyValueComparator;
+    private transient ExecutorService sortExecutor;
 
     /**
      * Constructs a DefaultItemSorter using the default <code>Comparator</code>
@@ -186,6 +215,432 @@ public class DefaultItemSorter implements ItemSorter {
 
     }
 
+    /**
+     * Sets the executor used for sorting large lists in parallel. Lists with
+     * at least {@value #PARALLEL_SORT_THRESHOLD} items are split into chunks
+     * that are sorted and merged using the executor, while the calling thread
+     * waits for them. By default no executor is set and all sorting is done
+     * on the calling thread.
+     * <p>
+     * The property value comparator is called from the executor threads,
+     * which do not hold the session lock. Only set an executor if the
+     * comparator and the sorted property values can safely be used from
+     * other threads. The executor is not serialized with the sorter.
+     * 
+     * @since 7.5
+     * @param sortExecutor
+     *            the executor to sort with, or <code>null</code> to sort on
+     *            the calling thread only
+     */
+    public void setSortExecutor(ExecutorService sortExecutor) {
+        this.sortExecutor = sortExecutor;
+    }
+
+    /**
+     * Gets the executor used for sorting large lists in parallel.
+     * 
+     * @since 7.5
+     * @return the sort executor, or <code>null</code> if sorting is done on
+     *         the calling thread only
+     * @see #setSortExecutor(ExecutorService)
+     */
+    public ExecutorService getSortExecutor() {
+        return sortExecutor;
+    }
+
+    /**
+     * Sorts the given list of item ids using the current sort properties. The
+     * result is the same as for
+     * <code>Collections.sort(itemIds, this)</code>, but the property values
+     * of each item are only fetched once instead of for every comparison.
+     * <p>
+     * If {@link #compare(Object, Object)} or
+     * {@link #compareProperty(Object, boolean, Item, Item)} has been
+     * overridden, this falls back to <code>Collections.sort</code>.
+     * 
+     * @since 7.5
+     * @param itemIds
+     *            the item ids of items in the container set using
+     *            {@link #setSortProperties(Sortable, Object[], boolean[])}
+     */
+    public void sort(List<?> itemIds) {
+        if (itemIds.size() < KEY_EXTRACTION_THRESHOLD
+                || !isKeyExtractionSupported()) {
+            Collections.sort(itemIds, this);
+            return;
+        }
+
+        Object[] ids = itemIds.toArray();
+        int n = ids.length;
+
+        // Extract the keys, filtered out items are placed last
+        boolean[] missing = new boolean[n];
+        Object[][] values = new Object[sortPropertyIds.length][n];
+        for (int i = 0; i < n; i++) {
+            Item item = container.getItem(ids[i]);
+            if (item == null) {
+                missing[i] = true;
+                continue;
+            }
+            for (int p = 0; p < sortPropertyIds.length; p++) {
+                Property<?> property = item.getItemProperty(sortPropertyIds[p]);
+                values[p][i] = property == null ? null : property.getValue();
+            }
+        }
+        SortKey[] keys = new SortKey[sortPropertyIds.length];
+        for (int p = 0; p < keys.length; p++) {
+            keys[p] = createSortKey(values[p], sortDirections[p]);
+        }
+        IndexComparator comparator = new IndexComparator(missing, keys);
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        if (sortExecutor != null && n >= PARALLEL_SORT_THRESHOLD) {
+            parallelSort(order, comparator, sortExecutor);
+        } else {
+            mergeSort(order, new int[n], 0, n, comparator);
+        }
+
+        // Same approach as in Collections.sort, allows the temporary
+        // duplicates of ListSet
+        @SuppressWarnings("unchecked")
+        ListIterator<Object> iterator = (ListIterator<Object>) itemIds
+                .listIterator();
+        for (int i = 0; i < n; i++) {
+            iterator.next();
+            iterator.set(ids[order[i]]);
+        }
+    }
+
+    /*
+     * The extracted keys can only be used if the comparison logic of this
+     * class is not overridden.
+     */
+    private boolean isKeyExtractionSupported() {
+        if (container == null) {
+            return false;
+        }
+        for (Class<?> type = getClass(); type != DefaultItemSorter.class; type = type
+                .getSuperclass()) {
+            if (declaresMethod(type, "compare", Object.class, Object.class)
+                    || declaresMethod(type, "compareProperty", Object.class,
+                            boolean.class, Item.class, Item.class)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean declaresMethod(Class<?> type, String name,
+            Class<?>... parameterTypes) {
+        try {
+            type.getDeclaredMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /*
+     * Uses primitive arrays when all values are integers or floating point
+     * values of the same type compared using the default comparator.
+     */
+    private SortKey createSortKey(Object[] values, boolean ascending) {
+        if (propertyValueComparator.getClass() == DefaultPropertyValueComparator.class) {
+            // Mixed types are left to the comparator, which might fail
+            Class<?> type = null;
+            for (Object value : values) {
+                // missing items have null values but are never compared
+                if (value == null) {
+                    continue;
+                } else if (type == null) {
+                    type = value.getClass();
+                } else if (type != value.getClass()) {
+                    type = null;
+                    break;
+                }
+            }
+            if (type == Integer.class || type == Long.class
+                    || type == Short.class || type == Byte.class) {
+                return new LongSortKey(values, ascending);
+            } else if (type == Double.class || type == Float.class) {
+                return new DoubleSortKey(values, ascending);
+            }
+        }
+        return new ObjectSortKey(values, propertyValueComparator, ascending);
+    }
+
+    /**
+     * Compares two item positions by the extracted sort keys.
+     */
+    private static class IndexComparator implements Serializable {
+        private final boolean[] missing;
+        private final SortKey[] keys;
+
+        private IndexComparator(boolean[] missing, SortKey[] keys) {
+            this.missing = missing;
+            this.keys = keys;
+        }
+
+        int compare(int i1, int i2) {
+            if (missing[i1]) {
+                return missing[i2] ? 0 : 1;
+            } else if (missing[i2]) {
+                return -1;
+            }
+            for (SortKey key : keys) {
+                int result = key.compare(i1, i2);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static abstract class SortKey implements Serializable {
+        abstract int compare(int i1, int i2);
+    }
+
+    private static class ObjectSortKey extends SortKey {
+        private final Object[] values;
+        private final Comparator<Object> comparator;
+        private final boolean ascending;
+
+        private ObjectSortKey(Object[] values, Comparator<Object> comparator,
+                boolean ascending) {
+            this.values = values;
+            this.comparator = comparator;
+            this.ascending = ascending;
+        }
+
+        @Override
+        int compare(int i1, int i2) {
+            if (ascending) {
+                return comparator.compare(values[i1], values[i2]);
+            } else {
+                return comparator.compare(values[i2], values[i1]);
+            }
+        }
+    }
+
+    private static class LongSortKey extends SortKey {
+        private final long[] values;
+        private final boolean[] nulls;
+        private final boolean ascending;
+
+        private LongSortKey(Object[] values, boolean ascending) {
+            this.values = new long[values.length];
+            nulls = new boolean[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    nulls[i] = true;
+                } else {
+                    this.values[i] = ((Number) values[i]).longValue();
+                }
+            }
+            this.ascending = ascending;
+        }
+
+        @Override
+        int compare(int i1, int i2) {
+            if (!ascending) {
+                int tmp = i1;
+                i1 = i2;
+                i2 = tmp;
+            }
+            // null is less than non-null
+            if (nulls[i1] || nulls[i2]) {
+                return nulls[i1] == nulls[i2] ? 0 : (nulls[i1] ? -1 : 1);
+            }
+            long v1 = values[i1];
+            long v2 = values[i2];
+            return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+        }
+    }
+
+    private static class DoubleSortKey extends SortKey {
+        private final double[] values;
+        private final boolean[] nulls;
+        private final boolean ascending;
+
+        private DoubleSortKey(Object[] values, boolean ascending) {
+            this.values = new double[values.length];
+            nulls = new boolean[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    nulls[i] = true;
+                } else {
+                    this.values[i] = ((Number) values[i]).doubleValue();
+                }
+            }
+            this.ascending = ascending;
+        }
+
+        @Override
+        int compare(int i1, int i2) {
+            if (!ascending) {
+                int tmp = i1;
+                i1 = i2;
+                i2 = tmp;
+            }
+            if (nulls[i1] || nulls[i2]) {
+                return nulls[i1] == nulls[i2] ? 0 : (nulls[i1] ? -1 : 1);
+            }
+            // Same ordering as Double.compareTo
+            return Double.compare(values[i1], values[i2]);
+        }
+    }
+
+    /*
+     * Stable merge sort of order[from, to) using tmp as scratch space.
+     */
+    private static void mergeSort(int[] order, int[] tmp, int from, int to,
+            IndexComparator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int value = order[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(order[j], value) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = value;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, tmp, from, middle, comparator);
+        mergeSort(order, tmp, middle, to, comparator);
+        merge(order, tmp, from, middle, to, comparator);
+    }
+
+    /*
+     * Merges the sorted ranges order[from, middle) and order[middle, to).
+     */
+    private static void merge(int[] order, int[] tmp, int from, int middle,
+            int to, IndexComparator comparator) {
+        if (comparator.compare(order[middle - 1], order[middle]) <= 0) {
+            // already in order
+            return;
+        }
+        System.arraycopy(order, from, tmp, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to
+                    || (left < middle && comparator.compare(tmp[left],
+                            tmp[right]) <= 0)) {
+                order[i] = tmp[left++];
+            } else {
+                order[i] = tmp[right++];
+            }
+        }
+    }
+
+    /*
+     * Sorts chunks of the array in parallel and merges them pairwise. The
+     * calling thread sorts the first chunk itself.
+     */
+    private static void parallelSort(int[] order, IndexComparator comparator,
+            ExecutorService executor) {
+        int n = order.length;
+        int[] tmp = new int[n];
+        int chunks = Integer.highestOneBit(Math.min(Runtime.getRuntime()
+                .availableProcessors(), n / (PARALLEL_SORT_THRESHOLD / 4)));
+        if (chunks < 2) {
+            mergeSort(order, tmp, 0, n, comparator);
+            return;
+        }
+        int[] bounds = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            bounds[i] = (int) ((long) n * i / chunks);
+        }
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 1; i < chunks; i++) {
+            futures.add(executor.submit(
+                    new SortTask(order, tmp, bounds[i], -1, bounds[i + 1],
+                            comparator)));
+        }
+        mergeSort(order, tmp, bounds[0], bounds[1], comparator);
+        waitFor(futures);
+
+        for (int width = 1; width < chunks; width *= 2) {
+            futures.clear();
+            for (int i = 0; i + width < chunks; i += 2 * width) {
+                int to = bounds[Math.min(i + 2 * width, chunks)];
+                futures.add(executor.submit(
+                        new SortTask(order, tmp, bounds[i], bounds[i + width],
+                                to, comparator)));
+            }
+            waitFor(futures);
+        }
+    }
+
+    /**
+     * Sorts a range of the order array, or merges two adjacent sorted ranges
+     * if a middle index is given.
+     */
+    private static class SortTask implements Callable<Void>, Serializable {
+        private final int[] order;
+        private final int[] tmp;
+        private final int from;
+        private final int middle;
+        private final int to;
+        private final IndexComparator comparator;
+
+        private SortTask(int[] order, int[] tmp, int from, int middle, int to,
+                IndexComparator comparator) {
+            this.order = order;
+            this.tmp = tmp;
+            this.from = from;
+            this.middle = middle;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public Void call() {
+            if (middle < 0) {
+                mergeSort(order, tmp, from, to, comparator);
+            } else {
+                merge(order, tmp, from, middle, to, comparator);
+            }
+            return null;
+        }
+    }
+
+    private static void waitFor(List<Future<?>> futures) {
+        boolean interrupted = false;
+        try {
+            for (Future<?> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof RuntimeException) {
+                            throw (RuntimeException) cause;
+                        } else if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Provides a default comparator used for comparing {@link Property} values.
      * The <code>DefaultPropertyValueComparator</code> assumes all objects it
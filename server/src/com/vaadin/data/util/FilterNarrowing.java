@@ -0,0 +1,186 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.AbstractJunctionFilter;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Between;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.IsNull;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.filter.Not;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+
+/**
+ * Detects when a set of filters is at least as restrictive as another one, so
+ * that only the items passing the previous filters need to be checked against
+ * the new filters.
+ * <p>
+ * The checks are conservative: <code>false</code> is returned whenever the
+ * relation between two filters is not known. Only the built-in filters are
+ * considered, as other filters might depend on state outside the items.
+ * 
+ * For internal use only. May change or be removed in future versions.
+ * 
+ * @since 7.5
+ */
+class FilterNarrowing implements Serializable {
+
+    private static final String LIKE_SPECIAL_CHARACTERS = ".[]{}()\\*+?^$|";
+
+    private FilterNarrowing() {
+        // static methods only
+    }
+
+    /**
+     * Checks whether every item passing all of the current filters also
+     * passes all of the previous filters.
+     * 
+     * @param previous
+     *            the previously applied filters
+     * @param current
+     *            the filters to apply
+     * @return true if the current filters are known to be at least as
+     *         restrictive as the previous ones
+     */
+    static boolean isNarrowing(Collection<Filter> previous,
+            Collection<Filter> current) {
+        List<Filter> currentFilters = new ArrayList<Filter>();
+        flatten(current, currentFilters);
+        for (Filter filter : previous) {
+            if (!isImplied(filter, currentFilters)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void flatten(Collection<Filter> filters, List<Filter> target) {
+        for (Filter filter : filters) {
+            if (filter instanceof And) {
+                flatten(((And) filter).getFilters(), target);
+            } else {
+                target.add(filter);
+            }
+        }
+    }
+
+    /*
+     * Checks whether all items passing every filter in the list pass the given
+     * filter.
+     */
+    private static boolean isImplied(Filter filter, List<Filter> filters) {
+        if (filter instanceof And) {
+            for (Filter subFilter : ((And) filter).getFilters()) {
+                if (!isImplied(subFilter, filters)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (Filter narrower : filters) {
+            if (implies(narrower, filter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean implies(Filter narrower, Filter wider) {
+        if (!isPure(narrower) || !isPure(wider)) {
+            return false;
+        }
+        if (narrower.equals(wider)) {
+            return true;
+        }
+        if (narrower instanceof SimpleStringFilter
+                && wider instanceof SimpleStringFilter) {
+            SimpleStringFilter n = (SimpleStringFilter) narrower;
+            SimpleStringFilter w = (SimpleStringFilter) wider;
+            if (!n.getPropertyId().equals(w.getPropertyId())
+                    || n.isIgnoreCase() != w.isIgnoreCase()) {
+                return false;
+            }
+            if (w.isOnlyMatchPrefix()) {
+                return n.isOnlyMatchPrefix()
+                        && n.getFilterString().startsWith(w.getFilterString());
+            }
+            return n.getFilterString().contains(w.getFilterString());
+        }
+        if (narrower.getClass() == Like.class && wider.getClass() == Like.class) {
+            Like n = (Like) narrower;
+            Like w = (Like) wider;
+            if (n.getPropertyId() == null
+                    || !n.getPropertyId().equals(w.getPropertyId())
+                    || n.isCaseSensitive() != w.isCaseSensitive()) {
+                return false;
+            }
+            // "abc" and "abc%" both match a subset of "ab%"
+            String narrowerPattern = n.getValue();
+            String widerPattern = w.getValue();
+            return widerPattern.endsWith("%")
+                    && isPlainLikePattern(narrowerPattern)
+                    && isPlainLikePattern(widerPattern)
+                    && narrowerPattern.startsWith(widerPattern.substring(0,
+                            widerPattern.length() - 1));
+        }
+        return false;
+    }
+
+    /*
+     * Checks that the result of the filter only depends on the item.
+     */
+    private static boolean isPure(Filter filter) {
+        Class<?> type = filter.getClass();
+        if (type == And.class || type == Or.class) {
+            for (Filter subFilter : ((AbstractJunctionFilter) filter)
+                    .getFilters()) {
+                if (!isPure(subFilter)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (type == Not.class) {
+            return isPure(((Not) filter).getFilter());
+        }
+        return type == Compare.Equal.class || type == Compare.Greater.class
+                || type == Compare.GreaterOrEqual.class
+                || type == Compare.Less.class
+                || type == Compare.LessOrEqual.class || type == Between.class
+                || type == SimpleStringFilter.class || type == Like.class
+                || type == IsNull.class;
+    }
+
+    /*
+     * Like patterns are evaluated as regular expressions, only patterns without
+     * other special characters than the % wildcard are handled.
+     */
+    private static boolean isPlainLikePattern(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (LIKE_SPECIAL_CHARACTERS.indexOf(pattern.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -73,6 +73,13 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
     /* Removed properties which are hidden but not actually removed */
     private final Set<Object> removedProperties = new HashSet<Object>();
 
+    /*
+     * True while the wrapped container is sorted or filtered through this
+     * container. The resulting item set change events do not change the
+     * contents of the items, so cached generated values are kept.
+     */
+    private boolean sortingOrFiltering = false;
+
     /**
      * Property implementation for generated properties
      */
@@ -263,13 +270,22 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
                                 ItemSetChangeEvent event) {
                             if (event instanceof ItemAddEvent) {
                                 final ItemAddEvent addEvent = (ItemAddEvent) event;
+                                if (!sortingOrFiltering) {
+                                    invalidateAddedItems(addEvent);
+                                }
                                 fireItemSetChange(new GeneratedItemAddEvent(
                                         addEvent));
                             } else if (event instanceof ItemRemoveEvent) {
                                 final ItemRemoveEvent removeEvent = (ItemRemoveEvent) event;
+                                if (!sortingOrFiltering) {
+                                    invalidateRemovedItems(removeEvent);
+                                }
                                 fireItemSetChange(new GeneratedItemRemoveEvent(
                                         removeEvent));
                             } else {
+                                if (!sortingOrFiltering) {
+                                    clearGeneratedValueCaches();
+                                }
                                 fireItemSetChange();
                             }
                         }
@@ -304,7 +320,7 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
      */
     public void addGeneratedProperty(Object propertyId,
             PropertyValueGenerator<?> generator) {
-        propertyGenerators.put(propertyId, generator);
+        clearGeneratedValueCache(propertyGenerators.put(propertyId, generator));
         fireContainerPropertySetChange();
     }
 
@@ -317,11 +333,67 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
      */
     public void removeGeneratedProperty(Object propertyId) {
         if (propertyGenerators.containsKey(propertyId)) {
-            propertyGenerators.remove(propertyId);
+            clearGeneratedValueCache(propertyGenerators.remove(propertyId));
             fireContainerPropertySetChange();
         }
     }
 
+    /**
+     * Clears the cached values of all {@link CachingPropertyValueGenerator}s.
+     * Called when the item set of the wrapped container changes in bulk, as
+     * item ids may then refer to different items.
+     */
+    private void clearGeneratedValueCaches() {
+        for (PropertyValueGenerator<?> generator : propertyGenerators.values()) {
+            clearGeneratedValueCache(generator);
+        }
+    }
+
+    /**
+     * Invalidates the cached values of added items, since an added item may
+     * reuse the id of an item that was removed earlier.
+     */
+    private void invalidateAddedItems(ItemAddEvent event) {
+        List<?> addedIds = null;
+        for (PropertyValueGenerator<?> generator : propertyGenerators.values()) {
+            if (generator instanceof CachingPropertyValueGenerator) {
+                if (addedIds == null) {
+                    addedIds = wrappedContainer.getItemIds(
+                            event.getFirstIndex(), event.getAddedItemsCount());
+                }
+                for (Object itemId : addedIds) {
+                    ((CachingPropertyValueGenerator<?>) generator)
+                            .invalidate(itemId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidates the cached values of removed items. Only the first removed
+     * id is known, so if several items were removed, the cached items that
+     * are no longer in the wrapped container are invalidated.
+     */
+    private void invalidateRemovedItems(ItemRemoveEvent event) {
+        for (PropertyValueGenerator<?> generator : propertyGenerators.values()) {
+            if (generator instanceof CachingPropertyValueGenerator) {
+                CachingPropertyValueGenerator<?> caching = (CachingPropertyValueGenerator<?>) generator;
+                if (event.getRemovedItemsCount() == 1) {
+                    caching.invalidate(event.getFirstItemId());
+                } else {
+                    caching.invalidateRemoved(wrappedContainer);
+                }
+            }
+        }
+    }
+
+    private static void clearGeneratedValueCache(
+            PropertyValueGenerator<?> generator) {
+        if (generator instanceof CachingPropertyValueGenerator) {
+            ((CachingPropertyValueGenerator<?>) generator).clearCache();
+        }
+    }
+
     private Item createGeneratedPropertyItem(final Object itemId,
             final Item item) {
         return new GeneratedPropertyItem(itemId, item);
@@ -402,7 +474,7 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
                 // Have generated property modify filter to fit the original
                 // data in the container.
                 Filter modifiedFilter = entry.getValue().modifyFilter(filter);
-                filterableContainer.addContainerFilter(modifiedFilter);
+                addWrappedFilter(modifiedFilter);
                 // Keep track of added filters
                 addedFilters.add(modifiedFilter);
             }
@@ -411,7 +483,7 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
         if (addedFilters.isEmpty()) {
             // No generated property modified this filter, use it as is
             addedFilters.add(filter);
-            filterableContainer.addContainerFilter(filter);
+            addWrappedFilter(filter);
         }
         // Map filter to actually added filters
         activeFilters.put(filter, addedFilters);
@@ -426,7 +498,7 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
 
         if (activeFilters.containsKey(filter)) {
             for (Filter f : activeFilters.get(filter)) {
-                filterableContainer.removeContainerFilter(f);
+                removeWrappedFilter(f);
             }
             activeFilters.remove(filter);
         }
@@ -438,7 +510,12 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
             throw new UnsupportedOperationException(
                     "Wrapped container is not filterable");
         }
-        filterableContainer.removeAllContainerFilters();
+        sortingOrFiltering = true;
+        try {
+            filterableContainer.removeAllContainerFilters();
+        } finally {
+            sortingOrFiltering = false;
+        }
         activeFilters.clear();
     }
 
@@ -451,6 +528,24 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
         return Collections.unmodifiableSet(activeFilters.keySet());
     }
 
+    private void addWrappedFilter(Filter filter) {
+        sortingOrFiltering = true;
+        try {
+            filterableContainer.addContainerFilter(filter);
+        } finally {
+            sortingOrFiltering = false;
+        }
+    }
+
+    private void removeWrappedFilter(Filter filter) {
+        sortingOrFiltering = true;
+        try {
+            filterableContainer.removeContainerFilter(filter);
+        } finally {
+            sortingOrFiltering = false;
+        }
+    }
+
     /* Sorting functionality */
 
     @Override
@@ -461,7 +556,7 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
         }
 
         if (propertyId.length == 0) {
-            sortableContainer.sort(propertyId, ascending);
+            sortWrapped(propertyId, ascending);
             return;
         }
 
@@ -499,7 +594,16 @@ public class GeneratedPropertyContainer extends AbstractContainer implements
             actualAscending[i] = actualSortDirections.get(i);
         }
 
-        sortableContainer.sort(actualSortProperties.toArray(), actualAscending);
+        sortWrapped(actualSortProperties.toArray(), actualAscending);
+    }
+
+    private void sortWrapped(Object[] propertyId, boolean[] ascending) {
+        sortingOrFiltering = true;
+        try {
+            sortableContainer.sort(propertyId, ascending);
+        } finally {
+            sortingOrFiltering = false;
+        }
     }
 
     @Override
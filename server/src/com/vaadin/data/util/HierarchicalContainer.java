@@ -16,12 +16,14 @@
 
 package com.vaadin.data.util;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -59,22 +61,22 @@ public class HierarchicalContainer extends IndexedContainer implements
     /**
      * Mapping from Item ID to a list of child IDs.
      */
-    private final HashMap<Object, LinkedList<Object>> children = new HashMap<Object, LinkedList<Object>>();
+    private final HashMap<Object, ArrayList<Object>> children = new HashMap<Object, ArrayList<Object>>();
 
     /**
      * Mapping from Item ID to a list of child IDs when filtered
      */
-    private HashMap<Object, LinkedList<Object>> filteredChildren = null;
+    private HashMap<Object, ArrayList<Object>> filteredChildren = null;
 
     /**
      * List that contains all root elements of the container.
      */
-    private final LinkedList<Object> roots = new LinkedList<Object>();
+    private final ArrayList<Object> roots = new ArrayList<Object>();
 
     /**
      * List that contains all filtered root elements of the container.
      */
-    private LinkedList<Object> filteredRoots = null;
+    private ArrayList<Object> filteredRoots = null;
 
     /**
      * Determines how filtering of the container is done.
@@ -109,7 +111,7 @@ public class HierarchicalContainer extends IndexedContainer implements
      */
     @Override
     public Collection<?> getChildren(Object itemId) {
-        LinkedList<Object> c;
+        List<Object> c;
 
         if (filteredChildren != null) {
             c = filteredChildren.get(itemId);
@@ -158,9 +160,10 @@ public class HierarchicalContainer extends IndexedContainer implements
     @Override
     public boolean isRoot(Object itemId) {
         // If the container is filtered the itemId must be among filteredRoots
-        // to be a root.
+        // to be a root. All included items except filtered roots have a
+        // filtered parent.
         if (filteredRoots != null) {
-            if (!filteredRoots.contains(itemId)) {
+            if (filteredParent.containsKey(itemId)) {
                 return false;
             }
         } else {
@@ -267,14 +270,7 @@ public class HierarchicalContainer extends IndexedContainer implements
             // roots)
 
             // Removes from old parents children list
-            final LinkedList<Object> l = children.get(oldParentId);
-            if (l != null) {
-                l.remove(itemId);
-                if (l.isEmpty()) {
-                    children.remove(oldParentId);
-                }
-
-            }
+            removeChild(oldParentId, itemId);
 
             // Add to be a root
             roots.add(itemId);
@@ -283,10 +279,11 @@ public class HierarchicalContainer extends IndexedContainer implements
             parent.remove(itemId);
 
             if (hasFilters()) {
-                // Refilter the container if setParent is called when filters
-                // are applied. Changing parent can change what is included in
-                // the filtered version (if includeParentsWhenFiltering==true).
-                doFilterContainer(hasFilters());
+                // Update the filtered hierarchy if setParent is called when
+                // filters are applied. Changing parent can change what is
+                // included in the filtered version (if
+                // includeParentsWhenFiltering==true).
+                updateFilteredParent(itemId);
             }
 
             fireItemSetChange();
@@ -319,33 +316,21 @@ public class HierarchicalContainer extends IndexedContainer implements
 
         // Updates parent
         parent.put(itemId, newParentId);
-        LinkedList<Object> pcl = children.get(newParentId);
-        if (pcl == null) {
-            // Create an empty list for holding children if one were not
-            // previously created
-            pcl = new LinkedList<Object>();
-            children.put(newParentId, pcl);
-        }
-        pcl.add(itemId);
+        getOrCreateChildList(newParentId).add(itemId);
 
         // Removes from old parent or root
         if (oldParentId == null) {
-            roots.remove(itemId);
+            removeSibling(roots, itemId);
         } else {
-            final LinkedList<Object> l = children.get(oldParentId);
-            if (l != null) {
-                l.remove(itemId);
-                if (l.isEmpty()) {
-                    children.remove(oldParentId);
-                }
-            }
+            removeChild(oldParentId, itemId);
         }
 
         if (hasFilters()) {
-            // Refilter the container if setParent is called when filters
-            // are applied. Changing parent can change what is included in
-            // the filtered version (if includeParentsWhenFiltering==true).
-            doFilterContainer(hasFilters());
+            // Update the filtered hierarchy if setParent is called when
+            // filters are applied. Changing parent can change what is
+            // included in the filtered version (if
+            // includeParentsWhenFiltering==true).
+            updateFilteredParent(itemId);
         }
 
         fireItemSetChange();
@@ -357,6 +342,67 @@ public class HierarchicalContainer extends IndexedContainer implements
         return (filteredRoots != null);
     }
 
+    /**
+     * Gets the list of children of an item, creating an empty list if the item
+     * has no children.
+     * 
+     * @param parentItemId
+     *            the id of the parent item, not null
+     * @return the list of children
+     */
+    private ArrayList<Object> getOrCreateChildList(Object parentItemId) {
+        ArrayList<Object> childList = children.get(parentItemId);
+        if (childList == null) {
+            childList = new ArrayList<Object>();
+            children.put(parentItemId, childList);
+        }
+        return childList;
+    }
+
+    /**
+     * Removes an item from the children of its parent and releases the list of
+     * children if it becomes empty.
+     * 
+     * @param parentItemId
+     *            the id of the parent item
+     * @param childItemId
+     *            the id of the child item to remove
+     */
+    private void removeChild(Object parentItemId, Object childItemId) {
+        removeChild(children, parentItemId, childItemId);
+    }
+
+    private static void removeChild(Map<Object, ArrayList<Object>> childMap,
+            Object parentItemId, Object childItemId) {
+        ArrayList<Object> childList = childMap.get(parentItemId);
+        if (childList != null && removeSibling(childList, childItemId)
+                && childList.isEmpty()) {
+            childMap.remove(parentItemId);
+        }
+    }
+
+    /**
+     * Removes an item id from a list of siblings. The list is searched from
+     * the end, as the most recently added items are typically the ones moved
+     * or removed when building a hierarchy. This makes e.g. adding items and
+     * then setting their parent take constant time regardless of the number
+     * of roots.
+     * 
+     * @param siblings
+     *            the list of siblings
+     * @param itemId
+     *            the item id to remove
+     * @return true if the item id was found and removed, false otherwise
+     */
+    private static boolean removeSibling(List<Object> siblings, Object itemId) {
+        int index = siblings.lastIndexOf(itemId);
+        if (index < 0) {
+            return false;
+        }
+        siblings.remove(index);
+        return true;
+    }
+
     /**
      * Moves a node (an Item) in the container immediately after a sibling node.
      * The two nodes must have the same parent in the container.
@@ -369,7 +415,7 @@ public class HierarchicalContainer extends IndexedContainer implements
      */
     public void moveAfterSibling(Object itemId, Object siblingId) {
         Object parent2 = getParent(itemId);
-        LinkedList<Object> childrenList;
+        List<Object> childrenList;
         if (parent2 == null) {
             childrenList = roots;
         } else {
@@ -377,7 +423,7 @@ public class HierarchicalContainer extends IndexedContainer implements
         }
         if (siblingId == null) {
             childrenList.remove(itemId);
-            childrenList.addFirst(itemId);
+            childrenList.add(0, itemId);
 
         } else {
             int oldIndex = childrenList.indexOf(itemId);
@@ -414,7 +460,10 @@ public class HierarchicalContainer extends IndexedContainer implements
                 return null;
             }
 
-            if (!roots.contains(itemId)) {
+            // The item has normally already been added as the last root by
+            // addItem(Object)
+            if (roots.isEmpty()
+                    || !itemId.equals(roots.get(roots.size() - 1))) {
                 roots.add(itemId);
                 if (filteredRoots != null) {
                     if (passesFilters(itemId)) {
@@ -490,6 +539,99 @@ public class HierarchicalContainer extends IndexedContainer implements
         }
     }
 
+    /**
+     * Adds multiple new items as the last children of an item, or as root
+     * items if the parent is <code>null</code>. This is considerably faster
+     * than adding the items and setting their parents one at a time, and only
+     * a single item set change event is fired. Item ids that are already in
+     * the container are ignored.
+     * <p>
+     * The parent item does not need to pass the filters of the container. If
+     * parents are included when filtering, it is included if any of the new
+     * items passes the filters.
+     * 
+     * @since 7.5
+     * @param parentId
+     *            the id of the parent item, or <code>null</code> to add the
+     *            items as roots
+     * @param itemIds
+     *            the ids of the items to add
+     * @return <code>true</code> if the operation succeeded, <code>false</code>
+     *         if the parent item is not in the container or cannot have
+     *         children
+     */
+    public boolean addItems(Object parentId, Collection<?> itemIds) {
+        if (parentId != null
+                && (getUnfilteredItem(parentId) == null || noChildrenAllowed
+                        .contains(parentId))) {
+            return false;
+        }
+
+        disableContentsChangeEvents();
+        try {
+            List<Object> addedItemIds = new ArrayList<Object>(itemIds.size());
+            for (Object itemId : itemIds) {
+                if (super.addItem(itemId) != null) {
+                    addedItemIds.add(itemId);
+                }
+            }
+            if (addedItemIds.isEmpty()) {
+                return true;
+            }
+
+            if (parentId == null) {
+                roots.addAll(addedItemIds);
+            } else {
+                getOrCreateChildList(parentId).addAll(addedItemIds);
+                for (Object itemId : addedItemIds) {
+                    parent.put(itemId, parentId);
+                }
+            }
+
+            if (hasFilters()) {
+                addFilteredItems(parentId, addedItemIds);
+            }
+            return true;
+        } finally {
+            enableAndFireContentsChangeEvents();
+        }
+    }
+
+    /**
+     * Adds new items that were added as the last children of an item to the
+     * filtered hierarchy.
+     * 
+     * @param parentId
+     *            the id of the parent item, or <code>null</code> if the items
+     *            are roots
+     * @param addedItemIds
+     *            the ids of the added items
+     */
+    private void addFilteredItems(Object parentId, List<Object> addedItemIds) {
+        List<Object> includedItemIds = new ArrayList<Object>();
+        for (Object itemId : addedItemIds) {
+            if (containsId(itemId)) {
+                includedItemIds.add(itemId);
+            }
+        }
+        if (includedItemIds.isEmpty()) {
+            return;
+        }
+
+        if (parentId != null && includeParentsWhenFiltering) {
+            includeWithParents(parentId);
+        }
+        if (parentId == null || !containsId(parentId)) {
+            filteredRoots.addAll(includedItemIds);
+        } else {
+            for (Object itemId : includedItemIds) {
+                addFilteredChild(parentId, itemId);
+            }
+        }
+
+        invalidatePreviousFiltering();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -531,63 +673,41 @@ public class HierarchicalContainer extends IndexedContainer implements
     public boolean removeItem(Object itemId) {
         disableContentsChangeEvents();
         try {
+            final boolean visible = containsId(itemId);
             final boolean success = super.removeItem(itemId);
 
             if (success) {
-                // Remove from roots if this was a root
-                if (roots.remove(itemId)) {
+                // Parent of the item that we are removing will contain the item
+                // id in its children list. Items without a parent are roots.
+                final Object parentItemId = parent.remove(itemId);
+                if (parentItemId == null) {
+                    removeSibling(roots, itemId);
+                } else {
+                    removeChild(parentItemId, itemId);
+                }
 
-                    // If filtering is enabled we might need to remove it from
-                    // the filtered list also
-                    if (filteredRoots != null) {
-                        filteredRoots.remove(itemId);
+                // If filtering is enabled we need to remove it from the
+                // filtered hierarchy also. The filtered parent is not
+                // necessarily the same as the parent.
+                if (filteredParent != null && visible) {
+                    final Object filteredParentId = filteredParent
+                            .remove(itemId);
+                    if (filteredParentId == null) {
+                        removeSibling(filteredRoots, itemId);
+                    } else {
+                        removeChild(filteredChildren, filteredParentId, itemId);
                     }
+                    filteredChildren.remove(itemId);
                 }
 
                 // Clear the children list. Old children will now become root
                 // nodes
-                LinkedList<Object> childNodeIds = children.remove(itemId);
+                ArrayList<Object> childNodeIds = children.remove(itemId);
                 if (childNodeIds != null) {
-                    if (filteredChildren != null) {
-                        filteredChildren.remove(itemId);
-                    }
                     for (Object childId : childNodeIds) {
                         setParent(childId, null);
                     }
                 }
-
-                // Parent of the item that we are removing will contain the item
-                // id in its children list
-                final Object parentItemId = parent.get(itemId);
-                if (parentItemId != null) {
-                    final LinkedList<Object> c = children.get(parentItemId);
-                    if (c != null) {
-                        c.remove(itemId);
-
-                        if (c.isEmpty()) {
-                            children.remove(parentItemId);
-                        }
-
-                        // Found in the children list so might also be in the
-                        // filteredChildren list
-                        if (filteredChildren != null) {
-                            LinkedList<Object> f = filteredChildren
-                                    .get(parentItemId);
-                            if (f != null) {
-                                f.remove(itemId);
-                                if (f.isEmpty()) {
-                                    filteredChildren.remove(parentItemId);
-                                }
-                            }
-                        }
-                    }
-                }
-                parent.remove(itemId);
-                if (filteredParent != null) {
-                    // Item id no longer has a parent as the item id is not in
-                    // the container.
-                    filteredParent.remove(itemId);
-                }
                 noChildrenAllowed.remove(itemId);
             }
 
@@ -608,8 +728,44 @@ public class HierarchicalContainer extends IndexedContainer implements
     public boolean removeItemRecursively(Object itemId) {
         disableContentsChangeEvents();
         try {
-            boolean removeItemRecursively = removeItemRecursively(this, itemId);
-            return removeItemRecursively;
+            if (hasFilters()) {
+                // Only the children included in the filtered container are
+                // removed
+                boolean removeItemRecursively = removeItemRecursively(this,
+                        itemId);
+                return removeItemRecursively;
+            }
+            if (!containsId(itemId)) {
+                return false;
+            }
+
+            // Remove the whole subtree at once instead of one item at a time
+            Set<Object> subtree = new HashSet<Object>();
+            List<Object> pending = new ArrayList<Object>();
+            pending.add(itemId);
+            while (!pending.isEmpty()) {
+                Object id = pending.remove(pending.size() - 1);
+                subtree.add(id);
+                ArrayList<Object> childList = children.remove(id);
+                if (childList != null) {
+                    pending.addAll(childList);
+                }
+            }
+
+            Object parentItemId = parent.get(itemId);
+            if (parentItemId == null) {
+                removeSibling(roots, itemId);
+            } else {
+                removeChild(parentItemId, itemId);
+            }
+            for (Object id : subtree) {
+                parent.remove(id);
+                noChildrenAllowed.remove(id);
+            }
+
+            internalRemoveItems(subtree);
+            fireItemSetChange();
+            return true;
         } finally {
             enableAndFireContentsChangeEvents();
         }
@@ -656,9 +812,9 @@ public class HierarchicalContainer extends IndexedContainer implements
     protected void doSort() {
         super.doSort();
 
-        Collections.sort(roots, getItemSorter());
-        for (LinkedList<Object> childList : children.values()) {
-            Collections.sort(childList, getItemSorter());
+        sortItemIds(roots);
+        for (ArrayList<Object> childList : children.values()) {
+            sortItemIds(childList);
         }
     }
 
@@ -702,6 +858,9 @@ public class HierarchicalContainer extends IndexedContainer implements
      */
     @Override
     protected boolean doFilterContainer(boolean hasFilters) {
+        // the hierarchy affects which items pass, always check all items
+        invalidatePreviousFiltering();
+
         if (!hasFilters) {
             // All filters removed
             filteredRoots = null;
@@ -712,8 +871,8 @@ public class HierarchicalContainer extends IndexedContainer implements
         }
 
         // Reset data structures
-        filteredRoots = new LinkedList<Object>();
-        filteredChildren = new HashMap<Object, LinkedList<Object>>();
+        filteredRoots = new ArrayList<Object>();
+        filteredChildren = new HashMap<Object, ArrayList<Object>>();
         filteredParent = new HashMap<Object, Object>();
 
         if (includeParentsWhenFiltering) {
@@ -769,10 +928,10 @@ public class HierarchicalContainer extends IndexedContainer implements
      * @param childItemId
      */
     private void addFilteredChild(Object parentItemId, Object childItemId) {
-        LinkedList<Object> parentToChildrenList = filteredChildren
+        ArrayList<Object> parentToChildrenList = filteredChildren
                 .get(parentItemId);
         if (parentToChildrenList == null) {
-            parentToChildrenList = new LinkedList<Object>();
+            parentToChildrenList = new ArrayList<Object>();
             filteredChildren.put(parentItemId, parentToChildrenList);
         }
         filteredParent.put(childItemId, parentItemId);
@@ -795,7 +954,7 @@ public class HierarchicalContainer extends IndexedContainer implements
      */
     private void addFilteredChildrenRecursively(Object parentItemId,
             HashSet<Object> includedItems) {
-        LinkedList<Object> childList = children.get(parentItemId);
+        ArrayList<Object> childList = children.get(parentItemId);
         if (childList == null) {
             return;
         }
@@ -822,9 +981,9 @@ public class HierarchicalContainer extends IndexedContainer implements
             HashSet<Object> includedItems) {
         boolean toBeIncluded = passesFilters(itemId);
 
-        LinkedList<Object> childList = children.get(itemId);
+        ArrayList<Object> childList = children.get(itemId);
         if (childList != null) {
-            for (Object childItemId : children.get(itemId)) {
+            for (Object childItemId : childList) {
                 toBeIncluded |= filterIncludingParents(childItemId,
                         includedItems);
             }
@@ -836,6 +995,150 @@ public class HierarchicalContainer extends IndexedContainer implements
         return toBeIncluded;
     }
 
+    /**
+     * Updates the filtered hierarchy after the parent of an item has been
+     * changed. Only the item and the ancestors of its old and new parent are
+     * re-evaluated if parents are included when filtering, as the items that
+     * are included in the subtree of the moved item do not change.
+     * 
+     * @param itemId
+     *            the id of the item whose parent has changed
+     */
+    private void updateFilteredParent(Object itemId) {
+        if (!containsId(itemId)) {
+            // Nothing in the subtree of an excluded item is included if
+            // parents are included, otherwise the children of an excluded
+            // item are filtered roots regardless of its parent
+            return;
+        }
+        if (!includeParentsWhenFiltering) {
+            // Filtered children are in item order, refilter to find the
+            // position of the item among its new filtered siblings
+            doFilterContainer(true);
+            return;
+        }
+
+        // Detach from the old filtered parent, which might no longer need to
+        // be included
+        Object oldParentId = filteredParent.remove(itemId);
+        if (oldParentId == null) {
+            removeSibling(filteredRoots, itemId);
+        } else {
+            removeChild(filteredChildren, oldParentId, itemId);
+            excludeUnneededParents(oldParentId);
+        }
+
+        // The item is the last child of its new parent
+        Object newParentId = parent.get(itemId);
+        if (newParentId == null) {
+            filteredRoots.add(itemId);
+        } else {
+            includeWithParents(newParentId);
+            addFilteredChild(newParentId, itemId);
+        }
+
+        invalidatePreviousFiltering();
+    }
+
+    /**
+     * Excludes an item and its ancestors from the filtered container if they
+     * do not pass the filters and no longer have included children.
+     * 
+     * @param itemId
+     *            the id of the item to start from
+     */
+    private void excludeUnneededParents(Object itemId) {
+        while (itemId != null && containsId(itemId)
+                && !filteredChildren.containsKey(itemId)
+                && !passesFilters(itemId)) {
+            Object parentItemId = filteredParent.remove(itemId);
+            if (parentItemId == null) {
+                removeSibling(filteredRoots, itemId);
+            } else {
+                removeChild(filteredChildren, parentItemId, itemId);
+            }
+            getFilteredItemIds().remove(itemId);
+            itemId = parentItemId;
+        }
+    }
+
+    /**
+     * Includes an item and all its ancestors in the filtered container if they
+     * are not already included.
+     * 
+     * @param itemId
+     *            the id of the item to include
+     */
+    private void includeWithParents(Object itemId) {
+        List<Object> excluded = new ArrayList<Object>();
+        while (itemId != null && !containsId(itemId)) {
+            excluded.add(itemId);
+            itemId = parent.get(itemId);
+        }
+
+        // Include from the top so that the parent is always included
+        for (int i = excluded.size() - 1; i >= 0; i--) {
+            Object excludedId = excluded.get(i);
+            addFilteredItemId(excludedId);
+            Object parentItemId = parent.get(excludedId);
+            if (parentItemId != null) {
+                filteredParent.put(excludedId, parentItemId);
+            }
+            updateFilteredChildren(parentItemId);
+        }
+    }
+
+    /**
+     * Adds an item to the filtered item ids at the same position relative to
+     * the other included items as in the unfiltered item ids.
+     * 
+     * @param itemId
+     *            the id of the item to add
+     */
+    private void addFilteredItemId(Object itemId) {
+        List<Object> allItemIds = getAllItemIds();
+        List<Object> filteredItemIds = getFilteredItemIds();
+        int index = allItemIds.indexOf(itemId) + 1;
+        while (index < allItemIds.size()
+                && !filteredItemIds.contains(allItemIds.get(index))) {
+            index++;
+        }
+        if (index < allItemIds.size()) {
+            filteredItemIds.add(
+                    filteredItemIds.indexOf(allItemIds.get(index)), itemId);
+        } else {
+            filteredItemIds.add(itemId);
+        }
+    }
+
+    /**
+     * Recreates the filtered children of an item from its children so that
+     * they are in the same order.
+     * 
+     * @param parentItemId
+     *            the id of the parent item, or null to update the filtered
+     *            roots
+     */
+    private void updateFilteredChildren(Object parentItemId) {
+        List<Object> childList = parentItemId == null ? roots : children
+                .get(parentItemId);
+        ArrayList<Object> filteredChildList = new ArrayList<Object>();
+        if (childList != null) {
+            for (Object childItemId : childList) {
+                if (containsId(childItemId)) {
+                    filteredChildList.add(childItemId);
+                }
+            }
+        }
+        if (parentItemId == null) {
+            filteredRoots = filteredChildList;
+        } else if (filteredChildList.isEmpty()) {
+            filteredChildren.remove(parentItemId);
+        } else {
+            filteredChildren.put(parentItemId, filteredChildList);
+        }
+    }
+
     private Set<Object> filterOverride = null;
 
     /*
@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import com.vaadin.data.Container;
@@ -319,6 +320,17 @@ public class IndexedContainer extends
         }
     }
 
+    /*
+     * Also releases the property values of the removed items.
+     */
+    @Override
+    protected int internalRemoveItems(Set<?> itemIds) {
+        for (Object itemId : itemIds) {
+            items.remove(itemId);
+        }
+        return super.internalRemoveItems(itemIds);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -343,6 +355,10 @@ public class IndexedContainer extends
         for (final Iterator<Object> i = getAllItemIds().iterator(); i.hasNext();) {
             items.get(i.next()).remove(propertyId);
         }
+        if (isPropertyIndexed(propertyId)) {
+            invalidatePropertyIndexes();
+        }
+        invalidatePreviousFiltering();
 
         // Sends a change event
         fireContainerPropertySetChange();
@@ -947,6 +963,9 @@ public class IndexedContainer extends
                                 + getType().getName() + " was expected");
             }
 
+            updatePropertyIndexes(itemId, propertyId);
+            invalidatePreviousFiltering();
+
             // update the container filtering if this property is being filtered
             if (isPropertyFiltered(propertyId)) {
                 filterAll();
@@ -1159,6 +1178,10 @@ public class IndexedContainer extends
             }
         }
 
+        for (Object propertyId : getIndexedPropertyIds()) {
+            nc.addPropertyIndex(propertyId);
+        }
+
         return nc;
     }
 
@@ -1215,4 +1238,43 @@ public class IndexedContainer extends
         return super.getContainerFilters();
     }
 
+    /**
+     * Adds a secondary index on the values of a property to speed up filtering
+     * the container using {@link com.vaadin.data.util.filter.Compare Compare},
+     * {@link com.vaadin.data.util.filter.Between Between} and prefix matching
+     * {@link SimpleStringFilter} filters on the property. The index is kept up
+     * to date when items are added or removed and when property values are
+     * changed through the container.
+     * 
+     * @since 7.5
+     * @param propertyId
+     *            the id of the property to index, not null
+     */
+    @Override
+    public void addPropertyIndex(Object propertyId) {
+        super.addPropertyIndex(propertyId);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.vaadin.data.util.AbstractInMemoryContainer#removePropertyIndex(java
+     * .lang.Object)
+     */
+    @Override
+    public boolean removePropertyIndex(Object propertyId) {
+        return super.removePropertyIndex(propertyId);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.data.util.AbstractInMemoryContainer#getIndexedPropertyIds()
+     */
+    @Override
+    public Collection<Object> getIndexedPropertyIds() {
+        return super.getIndexedPropertyIds();
+    }
+
 }
@@ -195,26 +195,24 @@ public class MethodProperty<T> extends AbstractProperty<T> {
             beanPropertyName = new String(buf);
         }
 
-        // Find the get method
-        getMethod = null;
+        // Find the get and set methods, nested properties are not supported
+        BeanPropertyCache.PropertyAccessors accessors;
         try {
-            getMethod = initGetterMethod(beanPropertyName, beanClass);
+            if (beanPropertyName.indexOf('.') >= 0) {
+                throw new NoSuchMethodException(beanPropertyName);
+            }
+            accessors = BeanPropertyCache.getAccessors(beanClass,
+                    beanPropertyName);
         } catch (final java.lang.NoSuchMethodException ignored) {
             throw new MethodException(this, "Bean property " + beanPropertyName
                     + " can not be found");
         }
+        getMethod = accessors.getGetters().get(0);
+        setMethod = accessors.getSetter();
 
         // In case the get method is found, resolve the type
         Class<?> returnType = getMethod.getReturnType();
 
-        // Finds the set method
-        setMethod = null;
-        try {
-            setMethod = beanClass.getMethod("set" + beanPropertyName,
-                    new Class[] { returnType });
-        } catch (final java.lang.NoSuchMethodException skipped) {
-        }
-
         // Gets the return type from get method
         if (returnType.isPrimitive()) {
             type = (Class<T>) convertPrimitiveType(returnType);
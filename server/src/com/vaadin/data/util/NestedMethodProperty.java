@@ -20,7 +20,6 @@ import static com.vaadin.util.ReflectTools.convertPrimitiveType;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -122,58 +121,19 @@ public class NestedMethodProperty<T> extends AbstractProperty<T> {
     private void initialize(Class<?> beanClass, String propertyName)
             throws IllegalArgumentException {
 
-        List<Method> getMethods = new ArrayList<Method>();
-
-        String lastSimplePropertyName = propertyName;
-        Class<?> lastClass = beanClass;
-
-        // first top-level property, then go deeper in a loop
-        Class<?> propertyClass = beanClass;
-        String[] simplePropertyNames = propertyName.split("\\.");
-        if (propertyName.endsWith(".") || 0 == simplePropertyNames.length) {
-            throw new IllegalArgumentException("Invalid property name '"
-                    + propertyName + "'");
-        }
-        for (int i = 0; i < simplePropertyNames.length; i++) {
-            String simplePropertyName = simplePropertyNames[i].trim();
-            if (simplePropertyName.length() > 0) {
-                lastSimplePropertyName = simplePropertyName;
-                lastClass = propertyClass;
-                try {
-                    Method getter = MethodProperty.initGetterMethod(
-                            simplePropertyName, propertyClass);
-                    propertyClass = getter.getReturnType();
-                    getMethods.add(getter);
-                } catch (final java.lang.NoSuchMethodException e) {
-                    throw new IllegalArgumentException("Bean property '"
-                            + simplePropertyName + "' not found", e);
-                }
-            } else {
-                throw new IllegalArgumentException(
-                        "Empty or invalid bean property identifier in '"
-                                + propertyName + "'");
-            }
+        BeanPropertyCache.PropertyAccessors accessors;
+        try {
+            accessors = BeanPropertyCache.getAccessors(beanClass, propertyName);
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalArgumentException("Bean property '"
+                    + e.getMessage() + "' not found", e);
         }
+        List<Method> getMethods = accessors.getGetters();
 
         // In case the get method is found, resolve the type
         Method lastGetMethod = getMethods.get(getMethods.size() - 1);
         Class<?> type = lastGetMethod.getReturnType();
-
-        // Finds the set method
-        Method setMethod = null;
-        try {
-            // Assure that the first letter is upper cased (it is a common
-            // mistake to write firstName, not FirstName).
-            if (Character.isLowerCase(lastSimplePropertyName.charAt(0))) {
-                final char[] buf = lastSimplePropertyName.toCharArray();
-                buf[0] = Character.toUpperCase(buf[0]);
-                lastSimplePropertyName = new String(buf);
-            }
-
-            setMethod = lastClass.getMethod("set" + lastSimplePropertyName,
-                    new Class[] { type });
-        } catch (final NoSuchMethodException skipped) {
-        }
+        Method setMethod = accessors.getSetter();
 
         this.type = (Class<? extends T>) convertPrimitiveType(type);
         this.propertyName = propertyName;
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Between;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+
+/**
+ * Secondary index from the values of one container property to the ids of the
+ * items having those values. Used by {@link AbstractInMemoryContainer} to
+ * narrow down the items that need to be checked against the filters.
+ * <p>
+ * Equality lookups are answered from a hash map. Range lookups (
+ * {@link Compare} ordering operations and {@link Between}) use a sorted map and
+ * prefix lookups ({@link SimpleStringFilter} with <code>onlyMatchPrefix</code>)
+ * a sorted map of the string representations of the values. The sorted maps
+ * are only built when first needed.
+ * <p>
+ * A lookup only ever narrows down the set of candidates: the container still
+ * checks each candidate against the actual filters, so an index can answer
+ * <code>null</code> ("unknown") for any filter it cannot handle exactly.
+ * Values are expected not to change without the container being notified.
+ * 
+ * For internal use only. May change or be removed in future versions.
+ * 
+ * @since 7.5
+ */
+class PropertyValueIndex implements Serializable {
+
+    /*
+     * Final classes for which equals() is consistent with compareTo(), i.e.
+     * for which a hash lookup gives the same result as Compare.Equal.
+     */
+    private static final Set<Class<?>> HASH_EXACT_TYPES = new HashSet<Class<?>>();
+    static {
+        Collections.addAll(HASH_EXACT_TYPES, String.class, Boolean.class,
+                Character.class, Byte.class, Short.class, Integer.class,
+                Long.class, Float.class, Double.class);
+    }
+
+    private final Object propertyId;
+
+    private final Map<Object, Object> valueByItemId = new HashMap<Object, Object>();
+    private final Map<Object, Set<Object>> itemIdsByValue = new HashMap<Object, Set<Object>>();
+
+    /*
+     * The class of all non-null values or null if there are no non-null values
+     * or they are of different classes.
+     */
+    private Class<?> valueClass;
+    private boolean mixedClasses = false;
+    private int nonNullCount = 0;
+
+    private TreeMap<Object, Set<Object>> sorted;
+    private TreeMap<String, Set<Object>> strings;
+    private TreeMap<String, Set<Object>> lowerCaseStrings;
+
+    private boolean stale = true;
+
+    /**
+     * Creates an empty index for the given property. The index is initially
+     * stale and needs to be populated by the container.
+     * 
+     * @param propertyId
+     *            the id of the indexed property
+     */
+    PropertyValueIndex(Object propertyId) {
+        this.propertyId = propertyId;
+    }
+
+    Object getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * Returns whether the index needs to be rebuilt before it can be used.
+     * 
+     * @return true if the index is stale
+     */
+    boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Marks the index as out of date. A stale index is not updated
+     * incrementally, it is cleared and rebuilt when next needed.
+     */
+    void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Clears the index and marks it as up to date. The caller should
+     * {@link #add(Object, Object) add} all items after calling this.
+     */
+    void reset() {
+        valueByItemId.clear();
+        itemIdsByValue.clear();
+        valueClass = null;
+        mixedClasses = false;
+        nonNullCount = 0;
+        sorted = null;
+        strings = null;
+        lowerCaseStrings = null;
+        stale = false;
+    }
+
+    /**
+     * Adds an item to the index.
+     * 
+     * @param itemId
+     *            the id of the item
+     * @param value
+     *            the value of the indexed property of the item
+     */
+    void add(Object itemId, Object value) {
+        valueByItemId.put(itemId, value);
+        addTo(itemIdsByValue, value, itemId);
+        if (value == null) {
+            return;
+        }
+
+        nonNullCount++;
+        if (valueClass == null && !mixedClasses) {
+            valueClass = value.getClass();
+        } else if (value.getClass() != valueClass) {
+            valueClass = null;
+            mixedClasses = true;
+        }
+
+        if (sorted != null) {
+            if (isSortable()) {
+                addTo(sorted, value, itemId);
+            } else {
+                sorted = null;
+            }
+        }
+        if (strings != null) {
+            addTo(strings, value.toString(), itemId);
+        }
+        if (lowerCaseStrings != null) {
+            addTo(lowerCaseStrings, value.toString().toLowerCase(), itemId);
+        }
+    }
+
+    /**
+     * Removes an item from the index.
+     * 
+     * @param itemId
+     *            the id of the item
+     */
+    void remove(Object itemId) {
+        if (!valueByItemId.containsKey(itemId)) {
+            return;
+        }
+        Object value = valueByItemId.remove(itemId);
+        removeFrom(itemIdsByValue, value, itemId);
+        if (value == null) {
+            return;
+        }
+
+        if (--nonNullCount == 0) {
+            valueClass = null;
+            mixedClasses = false;
+            sorted = null;
+        }
+        if (sorted != null) {
+            removeFrom(sorted, value, itemId);
+        }
+        if (strings != null) {
+            removeFrom(strings, value.toString(), itemId);
+        }
+        if (lowerCaseStrings != null) {
+            removeFrom(lowerCaseStrings, value.toString().toLowerCase(),
+                    itemId);
+        }
+    }
+
+    /**
+     * Updates the value of an item in the index.
+     * 
+     * @param itemId
+     *            the id of the item
+     * @param value
+     *            the new value of the indexed property of the item
+     */
+    void update(Object itemId, Object value) {
+        remove(itemId);
+        add(itemId, value);
+    }
+
+    /**
+     * Finds the ids of the items that may pass the given filter using the
+     * given indexes. {@link And} and {@link Or} filters are resolved by
+     * combining the results for their sub-filters.
+     * 
+     * @param filter
+     *            the filter to look up
+     * @param indexes
+     *            the up to date indexes by property id
+     * @return a set containing at least the ids of all items passing the
+     *         filter, or null if the filter cannot be answered using the
+     *         indexes
+     */
+    static Set<Object> lookup(Filter filter,
+            Map<Object, PropertyValueIndex> indexes) {
+        if (filter instanceof And) {
+            Set<Object> result = null;
+            for (Filter subFilter : ((And) filter).getFilters()) {
+                Set<Object> ids = lookup(subFilter, indexes);
+                if (ids != null) {
+                    result = result == null ? ids : intersect(result, ids);
+                }
+            }
+            return result;
+        } else if (filter instanceof Or) {
+            Set<Object> result = new HashSet<Object>();
+            for (Filter subFilter : ((Or) filter).getFilters()) {
+                Set<Object> ids = lookup(subFilter, indexes);
+                if (ids == null) {
+                    return null;
+                }
+                result.addAll(ids);
+            }
+            return result;
+        }
+
+        if (!isIndexable(filter)) {
+            return null;
+        }
+        Object filterPropertyId;
+        if (filter instanceof Compare) {
+            filterPropertyId = ((Compare) filter).getPropertyId();
+        } else if (filter instanceof Between) {
+            filterPropertyId = ((Between) filter).getPropertyId();
+        } else {
+            filterPropertyId = ((SimpleStringFilter) filter).getPropertyId();
+        }
+        PropertyValueIndex index = indexes.get(filterPropertyId);
+        return index == null ? null : index.lookup(filter);
+    }
+
+    /**
+     * Finds the ids of the items that may pass the given filter on the
+     * property of this index.
+     * 
+     * @param filter
+     *            the filter to look up
+     * @return a set containing at least the ids of all items passing the
+     *         filter, or null if the filter cannot be answered by this index
+     */
+    Set<Object> lookup(Filter filter) {
+        if (!isIndexable(filter)) {
+            return null;
+        } else if (filter instanceof Compare) {
+            return lookupCompare((Compare) filter);
+        } else if (filter instanceof Between) {
+            Between between = (Between) filter;
+            return lookupRange(between.getStartValue(), true,
+                    between.getEndValue(), true, false);
+        } else if (filter instanceof SimpleStringFilter) {
+            SimpleStringFilter stringFilter = (SimpleStringFilter) filter;
+            if (!stringFilter.isOnlyMatchPrefix()) {
+                return null;
+            }
+            return lookupPrefix(stringFilter.getFilterString(),
+                    stringFilter.isIgnoreCase());
+        }
+        return null;
+    }
+
+    /*
+     * Only the built-in filter classes are known to behave as the index
+     * expects, subclasses might override passesFilter().
+     */
+    private static boolean isIndexable(Filter filter) {
+        Class<?> type = filter.getClass();
+        return type == Compare.Equal.class || type == Compare.Greater.class
+                || type == Compare.GreaterOrEqual.class
+                || type == Compare.Less.class
+                || type == Compare.LessOrEqual.class || type == Between.class
+                || type == SimpleStringFilter.class;
+    }
+
+    private Set<Object> lookupCompare(Compare filter) {
+        Object value = filter.getValue();
+        switch (filter.getOperation()) {
+        case EQUAL:
+            if (value == null || HASH_EXACT_TYPES.contains(value.getClass())
+                    || value instanceof Enum) {
+                return getItemIds(itemIdsByValue, value);
+            }
+            return null;
+        case GREATER:
+            // Compare considers null to be greater than any value
+            return lookupRange(value, false, null, false, true);
+        case GREATER_OR_EQUAL:
+            return lookupRange(value, true, null, false, true);
+        case LESS:
+            return lookupRange(null, false, value, false, false);
+        case LESS_OR_EQUAL:
+            return lookupRange(null, false, value, true, false);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Object> lookupRange(Object start, boolean startInclusive,
+            Object end, boolean endInclusive, boolean includeNulls) {
+        if (start == null && end == null) {
+            // No bounds, leave it to the filters
+            return null;
+        }
+        if (!isCompatible(start) || !isCompatible(end)) {
+            return null;
+        }
+
+        Set<Object> result = new HashSet<Object>();
+        if (includeNulls) {
+            result.addAll(getItemIds(itemIdsByValue, null));
+        }
+        if (nonNullCount == 0) {
+            return result;
+        }
+
+        if (sorted == null) {
+            sorted = new TreeMap<Object, Set<Object>>();
+            for (Entry<Object, Set<Object>> entry : itemIdsByValue.entrySet()) {
+                if (entry.getKey() != null) {
+                    // values equal by compareTo() share the same entry
+                    for (Object itemId : entry.getValue()) {
+                        addTo(sorted, entry.getKey(), itemId);
+                    }
+                }
+            }
+        }
+        Map<Object, Set<Object>> range;
+        if (start == null) {
+            range = sorted.headMap(end, endInclusive);
+        } else if (end == null) {
+            range = sorted.tailMap(start, startInclusive);
+        } else if (((Comparable<Object>) start).compareTo(end) > 0) {
+            return result;
+        } else {
+            range = sorted.subMap(start, startInclusive, end, endInclusive);
+        }
+        for (Set<Object> ids : range.values()) {
+            result.addAll(ids);
+        }
+        return result;
+    }
+
+    private Set<Object> lookupPrefix(String prefix, boolean ignoreCase) {
+        TreeMap<String, Set<Object>> map = ignoreCase ? lowerCaseStrings
+                : strings;
+        if (map == null) {
+            map = new TreeMap<String, Set<Object>>();
+            for (Entry<Object, Set<Object>> entry : itemIdsByValue.entrySet()) {
+                if (entry.getKey() != null) {
+                    String key = entry.getKey().toString();
+                    if (ignoreCase) {
+                        key = key.toLowerCase();
+                    }
+                    // different values may have the same string
+                    for (Object itemId : entry.getValue()) {
+                        addTo(map, key, itemId);
+                    }
+                }
+            }
+            if (ignoreCase) {
+                lowerCaseStrings = map;
+            } else {
+                strings = map;
+            }
+        }
+
+        Set<Object> result = new HashSet<Object>();
+        for (Entry<String, Set<Object>> entry : map.tailMap(prefix, true)
+                .entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+
+    /*
+     * Range lookups are exact only when all values are of the same comparable
+     * class as the bounds, otherwise the filters might behave differently or
+     * fail.
+     */
+    private boolean isCompatible(Object bound) {
+        if (bound == null || nonNullCount == 0) {
+            return true;
+        }
+        return isSortable() && bound.getClass() == valueClass;
+    }
+
+    private boolean isSortable() {
+        return valueClass != null
+                && Comparable.class.isAssignableFrom(valueClass);
+    }
+
+    private static Set<Object> getItemIds(Map<?, Set<Object>> map, Object key) {
+        Set<Object> ids = map.get(key);
+        if (ids == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    private static <K> void addTo(Map<K, Set<Object>> map, K key,
+            Object itemId) {
+        Set<Object> ids = map.get(key);
+        if (ids == null) {
+            ids = new HashSet<Object>();
+            map.put(key, ids);
+        }
+        ids.add(itemId);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Object>> map, K key,
+            Object itemId) {
+        Set<Object> ids = map.get(key);
+        if (ids != null) {
+            ids.remove(itemId);
+            if (ids.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the intersection of two sets without modifying either of them.
+     * 
+     * @param a
+     *            the first set
+     * @param b
+     *            the second set
+     * @return a new set containing the elements in both sets
+     */
+    static Set<Object> intersect(Set<Object> a, Set<Object> b) {
+        if (a.size() > b.size()) {
+            Set<Object> tmp = a;
+            a = b;
+            b = tmp;
+        }
+        Set<Object> result = new HashSet<Object>();
+        for (Object o : a) {
+            if (b.contains(o)) {
+                result.add(o);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+/**
+ * Row count strategy that counts the rows in a background thread. Until the
+ * count is available, the number of rows found by fetching at most a limited
+ * number of rows is used as the size of the container. If there are fewer
+ * rows than the limit, this is also the exact count and no background count
+ * is needed. When the rows are counted again with the same filters, the last
+ * count delivered for those filters is used instead of the provisional count
+ * until the new count is available, so the size does not temporarily shrink.
+ * <p>
+ * The count is run by a count executor, typically a thread pool, and
+ * delivered to the container by a result executor, which must ensure that
+ * the container is locked in the same way as for any other use, e.g. an
+ * executor passing the commands to {@link com.vaadin.ui.UI#access(Runnable)}
+ * for a container used in a UI.
+ * The container fires an item set change event when the count is delivered.
+ * <p>
+ * Background counts are only supported for {@link TableQuery}. The exact
+ * count is fetched synchronously for other query delegates. Combine this
+ * strategy with a {@link CachedRowCountStrategy} to avoid counting again each
+ * time the size of the container is revalidated.
+ * 
+ * @since 7.5
+ */
+public class AsynchronousRowCountStrategy implements RowCountStrategy {
+
+    /**
+     * The default maximum number of rows fetched for the provisional count.
+     */
+    public static final int DEFAULT_PROVISIONAL_LIMIT = 1000;
+
+    private final Executor countExecutor;
+    private final Executor resultExecutor;
+    private final int provisionalLimit;
+
+    /** The filters and the value of the last exact count */
+    private List<Filter> lastFilters;
+    private int lastCount;
+
+    /**
+     * Creates a strategy counting rows using the given executors, with a
+     * provisional count of at most {@value #DEFAULT_PROVISIONAL_LIMIT} rows.
+     * 
+     * @param countExecutor
+     *            the executor running the count queries
+     * @param resultExecutor
+     *            the executor delivering the counts to the container
+     */
+    public AsynchronousRowCountStrategy(Executor countExecutor,
+            Executor resultExecutor) {
+        this(countExecutor, resultExecutor, DEFAULT_PROVISIONAL_LIMIT);
+    }
+
+    /**
+     * Creates a strategy counting rows using the given executors, with a
+     * provisional count of at most the given number of rows.
+     * 
+     * @param countExecutor
+     *            the executor running the count queries
+     * @param resultExecutor
+     *            the executor delivering the counts to the container
+     * @param provisionalLimit
+     *            the maximum number of rows fetched for the provisional
+     *            count, 0 to use 0 as the provisional count
+     */
+    public AsynchronousRowCountStrategy(Executor countExecutor,
+            Executor resultExecutor, int provisionalLimit) {
+        if (countExecutor == null || resultExecutor == null) {
+            throw new IllegalArgumentException("Executors cannot be null");
+        }
+        if (provisionalLimit < 0) {
+            throw new IllegalArgumentException(
+                    "provisionalLimit cannot be negative");
+        }
+        this.countExecutor = countExecutor;
+        this.resultExecutor = resultExecutor;
+        this.provisionalLimit = provisionalLimit;
+    }
+
+    /**
+     * Returns the maximum number of rows fetched for the provisional count.
+     * 
+     * @return the provisional limit
+     */
+    public int getProvisionalLimit() {
+        return provisionalLimit;
+    }
+
+    @Override
+    public int getRowCount(QueryDelegate delegate, List<Filter> filters,
+            Callback callback) throws SQLException {
+        if (!(delegate instanceof TableQuery)) {
+            return delegate.getCount();
+        }
+        List<Filter> key = new ArrayList<Filter>(filters);
+        int provisional = 0;
+        if (key.equals(lastFilters)) {
+            provisional = lastCount;
+        } else if (provisionalLimit > 0) {
+            provisional = countFirstRows(delegate);
+            if (provisional < provisionalLimit) {
+                countAvailable(key, provisional);
+                return provisional;
+            }
+        }
+        countExecutor.execute(new CountCommand(this, key,
+                ((TableQuery) delegate).createCountTask(), resultExecutor,
+                callback));
+        return provisional;
+    }
+
+    private void countAvailable(List<Filter> filters, int count) {
+        lastFilters = filters;
+        lastCount = count;
+    }
+
+    private int countFirstRows(QueryDelegate delegate) throws SQLException {
+        delegate.beginTransaction();
+        try {
+            ResultSet rs = delegate.getResults(0, provisionalLimit);
+            int rows = 0;
+            try {
+                while (rows < provisionalLimit && rs.next()) {
+                    rows++;
+                }
+            } finally {
+                rs.getStatement().close();
+                rs.close();
+            }
+            delegate.commit();
+            return rows;
+        } catch (SQLException e) {
+            delegate.rollback();
+            throw e;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        /*
+         * The last count is kept: it is only used as the provisional count
+         * until the new count is delivered, and is closer to the new count
+         * than the number of rows found by fetching the first rows.
+         */
+    }
+
+    private static class CountCommand implements Runnable, Serializable {
+        private final AsynchronousRowCountStrategy strategy;
+        private final List<Filter> filters;
+        private final Callable<Integer> task;
+        private final Executor resultExecutor;
+        private final Callback callback;
+
+        public CountCommand(AsynchronousRowCountStrategy strategy,
+                List<Filter> filters, Callable<Integer> task,
+                Executor resultExecutor, Callback callback) {
+            this.strategy = strategy;
+            this.filters = filters;
+            this.task = task;
+            this.resultExecutor = resultExecutor;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            final int count;
+            try {
+                count = task.call().intValue();
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING, "Counting rows failed", e);
+                return;
+            }
+            resultExecutor.execute(new DeliverCommand(strategy, filters,
+                    callback, count));
+        }
+    }
+
+    private static class DeliverCommand implements Runnable, Serializable {
+        private final AsynchronousRowCountStrategy strategy;
+        private final List<Filter> filters;
+        private final Callback callback;
+        private final int count;
+
+        public DeliverCommand(AsynchronousRowCountStrategy strategy,
+                List<Filter> filters, Callback callback, int count) {
+            this.strategy = strategy;
+            this.filters = filters;
+            this.callback = callback;
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            strategy.countAvailable(filters, count);
+            callback.rowCountAvailable(count);
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(AsynchronousRowCountStrategy.class.getName());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+
+/**
+ * Row count strategy that caches the counts fetched by another strategy. A
+ * count is cached separately for each combination of filters, so that e.g.
+ * switching back and forth between two filters or changing the sort order
+ * does not cause the rows to be counted again. Cached counts expire after a
+ * configurable time and are discarded when the container is explicitly
+ * refreshed.
+ * 
+ * @since 7.5
+ */
+public class CachedRowCountStrategy implements RowCountStrategy {
+
+    private static final int MAX_CACHED_COUNTS = 32;
+
+    private final RowCountStrategy source;
+    private final long timeToLive;
+
+    private final Map<List<Filter>, CachedCount> counts = new LinkedHashMap<List<Filter>, CachedCount>(
+            16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<List<Filter>, CachedCount> eldest) {
+            return size() > MAX_CACHED_COUNTS;
+        }
+    };
+
+    private static class CachedCount implements Serializable {
+        private final int count;
+        private final long timestamp;
+
+        public CachedCount(int count, long timestamp) {
+            this.count = count;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Creates a strategy caching exact row counts for the given time.
+     * 
+     * @param timeToLive
+     *            the time in milliseconds after which a cached count expires
+     */
+    public CachedRowCountStrategy(long timeToLive) {
+        this(timeToLive, new ExactRowCountStrategy());
+    }
+
+    /**
+     * Creates a strategy caching the row counts fetched by another strategy
+     * for the given time. Counts delivered later by the other strategy also
+     * update the cache.
+     * 
+     * @param timeToLive
+     *            the time in milliseconds after which a cached count expires
+     * @param source
+     *            the strategy used for fetching counts that are not cached
+     */
+    public CachedRowCountStrategy(long timeToLive, RowCountStrategy source) {
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException(
+                    "timeToLive cannot be negative");
+        }
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        this.timeToLive = timeToLive;
+        this.source = source;
+    }
+
+    /**
+     * Returns the time after which a cached count expires.
+     * 
+     * @return the time to live in milliseconds
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Returns the strategy used for fetching counts that are not cached.
+     * 
+     * @return the source strategy
+     */
+    public RowCountStrategy getSource() {
+        return source;
+    }
+
+    @Override
+    public int getRowCount(QueryDelegate delegate, List<Filter> filters,
+            final Callback callback) throws SQLException {
+        final List<Filter> key = new ArrayList<Filter>(filters);
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(key);
+        if (cached != null && now - cached.timestamp <= timeToLive) {
+            return cached.count;
+        }
+        int count = source.getRowCount(delegate, filters,
+                new CachingCallback(this, key, callback));
+        counts.put(key, new CachedCount(count, now));
+        return count;
+    }
+
+    @Override
+    public void invalidate() {
+        counts.clear();
+        source.invalidate();
+    }
+
+    private static class CachingCallback implements Callback {
+        private final CachedRowCountStrategy strategy;
+        private final List<Filter> key;
+        private final Callback callback;
+
+        public CachingCallback(CachedRowCountStrategy strategy,
+                List<Filter> key, Callback callback) {
+            this.strategy = strategy;
+            this.key = key;
+            this.callback = callback;
+        }
+
+        @Override
+        public void rowCountAvailable(int count) {
+            strategy.counts.put(key,
+                    new CachedCount(count, System.currentTimeMillis()));
+            callback.rowCountAvailable(count);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+import com.vaadin.data.util.sqlcontainer.query.generator.DefaultSQLGenerator;
+
+/**
+ * Row count strategy that uses an estimate of the row count provided by the
+ * database, e.g. from the statistics of its query planner. Estimates are
+ * fetched using {@link TableQuery#getEstimatedCount()}, which requires the SQL
+ * generator to implement
+ * {@link DefaultSQLGenerator#generateEstimatedCountQuery(String, List)}. The
+ * exact count is used for other query delegates and generators.
+ * <p>
+ * If the estimate turns out to be larger than the actual number of rows, the
+ * container corrects its size when it fetches the last rows. Rows beyond an
+ * estimate that is too small are not available until the size of the
+ * container is next updated.
+ * 
+ * @since 7.5
+ */
+public class EstimatedRowCountStrategy implements RowCountStrategy {
+
+    @Override
+    public int getRowCount(QueryDelegate delegate, List<Filter> filters,
+            Callback callback) throws SQLException {
+        if (delegate instanceof TableQuery) {
+            return ((TableQuery) delegate).getEstimatedCount();
+        }
+        return delegate.getCount();
+    }
+
+    @Override
+    public void invalidate() {
+        // Nothing cached
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+
+/**
+ * Row count strategy that fetches the exact count using
+ * {@link QueryDelegate#getCount()} every time it is needed. This is the
+ * default strategy of {@link SQLContainer}.
+ * 
+ * @since 7.5
+ */
+public class ExactRowCountStrategy implements RowCountStrategy {
+
+    @Override
+    public int getRowCount(QueryDelegate delegate, List<Filter> filters,
+            Callback callback) throws SQLException {
+        return delegate.getCount();
+    }
+
+    @Override
+    public void invalidate() {
+        // Nothing cached
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row cache of SQLContainer. Rows are cached in pages of
+ * {@link SQLContainer#getPageLength()} rows, so several separate ranges of
+ * rows can be resident at the same time. The least recently used pages are
+ * evicted when the number of cached rows or their estimated memory footprint
+ * exceeds the configured limits.
+ * <p>
+ * When the cache is cleared, the unmodified items are kept aside until the
+ * next time it is cleared so that rows fetched again with unchanged values
+ * can reuse their previous {@link RowItem} instances.
+ */
+class PageCache implements Serializable {
+
+    /*
+     * Rough estimates of the memory used by the objects making up a cached
+     * row, used when a memory limit has been set.
+     */
+    private static final int ROW_OVERHEAD = 96;
+    private static final int PROPERTY_OVERHEAD = 64;
+    private static final int VALUE_OVERHEAD = 24;
+
+    private static class Page implements Serializable {
+        private final int number;
+        private final List<RowId> ids = new ArrayList<RowId>();
+        private long estimatedSize = 0;
+
+        private Page(int number) {
+            this.number = number;
+        }
+    }
+
+    private int pageLength = SQLContainer.DEFAULT_PAGE_LENGTH;
+    private int maxRows;
+    private long maxMemory = 0;
+
+    /* Pages by page number, in least recently used order */
+    private final LinkedHashMap<Integer, Page> pages = new LinkedHashMap<Integer, Page>(
+            16, 0.75f, true);
+    private final Map<RowId, RowItem> items = new HashMap<RowId, RowItem>();
+    private final Map<RowId, Integer> indexes = new HashMap<RowId, Integer>();
+    private Map<RowId, RowItem> previousItems = new HashMap<RowId, RowItem>();
+
+    private int cachedRows = 0;
+    private long estimatedSize = 0;
+
+    /**
+     * Sets the number of rows in one page and clears the cache.
+     * 
+     * @param pageLength
+     *            the page length, must be positive
+     */
+    void setPageLength(int pageLength) {
+        this.pageLength = pageLength;
+        clear();
+    }
+
+    int getPageLength() {
+        return pageLength;
+    }
+
+    /**
+     * Sets the maximum number of cached rows. The most recently used page is
+     * always kept even if it alone exceeds the limit.
+     */
+    void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+        evict(null);
+    }
+
+    int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Sets the maximum estimated memory footprint of the cached rows in bytes,
+     * 0 for no limit.
+     */
+    void setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+        evict(null);
+    }
+
+    long getMaxMemory() {
+        return maxMemory;
+    }
+
+    boolean isEmpty() {
+        return pages.isEmpty();
+    }
+
+    int getCachedRows() {
+        return cachedRows;
+    }
+
+    long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    boolean containsPage(int page) {
+        return pages.containsKey(page);
+    }
+
+    boolean containsItem(Object itemId) {
+        return items.containsKey(itemId);
+    }
+
+    /**
+     * Returns the cached item with the given id or <code>null</code> if the
+     * item is not cached.
+     */
+    RowItem getItem(Object itemId) {
+        RowItem item = items.get(itemId);
+        if (item != null) {
+            touch(indexes.get(itemId));
+        }
+        return item;
+    }
+
+    /**
+     * Returns the id of the row at the given index or <code>null</code> if the
+     * row is not cached.
+     */
+    RowId getId(int index) {
+        Page page = pages.get(index / pageLength);
+        if (page == null) {
+            return null;
+        }
+        int offset = index % pageLength;
+        return offset < page.ids.size() ? page.ids.get(offset) : null;
+    }
+
+    /**
+     * Returns the index of the cached row with the given id or -1 if the row
+     * is not cached.
+     */
+    int indexOf(Object itemId) {
+        Integer index = indexes.get(itemId);
+        if (index == null) {
+            return -1;
+        }
+        touch(index);
+        return index;
+    }
+
+    /**
+     * Returns a previously cached item with the given id that can be reused if
+     * its values are unchanged, or <code>null</code> if there is none.
+     */
+    RowItem getPreviousItem(RowId id) {
+        return previousItems.remove(id);
+    }
+
+    /**
+     * Adds a fetched page to the cache, replacing any previously cached
+     * version of the page. Does not evict other pages; call
+     * {@link #evict(Collection)} once all fetched pages have been added.
+     * 
+     * @param page
+     *            the page number
+     * @param ids
+     *            the ids of the rows of the page in order
+     * @param pageItems
+     *            the items of the rows of the page in the same order
+     */
+    void putPage(int page, List<RowId> ids, List<RowItem> pageItems) {
+        removePage(page);
+        Page cached = new Page(page);
+        int index = page * pageLength;
+        for (int i = 0; i < ids.size(); i++) {
+            RowId id = ids.get(i);
+            RowItem item = pageItems.get(i);
+            cached.ids.add(id);
+            cached.estimatedSize += estimateSize(item);
+            items.put(id, item);
+            indexes.put(id, index++);
+        }
+        pages.put(page, cached);
+        cachedRows += ids.size();
+        estimatedSize += cached.estimatedSize;
+    }
+
+    /**
+     * Evicts the least recently used pages until the cache is within its
+     * limits.
+     * 
+     * @param keep
+     *            page numbers that should not be evicted, or <code>null</code>
+     */
+    void evict(Collection<Integer> keep) {
+        Iterator<Map.Entry<Integer, Page>> iterator = pages.entrySet()
+                .iterator();
+        while (iterator.hasNext() && isOverLimit() && pages.size() > 1) {
+            Map.Entry<Integer, Page> entry = iterator.next();
+            if (keep != null && keep.contains(entry.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            forget(entry.getValue());
+        }
+    }
+
+    /**
+     * Clears the cache. Unmodified items are retained for reuse until the
+     * cache is cleared the next time.
+     */
+    void clear() {
+        previousItems = new HashMap<RowId, RowItem>();
+        for (RowItem item : items.values()) {
+            if (!item.isModified()) {
+                previousItems.put(item.getId(), item);
+            }
+        }
+        pages.clear();
+        items.clear();
+        indexes.clear();
+        cachedRows = 0;
+        estimatedSize = 0;
+    }
+
+    private boolean isOverLimit() {
+        return cachedRows > maxRows
+                || (maxMemory > 0 && estimatedSize > maxMemory);
+    }
+
+    private void touch(Integer index) {
+        if (index != null) {
+            pages.get(index / pageLength);
+        }
+    }
+
+    private void removePage(int page) {
+        Page removed = pages.remove(page);
+        if (removed != null) {
+            forget(removed);
+        }
+    }
+
+    private void forget(Page page) {
+        for (RowId id : page.ids) {
+            // The row might since have been cached as part of another page
+            Integer index = indexes.get(id);
+            if (index != null && index / pageLength == page.number) {
+                items.remove(id);
+                indexes.remove(id);
+            }
+        }
+        cachedRows -= page.ids.size();
+        estimatedSize -= page.estimatedSize;
+    }
+
+    private static long estimateSize(RowItem item) {
+        long size = ROW_OVERHEAD;
+        for (Object propertyId : item.getItemPropertyIds()) {
+            size += PROPERTY_OVERHEAD
+                    + estimateSize(item.getItemProperty(propertyId).getValue());
+        }
+        return size;
+    }
+
+    private static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return VALUE_OVERHEAD + 2L * ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return VALUE_OVERHEAD + ((byte[]) value).length;
+        } else if (value instanceof char[]) {
+            return VALUE_OVERHEAD + 2L * ((char[]) value).length;
+        } else {
+            return VALUE_OVERHEAD;
+        }
+    }
+}
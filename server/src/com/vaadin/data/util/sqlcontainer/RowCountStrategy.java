@@ -0,0 +1,85 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+
+/**
+ * Strategy used by {@link SQLContainer} for fetching the number of rows
+ * matching the current filters. The default strategy,
+ * {@link ExactRowCountStrategy}, runs a count query every time the size of the
+ * container needs to be updated, which may be slow for large tables.
+ * 
+ * @see SQLContainer#setRowCountStrategy(RowCountStrategy)
+ * @since 7.5
+ */
+public interface RowCountStrategy extends Serializable {
+
+    /**
+     * Callback for delivering a row count that becomes available only after
+     * {@link RowCountStrategy#getRowCount(QueryDelegate, List, Callback)} has
+     * returned, e.g. because it is fetched in a background thread.
+     */
+    public interface Callback extends Serializable {
+        /**
+         * Updates the row count of the container. The container fires an
+         * item set change event if the count has changed. Counts delivered
+         * after the filters of the container have changed are ignored.
+         * <p>
+         * This method must be called while holding the same locks as any other
+         * use of the container, e.g. using
+         * {@link com.vaadin.ui.UI#access(Runnable)}.
+         * 
+         * @param count
+         *            the row count
+         */
+        public void rowCountAvailable(int count);
+    }
+
+    /**
+     * Returns the number of rows matching the current filters. The filters
+     * and sort order have already been set to the query delegate.
+     * <p>
+     * The returned count is used as the size of the container, but it does
+     * not have to be exact. A count larger than the actual number of rows is
+     * allowed: the container corrects its size when it fetches the last rows
+     * and the results end before the count. A smaller count can be returned if
+     * the actual count is delivered later through the callback.
+     * 
+     * @param delegate
+     *            the query delegate of the container
+     * @param filters
+     *            the current filters of the container, not to be modified
+     * @param callback
+     *            callback for updating the row count later
+     * @return the number of rows
+     * @throws SQLException
+     *             if fetching the count fails
+     */
+    public int getRowCount(QueryDelegate delegate, List<Filter> filters,
+            Callback callback) throws SQLException;
+
+    /**
+     * Notifies this strategy that the data in the database may have changed,
+     * so that any cached counts should be discarded.
+     */
+    public void invalidate();
+}
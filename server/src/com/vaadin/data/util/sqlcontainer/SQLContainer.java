@@ -26,9 +26,11 @@ import java.util.ConcurrentModificationException;
 import java.util.Date;
 import java.util.EventObject;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +47,7 @@ import com.vaadin.data.util.sqlcontainer.query.QueryDelegate.RowIdChangeListener
 import com.vaadin.data.util.sqlcontainer.query.TableQuery;
 import com.vaadin.data.util.sqlcontainer.query.generator.MSSQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.OracleGenerator;
+import com.vaadin.shared.util.SharedUtil;
 
 public class SQLContainer implements Container, Container.Filterable,
         Container.Indexed, Container.Sortable, Container.ItemSetChangeNotifier {
@@ -58,15 +61,30 @@ public class SQLContainer implements Container, Container.Filterable,
     private int pageLength = DEFAULT_PAGE_LENGTH;
     public static final int DEFAULT_PAGE_LENGTH = 100;
 
-    /** Number of items to cache = CACHE_RATIO x pageLength */
+    /**
+     * Number of pages to read ahead in the scrolling direction when fetching a
+     * page that is not cached, unless changed using
+     * {@link #setReadAheadPages(int)}.
+     */
     public static final int CACHE_RATIO = 2;
 
-    /** Amount of cache to overlap with previous page */
-    private int cacheOverlap = pageLength;
+    /**
+     * Default number of pages that are kept in the cache, unless the cache
+     * size has been set using {@link #setCacheSize(int)}.
+     */
+    private static final int DEFAULT_CACHED_PAGES = 2 * (CACHE_RATIO + 1);
+
+    /** Item and index cache */
+    private final PageCache cache = new PageCache();
+
+    /** Maximum number of cached rows, 0 to derive from the page length */
+    private int cacheSize = 0;
+
+    /** Number of pages to read ahead in the scrolling direction */
+    private int readAheadPages = CACHE_RATIO;
 
-    /** Item and index caches */
-    private final Map<Integer, RowId> itemIndexes = new HashMap<Integer, RowId>();
-    private final CacheMap<RowId, RowItem> cachedItems = new CacheMap<RowId, RowItem>();
+    /** The most recently requested index, used to detect scroll direction */
+    private int lastRequestedIndex = 0;
 
     /** Container properties = column names, data types and statuses */
     private final List<String> propertyIds = new ArrayList<String>();
@@ -94,8 +112,14 @@ public class SQLContainer implements Container, Container.Filterable,
     private boolean sizeDirty = true;
     private Date sizeUpdated = new Date();
 
-    /** Starting row number of the currently fetched page */
-    private int currentOffset;
+    /** Strategy for fetching the row count */
+    private RowCountStrategy rowCountStrategy = new ExactRowCountStrategy();
+
+    /**
+     * Incremented whenever the size is marked dirty, so that row counts
+     * delivered later for outdated filters can be ignored.
+     */
+    private int countGeneration = 0;
 
     /** ItemSetChangeListeners */
     private LinkedList<Container.ItemSetChangeListener> itemSetChangeListeners;
@@ -105,6 +129,17 @@ public class SQLContainer implements Container, Container.Filterable,
     private final List<RowItem> addedItems = new ArrayList<RowItem>();
     private final List<RowItem> modifiedItems = new ArrayList<RowItem>();
 
+    /**
+     * Known positions of the rows pending removal in the results of the
+     * current query. The rows keep their positions in the cached pages so that
+     * the pages stay aligned with the results, and the indexes of the
+     * following rows are adjusted instead. The position of a removed row is
+     * not known after the filters or sorters have changed until the page
+     * containing it is fetched.
+     */
+    private final Map<RowId, Integer> removedRowPositions = new HashMap<RowId, Integer>();
+    private final TreeMap<Integer, RowId> removedRowsByPosition = new TreeMap<Integer, RowId>();
+
     /** List of references to other SQLContainers */
     private final Map<SQLContainer, Reference> references = new HashMap<SQLContainer, Reference>();
 
@@ -132,7 +167,8 @@ public class SQLContainer implements Container, Container.Filterable,
         }
         queryDelegate = delegate;
         getPropertyIds();
-        cachedItems.setCacheLimit(CACHE_RATIO * getPageLength() + cacheOverlap);
+        cache.setPageLength(pageLength);
+        updateCacheSize();
     }
 
     /**************************************/
@@ -214,8 +250,11 @@ public class SQLContainer implements Container, Container.Filterable,
         if (itemId == null) {
             return false;
         }
+        if (removedItems.containsKey(itemId)) {
+            return false;
+        }
 
-        if (cachedItems.containsKey(itemId)) {
+        if (cache.containsItem(itemId)) {
             return true;
         } else {
             for (RowItem item : addedItems) {
@@ -224,9 +263,6 @@ public class SQLContainer implements Container, Container.Filterable,
                 }
             }
         }
-        if (removedItems.containsKey(itemId)) {
-            return false;
-        }
 
         if (itemId instanceof ReadOnlyRowId) {
             int rowNum = ((ReadOnlyRowId) itemId).getRowNum();
@@ -280,11 +316,15 @@ public class SQLContainer implements Container, Container.Filterable,
 
     @Override
     public Item getItem(Object itemId) {
-        if (!cachedItems.containsKey(itemId)) {
+        if (removedItems.containsKey(itemId)) {
+            return null;
+        }
+        if (!cache.containsItem(itemId)) {
             int index = indexOfId(itemId);
-            if (index >= size) {
+            int rows = sizeOfDataSourceRows();
+            if (index >= rows) {
                 // The index is in the added items
-                int offset = index - size;
+                int offset = index - rows;
                 RowItem item = addedItems.get(offset);
                 if (itemPassesFilters(item)) {
                     return item;
@@ -293,10 +333,10 @@ public class SQLContainer implements Container, Container.Filterable,
                 }
             } else {
                 // load the item into cache
-                updateOffsetAndCache(index);
+                ensureCached(toResultIndex(index));
             }
         }
-        return cachedItems.get(itemId);
+        return cache.getItem(itemId);
     }
 
     /**
@@ -308,14 +348,17 @@ public class SQLContainer implements Container, Container.Filterable,
      * @return the item represented by itemId.
      */
     public Item getItemUnfiltered(Object itemId) {
-        if (!cachedItems.containsKey(itemId)) {
+        if (removedItems.containsKey(itemId)) {
+            return null;
+        }
+        if (!cache.containsItem(itemId)) {
             for (RowItem item : addedItems) {
                 if (item.getId().equals(itemId)) {
                     return item;
                 }
             }
         }
-        return cachedItems.get(itemId);
+        return cache.getItem(itemId);
     }
 
     /**
@@ -401,7 +444,7 @@ public class SQLContainer implements Container, Container.Filterable,
     @Override
     public int size() {
         updateCount();
-        return size + sizeOfAddedItems() - removedItems.size();
+        return sizeOfDataSourceRows() + sizeOfAddedItems();
     }
 
     /*
@@ -466,8 +509,12 @@ public class SQLContainer implements Container, Container.Filterable,
                 throw e;
             }
         } else {
-            removedItems.put((RowId) itemId, (RowItem) getItem(itemId));
-            cachedItems.remove(itemId);
+            RowItem item = (RowItem) getItem(itemId);
+            int position = cache.indexOf(itemId);
+            removedItems.put((RowId) itemId, item);
+            if (position != -1) {
+                setRemovedRowPosition((RowId) itemId, position);
+            }
             refresh();
             return true;
         }
@@ -524,9 +571,35 @@ public class SQLContainer implements Container, Container.Filterable,
                 throw e;
             }
         } else {
+            /*
+             * The ids are in the order of the results, skipping the rows that
+             * were already removed. Positions of earlier removed rows that are
+             * not known are corrected when their pages are fetched.
+             */
+            Map<RowId, RowItem> items = new HashMap<RowId, RowItem>();
+            Map<RowId, Integer> positions = new HashMap<RowId, Integer>();
+            Iterator<Integer> removedPositions = removedRowsByPosition
+                    .keySet().iterator();
+            int nextRemoved = removedPositions.hasNext() ? removedPositions
+                    .next() : -1;
+            int position = 0;
             for (Object id : getItemIds()) {
-                removedItems.put((RowId) id, (RowItem) getItem(id));
-                cachedItems.remove(id);
+                if (id instanceof TemporaryRowId) {
+                    // Added items are simply discarded
+                    addedItems.remove(getItem(id));
+                    continue;
+                }
+                items.put((RowId) id, (RowItem) getItem(id));
+                while (position == nextRemoved) {
+                    position++;
+                    nextRemoved = removedPositions.hasNext() ? removedPositions
+                            .next() : -1;
+                }
+                positions.put((RowId) id, position++);
+            }
+            removedItems.putAll(items);
+            for (Map.Entry<RowId, Integer> entry : positions.entrySet()) {
+                setRemovedRowPosition(entry.getKey(), entry.getValue());
             }
             refresh();
             return true;
@@ -547,7 +620,7 @@ public class SQLContainer implements Container, Container.Filterable,
         // filter.setCaseSensitive(!ignoreCase);
 
         filters.add(filter);
-        refresh();
+        refreshQuery();
     }
 
     /**
@@ -557,7 +630,7 @@ public class SQLContainer implements Container, Container.Filterable,
     @Override
     public void removeContainerFilter(Filter filter) {
         filters.remove(filter);
-        refresh();
+        refreshQuery();
     }
 
     /**
@@ -575,7 +648,7 @@ public class SQLContainer implements Container, Container.Filterable,
         Like like = new Like(propertyId.toString(), likeStr);
         like.setCaseSensitive(!ignoreCase);
         filters.add(like);
-        refresh();
+        refreshQuery();
     }
 
     /**
@@ -589,7 +662,7 @@ public class SQLContainer implements Container, Container.Filterable,
             }
         }
         filters.removeAll(toRemove);
-        refresh();
+        refreshQuery();
     }
 
     /**
@@ -598,7 +671,7 @@ public class SQLContainer implements Container, Container.Filterable,
     @Override
     public void removeAllContainerFilters() {
         filters.clear();
-        refresh();
+        refreshQuery();
     }
 
     /**
@@ -639,7 +712,7 @@ public class SQLContainer implements Container, Container.Filterable,
             if (item.getId().equals(itemId)) {
                 if (itemPassesFilters(item)) {
                     updateCount();
-                    return size + ix;
+                    return sizeOfDataSourceRows() + ix;
                 } else {
                     return -1;
                 }
@@ -649,36 +722,21 @@ public class SQLContainer implements Container, Container.Filterable,
         if (!containsId(itemId)) {
             return -1;
         }
-        if (cachedItems.isEmpty()) {
-            getPage();
-        }
-        // this protects against infinite looping
-        int counter = 0;
-        int oldIndex;
-        while (counter < size) {
-            if (itemIndexes.containsValue(itemId)) {
-                for (Integer idx : itemIndexes.keySet()) {
-                    if (itemIndexes.get(idx).equals(itemId)) {
-                        return idx;
-                    }
+        int index = cache.indexOf(itemId);
+        if (index != -1) {
+            return toVisibleIndex(index);
+        }
+        // Scan the pages that are not cached until the item is found
+        updateCount();
+        int pages = (size + pageLength - 1) / pageLength;
+        for (int page = 0; page < pages; page++) {
+            if (!cache.containsPage(page)) {
+                fetchPages(page, Math.min(page + readAheadPages, pages - 1));
+                index = cache.indexOf(itemId);
+                if (index != -1) {
+                    return toVisibleIndex(index);
                 }
             }
-            oldIndex = currentOffset;
-            // load in the next page.
-            int nextIndex = currentOffset + pageLength * CACHE_RATIO
-                    + cacheOverlap;
-            if (nextIndex >= size) {
-                // Container wrapped around, start from index 0.
-                nextIndex = 0;
-            }
-            updateOffsetAndCache(nextIndex);
-
-            // Update counter
-            if (currentOffset > oldIndex) {
-                counter += currentOffset - oldIndex;
-            } else {
-                counter += size - oldIndex;
-            }
         }
         // safeguard in case item not found
         return -1;
@@ -698,23 +756,42 @@ public class SQLContainer implements Container, Container.Filterable,
         }
         // make sure the size field is valid
         updateCount();
-        if (index < size) {
-            if (itemIndexes.keySet().contains(index)) {
-                return itemIndexes.get(index);
+        if (index < sizeOfDataSourceRows()) {
+            RowId id = getCachedId(index);
+            if (id != null || index < sizeOfDataSourceRows()) {
+                return id;
             }
-            updateOffsetAndCache(index);
-            return itemIndexes.get(index);
-        } else {
-            // The index is in the added items
-            int offset = index - size;
-            // TODO this is very inefficient if looping - should improve
-            // getItemIds(int, int)
-            return getFilteredAddedItems().get(offset).getId();
+            // The size was corrected while fetching, the index is beyond the
+            // rows in the data source
         }
+        // The index is in the added items
+        int offset = index - sizeOfDataSourceRows();
+        // TODO this is very inefficient if looping - should improve
+        // getItemIds(int, int)
+        return getFilteredAddedItems().get(offset).getId();
     }
 
     @Override
     public List<Object> getItemIds(int startIndex, int numberOfIds) {
+        updateCount();
+        if (numberOfIds > 0 && startIndex >= 0
+                && startIndex < sizeOfDataSourceRows()) {
+            /*
+             * Fetch the first and last rows of the range before the size is
+             * checked, since the size may be corrected when fetching if the
+             * row count strategy returned an estimate.
+             */
+            int sizeBefore = size;
+            getIdByIndex(startIndex);
+            int last = Math.min(startIndex + numberOfIds,
+                    sizeOfDataSourceRows()) - 1;
+            if (last > startIndex) {
+                getIdByIndex(last);
+            }
+            if (size < sizeBefore && startIndex > size()) {
+                return Collections.emptyList();
+            }
+        }
         // TODO create a better implementation
         return (List<Object>) ContainerHelpers.getItemIdsUsingGetIdByIndex(
                 startIndex, numberOfIds, this);
@@ -765,7 +842,7 @@ public class SQLContainer implements Container, Container.Filterable,
     @Override
     public Object firstItemId() {
         updateCount();
-        if (size == 0) {
+        if (sizeOfDataSourceRows() == 0) {
             if (addedItems.isEmpty()) {
                 return null;
             } else {
@@ -779,10 +856,7 @@ public class SQLContainer implements Container, Container.Filterable,
                 }
             }
         }
-        if (!itemIndexes.containsKey(0)) {
-            updateOffsetAndCache(0);
-        }
-        return itemIndexes.get(0);
+        return getCachedId(0);
     }
 
     /*
@@ -794,11 +868,7 @@ public class SQLContainer implements Container, Container.Filterable,
     @Override
     public Object lastItemId() {
         if (addedItems.isEmpty()) {
-            int lastIx = size() - 1;
-            if (!itemIndexes.containsKey(lastIx)) {
-                updateOffsetAndCache(size - 1);
-            }
-            return itemIndexes.get(lastIx);
+            return getCachedId(size() - 1);
         } else {
             int ix = addedItems.size();
             do {
@@ -849,7 +919,7 @@ public class SQLContainer implements Container, Container.Filterable,
     public void sort(Object[] propertyId, boolean[] ascending) {
         sorters.clear();
         if (propertyId == null || propertyId.length == 0) {
-            refresh();
+            refreshQuery();
             return;
         }
         /* Generate OrderBy -objects */
@@ -866,7 +936,7 @@ public class SQLContainer implements Container, Container.Filterable,
                 sorters.add(new OrderBy((String) propertyId[i], asc));
             }
         }
-        refresh();
+        refreshQuery();
     }
 
     /*
@@ -889,6 +959,10 @@ public class SQLContainer implements Container, Container.Filterable,
      * Does NOT remove sorting or filtering rules!
      */
     public void refresh() {
+        rowCountStrategy.invalidate();
+        if (queryDelegate instanceof TableQuery) {
+            ((TableQuery) queryDelegate).clearKeysetBoundaries();
+        }
         refresh(true);
     }
 
@@ -903,13 +977,23 @@ public class SQLContainer implements Container, Container.Filterable,
     private void refresh(boolean setSizeDirty) {
         if (setSizeDirty) {
             sizeDirty = true;
+            countGeneration++;
         }
-        currentOffset = 0;
-        cachedItems.clear();
-        itemIndexes.clear();
+        lastRequestedIndex = 0;
+        cache.clear();
         fireContentsChange();
     }
 
+    /**
+     * Refreshes the container after the filters or sorters have changed. The
+     * positions of the rows pending removal are recorded again when the pages
+     * containing them are fetched.
+     */
+    private void refreshQuery() {
+        clearRemovedRowPositions();
+        refresh(true);
+    }
+
     /**
      * Returns modify state of the container.
      * 
@@ -961,7 +1045,7 @@ public class SQLContainer implements Container, Container.Filterable,
      */
     public void setPageLength(int pageLength) {
         setPageLengthInternal(pageLength);
-        refresh();
+        refresh(true);
     }
 
     /**
@@ -972,8 +1056,109 @@ public class SQLContainer implements Container, Container.Filterable,
      */
     private void setPageLengthInternal(int pageLength) {
         this.pageLength = pageLength > 0 ? pageLength : DEFAULT_PAGE_LENGTH;
-        cacheOverlap = getPageLength();
-        cachedItems.setCacheLimit(CACHE_RATIO * getPageLength() + cacheOverlap);
+        cache.setPageLength(this.pageLength);
+        updateCacheSize();
+    }
+
+    /**
+     * Sets the maximum number of rows kept in the row cache. Rows are cached
+     * in pages of {@link #getPageLength()} rows and the least recently used
+     * pages are discarded when the limit is exceeded. Keeping several pages in
+     * the cache allows scrolling back and forth without fetching the same rows
+     * again.
+     * <p>
+     * By default, the cache size is six times the page length.
+     * 
+     * @since 7.5
+     * @param cacheSize
+     *            the maximum number of cached rows, or 0 to derive the cache
+     *            size from the page length
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "Cache size must not be negative.");
+        }
+        this.cacheSize = cacheSize;
+        updateCacheSize();
+    }
+
+    /**
+     * Returns the maximum number of rows kept in the row cache.
+     * 
+     * @since 7.5
+     * @return the maximum number of cached rows
+     */
+    public int getCacheSize() {
+        return cache.getMaxRows();
+    }
+
+    /**
+     * Sets an upper limit for the estimated memory used by the cached rows. The
+     * estimate is based on the number of properties and the length of string
+     * and binary values. The least recently used pages are discarded when the
+     * limit is exceeded.
+     * 
+     * @since 7.5
+     * @param bytes
+     *            the maximum estimated size of the cached rows in bytes, or 0
+     *            for no memory limit
+     */
+    public void setCacheMemoryLimit(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException(
+                    "Cache memory limit must not be negative.");
+        }
+        cache.setMaxMemory(bytes);
+    }
+
+    /**
+     * Returns the upper limit for the estimated memory used by the cached rows.
+     * 
+     * @since 7.5
+     * @return the maximum estimated size of the cached rows in bytes, or 0 if
+     *         there is no memory limit
+     */
+    public long getCacheMemoryLimit() {
+        return cache.getMaxMemory();
+    }
+
+    /**
+     * Sets the number of pages to fetch in addition to the requested page when
+     * a row that is not cached is requested. The extra pages are fetched in
+     * the same query in the direction the container is being scrolled, so that
+     * scrolling through the container needs fewer round trips to the database.
+     * 
+     * @since 7.5
+     * @param readAheadPages
+     *            the number of pages to read ahead, 0 to only fetch the
+     *            requested page
+     */
+    public void setReadAheadPages(int readAheadPages) {
+        if (readAheadPages < 0) {
+            throw new IllegalArgumentException(
+                    "Read-ahead page count must not be negative.");
+        }
+        this.readAheadPages = readAheadPages;
+        updateCacheSize();
+    }
+
+    /**
+     * Returns the number of pages to fetch in addition to the requested page
+     * when a row that is not cached is requested.
+     * 
+     * @since 7.5
+     * @return the number of pages to read ahead
+     */
+    public int getReadAheadPages() {
+        return readAheadPages;
+    }
+
+    private void updateCacheSize() {
+        int rows = cacheSize > 0 ? cacheSize : DEFAULT_CACHED_PAGES
+                * pageLength;
+        // Always keep at least the pages fetched by a single query
+        cache.setMaxRows(Math.max(rows, (readAheadPages + 1) * pageLength));
     }
 
     /**
@@ -995,7 +1180,7 @@ public class SQLContainer implements Container, Container.Filterable,
                     "The column given for sorting does not exist in this container.");
         }
         sorters.add(orderBy);
-        refresh();
+        refreshQuery();
     }
 
     /**
@@ -1010,37 +1195,39 @@ public class SQLContainer implements Container, Container.Filterable,
             getLogger().log(Level.FINER,
                     "Commiting changes through delegate...");
             queryDelegate.beginTransaction();
-            /* Perform buffered deletions */
-            for (RowItem item : removedItems.values()) {
-                if (!queryDelegate.removeRow(item)) {
-                    throw new SQLException("Removal failed for row with ID: "
-                            + item.getId());
+            if (queryDelegate instanceof TableQuery) {
+                commitBatched((TableQuery) queryDelegate);
+            } else {
+                /* Perform buffered deletions */
+                for (RowItem item : removedItems.values()) {
+                    if (!queryDelegate.removeRow(item)) {
+                        throw new SQLException(
+                                "Removal failed for row with ID: "
+                                        + item.getId());
+                    }
                 }
-            }
-            /* Perform buffered modifications */
-            for (RowItem item : modifiedItems) {
-                if (!removedItems.containsKey(item.getId())) {
-                    if (queryDelegate.storeRow(item) > 0) {
-                        /*
-                         * Also reset the modified state in the item in case it
-                         * is reused e.g. in a form.
-                         */
-                        item.commit();
-                    } else {
-                        queryDelegate.rollback();
-                        refresh();
-                        throw new ConcurrentModificationException(
-                                "Item with the ID '" + item.getId()
-                                        + "' has been externally modified.");
+                /* Perform buffered modifications */
+                for (RowItem item : modifiedItems) {
+                    if (!removedItems.containsKey(item.getId())) {
+                        if (queryDelegate.storeRow(item) > 0) {
+                            /*
+                             * Also reset the modified state in the item in
+                             * case it is reused e.g. in a form.
+                             */
+                            item.commit();
+                        } else {
+                            modifiedExternally(item);
+                        }
                     }
                 }
-            }
-            /* Perform buffered additions */
-            for (RowItem item : addedItems) {
-                queryDelegate.storeRow(item);
+                /* Perform buffered additions */
+                for (RowItem item : addedItems) {
+                    queryDelegate.storeRow(item);
+                }
             }
             queryDelegate.commit();
             removedItems.clear();
+            clearRemovedRowPositions();
             addedItems.clear();
             modifiedItems.clear();
             refresh();
@@ -1056,6 +1243,48 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Writes the buffered deletions, modifications and additions using JDBC
+     * batches.
+     */
+    private void commitBatched(TableQuery query) throws SQLException {
+        List<RowItem> removed = new ArrayList<RowItem>(removedItems.values());
+        boolean[] removeResults = query.removeRows(removed);
+        for (int i = 0; i < removeResults.length; i++) {
+            if (!removeResults[i]) {
+                throw new SQLException("Removal failed for row with ID: "
+                        + removed.get(i).getId());
+            }
+        }
+        List<RowItem> modified = new ArrayList<RowItem>();
+        for (RowItem item : modifiedItems) {
+            if (!removedItems.containsKey(item.getId())) {
+                modified.add(item);
+            }
+        }
+        int[] storeResults = query.storeRows(modified);
+        for (int i = 0; i < storeResults.length; i++) {
+            if (storeResults[i] <= 0) {
+                modifiedExternally(modified.get(i));
+            }
+        }
+        for (RowItem item : modified) {
+            /*
+             * Also reset the modified state in the item in case it is reused
+             * e.g. in a form.
+             */
+            item.commit();
+        }
+        query.storeRows(addedItems);
+    }
+
+    private void modifiedExternally(RowItem item) throws SQLException {
+        queryDelegate.rollback();
+        refresh();
+        throw new ConcurrentModificationException("Item with the ID '"
+                + item.getId() + "' has been externally modified.");
+    }
+
     /**
      * Rolls back all the changes, additions and removals made to the items of
      * this container.
@@ -1066,6 +1295,7 @@ public class SQLContainer implements Container, Container.Filterable,
     public void rollback() throws UnsupportedOperationException, SQLException {
         getLogger().log(Level.FINE, "Rolling back changes...");
         removedItems.clear();
+        clearRemovedRowPositions();
         addedItems.clear();
         modifiedItems.clear();
         refresh();
@@ -1115,28 +1345,44 @@ public class SQLContainer implements Container, Container.Filterable,
     }
 
     /**
-     * Determines a new offset for updating the row cache. The offset is
-     * calculated from the given index, and will be fixed to match the start of
-     * a page, based on the value of pageLength.
+     * Makes sure the row at the given index is cached. If it is not, fetches
+     * the page containing it along with pages read ahead in the direction of
+     * scrolling.
      * 
      * @param index
-     *            Index of the item that was requested, but not found in cache
+     *            Index of the item that was requested, or a negative value if
+     *            the index is not known, in which case the first page is
+     *            fetched
      */
-    private void updateOffsetAndCache(int index) {
-
-        int oldOffset = currentOffset;
-
-        currentOffset = (index / pageLength) * pageLength - cacheOverlap;
-
-        if (currentOffset < 0) {
-            currentOffset = 0;
+    private void ensureCached(int index) {
+        if (index < 0) {
+            index = 0;
         }
-
-        if (oldOffset == currentOffset && !cachedItems.isEmpty()) {
+        updateCount();
+        int page = index / pageLength;
+        boolean backwards = index < lastRequestedIndex;
+        lastRequestedIndex = index;
+        if (cache.containsPage(page)) {
             return;
         }
 
-        getPage();
+        int first = page;
+        int last = page;
+        if (backwards) {
+            first = Math.max(0, page - readAheadPages);
+        } else {
+            last = page + readAheadPages;
+            int lastPage = (size + pageLength - 1) / pageLength - 1;
+            last = Math.max(page, Math.min(last, lastPage));
+        }
+        // Do not fetch again pages that are already cached
+        while (first < page && cache.containsPage(first)) {
+            first++;
+        }
+        while (last > page && cache.containsPage(last)) {
+            last--;
+        }
+        fetchPages(first, last);
     }
 
     /**
@@ -1161,7 +1407,9 @@ public class SQLContainer implements Container, Container.Filterable,
                 getLogger().log(Level.FINE,
                         "The query delegate doesn't support sorting", e);
             }
-            int newSize = queryDelegate.getCount();
+            int newSize = rowCountStrategy.getRowCount(queryDelegate,
+                    Collections.unmodifiableList(filters), new CountCallback(
+                            this, countGeneration));
             sizeUpdated = new Date();
             sizeDirty = false;
             if (newSize != size) {
@@ -1176,6 +1424,67 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Updates the size of the container with a row count delivered by the
+     * row count strategy after the size was updated, unless the filters have
+     * changed or the container has been refreshed since.
+     */
+    private void rowCountAvailable(int count, int generation) {
+        if (generation != countGeneration || count == size) {
+            return;
+        }
+        size = count;
+        sizeUpdated = new Date();
+        sizeDirty = false;
+        refresh(false);
+        getLogger().log(Level.FINER, "Received row count. New count is: {0}",
+                size);
+    }
+
+    private static class CountCallback implements RowCountStrategy.Callback {
+        private final SQLContainer container;
+        private final int generation;
+
+        public CountCallback(SQLContainer container, int generation) {
+            this.container = container;
+            this.generation = generation;
+        }
+
+        @Override
+        public void rowCountAvailable(int count) {
+            container.rowCountAvailable(count, generation);
+        }
+    }
+
+    /**
+     * Sets the strategy used for fetching the number of rows matching the
+     * current filters. The default strategy, {@link ExactRowCountStrategy},
+     * runs a count query each time the size of the container is updated.
+     * 
+     * @since 7.5
+     * @param rowCountStrategy
+     *            the row count strategy to use, not <code>null</code>
+     */
+    public void setRowCountStrategy(RowCountStrategy rowCountStrategy) {
+        if (rowCountStrategy == null) {
+            throw new IllegalArgumentException(
+                    "Row count strategy cannot be null.");
+        }
+        this.rowCountStrategy = rowCountStrategy;
+        refresh(true);
+    }
+
+    /**
+     * Returns the strategy used for fetching the number of rows matching the
+     * current filters.
+     * 
+     * @since 7.5
+     * @return the row count strategy
+     */
+    public RowCountStrategy getRowCountStrategy() {
+        return rowCountStrategy;
+    }
+
     /**
      * Fetches property id's (column names and their types) from the data
      * source.
@@ -1273,16 +1582,19 @@ public class SQLContainer implements Container, Container.Filterable,
     }
 
     /**
-     * Fetches a page from the data source based on the values of pageLenght and
-     * currentOffset. Also updates the set of primary keys, used in
+     * Fetches a range of pages from the data source in one query and adds them
+     * to the cache. Also updates the set of primary keys, used in
      * identification of RowItems.
+     * 
+     * @param firstPage
+     *            the number of the first page to fetch
+     * @param lastPage
+     *            the number of the last page to fetch, inclusive
      */
-    private void getPage() {
+    private void fetchPages(int firstPage, int lastPage) {
         updateCount();
         ResultSet rs = null;
         ResultSetMetaData rsmd = null;
-        cachedItems.clear();
-        itemIndexes.clear();
         try {
             try {
                 queryDelegate.setOrderBy(sorters);
@@ -1293,20 +1605,33 @@ public class SQLContainer implements Container, Container.Filterable,
                         "The query delegate doesn't support sorting", e);
             }
             queryDelegate.beginTransaction();
-            int fetchedRows = pageLength * CACHE_RATIO + cacheOverlap;
-            rs = queryDelegate.getResults(currentOffset, fetchedRows);
+            int offset = firstPage * pageLength;
+            int fetchedRows = (lastPage - firstPage + 1) * pageLength;
+            rs = queryDelegate.getResults(offset, fetchedRows);
             rsmd = rs.getMetaData();
             List<String> pKeys = queryDelegate.getPrimaryKeyColumns();
             // }
             /* Create new items and column properties */
             ColumnProperty cp = null;
-            int rowCount = currentOffset;
+            int rowCount = offset;
             if (!queryDelegate.implementationRespectsPagingLimits()) {
-                rowCount = currentOffset = 0;
+                /* All rows are returned, cache them as a single page */
+                rowCount = offset = 0;
+                firstPage = lastPage = 0;
                 setPageLengthInternal(size);
             }
+            List<List<RowId>> pageIds = new ArrayList<List<RowId>>();
+            List<List<RowItem>> pageItems = new ArrayList<List<RowItem>>();
+            for (int page = firstPage; page <= lastPage; page++) {
+                pageIds.add(new ArrayList<RowId>());
+                pageItems.add(new ArrayList<RowItem>());
+            }
+            int resultRows = 0;
+            List<ColumnProperty> lastRowProperties = null;
             while (rs.next()) {
+                resultRows++;
                 List<ColumnProperty> itemProperties = new ArrayList<ColumnProperty>();
+                lastRowProperties = itemProperties;
                 /* Generate row itemId based on primary key(s) */
                 Object[] itemId = new Object[pKeys.size()];
                 for (int i = 0; i < pKeys.size(); i++) {
@@ -1320,7 +1645,15 @@ public class SQLContainer implements Container, Container.Filterable,
                 }
                 List<String> propertiesToAdd = new ArrayList<String>(
                         propertyIds);
-                if (!removedItems.containsKey(id)) {
+                int page = rowCount / pageLength - firstPage;
+                if (removedItems.containsKey(id)) {
+                    /*
+                     * Keep the row in its place so that the following rows
+                     * are cached at their positions in the results
+                     */
+                    setRemovedRowPosition(id, rowCount);
+                }
+                if (page < pageIds.size()) {
                     for (int i = 1; i <= rsmd.getColumnCount(); i++) {
                         if (!isColumnIdentifierValid(rsmd.getColumnLabel(i))) {
                             continue;
@@ -1356,17 +1689,22 @@ public class SQLContainer implements Container, Container.Filterable,
                         }
                     }
                     /* Cache item */
-                    itemIndexes.put(rowCount, id);
+                    pageIds.get(page).add(id);
 
                     // if an item with the id is contained in the modified
                     // cache, then use this record and add it to the cached
-                    // items. Otherwise create a new item
+                    // items. Otherwise reuse an unchanged item from before the
+                    // previous refresh or create a new item
                     int modifiedIndex = indexInModifiedCache(id);
+                    RowItem previousItem = cache.getPreviousItem(id);
                     if (modifiedIndex != -1) {
-                        cachedItems.put(id, modifiedItems.get(modifiedIndex));
+                        pageItems.get(page).add(
+                                modifiedItems.get(modifiedIndex));
+                    } else if (isReusable(previousItem, itemProperties)) {
+                        pageItems.get(page).add(previousItem);
                     } else {
-                        cachedItems.put(id, new RowItem(this, id,
-                                itemProperties));
+                        pageItems.get(page).add(
+                                new RowItem(this, id, itemProperties));
                     }
 
                     rowCount++;
@@ -1375,8 +1713,39 @@ public class SQLContainer implements Container, Container.Filterable,
             rs.getStatement().close();
             rs.close();
             queryDelegate.commit();
+
+            if (lastRowProperties != null
+                    && queryDelegate instanceof TableQuery) {
+                /* Let keyset paging seek past the rows read */
+                Map<String, Object> lastRow = new HashMap<String, Object>();
+                for (ColumnProperty property : lastRowProperties) {
+                    lastRow.put(property.getPropertyId(), property.getValue());
+                }
+                ((TableQuery) queryDelegate).pageRead(offset, resultRows,
+                        lastRow);
+            }
+
+            if (queryDelegate.implementationRespectsPagingLimits()
+                    && resultRows < fetchedRows && offset + resultRows < size) {
+                /*
+                 * The result ended before the rows counted by the row count
+                 * strategy, e.g. because the count was an estimate. Use the
+                 * actual number of rows as the size.
+                 */
+                size = offset + resultRows;
+                getLogger().log(Level.FINER,
+                        "Corrected row count. New count is: {0}", size);
+            }
+
+            List<Integer> fetchedPages = new ArrayList<Integer>();
+            for (int page = firstPage; page <= lastPage; page++) {
+                cache.putPage(page, pageIds.get(page - firstPage),
+                        pageItems.get(page - firstPage));
+                fetchedPages.add(page);
+            }
+            cache.evict(fetchedPages);
             getLogger().log(Level.FINER, "Fetched {0} rows starting from {1}",
-                    new Object[] { fetchedRows, currentOffset });
+                    new Object[] { fetchedRows, offset });
         } catch (SQLException e) {
             getLogger().log(Level.WARNING,
                     "Failed to fetch rows, rolling back", e);
@@ -1399,6 +1768,35 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Checks whether a previously cached item can be used instead of creating
+     * a new item for the given freshly fetched properties.
+     * 
+     * @param item
+     *            the previously cached item, or <code>null</code>
+     * @param properties
+     *            the fetched properties of the row
+     * @return <code>true</code> if the item has the same property values and
+     *         types as the fetched properties
+     */
+    private static boolean isReusable(RowItem item,
+            List<ColumnProperty> properties) {
+        if (item == null || item.isModified()
+                || item.getItemPropertyIds().size() != properties.size()) {
+            return false;
+        }
+        for (ColumnProperty fetched : properties) {
+            Property<?> cached = item.getItemProperty(fetched.getPropertyId());
+            if (cached == null
+                    || cached.getType() != fetched.getType()
+                    || !SharedUtil.equals(cached.getValue(),
+                            fetched.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the index of the item with the given itemId for the modified
      * cache.
@@ -1417,6 +1815,79 @@ public class SQLContainer implements Container, Container.Filterable,
         return -1;
     }
 
+    /**
+     * Returns the number of rows in the data source that are not pending
+     * removal, as far as their positions are known. Does not update the size.
+     */
+    private int sizeOfDataSourceRows() {
+        return size - removedRowsByPosition.size();
+    }
+
+    /**
+     * Records the position of a row pending removal in the results of the
+     * current query.
+     */
+    private void setRemovedRowPosition(RowId id, int position) {
+        Integer oldPosition = removedRowPositions.put(id, position);
+        if (oldPosition != null) {
+            removedRowsByPosition.remove(oldPosition);
+        }
+        RowId previous = removedRowsByPosition.put(position, id);
+        if (previous != null && !previous.equals(id)) {
+            // The rows have moved in the data source
+            removedRowPositions.remove(previous);
+        }
+    }
+
+    private void clearRemovedRowPositions() {
+        removedRowPositions.clear();
+        removedRowsByPosition.clear();
+    }
+
+    /**
+     * Converts an index of the container to the position of the row in the
+     * results of the current query, which also contain the rows pending
+     * removal.
+     */
+    private int toResultIndex(int index) {
+        int resultIndex = index;
+        for (int position : removedRowsByPosition.keySet()) {
+            if (position > resultIndex) {
+                break;
+            }
+            resultIndex++;
+        }
+        return resultIndex;
+    }
+
+    /**
+     * Converts a position in the results of the current query to an index of
+     * the container.
+     */
+    private int toVisibleIndex(int resultIndex) {
+        return resultIndex - removedRowsByPosition.headMap(resultIndex).size();
+    }
+
+    /**
+     * Returns the id of the data source row at the given index of the
+     * container, fetching it if needed. Fetching may reveal the positions of
+     * removed rows, which moves the row to a later position.
+     */
+    private RowId getCachedId(int index) {
+        if (index < 0) {
+            return null;
+        }
+        int resultIndex = toResultIndex(index);
+        RowId id = cache.getId(resultIndex);
+        while (id == null && resultIndex < size
+                && !cache.containsPage(resultIndex / pageLength)) {
+            ensureCached(resultIndex);
+            resultIndex = toResultIndex(index);
+            id = cache.getId(resultIndex);
+        }
+        return id;
+    }
+
     private int sizeOfAddedItems() {
         return getFilteredAddedItems().size();
     }
@@ -0,0 +1,578 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer.connection;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JDBC connection pool for applications where many sessions share one pool.
+ * Unlike {@link SimpleJDBCConnectionPool}, reserving and releasing
+ * connections does not take any lock: idle connections are kept in a
+ * lock-free stack and the number of connections is limited by a semaphore.
+ * The most recently released connection is reused first, so that the
+ * connections that are not needed stay idle and can be closed.
+ * <p>
+ * Connections are opened when needed, up to the maximum number of
+ * connections. When all connections are in use,
+ * {@link #reserveConnection()} waits for a connection to be released for at
+ * most the configured maximum wait time. Connections that have been idle for
+ * a while are validated before they are handed out, and connections that
+ * have been idle longer than the idle timeout are closed.
+ * <p>
+ * The pool keeps statistics about its use, e.g. the number of borrowed
+ * connections, the number of threads waiting for a connection and a
+ * histogram of the time spent waiting.
+ * 
+ * @since 7.5
+ */
+@SuppressWarnings("serial")
+public class ConcurrentJDBCConnectionPool implements JDBCConnectionPool {
+
+    /**
+     * The default maximum time in milliseconds to wait for a connection.
+     */
+    public static final long DEFAULT_MAX_WAIT = 30000;
+
+    /**
+     * The default time in milliseconds after which idle connections are
+     * closed.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 10 * 60 * 1000;
+
+    /**
+     * The default time in milliseconds a connection can be idle before it is
+     * validated when reserved.
+     */
+    public static final long DEFAULT_VALIDATION_INTERVAL = 5000;
+
+    /**
+     * Upper limits in milliseconds of the buckets of the wait time histogram.
+     * The last bucket contains all longer waits.
+     */
+    private static final long[] WAIT_TIME_LIMITS = { 1, 10, 100, 1000 };
+
+    /** Minimum time in milliseconds between two idle eviction runs */
+    private static final long EVICTION_INTERVAL = 1000;
+
+    /** Timeout in seconds for validating a connection */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final String driverName;
+    private final String connectionUri;
+    private final String userName;
+    private final String password;
+    private final int maxConnections;
+
+    private volatile long maxWait = DEFAULT_MAX_WAIT;
+    private volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private volatile long validationInterval = DEFAULT_VALIDATION_INTERVAL;
+
+    private transient Semaphore permits;
+    /**
+     * Top of the lock-free stack of idle connections, the most recently
+     * released first
+     */
+    private transient AtomicReference<IdleConnection> idleConnections;
+    private transient AtomicInteger idleCount;
+    private transient ConcurrentMap<Connection, Boolean> borrowedConnections;
+    private transient AtomicInteger waitingThreads;
+    private transient AtomicLong borrowCount;
+    private transient AtomicLong timeoutCount;
+    private transient AtomicLongArray waitTimes;
+    private transient AtomicLong lastEviction;
+    private transient volatile boolean destroyed;
+
+    private static class IdleConnection implements Serializable {
+        private final Connection connection;
+        private final long idleSince;
+        /* The connection below this one in the stack */
+        private IdleConnection next;
+
+        public IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * Creates a new connection pool. The JDBC driver is loaded immediately,
+     * but connections are only opened when they are needed.
+     * 
+     * @param driverName
+     *            the class name of the JDBC driver
+     * @param connectionUri
+     *            the database connection URI
+     * @param userName
+     *            the database user name
+     * @param password
+     *            the database password
+     * @param maxConnections
+     *            the maximum number of open connections
+     */
+    public ConcurrentJDBCConnectionPool(String driverName,
+            String connectionUri, String userName, String password,
+            int maxConnections) {
+        if (driverName == null) {
+            throw new IllegalArgumentException(
+                    "JDBC driver class name must be given.");
+        }
+        if (connectionUri == null) {
+            throw new IllegalArgumentException(
+                    "Database connection URI must be given.");
+        }
+        if (userName == null) {
+            throw new IllegalArgumentException(
+                    "Database username must be given.");
+        }
+        if (password == null) {
+            throw new IllegalArgumentException(
+                    "Database password must be given.");
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum number of connections must be at least 1.");
+        }
+        this.driverName = driverName;
+        this.connectionUri = connectionUri;
+        this.userName = userName;
+        this.password = password;
+        this.maxConnections = maxConnections;
+
+        /* Initialize JDBC driver */
+        try {
+            Class.forName(driverName).newInstance();
+        } catch (Exception ex) {
+            throw new RuntimeException("Specified JDBC Driver: " + driverName
+                    + " - initialization failed.", ex);
+        }
+        initialize();
+    }
+
+    private void initialize() {
+        permits = new Semaphore(maxConnections);
+        idleConnections = new AtomicReference<IdleConnection>();
+        idleCount = new AtomicInteger();
+        borrowedConnections = new ConcurrentHashMap<Connection, Boolean>();
+        waitingThreads = new AtomicInteger();
+        borrowCount = new AtomicLong();
+        timeoutCount = new AtomicLong();
+        waitTimes = new AtomicLongArray(WAIT_TIME_LIMITS.length + 1);
+        lastEviction = new AtomicLong(System.currentTimeMillis());
+    }
+
+    @Override
+    public Connection reserveConnection() throws SQLException {
+        if (destroyed) {
+            throw new SQLException("The connection pool has been destroyed.");
+        }
+        acquirePermit();
+        try {
+            Connection connection = takeIdleConnection();
+            if (connection == null) {
+                connection = createConnection();
+            }
+            borrowedConnections.put(connection, Boolean.TRUE);
+            borrowCount.incrementAndGet();
+            return connection;
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        if (permits.tryAcquire()) {
+            waitTimes.incrementAndGet(0);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        waitingThreads.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(
+                    "Interrupted while waiting for a connection.", e);
+        } finally {
+            waitingThreads.decrementAndGet();
+        }
+        recordWaitTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                - start));
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLException("Connection limit has been reached.");
+        }
+    }
+
+    private void recordWaitTime(long millis) {
+        int bucket = 0;
+        while (bucket < WAIT_TIME_LIMITS.length
+                && millis >= WAIT_TIME_LIMITS[bucket]) {
+            bucket++;
+        }
+        waitTimes.incrementAndGet(bucket);
+    }
+
+    /**
+     * Takes a usable connection from the idle connections, or returns
+     * <code>null</code> if there are none. Expired and invalid connections are
+     * closed.
+     */
+    private Connection takeIdleConnection() {
+        IdleConnection idle;
+        while ((idle = popIdleConnection()) != null) {
+            idleCount.decrementAndGet();
+            long idleTime = System.currentTimeMillis() - idle.idleSince;
+            if (idleTime > idleTimeout
+                    || (idleTime >= validationInterval && !isValid(idle.connection))) {
+                close(idle.connection);
+                continue;
+            }
+            return idle.connection;
+        }
+        return null;
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException e) {
+            return false;
+        } catch (AbstractMethodError e) {
+            // JDBC 3 driver, only check that the connection is open
+            try {
+                return !connection.isClosed();
+            } catch (SQLException e1) {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void releaseConnection(Connection conn) {
+        if (conn == null || borrowedConnections.remove(conn) == null) {
+            /* Not reserved from this pool or already released */
+            return;
+        }
+        boolean reusable = !destroyed;
+        /* Try to roll back if necessary */
+        try {
+            if (reusable && !conn.getAutoCommit()) {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            /* Roll back failed, close and discard connection */
+            reusable = false;
+        }
+        if (reusable) {
+            pushIdleConnection(new IdleConnection(conn, System
+                    .currentTimeMillis()));
+            idleCount.incrementAndGet();
+            if (destroyed) {
+                closeIdleConnections();
+            }
+        } else {
+            close(conn);
+        }
+        permits.release();
+        evictIdleConnections();
+    }
+
+    /**
+     * Closes the connections that have been idle longer than the idle
+     * timeout. Runs at most once per {@link #EVICTION_INTERVAL} even if
+     * called concurrently.
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        long last = lastEviction.get();
+        if (now - last < EVICTION_INTERVAL
+                || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        /*
+         * Take the whole stack so that no connection is handed out while it is
+         * being closed, and put back the ones that have not expired. The
+         * oldest connections are at the bottom of the stack.
+         */
+        IdleConnection idle = idleConnections.getAndSet(null);
+        IdleConnection kept = null;
+        while (idle != null) {
+            if (now - idle.idleSince > idleTimeout) {
+                idleCount.decrementAndGet();
+                close(idle.connection);
+            } else {
+                // Copies in reverse order, reversed back when pushed
+                IdleConnection copy = new IdleConnection(idle.connection,
+                        idle.idleSince);
+                copy.next = kept;
+                kept = copy;
+            }
+            idle = idle.next;
+        }
+        while (kept != null) {
+            IdleConnection next = kept.next;
+            pushIdleConnection(kept);
+            kept = next;
+        }
+    }
+
+    private void pushIdleConnection(IdleConnection idle) {
+        IdleConnection top;
+        do {
+            top = idleConnections.get();
+            idle.next = top;
+        } while (!idleConnections.compareAndSet(top, idle));
+    }
+
+    /*
+     * An IdleConnection is never pushed twice, eviction pushes copies, so the
+     * top of the stack cannot be popped and pushed back by another thread
+     * between reading it and the compare-and-set.
+     */
+    private IdleConnection popIdleConnection() {
+        IdleConnection top;
+        do {
+            top = idleConnections.get();
+            if (top == null) {
+                return null;
+            }
+        } while (!idleConnections.compareAndSet(top, top.next));
+        return top;
+    }
+
+    private Connection createConnection() throws SQLException {
+        Connection c = DriverManager.getConnection(connectionUri, userName,
+                password);
+        c.setAutoCommit(false);
+        if (driverName.toLowerCase().contains("mysql")) {
+            try {
+                Statement s = c.createStatement();
+                s.execute("SET SESSION sql_mode = 'ANSI'");
+                s.close();
+            } catch (Exception e) {
+                // Failed to set ansi mode; continue
+            }
+        }
+        return c;
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // No need to do anything
+        }
+    }
+
+    private void closeIdleConnections() {
+        IdleConnection idle;
+        while ((idle = popIdleConnection()) != null) {
+            idleCount.decrementAndGet();
+            close(idle.connection);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        destroyed = true;
+        closeIdleConnections();
+        for (Connection c : borrowedConnections.keySet()) {
+            close(c);
+        }
+    }
+
+    /**
+     * Sets the maximum time to wait for a connection to be released when all
+     * connections are in use. If no connection is released in time,
+     * {@link #reserveConnection()} throws an {@link SQLException}.
+     * 
+     * @param maxWait
+     *            the maximum wait time in milliseconds, 0 to fail immediately
+     */
+    public void setMaxWait(long maxWait) {
+        if (maxWait < 0) {
+            throw new IllegalArgumentException("maxWait cannot be negative");
+        }
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Returns the maximum time to wait for a connection to be released.
+     * 
+     * @return the maximum wait time in milliseconds
+     */
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * Sets the time after which idle connections are closed.
+     * 
+     * @param idleTimeout
+     *            the idle timeout in milliseconds
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "idleTimeout cannot be negative");
+        }
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Returns the time after which idle connections are closed.
+     * 
+     * @return the idle timeout in milliseconds
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets how long a connection can be idle before it is validated using
+     * {@link Connection#isValid(int)} when it is reserved.
+     * 
+     * @param validationInterval
+     *            the idle time in milliseconds after which connections are
+     *            validated, 0 to validate connections every time they are
+     *            reserved
+     */
+    public void setValidationInterval(long validationInterval) {
+        if (validationInterval < 0) {
+            throw new IllegalArgumentException(
+                    "validationInterval cannot be negative");
+        }
+        this.validationInterval = validationInterval;
+    }
+
+    /**
+     * Returns how long a connection can be idle before it is validated when
+     * it is reserved.
+     * 
+     * @return the validation interval in milliseconds
+     */
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    /**
+     * Returns the maximum number of open connections.
+     * 
+     * @return the maximum number of connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Returns the number of connections currently reserved from the pool.
+     * 
+     * @return the number of borrowed connections
+     */
+    public int getBorrowedConnectionCount() {
+        return borrowedConnections.size();
+    }
+
+    /**
+     * Returns the number of open connections currently not in use.
+     * 
+     * @return the number of idle connections
+     */
+    public int getIdleConnectionCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * Returns the number of threads currently waiting for a connection.
+     * 
+     * @return the number of waiting threads
+     */
+    public int getWaitingThreadCount() {
+        return waitingThreads.get();
+    }
+
+    /**
+     * Returns the total number of connections reserved from the pool.
+     * 
+     * @return the number of reservations
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * Returns the number of reservations that failed because no connection
+     * was released within the maximum wait time.
+     * 
+     * @return the number of timed out reservations
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Returns the upper limits of the buckets of the wait time histogram.
+     * 
+     * @return the bucket limits in milliseconds
+     * @see #getWaitTimeHistogram()
+     */
+    public long[] getWaitTimeHistogramLimits() {
+        return WAIT_TIME_LIMITS.clone();
+    }
+
+    /**
+     * Returns a histogram of the time spent waiting for a connection. Bucket
+     * <code>i</code> counts the reservations that waited less than
+     * <code>getWaitTimeHistogramLimits()[i]</code> milliseconds but not less
+     * than the previous limit. The last bucket counts the reservations that
+     * waited at least as long as the largest limit. Timed out reservations are
+     * also counted.
+     * 
+     * @return the number of reservations in each bucket
+     */
+    public long[] getWaitTimeHistogram() {
+        long[] histogram = new long[waitTimes.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = waitTimes.get(i);
+        }
+        return histogram;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        initialize();
+    }
+}
@@ -153,6 +153,16 @@ public abstract class AbstractTransactionalQuery implements Serializable {
         }
     }
 
+    /**
+     * Returns the connection pool used by this query.
+     * 
+     * @since 7.5
+     * @return the connection pool
+     */
+    protected JDBCConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     /**
      * Returns the currently active connection, reserves and returns a new
      * connection if no active connection.
@@ -16,24 +16,31 @@
 package com.vaadin.data.util.sqlcontainer.query;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EventObject;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Compare;
 import com.vaadin.data.util.filter.Compare.Equal;
+import com.vaadin.data.util.filter.Or;
 import com.vaadin.data.util.sqlcontainer.ColumnProperty;
 import com.vaadin.data.util.sqlcontainer.OptimisticLockException;
 import com.vaadin.data.util.sqlcontainer.RowId;
@@ -45,6 +52,7 @@ import com.vaadin.data.util.sqlcontainer.query.generator.DefaultSQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.MSSQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.SQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
+import com.vaadin.shared.util.SharedUtil;
 
 @SuppressWarnings("serial")
 public class TableQuery extends AbstractTransactionalQuery implements
@@ -76,6 +84,44 @@ public class TableQuery extends AbstractTransactionalQuery implements
     /** SQLGenerator instance to use for generating queries */
     private SQLGenerator sqlGenerator;
 
+    /** The default maximum number of rows written in one JDBC batch */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Set to false if the driver does not return the generated keys of all
+     * rows of a batched insert.
+     */
+    private boolean batchedKeysSupported = true;
+
+    /**
+     * Set to false if the driver does not return the number of affected rows
+     * for each statement of a batch.
+     */
+    private boolean batchedCountsSupported = true;
+
+    /** Maximum number of remembered page boundaries for keyset paging */
+    private static final int MAX_KEYSET_BOUNDARIES = 64;
+
+    /**
+     * Keyset paging state: the filters and ordering the boundaries were
+     * recorded with, whether the ordering columns are all declared
+     * <code>NOT NULL</code>, and the values of the ordering columns of the row
+     * before each remembered offset.
+     */
+    private boolean keysetPaging = false;
+    private List<Filter> keysetFilters;
+    private List<OrderBy> keysetOrderBys;
+    private Boolean keysetSeekable;
+    private final Map<Integer, Object[]> keysetBoundaries = new LinkedHashMap<Integer, Object[]>(
+            16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > MAX_KEYSET_BOUNDARIES;
+        }
+    };
+
     /** Row ID change listeners */
     private LinkedList<RowIdChangeListener> rowIdChangeListeners;
     /** Row ID change events, stored until commit() is called */
@@ -197,8 +243,53 @@ public class TableQuery extends AbstractTransactionalQuery implements
     @Override
     public int getCount() throws SQLException {
         getLogger().log(Level.FINE, "Fetching count...");
-        StatementHelper sh = sqlGenerator.generateSelectQuery(
-                getFullTableName(), filters, null, 0, 0, "COUNT(*)");
+        return executeCountQuery(generateCountQuery());
+    }
+
+    /**
+     * Fetches an estimate of the number of rows matching the current filters.
+     * The estimate is fetched using the query generated by
+     * {@link DefaultSQLGenerator#generateEstimatedCountQuery(String, List)}.
+     * If the SQL generator of this query does not support estimated counts,
+     * the exact count is fetched instead.
+     * 
+     * @since 7.5
+     * @return the estimated number of rows
+     * @throws SQLException
+     *             if fetching the count fails
+     */
+    public int getEstimatedCount() throws SQLException {
+        StatementHelper sh = null;
+        if (sqlGenerator instanceof DefaultSQLGenerator) {
+            sh = ((DefaultSQLGenerator) sqlGenerator)
+                    .generateEstimatedCountQuery(getFullTableName(), filters);
+        }
+        if (sh == null) {
+            return getCount();
+        }
+        getLogger().log(Level.FINE, "Fetching estimated count...");
+        return executeCountQuery(sh);
+    }
+
+    /**
+     * Creates a task that fetches the number of rows matching the current
+     * filters. The task uses a connection of its own from the connection pool
+     * and is not affected by later changes to this query or by its
+     * transactions, so it can be run in a background thread.
+     * 
+     * @since 7.5
+     * @return a task returning the row count
+     */
+    public Callable<Integer> createCountTask() {
+        return new CountTask(getConnectionPool(), generateCountQuery());
+    }
+
+    private StatementHelper generateCountQuery() {
+        return sqlGenerator.generateSelectQuery(getFullTableName(), filters,
+                null, 0, 0, "COUNT(*)");
+    }
+
+    private int executeCountQuery(StatementHelper sh) throws SQLException {
         boolean shouldCloseTransaction = false;
         if (!isInTransaction()) {
             shouldCloseTransaction = true;
@@ -225,6 +316,45 @@ public class TableQuery extends AbstractTransactionalQuery implements
         return count;
     }
 
+    private static class CountTask implements Callable<Integer>, Serializable {
+        private final JDBCConnectionPool connectionPool;
+        private final StatementHelper statement;
+
+        private CountTask(JDBCConnectionPool connectionPool,
+                StatementHelper statement) {
+            this.connectionPool = connectionPool;
+            this.statement = statement;
+        }
+
+        @Override
+        public Integer call() throws SQLException {
+            Connection connection = connectionPool.reserveConnection();
+            try {
+                PreparedStatement pstmt = connection.prepareStatement(statement
+                        .getQueryString());
+                try {
+                    statement.setParameterValuesToStatement(pstmt);
+                    getLogger().log(Level.FINE, "DB -> {0}",
+                            statement.getQueryString());
+                    ResultSet r = pstmt.executeQuery();
+                    try {
+                        r.next();
+                        return r.getInt(1);
+                    } finally {
+                        r.close();
+                    }
+                } finally {
+                    pstmt.close();
+                }
+            } finally {
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                connectionPool.releaseConnection(connection);
+            }
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -233,6 +363,9 @@ public class TableQuery extends AbstractTransactionalQuery implements
      */
     @Override
     public ResultSet getResults(int offset, int pagelength) throws SQLException {
+        if (keysetPaging) {
+            return getKeysetResults(offset, pagelength);
+        }
         StatementHelper sh;
         /*
          * If no ordering is explicitly set, results will be ordered by the
@@ -252,6 +385,203 @@ public class TableQuery extends AbstractTransactionalQuery implements
         return executeQuery(sh);
     }
 
+    /**
+     * Enables or disables keyset paging. With keyset paging, the values of the
+     * ordering columns of the last row of each fetched page are remembered
+     * when they are passed to {@link #pageRead(int, int, Map)}.
+     * When the rows following a remembered page are fetched, the query seeks
+     * past those values with a <code>WHERE</code> condition instead of
+     * skipping rows with an offset, so fetching a page deep into a large table
+     * is as fast as fetching the first one. Pages that do not follow a
+     * remembered page, e.g. when jumping to a random position, are fetched
+     * using an offset.
+     * <p>
+     * To make the ordering unique, primary key columns not included in the
+     * ordering are appended to it when keyset paging is enabled. Keyset paging
+     * is only used when all the ordering columns are declared
+     * <code>NOT NULL</code>, because a seek condition cannot match rows with
+     * <code>NULL</code> values. Other orderings always use offsets. Keyset
+     * paging is disabled by default.
+     * 
+     * @since 7.5
+     * @param keysetPaging
+     *            <code>true</code> to enable keyset paging, <code>false</code>
+     *            to always use offsets
+     */
+    public void setKeysetPaging(boolean keysetPaging) {
+        this.keysetPaging = keysetPaging;
+        clearKeysetBoundaries();
+    }
+
+    /**
+     * Returns whether keyset paging is enabled.
+     * 
+     * @since 7.5
+     * @return <code>true</code> if keyset paging is enabled
+     * @see #setKeysetPaging(boolean)
+     */
+    public boolean isKeysetPaging() {
+        return keysetPaging;
+    }
+
+    private ResultSet getKeysetResults(int offset, int pagelength)
+            throws SQLException {
+        List<OrderBy> ordering = getKeysetOrdering();
+        if (!isSameKeysetState(ordering)) {
+            clearKeysetBoundaries();
+            keysetFilters = filters == null ? null : new ArrayList<Filter>(
+                    filters);
+            keysetOrderBys = ordering;
+            keysetSeekable = null;
+        }
+        Object[] boundary = offset > 0 && pagelength > 0 ? keysetBoundaries
+                .get(offset) : null;
+        StatementHelper sh;
+        if (boundary != null) {
+            List<Filter> seekFilters = new ArrayList<Filter>();
+            if (filters != null) {
+                seekFilters.addAll(filters);
+            }
+            seekFilters.add(createSeekFilter(ordering, boundary));
+            sh = sqlGenerator.generateSelectQuery(getFullTableName(),
+                    seekFilters, ordering, 0, pagelength, null);
+        } else {
+            sh = sqlGenerator.generateSelectQuery(getFullTableName(), filters,
+                    ordering, offset, pagelength, null);
+        }
+        ResultSet rs = executeQuery(sh);
+        if (keysetSeekable == null) {
+            keysetSeekable = isOrderingNotNull(rs, ordering);
+        }
+        return rs;
+    }
+
+    private static boolean isOrderingNotNull(ResultSet rs,
+            List<OrderBy> ordering) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (OrderBy orderBy : ordering) {
+            int nullable = metaData.isNullable(rs.findColumn(orderBy
+                    .getColumn()));
+            if (nullable != ResultSetMetaData.columnNoNulls) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ordering used with keyset paging: the current ordering
+     * followed by any primary key columns not included in it.
+     */
+    private List<OrderBy> getKeysetOrdering() {
+        List<OrderBy> ordering = new ArrayList<OrderBy>();
+        List<String> columns = new ArrayList<String>();
+        if (orderBys != null) {
+            for (OrderBy orderBy : orderBys) {
+                ordering.add(new OrderBy(orderBy.getColumn(), orderBy
+                        .isAscending()));
+                columns.add(orderBy.getColumn());
+            }
+        }
+        for (String column : primaryKeyColumns) {
+            if (!columns.contains(column)) {
+                ordering.add(new OrderBy(column, true));
+            }
+        }
+        return ordering;
+    }
+
+    private boolean isSameKeysetState(List<OrderBy> ordering) {
+        if (keysetOrderBys == null
+                || keysetOrderBys.size() != ordering.size()
+                || !SharedUtil.equals(keysetFilters, filters)) {
+            return false;
+        }
+        for (int i = 0; i < ordering.size(); i++) {
+            OrderBy a = keysetOrderBys.get(i);
+            OrderBy b = ordering.get(i);
+            if (!a.getColumn().equals(b.getColumn())
+                    || a.isAscending() != b.isAscending()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a filter matching the rows that come after the given values of
+     * the ordering columns, i.e.
+     * <code>k1 > v1 OR (k1 = v1 AND k2 > v2) OR ...</code> with the comparison
+     * reversed for descending columns.
+     */
+    private static Filter createSeekFilter(List<OrderBy> ordering,
+            Object[] boundary) {
+        Filter[] alternatives = new Filter[ordering.size()];
+        for (int i = 0; i < ordering.size(); i++) {
+            Filter[] conditions = new Filter[i + 1];
+            for (int j = 0; j < i; j++) {
+                conditions[j] = new Compare.Equal(ordering.get(j).getColumn(),
+                        boundary[j]);
+            }
+            OrderBy orderBy = ordering.get(i);
+            if (orderBy.isAscending()) {
+                conditions[i] = new Compare.Greater(orderBy.getColumn(),
+                        boundary[i]);
+            } else {
+                conditions[i] = new Compare.Less(orderBy.getColumn(),
+                        boundary[i]);
+            }
+            alternatives[i] = i == 0 ? conditions[0] : new And(conditions);
+        }
+        return alternatives.length == 1 ? alternatives[0] : new Or(
+                alternatives);
+    }
+
+    /**
+     * Forgets the page boundaries remembered for keyset paging, so that the
+     * next page is fetched using an offset. This should be called when rows
+     * may have been changed in the database by someone else.
+     * 
+     * @since 7.5
+     * @see #setKeysetPaging(boolean)
+     */
+    public void clearKeysetBoundaries() {
+        keysetBoundaries.clear();
+    }
+
+    /**
+     * Remembers the end of a page read from the results of
+     * {@link #getResults(int, int)}, so that the rows following it can be
+     * fetched by seeking past the values of the ordering columns of its last
+     * row. Nothing is remembered unless keyset paging is enabled, the ordering
+     * and filters have not changed since the results were fetched, and all the
+     * ordering columns are declared <code>NOT NULL</code>.
+     * 
+     * @since 7.5
+     * @param offset
+     *            the offset the results were fetched with
+     * @param rows
+     *            the number of rows read from the results
+     * @param lastRow
+     *            the values of the last row read, keyed by column name
+     * @see #setKeysetPaging(boolean)
+     */
+    public void pageRead(int offset, int rows, Map<String, Object> lastRow) {
+        if (!keysetPaging || rows == 0 || !Boolean.TRUE.equals(keysetSeekable)
+                || !isSameKeysetState(getKeysetOrdering())) {
+            return;
+        }
+        Object[] values = new Object[keysetOrderBys.size()];
+        for (int i = 0; i < values.length; i++) {
+            String column = keysetOrderBys.get(i).getColumn();
+            if (!lastRow.containsKey(column)) {
+                return;
+            }
+            values[i] = lastRow.get(column);
+        }
+        keysetBoundaries.put(offset + rows, values);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -278,6 +608,7 @@ public class TableQuery extends AbstractTransactionalQuery implements
         }
         StatementHelper sh;
         int result = 0;
+        clearKeysetBoundaries();
         if (row.getId() instanceof TemporaryRowId) {
             setVersionColumnFlagInProperty(row);
             sh = sqlGenerator.generateInsertQuery(getFullTableName(), row);
@@ -316,6 +647,7 @@ public class TableQuery extends AbstractTransactionalQuery implements
      * @throws SQLException
      */
     public RowId storeRowImmediately(RowItem row) throws SQLException {
+        clearKeysetBoundaries();
         beginTransaction();
         /* Set version column, if one is provided */
         setVersionColumnFlagInProperty(row);
@@ -675,14 +1007,40 @@ public class TableQuery extends AbstractTransactionalQuery implements
     private RowId getNewRowId(RowItem row, ResultSet genKeys) {
         try {
             /* Fetch primary key values and generate a map out of them. */
-            Map<String, Object> values = new HashMap<String, Object>();
-            ResultSetMetaData rsmd = genKeys.getMetaData();
-            int colCount = rsmd.getColumnCount();
-            if (genKeys.next()) {
-                for (int i = 1; i <= colCount; i++) {
-                    values.put(rsmd.getColumnName(i), genKeys.getObject(i));
-                }
+            Map<String, Object> values = readGeneratedKeys(genKeys);
+            if (values == null) {
+                values = new HashMap<String, Object>();
             }
+            return createNewRowId(row, values);
+        } catch (Exception e) {
+            getLogger()
+                    .log(Level.FINE,
+                            "Failed to fetch key values on insert: {0}",
+                            e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the next row of generated keys as a map from column name to
+     * value, or returns <code>null</code> if there are no more rows.
+     */
+    private static Map<String, Object> readGeneratedKeys(ResultSet genKeys)
+            throws SQLException {
+        if (!genKeys.next()) {
+            return null;
+        }
+        Map<String, Object> values = new HashMap<String, Object>();
+        ResultSetMetaData rsmd = genKeys.getMetaData();
+        int colCount = rsmd.getColumnCount();
+        for (int i = 1; i <= colCount; i++) {
+            values.put(rsmd.getColumnName(i), genKeys.getObject(i));
+        }
+        return values;
+    }
+
+    private RowId createNewRowId(RowItem row, Map<String, Object> values) {
+        try {
             /* Generate new RowId */
             List<Object> newRowId = new ArrayList<Object>();
             if (values.size() == 1) {
@@ -728,6 +1086,7 @@ public class TableQuery extends AbstractTransactionalQuery implements
             getLogger().log(Level.FINE, "Removing row with id: {0}",
                     row.getId().getId()[0]);
         }
+        clearKeysetBoundaries();
         if (executeUpdate(sqlGenerator.generateDeleteQuery(getFullTableName(),
                 primaryKeyColumns, versionColumn, row)) == 1) {
             return true;
@@ -740,6 +1099,250 @@ public class TableQuery extends AbstractTransactionalQuery implements
         return false;
     }
 
+    /**
+     * Sets the maximum number of rows written in one JDBC batch by
+     * {@link #storeRows(List)} and {@link #removeRows(List)}.
+     * 
+     * @since 7.5
+     * @param batchSize
+     *            the maximum batch size, 1 to write each row with a statement
+     *            of its own
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(
+                    "Batch size must be at least 1.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the maximum number of rows written in one JDBC batch.
+     * 
+     * @since 7.5
+     * @return the maximum batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Stores the given rows like {@link #storeRow(RowItem)}, but using JDBC
+     * batches of at most {@link #getBatchSize()} rows. Consecutive rows with
+     * identical statements are written in the same batch. The generated keys
+     * of inserted rows are fetched for the whole batch if the driver supports
+     * it; otherwise inserts are written one row at a time. Rows are also
+     * written one at a time if a version column is set, or if the driver does
+     * not return the number of affected rows for batched statements.
+     * 
+     * @since 7.5
+     * @param rows
+     *            the rows to store
+     * @return the number of affected rows for each row, in the same order as
+     *         the given rows
+     * @throws SQLException
+     *             if writing fails
+     * @throws OptimisticLockException
+     *             if a version column is set and a row was not affected
+     */
+    public int[] storeRows(List<RowItem> rows) throws SQLException {
+        List<StatementHelper> statements = new ArrayList<StatementHelper>(
+                rows.size());
+        for (RowItem row : rows) {
+            setVersionColumnFlagInProperty(row);
+            if (row.getId() instanceof TemporaryRowId) {
+                statements.add(sqlGenerator.generateInsertQuery(
+                        getFullTableName(), row));
+            } else {
+                statements.add(sqlGenerator.generateUpdateQuery(
+                        getFullTableName(), row));
+            }
+        }
+        int[] results = executeBatches(statements, rows);
+        if (versionColumn != null) {
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == 0) {
+                    throw new OptimisticLockException(
+                            "Someone else changed the row that was being updated.",
+                            rows.get(i).getId());
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Removes the given rows like {@link #removeRow(RowItem)}, but using JDBC
+     * batches of at most {@link #getBatchSize()} rows. Rows are removed one at
+     * a time if a version column is set, or if the driver does not return the
+     * number of affected rows for batched statements.
+     * 
+     * @since 7.5
+     * @param rows
+     *            the rows to remove
+     * @return for each row, <code>true</code> if the row was removed
+     * @throws SQLException
+     *             if writing fails
+     * @throws OptimisticLockException
+     *             if a version column is set and a row was not removed
+     */
+    public boolean[] removeRows(List<RowItem> rows) throws SQLException {
+        List<StatementHelper> statements = new ArrayList<StatementHelper>(
+                rows.size());
+        for (RowItem row : rows) {
+            statements.add(sqlGenerator.generateDeleteQuery(
+                    getFullTableName(), primaryKeyColumns, versionColumn, row));
+        }
+        int[] results = executeBatches(statements, rows);
+        boolean[] removed = new boolean[results.length];
+        for (int i = 0; i < results.length; i++) {
+            removed[i] = results[i] == 1;
+            if (!removed[i] && versionColumn != null) {
+                throw new OptimisticLockException(
+                        "Someone else changed the row that was being deleted.",
+                        rows.get(i).getId());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Executes the given statements in batches of consecutive statements with
+     * the same query string. For inserts, a row ID change event is buffered
+     * for each row.
+     * 
+     * @return the number of affected rows for each statement
+     */
+    private int[] executeBatches(List<StatementHelper> statements,
+            List<RowItem> rows) throws SQLException {
+        clearKeysetBoundaries();
+        int[] results = new int[statements.size()];
+        Connection connection = getConnection();
+        try {
+            int start = 0;
+            while (start < statements.size()) {
+                String query = statements.get(start).getQueryString();
+                boolean insert = rows.get(start).getId() instanceof TemporaryRowId;
+                int maxSize = batchSize;
+                if (versionColumn != null || !batchedCountsSupported
+                        || (insert && !batchedKeysSupported)) {
+                    /*
+                     * Optimistic locking needs the exact number of affected
+                     * rows, which only executeUpdate is guaranteed to return.
+                     * Also write one by one if the driver has not returned
+                     * counts or generated keys for a batch.
+                     */
+                    maxSize = 1;
+                }
+                int end = start + 1;
+                while (end < statements.size() && end - start < maxSize
+                        && query.equals(statements.get(end).getQueryString())) {
+                    end++;
+                }
+                executeBatch(connection, statements.subList(start, end),
+                        rows.subList(start, end), insert, results, start);
+                start = end;
+            }
+        } finally {
+            releaseConnection(connection, null, null);
+        }
+        return results;
+    }
+
+    private void executeBatch(Connection connection,
+            List<StatementHelper> statements, List<RowItem> rows,
+            boolean insert, int[] results, int offset) throws SQLException {
+        String query = statements.get(0).getQueryString();
+        PreparedStatement pstmt = null;
+        ResultSet genKeys = null;
+        try {
+            if (insert) {
+                pstmt = connection.prepareStatement(query,
+                        primaryKeyColumns.toArray(new String[0]));
+            } else {
+                pstmt = connection.prepareStatement(query);
+            }
+            if (statements.size() == 1) {
+                statements.get(0).setParameterValuesToStatement(pstmt);
+                getLogger().log(Level.FINE, "DB -> {0}", query);
+                results[offset] = pstmt.executeUpdate();
+            } else {
+                for (StatementHelper sh : statements) {
+                    sh.setParameterValuesToStatement(pstmt);
+                    pstmt.addBatch();
+                }
+                getLogger().log(Level.FINE, "DB -> {0} (batch of {1})",
+                        new Object[] { query, statements.size() });
+                int[] counts = pstmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                        /*
+                         * The statement succeeded, but the number of affected
+                         * rows is unknown. Batches are never used with a
+                         * version column, so treat the row as written and
+                         * write the following rows one by one.
+                         */
+                        if (batchedCountsSupported) {
+                            getLogger().log(
+                                    Level.INFO,
+                                    "The JDBC driver does not return update "
+                                            + "counts for batches, writing "
+                                            + "rows one by one");
+                            batchedCountsSupported = false;
+                        }
+                        results[offset + i] = 1;
+                    } else {
+                        results[offset + i] = counts[i];
+                    }
+                }
+            }
+            if (insert) {
+                genKeys = pstmt.getGeneratedKeys();
+                bufferGeneratedKeyEvents(rows, genKeys);
+            }
+        } finally {
+            releaseConnection(null, pstmt, genKeys);
+        }
+    }
+
+    private void bufferGeneratedKeyEvents(List<RowItem> rows,
+            ResultSet genKeys) {
+        if (rows.size() == 1) {
+            bufferedEvents.add(new RowIdChangeEvent(rows.get(0).getId(),
+                    getNewRowId(rows.get(0), genKeys)));
+            return;
+        }
+        /*
+         * Read all keys first to find out whether the driver returned keys
+         * for all rows of the batch
+         */
+        List<Map<String, Object>> keys = new ArrayList<Map<String, Object>>();
+        try {
+            Map<String, Object> values;
+            while ((values = readGeneratedKeys(genKeys)) != null) {
+                keys.add(values);
+            }
+        } catch (Exception e) {
+            getLogger().log(Level.FINE,
+                    "Failed to fetch key values on insert: {0}",
+                    e.getMessage());
+            keys.clear();
+        }
+        boolean complete = keys.size() == rows.size();
+        if (!complete) {
+            getLogger().log(Level.INFO,
+                    "The JDBC driver does not return generated keys for "
+                            + "batched inserts, inserting rows one by one");
+            batchedKeysSupported = false;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            RowId newId = complete ? createNewRowId(rows.get(i), keys.get(i))
+                    : null;
+            bufferedEvents
+                    .add(new RowIdChangeEvent(rows.get(i).getId(), newId));
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
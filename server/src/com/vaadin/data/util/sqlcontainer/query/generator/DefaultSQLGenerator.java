@@ -118,6 +118,34 @@ public class DefaultSQLGenerator implements SQLGenerator {
         return sh;
     }
 
+    /**
+     * Generates a query that fetches an estimate of the number of rows in the
+     * given table matching the given filters. The query must return the
+     * estimate as the first column of the first row. Estimates are typically
+     * fetched from the statistics maintained by the query planner of the
+     * database, which is much faster than counting the rows of a large table.
+     * <p>
+     * The default implementation returns <code>null</code>, which means that
+     * estimates are not supported and the exact count is used instead.
+     * Subclasses can override this for databases that provide estimates, e.g.
+     * for PostgreSQL the row count of an unfiltered table can be estimated
+     * using
+     * <code>SELECT reltuples::bigint FROM pg_class WHERE oid = ?::regclass</code>
+     * with the table name as parameter.
+     * 
+     * @since 7.5
+     * @param tableName
+     *            the name of the table
+     * @param filters
+     *            the filters to apply, may be <code>null</code>
+     * @return the estimated count query, or <code>null</code> if estimates are
+     *         not supported for the table and filters
+     */
+    public StatementHelper generateEstimatedCountQuery(String tableName,
+            List<Filter> filters) {
+        return null;
+    }
+
     /*
      * (non-Javadoc)
      * 
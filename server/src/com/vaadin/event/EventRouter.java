@@ -20,9 +20,11 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EventObject;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import com.vaadin.server.ErrorEvent;
@@ -44,6 +46,12 @@ public class EventRouter implements MethodEventSource {
      */
     private LinkedHashSet<ListenerMethod> listenerList = null;
 
+    /**
+     * Listeners to notify for each fired event class, in registration order.
+     * Built lazily and cleared whenever the listener list changes.
+     */
+    private transient Map<Class<?>, ListenerMethod[]> listenersByEventClass = null;
+
     /*
      * Registers a new listener with the specified activation method to listen
      * events generated by this component. Don't add a JavaDoc comment here, we
@@ -55,6 +63,7 @@ public class EventRouter implements MethodEventSource {
             listenerList = new LinkedHashSet<ListenerMethod>();
         }
         listenerList.add(new ListenerMethod(eventType, object, method));
+        listenersByEventClass = null;
     }
 
     /*
@@ -68,6 +77,7 @@ public class EventRouter implements MethodEventSource {
             listenerList = new LinkedHashSet<ListenerMethod>();
         }
         listenerList.add(new ListenerMethod(eventType, object, methodName));
+        listenersByEventClass = null;
     }
 
     /*
@@ -83,6 +93,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target)) {
                     i.remove();
+                    listenersByEventClass = null;
                     return;
                 }
             }
@@ -102,6 +113,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target, method)) {
                     i.remove();
+                    listenersByEventClass = null;
                     return;
                 }
             }
@@ -136,6 +148,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target, method)) {
                     i.remove();
+                    listenersByEventClass = null;
                     return;
                 }
             }
@@ -148,6 +161,7 @@ public class EventRouter implements MethodEventSource {
      */
     public void removeAllListeners() {
         listenerList = null;
+        listenersByEventClass = null;
     }
 
     /**
@@ -180,14 +194,13 @@ public class EventRouter implements MethodEventSource {
         // It is not necessary to send any events if there are no listeners
         if (listenerList != null) {
 
-            // Make a copy of the listener list to allow listeners to be added
-            // inside listener methods. Fixes #3605.
-
-            // Send the event to all listeners. The listeners themselves
-            // will filter out unwanted events.
-            final Object[] listeners = listenerList.toArray();
+            // The dispatch list is a snapshot, so listeners can be added
+            // inside listener methods without affecting this event. Fixes
+            // #3605.
+            final ListenerMethod[] listeners = getListenersForEvent(event
+                    .getClass());
             for (int i = 0; i < listeners.length; i++) {
-                ListenerMethod listenerMethod = (ListenerMethod) listeners[i];
+                ListenerMethod listenerMethod = listeners[i];
                 if (null != errorHandler) {
                     try {
                         listenerMethod.receiveEvent(event);
@@ -202,6 +215,33 @@ public class EventRouter implements MethodEventSource {
         }
     }
 
+    /**
+     * Returns the listeners that accept events of the given class, so that
+     * firing an event does not need to go through all registered listeners.
+     * 
+     * @param eventClass
+     *            the class of the fired event
+     * @return the matching listeners in registration order, not to be
+     *         modified
+     */
+    private ListenerMethod[] getListenersForEvent(Class<?> eventClass) {
+        if (listenersByEventClass == null) {
+            listenersByEventClass = new HashMap<Class<?>, ListenerMethod[]>();
+        }
+        ListenerMethod[] listeners = listenersByEventClass.get(eventClass);
+        if (listeners == null) {
+            List<ListenerMethod> matching = new ArrayList<ListenerMethod>();
+            for (ListenerMethod lm : listenerList) {
+                if (lm.acceptsEventClass(eventClass)) {
+                    matching.add(lm);
+                }
+            }
+            listeners = matching.toArray(new ListenerMethod[matching.size()]);
+            listenersByEventClass.put(eventClass, listeners);
+        }
+        return listeners;
+    }
+
     /**
      * Checks if the given Event type is listened by a listener registered to
      * this router.
@@ -26,6 +26,11 @@ import java.util.EventObject;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.vaadin.data.Property;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Component;
+import com.vaadin.util.ReflectTools;
+
 /**
  * <p>
  * One registered event listener. This class contains the listener object
@@ -82,6 +87,18 @@ public class ListenerMethod implements EventListener, Serializable {
      */
     private int eventArgumentIndex;
 
+    /**
+     * Calls the trigger method without reflection when it is the method of a
+     * standard listener interface, otherwise <code>null</code>.
+     */
+    private transient DirectInvoker directInvoker;
+
+    /**
+     * Copy of <code>arguments</code> reused for each reflective invocation;
+     * only the slot at <code>eventArgumentIndex</code> is replaced.
+     */
+    private transient Object[] invocationArguments;
+
     /* Special serialization to handle method references */
     private void writeObject(java.io.ObjectOutputStream out) throws IOException {
         try {
@@ -109,7 +126,9 @@ public class ListenerMethod implements EventListener, Serializable {
             Class<?>[] paramTypes = (Class<?>[]) in.readObject();
             // We can not use getMethod directly as we want to support anonymous
             // inner classes
-            method = findHighestMethod(target.getClass(), name, paramTypes);
+            method = ReflectTools.makeAccessible(findHighestMethod(
+                    target.getClass(), name, paramTypes));
+            initInvocation();
         } catch (SecurityException e) {
             getLogger().log(Level.SEVERE, "Internal deserialization error", e);
         }
@@ -204,9 +223,10 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.makeAccessible(method);
         this.arguments = arguments;
         this.eventArgumentIndex = eventArgumentIndex;
+        initInvocation();
     }
 
     /**
@@ -275,9 +295,10 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.makeAccessible(method);
         this.arguments = arguments;
         this.eventArgumentIndex = eventArgumentIndex;
+        initInvocation();
     }
 
     /**
@@ -319,9 +340,10 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.makeAccessible(method);
         this.arguments = arguments;
         eventArgumentIndex = -1;
+        initInvocation();
     }
 
     /**
@@ -371,9 +393,10 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.makeAccessible(method);
         this.arguments = arguments;
         eventArgumentIndex = -1;
+        initInvocation();
     }
 
     /**
@@ -412,7 +435,7 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.makeAccessible(method);
         eventArgumentIndex = -1;
 
         final Class<?>[] params = method.getParameterTypes();
@@ -426,6 +449,7 @@ public class ListenerMethod implements EventListener, Serializable {
             throw new IllegalArgumentException(
                     "Method requires unknown parameters");
         }
+        initInvocation();
     }
 
     /**
@@ -472,7 +496,7 @@ public class ListenerMethod implements EventListener, Serializable {
 
         this.eventType = eventType;
         this.target = target;
-        this.method = method;
+        this.method = ReflectTools.makeAccessible(method);
         eventArgumentIndex = -1;
 
         final Class<?>[] params = method.getParameterTypes();
@@ -486,6 +510,7 @@ public class ListenerMethod implements EventListener, Serializable {
             throw new IllegalArgumentException(
                     "Method requires unknown parameters");
         }
+        initInvocation();
     }
 
     /**
@@ -502,17 +527,25 @@ public class ListenerMethod implements EventListener, Serializable {
     public void receiveEvent(EventObject event) {
         // Only send events supported by the method
         if (eventType.isAssignableFrom(event.getClass())) {
+            if (directInvoker != null) {
+                try {
+                    directInvoker.invoke(target, event);
+                } catch (final RuntimeException e) {
+                    throw invocationFailed(e);
+                } catch (final Error e) {
+                    throw invocationFailed(e);
+                }
+                return;
+            }
             try {
                 if (eventArgumentIndex >= 0) {
-                    if (eventArgumentIndex == 0 && arguments.length == 1) {
-                        method.invoke(target, new Object[] { event });
-                    } else {
-                        final Object[] arg = new Object[arguments.length];
-                        for (int i = 0; i < arg.length; i++) {
-                            arg[i] = arguments[i];
-                        }
-                        arg[eventArgumentIndex] = event;
-                        method.invoke(target, arg);
+                    // The arguments are copied by invoke, so the slot can be
+                    // cleared right away also when the listener fires again
+                    invocationArguments[eventArgumentIndex] = event;
+                    try {
+                        method.invoke(target, invocationArguments);
+                    } finally {
+                        invocationArguments[eventArgumentIndex] = null;
                     }
                 } else {
                     method.invoke(target, arguments);
@@ -525,11 +558,114 @@ public class ListenerMethod implements EventListener, Serializable {
             } catch (final java.lang.reflect.InvocationTargetException e) {
                 // An exception was thrown by the invocation target. Throw it
                 // forwards.
-                throw new MethodException("Invocation of method "
-                        + method.getName() + " in "
-                        + target.getClass().getName() + " failed.",
-                        e.getTargetException());
+                throw invocationFailed(e.getTargetException());
+            }
+        }
+    }
+
+    private MethodException invocationFailed(Throwable cause) {
+        return new MethodException("Invocation of method " + method.getName()
+                + " in " + target.getClass().getName() + " failed.", cause);
+    }
+
+    /**
+     * Resolves how the trigger method is called. Must be called whenever
+     * <code>method</code>, <code>arguments</code> or
+     * <code>eventArgumentIndex</code> have been set.
+     */
+    private void initInvocation() {
+        if (eventArgumentIndex == 0 && arguments.length == 1) {
+            directInvoker = DirectInvoker.find(method, eventType, target);
+        }
+        if (directInvoker == null && eventArgumentIndex >= 0) {
+            invocationArguments = arguments.clone();
+        }
+    }
+
+    /**
+     * Calls the single method of a standard listener interface directly, which
+     * avoids the reflective call for the listeners most components use.
+     */
+    private enum DirectInvoker {
+        COMPONENT_EVENT(Component.Listener.class, "componentEvent") {
+            @Override
+            void invoke(Object target, EventObject event) {
+                ((Component.Listener) target)
+                        .componentEvent((Component.Event) event);
+            }
+        },
+        BUTTON_CLICK(Button.ClickListener.class, "buttonClick") {
+            @Override
+            void invoke(Object target, EventObject event) {
+                ((Button.ClickListener) target)
+                        .buttonClick((Button.ClickEvent) event);
+            }
+        },
+        VALUE_CHANGE(Property.ValueChangeListener.class, "valueChange") {
+            @Override
+            void invoke(Object target, EventObject event) {
+                ((Property.ValueChangeListener) target)
+                        .valueChange((Property.ValueChangeEvent) event);
+            }
+        },
+        FOCUS(FieldEvents.FocusListener.class, "focus") {
+            @Override
+            void invoke(Object target, EventObject event) {
+                ((FieldEvents.FocusListener) target)
+                        .focus((FieldEvents.FocusEvent) event);
+            }
+        },
+        BLUR(FieldEvents.BlurListener.class, "blur") {
+            @Override
+            void invoke(Object target, EventObject event) {
+                ((FieldEvents.BlurListener) target)
+                        .blur((FieldEvents.BlurEvent) event);
+            }
+        },
+        CLICK(MouseEvents.ClickListener.class, "click") {
+            @Override
+            void invoke(Object target, EventObject event) {
+                ((MouseEvents.ClickListener) target)
+                        .click((MouseEvents.ClickEvent) event);
+            }
+        },
+        LAYOUT_CLICK(LayoutEvents.LayoutClickListener.class, "layoutClick") {
+            @Override
+            void invoke(Object target, EventObject event) {
+                ((LayoutEvents.LayoutClickListener) target)
+                        .layoutClick((LayoutEvents.LayoutClickEvent) event);
+            }
+        };
+
+        private final Class<?> listenerType;
+        private final String methodName;
+
+        private DirectInvoker(Class<?> listenerType, String methodName) {
+            this.listenerType = listenerType;
+            this.methodName = methodName;
+        }
+
+        abstract void invoke(Object target, EventObject event);
+
+        /**
+         * Finds the invoker for the given trigger method, or <code>null</code>
+         * if the method must be called using reflection. Only methods declared
+         * by the listener interface itself whose parameter accepts all events
+         * of <code>eventType</code> are matched, so the casts never fail.
+         */
+        static DirectInvoker find(Method method, Class<?> eventType,
+                Object target) {
+            for (DirectInvoker invoker : values()) {
+                if (method.getDeclaringClass() == invoker.listenerType
+                        && method.getName().equals(invoker.methodName)
+                        && method.getParameterTypes().length == 1
+                        && method.getParameterTypes()[0]
+                                .isAssignableFrom(eventType)
+                        && invoker.listenerType.isInstance(target)) {
+                    return invoker;
+                }
             }
+            return null;
         }
     }
 
@@ -655,6 +791,19 @@ public class ListenerMethod implements EventListener, Serializable {
         return eventType.isAssignableFrom(this.eventType);
     }
 
+    /**
+     * Checks whether events of the given class are passed to the trigger
+     * method by {@link #receiveEvent(EventObject)}.
+     * 
+     * @param eventClass
+     *            the class of a fired event
+     * @return true if the event type of this ListenerMethod is the same as or a
+     *         superclass of the given class, false otherwise
+     */
+    boolean acceptsEventClass(Class<?> eventClass) {
+        return eventType.isAssignableFrom(eventClass);
+    }
+
     /**
      * Returns the target object which contains the trigger method.
      * 
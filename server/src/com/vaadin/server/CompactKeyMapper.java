@@ -0,0 +1,288 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link KeyMapper} that stores the mappings in compact open addressing hash
+ * tables keyed by <code>int</code> ids instead of maps of boxed objects and
+ * strings. Keys are the decimal ids, like the keys of {@link KeyMapper}, and are
+ * generated when requested, so no key strings are retained.
+ * <p>
+ * The mapper can also forget keys that the client no longer uses. Each call to
+ * {@link #key(Object)} marks the mapping as used in the current generation.
+ * A component that knows which objects are in the client's active range can
+ * start a new generation with {@link #advanceGeneration()} before issuing keys
+ * for that range and then call {@link #removeInactive(int)} to drop the
+ * mappings that have not been used recently. The number of retained mappings
+ * is available from {@link #size()}.
+ *
+ * @author Vaadin Ltd.
+ * @since 7.5
+ */
+public class CompactKeyMapper<V> extends KeyMapper<V> {
+
+    private static final String NULL_KEY = "null";
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int lastId = 0;
+
+    private int size = 0;
+
+    private int generation = 0;
+
+    /*
+     * Object to id table: objects[slot] maps to objectIds[slot], last used in
+     * generation objectGenerations[slot]. A null object marks a free slot.
+     */
+    private Object[] objects = new Object[INITIAL_CAPACITY];
+    private int[] objectIds = new int[INITIAL_CAPACITY];
+    private int[] objectGenerations = new int[INITIAL_CAPACITY];
+
+    /*
+     * Id to object table: ids[slot] maps to idObjects[slot]. Id 0 marks a free
+     * slot.
+     */
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private Object[] idObjects = new Object[INITIAL_CAPACITY];
+
+    @Override
+    public String key(V o) {
+        if (o == null) {
+            return NULL_KEY;
+        }
+
+        int slot = findObjectSlot(o);
+        int id;
+        if (objects[slot] != null) {
+            id = objectIds[slot];
+        } else {
+            id = nextId();
+            if ((size + 1) * 2 > objects.length) {
+                resize(objects.length * 2);
+                slot = findObjectSlot(o);
+            }
+            objects[slot] = o;
+            objectIds[slot] = id;
+            int idSlot = findIdSlot(id);
+            ids[idSlot] = id;
+            idObjects[idSlot] = o;
+            size++;
+        }
+        objectGenerations[slot] = generation;
+
+        return Integer.toString(id);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(String key) {
+        int id = parseKey(key);
+        if (id <= 0) {
+            return null;
+        }
+        return (V) idObjects[findIdSlot(id)];
+    }
+
+    @Override
+    public void remove(V removeobj) {
+        if (removeobj == null) {
+            return;
+        }
+        int slot = findObjectSlot(removeobj);
+        if (objects[slot] != null) {
+            removeAt(slot);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        objects = new Object[INITIAL_CAPACITY];
+        objectIds = new int[INITIAL_CAPACITY];
+        objectGenerations = new int[INITIAL_CAPACITY];
+        ids = new int[INITIAL_CAPACITY];
+        idObjects = new Object[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Gets the number of objects that currently have a key.
+     *
+     * @return the number of mapped objects
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the current generation. Keys requested using {@link #key(Object)}
+     * are marked as used in this generation.
+     *
+     * @return the current generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Starts a new generation. Typically called before issuing keys for all
+     * objects in the client's active range.
+     */
+    public void advanceGeneration() {
+        generation++;
+    }
+
+    /**
+     * Removes the mappings of all objects whose key has not been requested
+     * during the given number of most recent generations, including the
+     * current one. Keys of removed objects are not reused; if a removed object
+     * is mapped again, it gets a new key.
+     *
+     * @param generations
+     *            the number of generations to retain, at least 1
+     * @return the number of removed mappings
+     */
+    public int removeInactive(int generations) {
+        if (generations < 1) {
+            throw new IllegalArgumentException(
+                    "At least one generation must be retained");
+        }
+        int oldest = generation - generations + 1;
+        List<Object> inactive = new ArrayList<Object>();
+        for (int i = 0; i < objects.length; i++) {
+            if (objects[i] != null && objectGenerations[i] - oldest < 0) {
+                inactive.add(objects[i]);
+            }
+        }
+        for (Object o : inactive) {
+            removeAt(findObjectSlot(o));
+        }
+        if (size * 8 < objects.length && objects.length > INITIAL_CAPACITY) {
+            resize(Math.max(INITIAL_CAPACITY,
+                    Integer.highestOneBit(Math.max(1, size * 4 - 1)) << 1));
+        }
+        return inactive.size();
+    }
+
+    private int nextId() {
+        return ++lastId;
+    }
+
+    private static int parseKey(String key) {
+        if (key == null || key.length() == 0 || key.length() > 10
+                || key.charAt(0) == '0') {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id > Integer.MAX_VALUE ? -1 : (int) id;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int findObjectSlot(Object o) {
+        int mask = objects.length - 1;
+        int slot = mix(o.hashCode()) & mask;
+        while (objects[slot] != null && !objects[slot].equals(o)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findIdSlot(int id) {
+        int mask = ids.length - 1;
+        int slot = mix(id) & mask;
+        while (ids[slot] != 0 && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void removeAt(int slot) {
+        int id = objectIds[slot];
+
+        // Backward shift deletion keeps the probe sequences intact
+        int mask = objects.length - 1;
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (objects[next] != null) {
+            int home = mix(objects[next].hashCode()) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                objects[free] = objects[next];
+                objectIds[free] = objectIds[next];
+                objectGenerations[free] = objectGenerations[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        objects[free] = null;
+
+        mask = ids.length - 1;
+        free = findIdSlot(id);
+        next = (free + 1) & mask;
+        while (ids[next] != 0) {
+            int home = mix(ids[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                ids[free] = ids[next];
+                idObjects[free] = idObjects[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        ids[free] = 0;
+        idObjects[free] = null;
+
+        size--;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldObjects = objects;
+        int[] oldObjectIds = objectIds;
+        int[] oldObjectGenerations = objectGenerations;
+
+        objects = new Object[capacity];
+        objectIds = new int[capacity];
+        objectGenerations = new int[capacity];
+        ids = new int[capacity];
+        idObjects = new Object[capacity];
+
+        for (int i = 0; i < oldObjects.length; i++) {
+            Object o = oldObjects[i];
+            if (o != null) {
+                int slot = findObjectSlot(o);
+                objects[slot] = o;
+                objectIds[slot] = oldObjectIds[i];
+                objectGenerations[slot] = oldObjectGenerations[i];
+                int idSlot = findIdSlot(oldObjectIds[i]);
+                ids[idSlot] = oldObjectIds[i];
+                idObjects[idSlot] = o;
+            }
+        }
+    }
+}
@@ -49,6 +49,12 @@ public interface Constants {
             + "in web.xml. The default of 5min will be used.\n"
             + "===========================================================";
 
+    static final String WARNING_MAX_RPC_MESSAGE_LENGTH_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: maxRpcMessageLength has been set to a non integer value "
+            + "in web.xml. Message lengths will not be limited.\n"
+            + "===========================================================";
+
     static final String WARNING_PUSH_MODE_NOT_RECOGNIZED = "\n"
             + "===========================================================\n"
             + "WARNING: pushMode has been set to an unrecognized value\n"
@@ -138,6 +144,7 @@ public interface Constants {
     static final String SERVLET_PARAMETER_SENDURLSASPARAMETERS = "sendUrlsAsParameters";
     static final String SERVLET_PARAMETER_PUSH_MODE = "pushMode";
     static final String SERVLET_PARAMETER_PUSH_PATH = "pushPath";
+    static final String SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH = "maxRpcMessageLength";
 
     // Configurable parameter names
     static final String PARAMETER_VAADIN_RESOURCES = "Resources";
@@ -41,6 +41,13 @@ public class DefaultDeploymentConfiguration extends
      */
     public static final int DEFAULT_HEARTBEAT_INTERVAL = 300;
 
+    /**
+     * Default value for {@link #getMaxRpcMessageLength()} = {@value} .
+     * 
+     * @since 7.5
+     */
+    public static final int DEFAULT_MAX_RPC_MESSAGE_LENGTH = 0;
+
     /**
      * Default value for {@link #isCloseIdleSessions()} = {@value} .
      */
@@ -73,6 +80,7 @@ public class DefaultDeploymentConfiguration extends
     private boolean xsrfProtectionEnabled;
     private int resourceCacheTime;
     private int heartbeatInterval;
+    private int maxRpcMessageLength;
     private boolean closeIdleSessions;
     private PushMode pushMode;
     private final Class<?> systemPropertyBaseClass;
@@ -99,6 +107,7 @@ public class DefaultDeploymentConfiguration extends
         checkXsrfProtection();
         checkResourceCacheTime();
         checkHeartbeatInterval();
+        checkMaxRpcMessageLength();
         checkCloseIdleSessions();
         checkPushMode();
         checkLegacyPropertyToString();
@@ -246,6 +255,16 @@ public class DefaultDeploymentConfiguration extends
         return heartbeatInterval;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is 0, which does not limit the message length.
+     */
+    @Override
+    public int getMaxRpcMessageLength() {
+        return maxRpcMessageLength;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -356,6 +375,19 @@ public class DefaultDeploymentConfiguration extends
         }
     }
 
+    private void checkMaxRpcMessageLength() {
+        try {
+            maxRpcMessageLength = Integer
+                    .parseInt(getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH,
+                            Integer.toString(DEFAULT_MAX_RPC_MESSAGE_LENGTH)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    Constants.WARNING_MAX_RPC_MESSAGE_LENGTH_NOT_NUMERIC);
+            maxRpcMessageLength = DEFAULT_MAX_RPC_MESSAGE_LENGTH;
+        }
+    }
+
     private void checkCloseIdleSessions() {
         closeIdleSessions = getApplicationOrSystemProperty(
                 Constants.SERVLET_PARAMETER_CLOSE_IDLE_SESSIONS,
@@ -110,6 +110,15 @@ public interface DeploymentConfiguration extends Serializable {
      */
     public int getHeartbeatInterval();
 
+    /**
+     * Returns the maximum number of characters accepted in an RPC message from
+     * the client, or a non-positive number if the length is not limited.
+     * 
+     * @since 7.5
+     * @return the maximum RPC message length
+     */
+    public int getMaxRpcMessageLength();
+
     /**
      * Returns whether the sending of URL's as GET and POST parameters in
      * requests with content-type <code>application/x-www-form-urlencoded</code>
@@ -28,6 +28,7 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -108,10 +109,14 @@ public class JsonCodec implements Serializable {
     }
 
     private static class FieldProperty implements BeanProperty {
-        private final Field field;
+        protected final Field field;
+        private final String name;
+        private final Type type;
 
         public FieldProperty(Field field) {
             this.field = field;
+            name = field.getName();
+            type = field.getGenericType();
         }
 
         @Override
@@ -126,12 +131,12 @@ public class JsonCodec implements Serializable {
 
         @Override
         public String getName() {
-            return field.getName();
+            return name;
         }
 
         @Override
         public Type getType() {
-            return field.getGenericType();
+            return type;
         }
 
         public static Collection<FieldProperty> find(Class<?> type)
@@ -141,39 +146,121 @@ public class JsonCodec implements Serializable {
                     fields.length);
             for (Field field : fields) {
                 if (!Modifier.isStatic(field.getModifiers())) {
-                    properties.add(new FieldProperty(field));
+                    properties.add(create(field));
                 }
             }
 
             return properties;
         }
 
+        private static FieldProperty create(Field field) {
+            Class<?> fieldType = field.getType();
+            if (fieldType == boolean.class) {
+                return new BooleanFieldProperty(field);
+            } else if (fieldType.isPrimitive() && fieldType != char.class) {
+                return new NumberFieldProperty(field);
+            } else if (fieldType == String.class) {
+                return new StringFieldProperty(field);
+            } else {
+                return new FieldProperty(field);
+            }
+        }
+    }
+
+    /*
+     * Field property that encodes its value directly without going through the
+     * type dispatch in encode() and without boxing primitive values. The
+     * encoder for each field is selected once when the properties of a type
+     * are first looked up.
+     */
+    private static abstract class DirectlyEncodedFieldProperty extends
+            FieldProperty {
+
+        public DirectlyEncodedFieldProperty(Field field) {
+            super(field);
+        }
+
+        public abstract JsonValue encodeValue(Object bean) throws Exception;
+    }
+
+    private static class BooleanFieldProperty extends
+            DirectlyEncodedFieldProperty {
+        // JSON booleans are immutable and can be shared
+        private static final JsonValue JSON_TRUE = Json.create(true);
+        private static final JsonValue JSON_FALSE = Json.create(false);
+
+        public BooleanFieldProperty(Field field) {
+            super(field);
+        }
+
+        @Override
+        public JsonValue encodeValue(Object bean) throws Exception {
+            return field.getBoolean(bean) ? JSON_TRUE : JSON_FALSE;
+        }
+    }
+
+    private static class NumberFieldProperty extends
+            DirectlyEncodedFieldProperty {
+
+        public NumberFieldProperty(Field field) {
+            super(field);
+        }
+
+        @Override
+        public JsonValue encodeValue(Object bean) throws Exception {
+            // Widening conversion works for all numeric primitive types
+            return Json.create(field.getDouble(bean));
+        }
+    }
+
+    private static class StringFieldProperty extends
+            DirectlyEncodedFieldProperty {
+
+        public StringFieldProperty(Field field) {
+            super(field);
+        }
+
+        @Override
+        public JsonValue encodeValue(Object bean) throws Exception {
+            String value = (String) field.get(bean);
+            if (value == null) {
+                return ENCODE_RESULT_NULL.getEncodedValue();
+            }
+            return Json.create(value);
+        }
     }
 
     private static class MethodProperty implements BeanProperty {
-        private final PropertyDescriptor pd;
+        private final Method readMethod;
+        private final Method writeMethod;
+        private final String name;
+        private final Type type;
 
         public MethodProperty(PropertyDescriptor pd) {
-            this.pd = pd;
+            // PropertyDescriptor getters are synchronized and slow, so the
+            // relevant values are extracted once
+            readMethod = pd.getReadMethod();
+            writeMethod = pd.getWriteMethod();
+
+            String fieldName = writeMethod.getName().substring(3);
+            name = Character.toLowerCase(fieldName.charAt(0))
+                    + fieldName.substring(1);
+            type = readMethod.getGenericReturnType();
         }
 
         @Override
         public Object getValue(Object bean) throws Exception {
-            Method readMethod = pd.getReadMethod();
             return readMethod.invoke(bean);
         }
 
         @Override
         public void setValue(Object bean, Object value) throws Exception {
-            pd.getWriteMethod().invoke(bean, value);
+            writeMethod.invoke(bean, value);
         }
 
         @Override
         public String getName() {
-            String fieldName = pd.getWriteMethod().getName().substring(3);
-            fieldName = Character.toLowerCase(fieldName.charAt(0))
-                    + fieldName.substring(1);
-            return fieldName;
+            return name;
         }
 
         public static Collection<MethodProperty> find(Class<?> type)
@@ -193,7 +280,7 @@ public class JsonCodec implements Serializable {
 
         @Override
         public Type getType() {
-            return pd.getReadMethod().getGenericReturnType();
+            return type;
         }
 
     }
@@ -206,6 +293,65 @@ public class JsonCodec implements Serializable {
      */
     private static ConcurrentMap<Class<?>, Collection<BeanProperty>> typePropertyCache = new ConcurrentHashMap<Class<?>, Collection<BeanProperty>>();
 
+    /* Property is always encoded */
+    private static final byte NOT_TRACKED = 0;
+    /* Property of an immutable type, its value is recorded */
+    private static final byte TRACK_VALUE = 1;
+    /*
+     * Collection, map or array property with immutable elements, a copy of its
+     * contents is recorded
+     */
+    private static final byte TRACK_CONTENTS = 2;
+    /* Bean property, a snapshot of the bean properties is recorded */
+    private static final byte TRACK_BEAN = 3;
+    /* Collection of beans, a snapshot of each bean is recorded */
+    private static final byte TRACK_BEAN_COLLECTION = 4;
+    /* Connector property, the connector is recorded if visible */
+    private static final byte TRACK_CONNECTOR = 5;
+
+    /**
+     * Cache of how changes are detected for each of the bean properties of a
+     * given type, in the order returned by {@link #getProperties(Class)}.
+     */
+    private static ConcurrentMap<Class<?>, byte[]> typePropertyTrackingCache = new ConcurrentHashMap<Class<?>, byte[]>();
+
+    /**
+     * The values of the properties of a bean together with their encoded JSON
+     * values, as they were when the bean was last encoded. Collections and
+     * arrays of immutable values are recorded as a copy of their contents and
+     * nested beans as snapshots of their own properties. Used for incremental
+     * encoding of shared state.
+     * 
+     * @see JsonCodec#encodeIncrementally(Object, JsonObject, Class,
+     *      PropertySnapshot, ConnectorTracker)
+     * @since 7.5
+     */
+    public static class PropertySnapshot implements Serializable {
+        /*
+         * The recorded value, a copy of the contents, a nested snapshot or a
+         * list of nested snapshots depending on the tracking of the property
+         */
+        private final Object[] values;
+        private final JsonValue[] encodedValues;
+
+        /**
+         * Creates an empty snapshot for a bean of the given type. An empty
+         * snapshot causes all properties to be encoded.
+         * 
+         * @param type
+         *            the bean type
+         */
+        public PropertySnapshot(Class<?> type) {
+            try {
+                int propertyCount = getProperties(type).size();
+                values = new Object[propertyCount];
+                encodedValues = new JsonValue[propertyCount];
+            } catch (IntrospectionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     private static Map<Class<?>, String> typeToTransportType = new HashMap<Class<?>, String>();
 
     /**
@@ -718,21 +864,65 @@ public class JsonCodec implements Serializable {
         return properties;
     }
 
+    /**
+     * Encodes a bean incrementally based on a snapshot of its properties from
+     * when it was last encoded. Properties of primitive, wrapper,
+     * <code>String</code> or enum type whose value is unchanged since the
+     * snapshot was taken are not encoded again, but their previously encoded
+     * value is reused. The same applies to collections, maps and arrays of
+     * such values whose contents are unchanged. Nested beans and collections
+     * of beans are encoded incrementally based on snapshots of their own
+     * properties. All other properties are encoded as by
+     * {@link #encode(Object, JsonValue, Type, ConnectorTracker)}.
+     * <p>
+     * A previously encoded value is only reused if the reference value still
+     * contains the exact same JSON value that was recorded in the snapshot, so
+     * changes made directly to the reference value are still detected.
+     * 
+     * @since 7.5
+     * @param value
+     *            the bean to encode, not <code>null</code>
+     * @param referenceValue
+     *            the JSON the bean was last encoded to, or a reference value
+     *            to compute the diff against
+     * @param valueType
+     *            the type of the bean
+     * @param snapshot
+     *            the snapshot taken when <code>referenceValue</code> was
+     *            encoded, updated to match the new encoding
+     * @param connectorTracker
+     *            the connector tracker to use
+     * @return the encode result
+     */
+    public static EncodeResult encodeIncrementally(Object value,
+            JsonObject referenceValue, Class<?> valueType,
+            PropertySnapshot snapshot, ConnectorTracker connectorTracker) {
+        return encodeObject(value, valueType, referenceValue,
+                connectorTracker, snapshot);
+    }
+
+    private static EncodeResult encodeObject(Object value, Class<?> valueType,
+            JsonObject referenceValue, ConnectorTracker connectorTracker) {
+        return encodeObject(value, valueType, referenceValue,
+                connectorTracker, null);
+    }
+
     /*
      * Loops through the fields of value and encodes them.
      */
     private static EncodeResult encodeObject(Object value, Class<?> valueType,
-            JsonObject referenceValue, ConnectorTracker connectorTracker) {
+            JsonObject referenceValue, ConnectorTracker connectorTracker,
+            PropertySnapshot snapshot) {
         JsonObject encoded = Json.createObject();
         JsonObject diff = Json.createObject();
 
         try {
+            byte[] propertyTracking = snapshot != null ? getPropertyTracking(valueType)
+                    : null;
+            int propertyIndex = -1;
             for (BeanProperty property : getProperties(valueType)) {
+                propertyIndex++;
                 String fieldName = property.getName();
-                // We can't use PropertyDescriptor.getPropertyType() as it does
-                // not support generics
-                Type fieldType = property.getType();
-                Object fieldValue = property.getValue(value);
 
                 if (encoded.hasKey(fieldName)) {
                     throw new RuntimeException(
@@ -746,17 +936,94 @@ public class JsonCodec implements Serializable {
                 JsonValue fieldReference;
                 if (referenceValue != null) {
                     fieldReference = referenceValue.get(fieldName);
+                } else {
+                    fieldReference = null;
+                }
+
+                if (property instanceof DirectlyEncodedFieldProperty) {
+                    DirectlyEncodedFieldProperty directProperty = (DirectlyEncodedFieldProperty) property;
+                    if (snapshot != null) {
+                        // Directly encoded properties are all of immutable
+                        // types, so the value can be compared to the snapshot
+                        Object fieldValue = directProperty.getValue(value);
+                        if (isUnchanged(snapshot, propertyIndex, fieldValue,
+                                fieldReference)) {
+                            encoded.put(fieldName, fieldReference);
+                            continue;
+                        }
+                        snapshot.values[propertyIndex] = fieldValue;
+                    }
+                    JsonValue encodedValue = directProperty.encodeValue(value);
+                    if (snapshot != null) {
+                        snapshot.encodedValues[propertyIndex] = encodedValue;
+                    }
+                    encoded.put(fieldName, encodedValue);
                     if (fieldReference instanceof JsonNull) {
                         fieldReference = null;
                     }
-                } else {
+                    if (valueChanged(encodedValue, fieldReference)) {
+                        diff.put(fieldName, encodedValue);
+                    }
+                    continue;
+                }
+
+                // We can't use PropertyDescriptor.getPropertyType() as it does
+                // not support generics
+                Type fieldType = property.getType();
+                Object fieldValue = property.getValue(value);
+
+                byte tracking = propertyTracking != null ? propertyTracking[propertyIndex]
+                        : NOT_TRACKED;
+                Object trackedValue = null;
+                if (isTrackedByValue(tracking)) {
+                    trackedValue = getTrackedValue(tracking, fieldValue);
+                    if (isUnchanged(snapshot, propertyIndex, trackedValue,
+                            fieldReference)) {
+                        // Unchanged since last encoded, reuse and skip diff
+                        encoded.put(fieldName, fieldReference);
+                        continue;
+                    }
+                }
+
+                EncodeResult encodeResult = null;
+                if (tracking == TRACK_BEAN && fieldValue != null
+                        && fieldReference instanceof JsonObject) {
+                    encodeResult = encodeNestedBean(fieldValue,
+                            (Class<?>) fieldType, (JsonObject) fieldReference,
+                            snapshot, propertyIndex, connectorTracker);
+                } else if (tracking == TRACK_BEAN_COLLECTION
+                        && fieldValue != null
+                        && fieldReference instanceof JsonArray) {
+                    encodeResult = encodeNestedBeans(
+                            (Collection<?>) fieldValue, fieldType,
+                            (JsonArray) fieldReference, snapshot,
+                            propertyIndex, connectorTracker);
+                }
+                if (encodeResult != null
+                        && encodeResult.getEncodedValue() == fieldReference) {
+                    // No nested property has changed, reuse and skip diff
+                    encoded.put(fieldName, fieldReference);
+                    continue;
+                }
+
+                if (fieldReference instanceof JsonNull) {
                     fieldReference = null;
                 }
 
-                EncodeResult encodeResult = encode(fieldValue, fieldReference,
-                        fieldType, connectorTracker);
+                if (encodeResult == null) {
+                    encodeResult = encode(fieldValue, fieldReference,
+                            fieldType, connectorTracker);
+                }
                 encoded.put(fieldName, encodeResult.getEncodedValue());
 
+                if (tracking != NOT_TRACKED) {
+                    if (isTrackedByValue(tracking)) {
+                        snapshot.values[propertyIndex] = trackedValue;
+                    }
+                    snapshot.encodedValues[propertyIndex] = encodeResult
+                            .getEncodedValue();
+                }
+
                 if (valueChanged(encodeResult.getEncodedValue(), fieldReference)) {
                     diff.put(fieldName, encodeResult.getDiffOrValue());
                 }
@@ -768,6 +1035,319 @@ public class JsonCodec implements Serializable {
         return new EncodeResult(encoded, diff);
     }
 
+    /*
+     * Encodes a nested bean using a snapshot of its own properties. Returns an
+     * encode result with the reference value itself if the reference was
+     * recorded for the property the last time and no nested property has
+     * changed.
+     */
+    private static EncodeResult encodeNestedBean(Object bean, Class<?> type,
+            JsonObject reference, PropertySnapshot snapshot,
+            int propertyIndex, ConnectorTracker connectorTracker)
+            throws Exception {
+        PropertySnapshot beanSnapshot;
+        if (snapshot.values[propertyIndex] instanceof PropertySnapshot) {
+            beanSnapshot = (PropertySnapshot) snapshot.values[propertyIndex];
+        } else {
+            beanSnapshot = new PropertySnapshot(type);
+            snapshot.values[propertyIndex] = beanSnapshot;
+        }
+
+        if (snapshot.encodedValues[propertyIndex] == reference
+                && isUnchangedBean(bean, type, reference, beanSnapshot)) {
+            return new EncodeResult(reference);
+        }
+        return encodeObject(bean, type, reference, connectorTracker,
+                beanSnapshot);
+    }
+
+    /*
+     * Encodes a collection of beans using a snapshot of each bean. The beans
+     * are matched with the snapshots and the reference value by position.
+     * Returns an encode result with the reference value itself if the
+     * reference was recorded for the property the last time and no bean has
+     * changed.
+     */
+    @SuppressWarnings("unchecked")
+    private static EncodeResult encodeNestedBeans(Collection<?> beans,
+            Type collectionType, JsonArray reference,
+            PropertySnapshot snapshot, int propertyIndex,
+            ConnectorTracker connectorTracker) throws Exception {
+        Class<?> beanType = (Class<?>) ((ParameterizedType) collectionType)
+                .getActualTypeArguments()[0];
+        List<PropertySnapshot> beanSnapshots;
+        if (snapshot.values[propertyIndex] instanceof List) {
+            beanSnapshots = (List<PropertySnapshot>) snapshot.values[propertyIndex];
+        } else {
+            beanSnapshots = new ArrayList<PropertySnapshot>();
+            snapshot.values[propertyIndex] = beanSnapshots;
+        }
+
+        boolean unchanged = snapshot.encodedValues[propertyIndex] == reference
+                && beans.size() == reference.length();
+        JsonArray encoded = Json.createArray();
+        int index = 0;
+        for (Object bean : beans) {
+            if (index == beanSnapshots.size()) {
+                beanSnapshots.add(new PropertySnapshot(beanType));
+            }
+            JsonValue beanReference = index < reference.length() ? reference
+                    .get(index) : null;
+            JsonValue encodedBean;
+            if (bean != null
+                    && beanReference instanceof JsonObject
+                    && isUnchangedBean(bean, beanType,
+                            (JsonObject) beanReference,
+                            beanSnapshots.get(index))) {
+                encodedBean = beanReference;
+            } else if (bean != null && beanReference instanceof JsonObject) {
+                encodedBean = encodeObject(bean, beanType,
+                        (JsonObject) beanReference, connectorTracker,
+                        beanSnapshots.get(index)).getEncodedValue();
+                unchanged = false;
+            } else {
+                encodedBean = encode(bean, null, beanType, connectorTracker)
+                        .getEncodedValue();
+                unchanged = false;
+            }
+            encoded.set(index++, encodedBean);
+        }
+        while (beanSnapshots.size() > index) {
+            beanSnapshots.remove(beanSnapshots.size() - 1);
+        }
+
+        if (unchanged) {
+            return new EncodeResult(reference);
+        }
+        return new EncodeResult(encoded);
+    }
+
+    /*
+     * Checks whether no property of a bean has changed since it was encoded to
+     * the reference value, without encoding anything. Returns false if the
+     * bean has a property that is not tracked.
+     */
+    private static boolean isUnchangedBean(Object bean, Class<?> type,
+            JsonObject reference, PropertySnapshot snapshot) throws Exception {
+        byte[] propertyTracking = getPropertyTracking(type);
+        int propertyIndex = 0;
+        for (BeanProperty property : getProperties(type)) {
+            byte tracking = propertyTracking[propertyIndex];
+            JsonValue fieldReference = reference.get(property.getName());
+            Object fieldValue = property.getValue(bean);
+            if (isTrackedByValue(tracking)) {
+                if (!isUnchanged(snapshot, propertyIndex,
+                        getTrackedValue(tracking, fieldValue), fieldReference)) {
+                    return false;
+                }
+            } else if (tracking == TRACK_BEAN) {
+                Object beanSnapshot = snapshot.values[propertyIndex];
+                if (fieldValue == null
+                        || snapshot.encodedValues[propertyIndex] != fieldReference
+                        || !(fieldReference instanceof JsonObject)
+                        || !(beanSnapshot instanceof PropertySnapshot)
+                        || !isUnchangedBean(fieldValue,
+                                (Class<?>) property.getType(),
+                                (JsonObject) fieldReference,
+                                (PropertySnapshot) beanSnapshot)) {
+                    return false;
+                }
+            } else if (tracking == TRACK_BEAN_COLLECTION) {
+                if (fieldValue == null
+                        || snapshot.encodedValues[propertyIndex] != fieldReference
+                        || !(fieldReference instanceof JsonArray)
+                        || !(snapshot.values[propertyIndex] instanceof List)
+                        || !areUnchangedBeans((Collection<?>) fieldValue,
+                                property.getType(),
+                                (JsonArray) fieldReference,
+                                (List<?>) snapshot.values[propertyIndex])) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+            propertyIndex++;
+        }
+        return true;
+    }
+
+    private static boolean areUnchangedBeans(Collection<?> beans,
+            Type collectionType, JsonArray reference, List<?> beanSnapshots)
+            throws Exception {
+        if (beans.size() != reference.length()
+                || beans.size() != beanSnapshots.size()) {
+            return false;
+        }
+        Class<?> beanType = (Class<?>) ((ParameterizedType) collectionType)
+                .getActualTypeArguments()[0];
+        int index = 0;
+        for (Object bean : beans) {
+            JsonValue beanReference = reference.get(index);
+            if (bean == null
+                    || !(beanReference instanceof JsonObject)
+                    || !isUnchangedBean(bean, beanType,
+                            (JsonObject) beanReference,
+                            (PropertySnapshot) beanSnapshots.get(index))) {
+                return false;
+            }
+            index++;
+        }
+        return true;
+    }
+
+    private static boolean isTrackedByValue(byte tracking) {
+        return tracking == TRACK_VALUE || tracking == TRACK_CONTENTS
+                || tracking == TRACK_CONNECTOR;
+    }
+
+    /*
+     * Gets the value to record in a snapshot for a property that is tracked
+     * by value. The value determines the encoded JSON of the property.
+     */
+    private static Object getTrackedValue(byte tracking, Object value) {
+        if (tracking == TRACK_CONTENTS) {
+            return getContents(value);
+        } else if (tracking == TRACK_CONNECTOR && value instanceof Component
+                && !LegacyCommunicationManager
+                        .isComponentVisibleToClient((Component) value)) {
+            // Invisible components are encoded as null
+            return null;
+        }
+        return value;
+    }
+
+    /*
+     * Copies the contents of a collection, map or array into an array. Map
+     * keys and values are copied in turns.
+     */
+    private static Object[] getContents(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Collection) {
+            return ((Collection<?>) value).toArray();
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Object[] contents = new Object[map.size() * 2];
+            int i = 0;
+            for (Entry<?, ?> entry : map.entrySet()) {
+                contents[i++] = entry.getKey();
+                contents[i++] = entry.getValue();
+            }
+            return contents;
+        } else {
+            Object[] contents = new Object[Array.getLength(value)];
+            for (int i = 0; i < contents.length; i++) {
+                contents[i] = Array.get(value, i);
+            }
+            return contents;
+        }
+    }
+
+    /*
+     * Checks whether a property value is the same as in the snapshot and the
+     * reference value still contains the JSON recorded for it.
+     */
+    private static boolean isUnchanged(PropertySnapshot snapshot,
+            int propertyIndex, Object value, JsonValue reference) {
+        JsonValue snapshotJson = snapshot.encodedValues[propertyIndex];
+        return snapshotJson != null && snapshotJson == reference
+                && isSameValue(value, snapshot.values[propertyIndex]);
+    }
+
+    private static boolean isSameValue(Object value, Object snapshotValue) {
+        if (value instanceof Object[] && snapshotValue instanceof Object[]) {
+            return Arrays.equals((Object[]) value, (Object[]) snapshotValue);
+        }
+        return value == snapshotValue
+                || (value != null && value.equals(snapshotValue));
+    }
+
+    private static byte[] getPropertyTracking(Class<?> type)
+            throws IntrospectionException {
+        byte[] propertyTracking = typePropertyTrackingCache.get(type);
+        if (propertyTracking != null) {
+            return propertyTracking;
+        }
+
+        Collection<BeanProperty> properties = getProperties(type);
+        propertyTracking = new byte[properties.size()];
+        int i = 0;
+        for (BeanProperty property : properties) {
+            propertyTracking[i++] = getTracking(property.getType());
+        }
+
+        // Doesn't matter if the same calculation is done multiple times from
+        // different threads, so there's no need to do e.g. putIfAbsent
+        typePropertyTrackingCache.put(type, propertyTracking);
+        return propertyTracking;
+    }
+
+    private static byte getTracking(Type type) {
+        if (isImmutableType(type)) {
+            return TRACK_VALUE;
+        } else if (type instanceof Class<?>
+                && Connector.class.isAssignableFrom((Class<?>) type)) {
+            return TRACK_CONNECTOR;
+        } else if (type instanceof Class<?> && ((Class<?>) type).isArray()) {
+            if (isImmutableType(((Class<?>) type).getComponentType())) {
+                return TRACK_CONTENTS;
+            }
+        } else if (type instanceof ParameterizedType) {
+            Class<?> rawType = getClassForType(type);
+            Type[] typeArguments = ((ParameterizedType) type)
+                    .getActualTypeArguments();
+            if (Map.class.isAssignableFrom(rawType)
+                    && isImmutableType(typeArguments[0])
+                    && isImmutableType(typeArguments[1])) {
+                return TRACK_CONTENTS;
+            } else if (Collection.class.isAssignableFrom(rawType)) {
+                if (isImmutableType(typeArguments[0])) {
+                    return TRACK_CONTENTS;
+                } else if (isBeanType(typeArguments[0])) {
+                    return TRACK_BEAN_COLLECTION;
+                }
+            }
+        } else if (isBeanType(type)) {
+            return TRACK_BEAN;
+        }
+        return NOT_TRACKED;
+    }
+
+    /*
+     * Types that are encoded by encodeObject based on their properties.
+     */
+    private static boolean isBeanType(Type type) {
+        if (!(type instanceof Class<?>)) {
+            return false;
+        }
+        Class<?> cls = (Class<?>) type;
+        return cls != Object.class && !cls.isPrimitive() && !cls.isArray()
+                && !cls.isEnum() && !cls.isInterface() && !isInternalType(cls)
+                && !isImmutableType(cls)
+                && !Connector.class.isAssignableFrom(cls)
+                && !JsonValue.class.isAssignableFrom(cls)
+                && !Collection.class.isAssignableFrom(cls)
+                && !Map.class.isAssignableFrom(cls)
+                && !customSerializers.containsKey(cls);
+    }
+
+    /*
+     * Types whose instances can't change after creation and that are always
+     * encoded in the same way regardless of context. Connectors are not
+     * included as their encoding depends on their visibility.
+     */
+    private static boolean isImmutableType(Type type) {
+        if (!(type instanceof Class<?>)) {
+            return false;
+        }
+        Class<?> cls = (Class<?>) type;
+        return cls.isPrimitive() || cls.isEnum() || cls == String.class
+                || cls == Boolean.class || cls == Character.class
+                || cls == Integer.class || cls == Long.class
+                || cls == Double.class || cls == Float.class
+                || cls == Short.class || cls == Byte.class;
+    }
+
     /**
      * Compares the value with the reference. If they match, returns false.
      *
@@ -29,8 +29,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.server.ClientConnector.ConnectorErrorEvent;
+import com.vaadin.server.JsonCodec.PropertySnapshot;
 import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.JavaScriptConnectorState;
+import com.vaadin.shared.annotations.IncrementalEncoding;
 import com.vaadin.shared.communication.SharedState;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.ConnectorTracker;
@@ -105,11 +107,27 @@ public class LegacyCommunicationManager implements Serializable {
                 referenceDiffStates.put(stateType, diffState);
             }
         }
-        EncodeResult encodeResult = JsonCodec.encode(state, diffState,
-                stateType, uI.getConnectorTracker());
-        if (supportsDiffState) {
+        EncodeResult encodeResult;
+        if (supportsDiffState
+                && stateType.isAnnotationPresent(IncrementalEncoding.class)) {
+            PropertySnapshot snapshot = connectorTracker
+                    .getStatePropertySnapshot(connector);
+            if (snapshot == null) {
+                snapshot = new PropertySnapshot(stateType);
+            }
+            encodeResult = JsonCodec.encodeIncrementally(state,
+                    (JsonObject) diffState, stateType, snapshot,
+                    connectorTracker);
             connectorTracker.setDiffState(connector,
                     (JsonObject) encodeResult.getEncodedValue());
+            connectorTracker.setStatePropertySnapshot(connector, snapshot);
+        } else {
+            encodeResult = JsonCodec.encode(state, diffState, stateType,
+                    uI.getConnectorTracker());
+            if (supportsDiffState) {
+                connectorTracker.setDiffState(connector,
+                        (JsonObject) encodeResult.getEncodedValue());
+            }
         }
         return (JsonObject) encodeResult.getDiff();
     }
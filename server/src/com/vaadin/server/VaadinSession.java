@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -256,7 +257,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     private transient WrappedSession session;
 
-    private final Map<String, Object> attributes = new HashMap<String, Object>();
+    /*
+     * A concurrent map rather than a map guarded by the session lock so that
+     * attributes can be used without locking the session. The map can also be
+     * serialized while another thread modifies it.
+     */
+    private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
 
     private LinkedList<UIProvider> uiProviders = new LinkedList<UIProvider>();
 
@@ -986,6 +992,35 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * <p>
      * {@link #getLockInstance()} can be used if more control over the locking
      * is required.
+     * </p>
+     * <p>
+     * All UIs of a session share the lock of the session, so a task for one
+     * UI blocks tasks for all other UIs in the same session. The following
+     * rules avoid deadlocks and keep the lock held for as short a time as
+     * possible:
+     * <ul>
+     * <li>Never block while holding the lock of one session waiting for the
+     * lock of another session. Use {@link #access(Runnable)} or
+     * {@link UI#access(Runnable)}, which never block, to enqueue work for the
+     * other session instead. {@link #accessSynchronously(Runnable)} and
+     * {@link UI#accessSynchronously(Runnable)} throw an exception if this rule
+     * would be violated.</li>
+     * <li>Never wait for the {@link Future} returned by
+     * {@link #access(Runnable)} or {@link UI#access(Runnable)} while holding
+     * the lock of the same session, as the task will not run until the lock
+     * is released.</li>
+     * <li>If application code uses locks of its own, always acquire them
+     * either before the session lock or only after it, but never both ways.
+     * Background threads should acquire such locks before calling
+     * {@link #accessSynchronously(Runnable)}.</li>
+     * <li>Do slow work such as I/O or database queries before calling
+     * {@link UI#access(Runnable)} and only apply the results inside the task.
+     * The session lock is also needed by requests and heartbeats from all
+     * other UIs in the session.</li>
+     * <li>Session attributes can be read and written without the session
+     * lock.</li>
+     * </ul>
+     * </p>
      *
      * @see #unlock()
      * @see #getLockInstance()
@@ -1052,6 +1087,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * data with the current user so that it can be retrieved at a later point
      * from some other part of the application. Setting the value to
      * <code>null</code> clears the stored value.
+     * <p>
+     * Attributes can be read and written without holding the session lock,
+     * e.g. from a background thread while a request for some other UI in the
+     * session is being handled. The stored values themselves must be safe for
+     * concurrent use if they are shared that way.
+     * </p>
      *
      * @see #getAttribute(String)
      *
@@ -1063,7 +1104,6 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *            remove a previous association.
      */
     public void setAttribute(String name, Object value) {
-        assert hasLock();
         if (name == null) {
             throw new IllegalArgumentException("name can not be null");
         }
@@ -1095,7 +1135,6 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *            remove a previous association.
      */
     public <T> void setAttribute(Class<T> type, T value) {
-        assert hasLock();
         if (type == null) {
             throw new IllegalArgumentException("type can not be null");
         }
@@ -1111,6 +1150,9 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * Gets a stored attribute value. If a value has been stored for the
      * session, that value is returned. If no value is stored for the name,
      * <code>null</code> is returned.
+     * <p>
+     * Attributes can be read without holding the session lock.
+     * </p>
      *
      * @see #setAttribute(String, Object)
      *
@@ -1120,7 +1162,6 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         it has been set to null.
      */
     public Object getAttribute(String name) {
-        assert hasLock();
         if (name == null) {
             throw new IllegalArgumentException("name can not be null");
         }
@@ -1146,7 +1187,6 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         it has been set to null.
      */
     public <T> T getAttribute(Class<T> type) {
-        assert hasLock();
         if (type == null) {
             throw new IllegalArgumentException("type can not be null");
         }
@@ -1390,7 +1430,8 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * The returned future can be used to check for task completion and to
      * cancel the task. To help avoiding deadlocks, {@link Future#get()} throws
      * an exception if it is detected that the current thread holds the lock for
-     * some other session.
+     * some other session. See {@link #lock()} for the rules that should be
+     * followed to avoid deadlocks.
      * </p>
      *
      * @see #lock()
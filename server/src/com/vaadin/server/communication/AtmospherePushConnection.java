@@ -31,6 +31,7 @@ import java.util.logging.Logger;
 
 import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.AtmosphereResource.TRANSPORT;
+import org.atmosphere.util.ExecutorsFactory;
 import org.atmosphere.util.Version;
 
 import com.vaadin.shared.communication.PushConstants;
@@ -134,9 +135,11 @@ public class AtmospherePushConnection implements PushConnection {
     private transient AtmosphereResource resource;
     private transient FragmentedMessage incomingMessage;
     private transient Future<Object> outgoingMessage;
+    private final PushScheduler pushScheduler;
 
     public AtmospherePushConnection(UI ui) {
         this.ui = ui;
+        pushScheduler = new PushScheduler(ui);
     }
 
     @Override
@@ -160,7 +163,9 @@ public class AtmospherePushConnection implements PushConnection {
             } else {
                 state = State.RESPONSE_PENDING;
             }
-        } else {
+        } else if (!async
+                || !pushScheduler.deferPush(ExecutorsFactory
+                        .getScheduler(getResource().getAtmosphereConfig()))) {
             try {
                 Writer writer = new StringWriter();
                 new UidlWriter().write(getUI(), writer, false, async);
@@ -168,9 +173,21 @@ public class AtmospherePushConnection implements PushConnection {
             } catch (Exception e) {
                 throw new RuntimeException("Push failed", e);
             }
+            pushScheduler.pushed();
         }
     }
 
+    /**
+     * Returns the scheduler that coalesces asynchronous pushes through this
+     * connection.
+     * 
+     * @since 7.5
+     * @return the push scheduler, not <code>null</code>
+     */
+    public PushScheduler getPushScheduler() {
+        return pushScheduler;
+    }
+
     /**
      * Sends the given message to the current client. Cannot be called if
      * {@isConnected()} is false.
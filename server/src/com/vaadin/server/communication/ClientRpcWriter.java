@@ -32,11 +32,8 @@ import com.vaadin.server.PaintException;
 import com.vaadin.shared.communication.ClientRpc;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
 import elemental.json.JsonException;
 import elemental.json.JsonValue;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes {@link ClientRpc client RPC} invocations to JSON.
@@ -58,50 +55,71 @@ public class ClientRpcWriter implements Serializable {
      *             If the serialization fails.
      */
     public void write(UI ui, Writer writer) throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(writer);
+        try {
+            write(ui, json);
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Writes a JSON array containing all pending client RPC invocations in the
+     * given UI using the given streaming JSON emitter.
+     * 
+     * @since 7.5
+     * @param ui
+     *            The {@link UI} whose RPC calls to write.
+     * @param json
+     *            The JSON emitter to use.
+     * @throws IOException
+     *             If the serialization fails.
+     */
+    public void write(UI ui, JsonStreamWriter json) throws IOException {
 
         Collection<ClientMethodInvocation> pendingInvocations = collectPendingRpcCalls(ui
                 .getConnectorTracker().getDirtyVisibleConnectors());
 
-        JsonArray rpcCalls = Json.createArray();
+        json.beginArray();
         for (ClientMethodInvocation invocation : pendingInvocations) {
-            // add invocation to rpcCalls
-            try {
-                JsonArray invocationJson = Json.createArray();
-                invocationJson.set(0, invocation.getConnector()
-                        .getConnectorId());
-                invocationJson.set(1, invocation.getInterfaceName());
-                invocationJson.set(2, invocation.getMethodName());
-                JsonArray paramJson = Json.createArray();
-                for (int i = 0; i < invocation.getParameterTypes().length; ++i) {
-                    Type parameterType = invocation.getParameterTypes()[i];
-                    JsonValue referenceParameter = null;
-                    // TODO Use default values for RPC parameter types
-                    // if (!JsonCodec.isInternalType(parameterType)) {
-                    // try {
-                    // referenceParameter = parameterType.newInstance();
-                    // } catch (Exception e) {
-                    // logger.log(Level.WARNING,
-                    // "Error creating reference object for parameter of type "
-                    // + parameterType.getName());
-                    // }
-                    // }
-                    EncodeResult encodeResult = JsonCodec.encode(
+            json.beginArray();
+            json.value(invocation.getConnector().getConnectorId());
+            json.value(invocation.getInterfaceName());
+            json.value(invocation.getMethodName());
+            json.beginArray();
+            for (int i = 0; i < invocation.getParameterTypes().length; ++i) {
+                Type parameterType = invocation.getParameterTypes()[i];
+                JsonValue referenceParameter = null;
+                // TODO Use default values for RPC parameter types
+                // if (!JsonCodec.isInternalType(parameterType)) {
+                // try {
+                // referenceParameter = parameterType.newInstance();
+                // } catch (Exception e) {
+                // logger.log(Level.WARNING,
+                // "Error creating reference object for parameter of type "
+                // + parameterType.getName());
+                // }
+                // }
+                EncodeResult encodeResult;
+                try {
+                    encodeResult = JsonCodec.encode(
                             invocation.getParameters()[i], referenceParameter,
                             parameterType, ui.getConnectorTracker());
-                    paramJson.set(i, encodeResult.getEncodedValue());
+                } catch (JsonException e) {
+                    throw new PaintException(
+                            "Failed to serialize RPC method call parameters for connector "
+                                    + invocation.getConnector()
+                                            .getConnectorId() + " method "
+                                    + invocation.getInterfaceName() + "."
+                                    + invocation.getMethodName() + ": "
+                                    + e.getMessage(), e);
                 }
-                invocationJson.set(3, paramJson);
-                rpcCalls.set(rpcCalls.length(), invocationJson);
-            } catch (JsonException e) {
-                throw new PaintException(
-                        "Failed to serialize RPC method call parameters for connector "
-                                + invocation.getConnector().getConnectorId()
-                                + " method " + invocation.getInterfaceName()
-                                + "." + invocation.getMethodName() + ": "
-                                + e.getMessage(), e);
+                json.value(encodeResult.getEncodedValue());
             }
+            json.endArray();
+            json.endArray();
         }
-        writer.write(JsonUtil.stringify(rpcCalls));
+        json.endArray();
     }
 
     /**
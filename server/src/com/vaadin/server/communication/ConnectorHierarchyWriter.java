@@ -19,20 +19,16 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.LegacyCommunicationManager;
-import com.vaadin.server.PaintException;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
-import elemental.json.JsonException;
-import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
-
 /**
  * Serializes a connector hierarchy to JSON.
  * 
@@ -53,31 +49,79 @@ public class ConnectorHierarchyWriter implements Serializable {
      *             If the serialization fails.
      */
     public void write(UI ui, Writer writer) throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(writer);
+        try {
+            write(ui, json);
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Writes a JSON object containing the connector hierarchy (parent-child
+     * mappings) of the dirty connectors in the given UI using the given
+     * streaming JSON emitter.
+     * 
+     * @since 7.5
+     * @param ui
+     *            The {@link UI} whose hierarchy to write.
+     * @param json
+     *            The JSON emitter to use.
+     * @throws IOException
+     *             If the serialization fails.
+     */
+    public void write(UI ui, JsonStreamWriter json) throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
-        JsonObject hierarchyInfo = Json.createObject();
+        List<String> childIds = new ArrayList<String>();
+        json.beginObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
-            String connectorId = connector.getConnectorId();
-            JsonArray children = Json.createArray();
-
+            childIds.clear();
             for (ClientConnector child : AbstractClientConnector
                     .getAllChildrenIterable(connector)) {
                 if (LegacyCommunicationManager
                         .isConnectorVisibleToClient(child)) {
-                    children.set(children.length(), child.getConnectorId());
+                    childIds.add(child.getConnectorId());
                 }
             }
-            try {
-                hierarchyInfo.put(connectorId, children);
-            } catch (JsonException e) {
-                throw new PaintException(
-                        "Failed to send hierarchy information about "
-                                + connectorId + " to the client: "
-                                + e.getMessage(), e);
+
+            // Note that an empty hierarchy is information as well (e.g. change
+            // from 1 child to 0 children), so only skip unchanged hierarchies
+            long hash = hashChildIds(childIds);
+            Long sentHash = connectorTracker
+                    .getClientSideHierarchyHash(connector);
+            if (sentHash != null && sentHash.longValue() == hash) {
+                continue;
+            }
+
+            json.name(connector.getConnectorId());
+            json.beginArray();
+            for (String childId : childIds) {
+                json.value(childId);
+            }
+            json.endArray();
+            connectorTracker.setClientSideHierarchyHash(connector, hash);
+        }
+        json.endObject();
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the given child connector ids.
+     */
+    private static long hashChildIds(List<String> childIds) {
+        long hash = 0xcbf29ce484222325L;
+        for (String childId : childIds) {
+            for (int i = 0; i < childId.length(); i++) {
+                hash ^= childId.charAt(i);
+                hash *= 0x100000001b3L;
             }
+            // Separator so that e.g. [a, bc] and [ab, c] differ
+            hash ^= 0xffff;
+            hash *= 0x100000001b3L;
         }
-        writer.write(JsonUtil.stringify(hierarchyInfo));
+        return hash;
     }
 }
@@ -22,15 +22,10 @@ import java.io.Writer;
 import java.util.Collection;
 
 import com.vaadin.server.ClientConnector;
-import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonException;
-import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
-
 /**
  * Serializes connector type mappings to JSON.
  * 
@@ -54,22 +49,48 @@ public class ConnectorTypeWriter implements Serializable {
      */
     public void write(UI ui, Writer writer, PaintTarget target)
             throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(writer);
+        try {
+            write(ui, json, target);
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Writes a JSON object containing connector-ID-to-type-ID mappings for each
+     * dirty Connector in the given UI using the given streaming JSON emitter.
+     * Types that have already been sent to the client for a connector are
+     * skipped.
+     * 
+     * @since 7.5
+     * @param ui
+     *            The {@link UI} containing dirty connectors
+     * @param json
+     *            The JSON emitter to use.
+     * @param target
+     *            The paint target containing the connector type IDs.
+     * @throws IOException
+     *             If the serialization fails.
+     */
+    public void write(UI ui, JsonStreamWriter json, PaintTarget target)
+            throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
-        JsonObject connectorTypes = Json.createObject();
+        json.beginObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorType = target.getTag(connector);
-            try {
-                connectorTypes.put(connector.getConnectorId(), connectorType);
-            } catch (JsonException e) {
-                throw new PaintException(
-                        "Failed to send connector type for connector "
-                                + connector.getConnectorId() + ": "
-                                + e.getMessage(), e);
+            if (connectorType.equals(connectorTracker
+                    .getClientSideType(connector))) {
+                // The client already knows the type of this connector
+                continue;
             }
+            json.name(connector.getConnectorId()).value(connectorType);
+            connectorTracker.setClientSideType(connector, connectorType);
         }
-        writer.write(JsonUtil.stringify(connectorTypes));
+        json.endObject();
     }
 }
@@ -0,0 +1,554 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * Streaming JSON parser used when reading client-to-server messages. Tokens
+ * are read directly from a {@link Reader} so that the message does not first
+ * need to be collected into a string. Parts of the message can be read as
+ * {@link JsonValue} trees using {@link #nextValue()}.
+ * <p>
+ * This is the reading counterpart of {@link JsonStreamWriter}. The parser keeps
+ * track of the current nesting and consumes separators automatically. Syntax
+ * errors and messages that exceed the configured maximum length are reported
+ * using {@link JsonException}.
+ *
+ * @author Vaadin Ltd
+ * @since 7.5
+ */
+public class JsonStreamReader {
+
+    /**
+     * The size of the character buffer used when reading.
+     */
+    public static final int BUFFER_SIZE = 4096;
+
+    private static final int MAX_DEPTH = 256;
+
+    private final Reader reader;
+    private final long maxLength;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private long consumed = 0;
+
+    private final StringBuilder stringBuilder = new StringBuilder();
+
+    /*
+     * For each nesting level, true if the next value or name read on that
+     * level is the first one, i.e. is not preceded by a separator.
+     */
+    private final boolean[] first = new boolean[MAX_DEPTH];
+    /*
+     * For each nesting level, true if the level is an object.
+     */
+    private final boolean[] object = new boolean[MAX_DEPTH];
+    private int depth = 0;
+    private boolean nameRead = false;
+    /*
+     * True if the separator or name preceding the next value has already been
+     * consumed.
+     */
+    private boolean valueReady = false;
+
+    /**
+     * Creates a new parser reading from the given reader without any limit on
+     * the length of the input.
+     *
+     * @param reader
+     *            the reader to read JSON from, not <code>null</code>
+     */
+    public JsonStreamReader(Reader reader) {
+        this(reader, 0);
+    }
+
+    /**
+     * Creates a new parser reading from the given reader.
+     *
+     * @param reader
+     *            the reader to read JSON from, not <code>null</code>
+     * @param maxLength
+     *            the maximum number of characters to read, or 0 or less to not
+     *            limit the length of the input
+     */
+    public JsonStreamReader(Reader reader, long maxLength) {
+        if (reader == null) {
+            throw new IllegalArgumentException("reader cannot be null");
+        }
+        this.reader = reader;
+        this.maxLength = maxLength;
+        first[0] = true;
+    }
+
+    /**
+     * Checks whether the current object or array has more members. On the top
+     * level, checks whether there is any more input.
+     *
+     * @return <code>true</code> if there is another member or value to read
+     * @throws IOException
+     *             if reading fails
+     */
+    public boolean hasNext() throws IOException {
+        if (valueReady || nameRead) {
+            return true;
+        }
+        int c = peekChar();
+        if (c == -1) {
+            if (depth > 0) {
+                throw syntaxError("Unexpected end of input");
+            }
+            return false;
+        }
+        return c != '}' && c != ']';
+    }
+
+    /**
+     * Returns the type of the next value without consuming it.
+     *
+     * @return the type of the next value
+     * @throws IOException
+     *             if reading fails
+     */
+    public JsonType peek() throws IOException {
+        prepareValue();
+        int c = peekChar();
+        switch (c) {
+        case '{':
+            return JsonType.OBJECT;
+        case '[':
+            return JsonType.ARRAY;
+        case '"':
+            return JsonType.STRING;
+        case 't':
+        case 'f':
+            return JsonType.BOOLEAN;
+        case 'n':
+            return JsonType.NULL;
+        case -1:
+            throw syntaxError("Unexpected end of input");
+        default:
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return JsonType.NUMBER;
+            }
+            throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Consumes the start of a JSON object.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void beginObject() throws IOException {
+        open('{', true);
+    }
+
+    /**
+     * Consumes the end of the current JSON object.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void endObject() throws IOException {
+        close('}', true);
+    }
+
+    /**
+     * Consumes the start of a JSON array.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void beginArray() throws IOException {
+        open('[', false);
+    }
+
+    /**
+     * Consumes the end of the current JSON array.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void endArray() throws IOException {
+        close(']', false);
+    }
+
+    /**
+     * Reads the name of the next member of the current object. Must be
+     * followed by reading exactly one value.
+     *
+     * @return the member name
+     * @throws IOException
+     *             if reading fails
+     */
+    public String nextName() throws IOException {
+        if (depth == 0 || !object[depth] || nameRead) {
+            throw new IllegalStateException(
+                    "A member name can only be read inside an object");
+        }
+        separator();
+        expect('"');
+        String name = readString();
+        expect(':');
+        nameRead = true;
+        return name;
+    }
+
+    /**
+     * Reads a string value.
+     *
+     * @return the string
+     * @throws IOException
+     *             if reading fails
+     */
+    public String nextString() throws IOException {
+        prepareValue();
+        expect('"');
+        valueReady = false;
+        return readString();
+    }
+
+    /**
+     * Reads a number value.
+     *
+     * @return the number
+     * @throws IOException
+     *             if reading fails
+     */
+    public double nextNumber() throws IOException {
+        if (peek() != JsonType.NUMBER) {
+            throw syntaxError("Expected a number");
+        }
+        stringBuilder.setLength(0);
+        while (true) {
+            int c = read(false);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.'
+                    || c == 'e' || c == 'E') {
+                stringBuilder.append((char) c);
+            } else {
+                if (c != -1) {
+                    position--;
+                }
+                break;
+            }
+        }
+        valueReady = false;
+        try {
+            return Double.parseDouble(stringBuilder.toString());
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + stringBuilder);
+        }
+    }
+
+    /**
+     * Reads a boolean value.
+     *
+     * @return the boolean
+     * @throws IOException
+     *             if reading fails
+     */
+    public boolean nextBoolean() throws IOException {
+        if (peek() != JsonType.BOOLEAN) {
+            throw syntaxError("Expected a boolean");
+        }
+        boolean value = peekChar() == 't';
+        expectLiteral(value ? "true" : "false");
+        valueReady = false;
+        return value;
+    }
+
+    /**
+     * Reads a <code>null</code> value.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void nextNull() throws IOException {
+        if (peek() != JsonType.NULL) {
+            throw syntaxError("Expected null");
+        }
+        expectLiteral("null");
+        valueReady = false;
+    }
+
+    /**
+     * Reads the next value, including all nested values, as a JSON value tree.
+     *
+     * @return the value, not <code>null</code>
+     * @throws IOException
+     *             if reading fails
+     */
+    public JsonValue nextValue() throws IOException {
+        switch (peek()) {
+        case OBJECT:
+            JsonObject jsonObject = Json.createObject();
+            beginObject();
+            while (hasNext()) {
+                String name = nextName();
+                jsonObject.put(name, nextValue());
+            }
+            endObject();
+            return jsonObject;
+        case ARRAY:
+            JsonArray jsonArray = Json.createArray();
+            beginArray();
+            while (hasNext()) {
+                jsonArray.set(jsonArray.length(), nextValue());
+            }
+            endArray();
+            return jsonArray;
+        case STRING:
+            return Json.create(nextString());
+        case NUMBER:
+            return Json.create(nextNumber());
+        case BOOLEAN:
+            return Json.create(nextBoolean());
+        default:
+            nextNull();
+            return Json.createNull();
+        }
+    }
+
+    /**
+     * Skips the next value, including all nested values, without creating any
+     * objects for it.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void skipValue() throws IOException {
+        switch (peek()) {
+        case OBJECT:
+            beginObject();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+            break;
+        case ARRAY:
+            beginArray();
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+            break;
+        case STRING:
+            expect('"');
+            valueReady = false;
+            skipString();
+            break;
+        case NUMBER:
+            nextNumber();
+            break;
+        case BOOLEAN:
+            nextBoolean();
+            break;
+        default:
+            nextNull();
+        }
+    }
+
+    private void open(char c, boolean isObject) throws IOException {
+        prepareValue();
+        if (depth + 1 >= MAX_DEPTH) {
+            throw syntaxError("JSON nested too deeply");
+        }
+        expect(c);
+        valueReady = false;
+        depth++;
+        first[depth] = true;
+        object[depth] = isObject;
+    }
+
+    private void close(char c, boolean isObject) throws IOException {
+        if (depth == 0 || object[depth] != isObject || nameRead || valueReady) {
+            throw new IllegalStateException("Unbalanced "
+                    + (isObject ? "object" : "array"));
+        }
+        expect(c);
+        depth--;
+    }
+
+    private void prepareValue() throws IOException {
+        if (valueReady) {
+            return;
+        }
+        if (depth > 0 && object[depth]) {
+            if (!nameRead) {
+                throw new IllegalStateException(
+                        "A value inside an object must be preceded by a name");
+            }
+            nameRead = false;
+        } else {
+            separator();
+        }
+        valueReady = true;
+    }
+
+    private void separator() throws IOException {
+        if (first[depth]) {
+            first[depth] = false;
+        } else if (depth > 0) {
+            expect(',');
+        } else {
+            throw syntaxError("Unexpected content after the top level value");
+        }
+    }
+
+    private String readString() throws IOException {
+        stringBuilder.setLength(0);
+        while (true) {
+            int start = position;
+            // Copy runs of plain characters directly from the buffer
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                position++;
+            }
+            stringBuilder.append(buffer, start, position - start);
+            int c = read(false);
+            if (c == '"') {
+                return stringBuilder.toString();
+            } else if (c == '\\') {
+                stringBuilder.append(readEscape());
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            } else {
+                // Buffer was refilled, c is a plain character
+                stringBuilder.append((char) c);
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = read(false);
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                readEscape();
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read(false);
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(read(false), 16);
+                if (digit < 0) {
+                    throw syntaxError("Invalid unicode escape");
+                }
+                value = (value << 4) | digit;
+            }
+            return (char) value;
+        default:
+            throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (read(false) != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = read(true);
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "' but got "
+                    + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+        }
+    }
+
+    private int peekChar() throws IOException {
+        int c = read(true);
+        if (c != -1) {
+            position--;
+        }
+        return c;
+    }
+
+    private int read(boolean skipWhitespace) throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[position++];
+            if (!skipWhitespace
+                    || (c != ' ' && c != '\t' && c != '\n' && c != '\r')) {
+                return c;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, BUFFER_SIZE);
+        if (read <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        consumed += read;
+        if (maxLength > 0 && consumed > maxLength) {
+            throw new JsonException("JSON input exceeds the maximum length of "
+                    + maxLength + " characters");
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private JsonException syntaxError(String message) {
+        return new JsonException(message + " at position "
+                + (consumed - limit + position));
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * Streaming JSON emitter used when writing UIDL responses. Values are written
+ * straight to the target {@link Writer} through a pooled character buffer
+ * instead of first being collected into {@link JsonValue} trees and
+ * stringified.
+ * <p>
+ * The emitter keeps track of the current nesting so that separators are
+ * inserted automatically. Strings are escaped the same way as
+ * {@link elemental.json.impl.JsonUtil#quote(String)} does. The buffer is
+ * returned to the pool when the emitter is {@link #close() closed}; closing
+ * the emitter flushes it but does not close the underlying writer.
+ *
+ * @author Vaadin Ltd
+ * @since 7.5
+ */
+public class JsonStreamWriter {
+
+    /**
+     * The size of the pooled character buffers.
+     */
+    public static final int BUFFER_SIZE = 4096;
+
+    private static final int MAX_POOLED_BUFFERS = 32;
+
+    private static final Queue<char[]> bufferPool = new ConcurrentLinkedQueue<char[]>();
+    private static final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int INITIAL_DEPTH = 16;
+
+    private final Writer writer;
+
+    private char[] buffer;
+    private int position = 0;
+
+    /*
+     * For each nesting level, true if the next value written on that level is
+     * the first one, i.e. does not need a separator.
+     */
+    private boolean[] first = new boolean[INITIAL_DEPTH];
+    /*
+     * For each nesting level, true if the level is an object.
+     */
+    private boolean[] object = new boolean[INITIAL_DEPTH];
+    private int depth = 0;
+    private boolean nameWritten = false;
+
+    /**
+     * Creates a new emitter writing to the given writer.
+     *
+     * @param writer
+     *            the writer to write the JSON to, not <code>null</code>
+     */
+    public JsonStreamWriter(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("writer cannot be null");
+        }
+        this.writer = writer;
+        buffer = acquireBuffer();
+        first[0] = true;
+    }
+
+    /**
+     * Starts a JSON object.
+     *
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginObject() throws IOException {
+        return open('{', true);
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endObject() throws IOException {
+        return close('}', true);
+    }
+
+    /**
+     * Starts a JSON array.
+     *
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        return open('[', false);
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        return close(']', false);
+    }
+
+    /**
+     * Writes the name of the next member of the current object. Must be
+     * followed by exactly one value.
+     *
+     * @param name
+     *            the member name, not <code>null</code>
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        if (depth == 0 || !object[depth] || nameWritten) {
+            throw new IllegalStateException(
+                    "A member name can only be written inside an object");
+        }
+        separator();
+        quote(name);
+        append(':');
+        nameWritten = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or <code>null</code> if the string is
+     * <code>null</code>.
+     *
+     * @param value
+     *            the string to write
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        quote(value);
+        return this;
+    }
+
+    /**
+     * Writes an integer value.
+     *
+     * @param value
+     *            the value to write
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(long value) throws IOException {
+        beforeValue();
+        appendLong(value);
+        return this;
+    }
+
+    /**
+     * Writes a floating point value. Integral values are written without a
+     * fraction, non-finite values as <code>null</code>.
+     *
+     * @param value
+     *            the value to write
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        beforeValue();
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            appendLong((long) value);
+        } else {
+            append(String.valueOf(value));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value
+     *            the value to write
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(boolean value) throws IOException {
+        beforeValue();
+        append(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a <code>null</code> value.
+     *
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter nullValue() throws IOException {
+        beforeValue();
+        append("null");
+        return this;
+    }
+
+    /**
+     * Writes an already encoded JSON value by walking the value tree. No
+     * intermediate string representation of the value is created.
+     *
+     * @param value
+     *            the value to write, <code>null</code> is written as a JSON
+     *            null
+     * @return this emitter
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(JsonValue value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        JsonType type = value.getType();
+        switch (type) {
+        case OBJECT:
+            JsonObject jsonObject = (JsonObject) value;
+            beginObject();
+            for (String key : jsonObject.keys()) {
+                JsonValue member = jsonObject.get(key);
+                name(key);
+                value(member);
+            }
+            return endObject();
+        case ARRAY:
+            JsonArray jsonArray = (JsonArray) value;
+            beginArray();
+            for (int i = 0; i < jsonArray.length(); i++) {
+                JsonValue element = jsonArray.get(i);
+                value(element);
+            }
+            return endArray();
+        case STRING:
+            return value(value.asString());
+        case NUMBER:
+            return value(value.asNumber());
+        case BOOLEAN:
+            return value(value.asBoolean());
+        default:
+            return nullValue();
+        }
+    }
+
+    /**
+     * Writes buffered characters to the underlying writer. Must be called
+     * before anything else writes directly to the underlying writer.
+     *
+     * @throws IOException
+     *             if writing fails
+     */
+    public void flush() throws IOException {
+        if (position > 0) {
+            writer.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Flushes the emitter and returns its buffer to the pool. The underlying
+     * writer is not closed. The emitter can not be used after it has been
+     * closed.
+     *
+     * @throws IOException
+     *             if writing fails
+     */
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            releaseBuffer(buffer);
+            buffer = null;
+        }
+    }
+
+    private JsonStreamWriter open(char c, boolean isObject) throws IOException {
+        beforeValue();
+        if (depth + 1 == first.length) {
+            first = Arrays.copyOf(first, first.length * 2);
+            object = Arrays.copyOf(object, object.length * 2);
+        }
+        append(c);
+        depth++;
+        first[depth] = true;
+        object[depth] = isObject;
+        return this;
+    }
+
+    private JsonStreamWriter close(char c, boolean isObject)
+            throws IOException {
+        if (depth == 0 || object[depth] != isObject || nameWritten) {
+            throw new IllegalStateException("Unbalanced "
+                    + (isObject ? "object" : "array"));
+        }
+        depth--;
+        append(c);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (depth > 0 && object[depth]) {
+            if (!nameWritten) {
+                throw new IllegalStateException(
+                        "A value inside an object must be preceded by a name");
+            }
+            nameWritten = false;
+        } else {
+            separator();
+        }
+    }
+
+    private void separator() throws IOException {
+        if (first[depth]) {
+            first[depth] = false;
+        } else {
+            append(',');
+        }
+    }
+
+    private void quote(String value) throws IOException {
+        append('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                append('\\');
+                append('"');
+                break;
+            case '\\':
+                append('\\');
+                append('\\');
+                break;
+            case '\b':
+                append('\\');
+                append('b');
+                break;
+            case '\t':
+                append('\\');
+                append('t');
+                break;
+            case '\n':
+                append('\\');
+                append('n');
+                break;
+            case '\f':
+                append('\\');
+                append('f');
+                break;
+            case '\r':
+                append('\\');
+                append('r');
+                break;
+            default:
+                if (isControlChar(c)) {
+                    append('\\');
+                    append('u');
+                    append(HEX[(c >> 12) & 0xf]);
+                    append(HEX[(c >> 8) & 0xf]);
+                    append(HEX[(c >> 4) & 0xf]);
+                    append(HEX[c & 0xf]);
+                } else {
+                    append(c);
+                }
+            }
+        }
+        append('"');
+    }
+
+    /*
+     * Same set of characters as escaped by JsonUtil.quote
+     */
+    private static boolean isControlChar(char c) {
+        return (c <= 0x1f) || (c >= 0x7f && c <= 0x9f) || c == 0xad
+                || c == 0x70f || c == 0x17b4 || c == 0x17b5 || c == 0xfeff
+                || (c >= 0x600 && c <= 0x604) || (c >= 0x200c && c <= 0x200f)
+                || (c >= 0x2028 && c <= 0x202f)
+                || (c >= 0x2060 && c <= 0x206f) || (c >= 0xfff0);
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        if (BUFFER_SIZE - position < 20) {
+            flush();
+        }
+        // Write digits in reverse order, then reverse them in place
+        int start = position;
+        do {
+            buffer[position++] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            char tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if (position == BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = c;
+    }
+
+    private void append(String s) throws IOException {
+        int length = s.length();
+        if (length > BUFFER_SIZE - position) {
+            flush();
+            if (length > BUFFER_SIZE) {
+                writer.write(s);
+                return;
+            }
+        }
+        s.getChars(0, length, buffer, position);
+        position += length;
+    }
+
+    private static char[] acquireBuffer() {
+        char[] pooled = bufferPool.poll();
+        if (pooled != null) {
+            pooledBuffers.decrementAndGet();
+            return pooled;
+        }
+        return new char[BUFFER_SIZE];
+    }
+
+    private static void releaseBuffer(char[] released) {
+        if (pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            bufferPool.offer(released);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.Serializable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.ui.PushConfiguration;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+/**
+ * Coalesces asynchronous pushes of a UI into bounded-rate push messages. If a
+ * {@link PushConfiguration#setCoalescingWindow(int) coalescing window} has
+ * been configured, an asynchronous push requested within the window after the
+ * previous push message is deferred until the window has elapsed. All changes
+ * made in the meantime are then sent in a single message. Responses to client
+ * requests are never deferred and also send all pending changes.
+ * <p>
+ * All methods except the metrics getters must be called while holding the
+ * session lock.
+ * </p>
+ * 
+ * @author Vaadin Ltd
+ * @since 7.5
+ */
+public class PushScheduler implements Serializable {
+
+    private final UI ui;
+
+    private transient boolean hasPushed = false;
+    private transient long lastPushTime;
+    private transient ScheduledFuture<?> pendingFlush;
+
+    private volatile long pushCount = 0;
+    private volatile long coalescedPushCount = 0;
+
+    /**
+     * Creates a new push scheduler for the given UI.
+     * 
+     * @param ui
+     *            the UI to schedule pushes for, not <code>null</code>
+     */
+    public PushScheduler(UI ui) {
+        this.ui = ui;
+    }
+
+    /**
+     * Checks whether an asynchronous push should be deferred. If the push is
+     * deferred, a flush is scheduled for when the coalescing window has
+     * elapsed unless one has already been scheduled.
+     * 
+     * @param executor
+     *            the executor to schedule the flush with, owned by the push
+     *            framework so that it is shut down with the service
+     * @return <code>true</code> if the push should be deferred,
+     *         <code>false</code> if it should be sent right away
+     */
+    boolean deferPush(ScheduledExecutorService executor) {
+        PushConfiguration configuration = ui.getPushConfiguration();
+        int window = configuration.getCoalescingWindow();
+        if (window <= 0 || !hasPushed) {
+            return false;
+        }
+
+        long remaining = TimeUnit.MILLISECONDS.toNanos(window)
+                - (System.nanoTime() - lastPushTime);
+        if (remaining <= 0) {
+            return false;
+        }
+
+        int threshold = configuration.getCoalescingThreshold();
+        if (threshold > 0
+                && ui.getConnectorTracker().getDirtyConnectors().size() >= threshold) {
+            return false;
+        }
+
+        coalescedPushCount++;
+        if (pendingFlush == null) {
+            pendingFlush = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, remaining, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Records that a push message has been sent, starting a new coalescing
+     * window. Any scheduled flush is canceled since the message contained all
+     * pending changes.
+     */
+    void pushed() {
+        hasPushed = true;
+        lastPushTime = System.nanoTime();
+        pushCount++;
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+    }
+
+    private void flush() {
+        try {
+            ui.access(new Runnable() {
+                @Override
+                public void run() {
+                    pendingFlush = null;
+                    if (ui.getPushConfiguration().getPushMode().isEnabled()) {
+                        ui.push();
+                    }
+                }
+            });
+        } catch (UIDetachedException e) {
+            // Nothing to push to
+        }
+    }
+
+    /**
+     * Returns the number of push messages that have been sent.
+     * 
+     * @return the number of sent push messages
+     */
+    public long getPushCount() {
+        return pushCount;
+    }
+
+    /**
+     * Returns the number of asynchronous pushes that have been deferred and
+     * merged into a later push message.
+     * 
+     * @return the number of coalesced pushes
+     */
+    public long getCoalescedPushCount() {
+        return coalescedPushCount;
+    }
+}
@@ -29,6 +29,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.server.ClientConnector;
+import com.vaadin.server.Constants;
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
@@ -48,9 +51,11 @@ import com.vaadin.ui.Component;
 import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
+import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
+import elemental.json.JsonType;
 import elemental.json.JsonValue;
 import elemental.json.impl.JsonUtil;
 
@@ -73,12 +78,24 @@ public class ServerRpcHandler implements Serializable {
     public static class RpcRequest implements Serializable {
 
         private final String csrfToken;
-        private final JsonArray invocations;
+        private final List<RpcInvocationData> invocationData;
         private final int syncId;
         private final JsonObject json;
+        private JsonArray invocations;
 
         public RpcRequest(String jsonString, VaadinRequest request) {
-            json = JsonUtil.parse(jsonString);
+            this(JsonUtil.<JsonObject> parse(jsonString), request);
+        }
+
+        private RpcRequest(JsonObject json, VaadinRequest request) {
+            this(json, toInvocationData(json
+                    .getArray(ApplicationConstants.RPC_INVOCATIONS)), request);
+        }
+
+        private RpcRequest(JsonObject json,
+                List<RpcInvocationData> invocationData, VaadinRequest request) {
+            this.json = json;
+            this.invocationData = invocationData;
 
             JsonValue token = json.get(ApplicationConstants.CSRF_TOKEN);
             if (token == null) {
@@ -98,7 +115,81 @@ public class ServerRpcHandler implements Serializable {
             } else {
                 syncId = -1;
             }
-            invocations = json.getArray(ApplicationConstants.RPC_INVOCATIONS);
+        }
+
+        /**
+         * Reads a request from a streaming JSON parser. The invocations are
+         * collected without first creating a string or a JSON tree of the
+         * whole message.
+         *
+         * @since 7.5
+         * @param reader
+         *            the parser positioned before the message object
+         * @param request
+         *            the Vaadin request the message was received in
+         * @return the read request
+         * @throws IOException
+         *             if reading the message fails
+         */
+        static RpcRequest read(JsonStreamReader reader, VaadinRequest request)
+                throws IOException {
+            JsonObject json = Json.createObject();
+            List<RpcInvocationData> invocationData = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (ApplicationConstants.RPC_INVOCATIONS.equals(name)
+                        && reader.peek() == JsonType.ARRAY) {
+                    invocationData = readInvocations(reader);
+                } else {
+                    json.put(name, reader.nextValue());
+                }
+            }
+            reader.endObject();
+            return new RpcRequest(json, invocationData, request);
+        }
+
+        private static List<RpcInvocationData> toInvocationData(
+                JsonArray invocationsJson) {
+            if (invocationsJson == null) {
+                return null;
+            }
+            List<RpcInvocationData> invocations = new ArrayList<RpcInvocationData>(
+                    invocationsJson.length());
+            for (int i = 0; i < invocationsJson.length(); i++) {
+                JsonArray invocationJson = invocationsJson.getArray(i);
+                invocations.add(new RpcInvocationData(invocationJson
+                        .getString(0), invocationJson.getString(1),
+                        invocationJson.getString(2), invocationJson
+                                .getArray(3)));
+            }
+            return invocations;
+        }
+
+        private static List<RpcInvocationData> readInvocations(
+                JsonStreamReader reader) throws IOException {
+            List<RpcInvocationData> invocations = new ArrayList<RpcInvocationData>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginArray();
+                String connectorId = reader.nextString();
+                String interfaceName = reader.nextString();
+                String methodName = reader.nextString();
+                JsonValue parameters = reader.nextValue();
+                if (parameters.getType() != JsonType.ARRAY) {
+                    throw new JsonException(
+                            "Invalid parameters in RPC call to "
+                                    + interfaceName + "." + methodName);
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+                invocations.add(new RpcInvocationData(connectorId,
+                        interfaceName, methodName, (JsonArray) parameters));
+            }
+            reader.endArray();
+            return invocations;
         }
 
         /**
@@ -117,9 +208,29 @@ public class ServerRpcHandler implements Serializable {
          *         data
          */
         public JsonArray getRpcInvocationsData() {
+            if (invocations == null
+                    && json.hasKey(ApplicationConstants.RPC_INVOCATIONS)) {
+                invocations = json
+                        .getArray(ApplicationConstants.RPC_INVOCATIONS);
+            } else if (invocations == null && invocationData != null) {
+                invocations = Json.createArray();
+                for (RpcInvocationData data : invocationData) {
+                    invocations.set(invocations.length(), data.toJson());
+                }
+            }
             return invocations;
         }
 
+        /**
+         * Gets the invocations in the order they were received.
+         *
+         * @return a list of invocations, or <code>null</code> if the request
+         *         did not contain any invocations data
+         */
+        List<RpcInvocationData> getRpcInvocations() {
+            return invocationData;
+        }
+
         /**
          * Gets the sync id last seen by the client.
          *
@@ -141,6 +252,39 @@ public class ServerRpcHandler implements Serializable {
          *
          */
         public JsonObject getRawJson() {
+            if (invocationData != null
+                    && !json.hasKey(ApplicationConstants.RPC_INVOCATIONS)) {
+                json.put(ApplicationConstants.RPC_INVOCATIONS,
+                        getRpcInvocationsData());
+            }
+            return json;
+        }
+    }
+
+    /**
+     * One RPC invocation as received from the client, with the parameters
+     * still in JSON form.
+     */
+    static class RpcInvocationData implements Serializable {
+        private final String connectorId;
+        private final String interfaceName;
+        private final String methodName;
+        private final JsonArray parameters;
+
+        RpcInvocationData(String connectorId, String interfaceName,
+                String methodName, JsonArray parameters) {
+            this.connectorId = connectorId;
+            this.interfaceName = interfaceName;
+            this.methodName = methodName;
+            this.parameters = parameters;
+        }
+
+        private JsonArray toJson() {
+            JsonArray json = Json.createArray();
+            json.set(0, connectorId);
+            json.set(1, interfaceName);
+            json.set(2, methodName);
+            json.set(3, parameters);
             return json;
         }
     }
@@ -166,14 +310,15 @@ public class ServerRpcHandler implements Serializable {
             throws IOException, InvalidUIDLSecurityKeyException {
         ui.getSession().setLastRequestTimestamp(System.currentTimeMillis());
 
-        String changeMessage = getMessage(reader);
+        JsonStreamReader jsonReader = new JsonStreamReader(reader,
+                getMaxMessageLength(request));
 
-        if (changeMessage == null || changeMessage.equals("")) {
+        if (!jsonReader.hasNext()) {
             // The client sometimes sends empty messages, this is probably a bug
             return;
         }
 
-        RpcRequest rpcRequest = new RpcRequest(changeMessage, request);
+        RpcRequest rpcRequest = RpcRequest.read(jsonReader, request);
 
         // Security: double cookie submission pattern unless disabled by
         // property
@@ -182,7 +327,7 @@ public class ServerRpcHandler implements Serializable {
             throw new InvalidUIDLSecurityKeyException("");
         }
         handleInvocations(ui, rpcRequest.getSyncId(),
-                rpcRequest.getRpcInvocationsData());
+                rpcRequest.getRpcInvocations());
 
         ui.getConnectorTracker().cleanConcurrentlyRemovedConnectorIds(
                 rpcRequest.getSyncId());
@@ -205,11 +350,10 @@ public class ServerRpcHandler implements Serializable {
      *            the most recent sync id the client has seen at the time the
      *            request was sent
      * @param invocationsData
-     *            JSON containing all information needed to execute all
-     *            requested RPC calls.
+     *            all information needed to execute all requested RPC calls
      */
     private void handleInvocations(UI uI, int lastSyncIdSeenByClient,
-            JsonArray invocationsData) {
+            List<RpcInvocationData> invocationsData) {
         // TODO PUSH Refactor so that this is not needed
         LegacyCommunicationManager manager = uI.getSession()
                 .getCommunicationManager();
@@ -331,18 +475,20 @@ public class ServerRpcHandler implements Serializable {
      *
      * @param connectorTracker
      *            The ConnectorTracker used to lookup connectors
-     * @param invocationsJson
-     *            JSON containing all information needed to execute all
-     *            requested RPC calls.
+     * @param invocationsData
+     *            all information needed to execute all requested RPC calls
      * @param lastSyncIdSeenByClient
      *            the most recent sync id the client has seen at the time the
      *            request was sent
      * @return list of MethodInvocation to perform
      */
     private List<MethodInvocation> parseInvocations(
-            ConnectorTracker connectorTracker, JsonArray invocationsJson,
-            int lastSyncIdSeenByClient) {
-        int invocationCount = invocationsJson.length();
+            ConnectorTracker connectorTracker,
+            List<RpcInvocationData> invocationsData, int lastSyncIdSeenByClient) {
+        if (invocationsData == null) {
+            throw new JsonException("No RPC invocations in the message");
+        }
+        int invocationCount = invocationsData.size();
         ArrayList<MethodInvocation> invocations = new ArrayList<MethodInvocation>(
                 invocationCount);
 
@@ -350,9 +496,9 @@ public class ServerRpcHandler implements Serializable {
         // parse JSON to MethodInvocations
         for (int i = 0; i < invocationCount; ++i) {
 
-            JsonArray invocationJson = invocationsJson.getArray(i);
+            RpcInvocationData invocationData = invocationsData.get(i);
 
-            MethodInvocation invocation = parseInvocation(invocationJson,
+            MethodInvocation invocation = parseInvocation(invocationData,
                     previousInvocation, connectorTracker,
                     lastSyncIdSeenByClient);
             if (invocation != null) {
@@ -366,12 +512,12 @@ public class ServerRpcHandler implements Serializable {
         return invocations;
     }
 
-    private MethodInvocation parseInvocation(JsonArray invocationJson,
+    private MethodInvocation parseInvocation(RpcInvocationData invocationData,
             MethodInvocation previousInvocation,
             ConnectorTracker connectorTracker, long lastSyncIdSeenByClient) {
-        String connectorId = invocationJson.getString(0);
-        String interfaceName = invocationJson.getString(1);
-        String methodName = invocationJson.getString(2);
+        String connectorId = invocationData.connectorId;
+        String interfaceName = invocationData.interfaceName;
+        String methodName = invocationData.methodName;
 
         if (connectorTracker.getConnector(connectorId) == null
                 && !connectorId
@@ -395,7 +541,7 @@ public class ServerRpcHandler implements Serializable {
             return null;
         }
 
-        JsonArray parametersJson = invocationJson.getArray(3);
+        JsonArray parametersJson = invocationData.parameters;
 
         if (LegacyChangeVariablesInvocation.isLegacyVariableChange(
                 interfaceName, methodName)) {
@@ -486,6 +632,34 @@ public class ServerRpcHandler implements Serializable {
         owner.changeVariables(source, m);
     }
 
+    /**
+     * Gets the maximum number of characters accepted in an RPC message. Longer
+     * messages are rejected with a {@link JsonException} as soon as the limit
+     * has been read. The limit is configured using the
+     * {@value Constants#SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH} parameter.
+     *
+     * @since 7.5
+     * @see DeploymentConfiguration#getMaxRpcMessageLength()
+     * @param request
+     *            the request containing the message
+     * @return the maximum number of characters, or a non-positive number for
+     *         no limit
+     */
+    protected int getMaxMessageLength(VaadinRequest request) {
+        if (request == null) {
+            return DefaultDeploymentConfiguration.DEFAULT_MAX_RPC_MESSAGE_LENGTH;
+        }
+        return request.getService().getDeploymentConfiguration()
+                .getMaxRpcMessageLength();
+    }
+
+    /**
+     * Reads the whole message into a string.
+     *
+     * @deprecated As of 7.5, messages are parsed directly from the reader and
+     *             this method is no longer used
+     */
+    @Deprecated
     protected String getMessage(Reader reader) throws IOException {
 
         StringBuilder sb = new StringBuilder(MAX_BUFFER_SIZE);
@@ -26,10 +26,8 @@ import com.vaadin.server.PaintException;
 import com.vaadin.shared.communication.SharedState;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes {@link SharedState shared state} changes to JSON.
@@ -51,19 +49,37 @@ public class SharedStateWriter implements Serializable {
      *             If the serialization fails.
      */
     public void write(UI ui, Writer writer) throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(writer);
+        try {
+            write(ui, json);
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Writes a JSON object containing the pending state changes of the dirty
+     * connectors of the given UI using the given streaming JSON emitter.
+     * 
+     * @since 7.5
+     * @param ui
+     *            The UI whose state changes should be written.
+     * @param json
+     *            The JSON emitter to use.
+     * @throws IOException
+     *             If the serialization fails.
+     */
+    public void write(UI ui, JsonStreamWriter json) throws IOException {
 
         Collection<ClientConnector> dirtyVisibleConnectors = ui
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
-        JsonObject sharedStates = Json.createObject();
+        json.beginObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             // encode and send shared state
+            JsonObject stateJson;
             try {
-                JsonObject stateJson = connector.encodeState();
-
-                if (stateJson != null && stateJson.keys().length != 0) {
-                    sharedStates.put(connector.getConnectorId(), stateJson);
-                }
+                stateJson = connector.encodeState();
             } catch (JsonException e) {
                 throw new PaintException(
                         "Failed to serialize shared state for connector "
@@ -71,7 +87,10 @@ public class SharedStateWriter implements Serializable {
                                 + connector.getConnectorId() + "): "
                                 + e.getMessage(), e);
             }
+            if (stateJson != null && stateJson.keys().length != 0) {
+                json.name(connector.getConnectorId()).value(stateJson);
+            }
         }
-        writer.write(JsonUtil.stringify(sharedStates));
+        json.endObject();
     }
 }
@@ -40,10 +40,6 @@ import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
-import elemental.json.impl.JsonUtil;
-
 /**
  * Serializes pending server-side changes to UI state to JSON. This includes
  * shared state, client RPC invocations, connector hierarchy changes, connector
@@ -104,8 +100,11 @@ public class UidlWriter implements Serializable {
             int syncId = service.getDeploymentConfiguration()
                     .isSyncIdCheckEnabled() ? uiConnectorTracker
                     .getCurrentSyncId() : -1;
-            writer.write("\"" + ApplicationConstants.SERVER_SYNC_ID + "\": "
-                    + syncId + ", ");
+            writer.write('"');
+            writer.write(ApplicationConstants.SERVER_SYNC_ID);
+            writer.write("\": ");
+            writer.write(String.valueOf(syncId));
+            writer.write(", ");
 
             writer.write("\"changes\" : ");
 
@@ -129,27 +128,36 @@ public class UidlWriter implements Serializable {
             // processing.
 
             writer.write("\"state\":");
-            new SharedStateWriter().write(ui, writer);
+            JsonStreamWriter json = createJsonWriter(writer);
+            try {
+                new SharedStateWriter().write(ui, json);
+            } finally {
+                json.close();
+            }
             writer.write(", "); // close states
 
-            // TODO This should be optimized. The type only needs to be
-            // sent once for each connector id + on refresh. Use the same cache
-            // as
-            // widget mapping
+            // The type is only sent once for each connector id + on refresh,
+            // as tracked by the connector tracker
 
             writer.write("\"types\":");
-            new ConnectorTypeWriter().write(ui, writer, paintTarget);
+            json = createJsonWriter(writer);
+            try {
+                new ConnectorTypeWriter().write(ui, json, paintTarget);
+            } finally {
+                json.close();
+            }
             writer.write(", "); // close states
 
-            // Send update hierarchy information to the client.
-
-            // This could be optimized aswell to send only info if hierarchy has
-            // actually changed. Much like with the shared state. Note though
-            // that an empty hierarchy is information aswell (e.g. change from 1
-            // child to 0 children)
+            // Send update hierarchy information to the client, only for
+            // connectors whose children have actually changed
 
             writer.write("\"hierarchy\":");
-            new ConnectorHierarchyWriter().write(ui, writer);
+            json = createJsonWriter(writer);
+            try {
+                new ConnectorHierarchyWriter().write(ui, json);
+            } finally {
+                json.close();
+            }
             writer.write(", "); // close hierarchy
 
             // send server to client RPC calls for components in the UI, in call
@@ -159,7 +167,12 @@ public class UidlWriter implements Serializable {
             // which they were performed, remove the calls from components
 
             writer.write("\"rpc\" : ");
-            new ClientRpcWriter().write(ui, writer);
+            json = createJsonWriter(writer);
+            try {
+                new ClientRpcWriter().write(ui, json);
+            } finally {
+                json.close();
+            }
             writer.write(", "); // close rpc
 
             uiConnectorTracker.markAllConnectorsClean();
@@ -280,14 +293,14 @@ public class UidlWriter implements Serializable {
 
             // Include script dependencies in output if there are any
             if (!scriptDependencies.isEmpty()) {
-                writer.write(", \"scriptDependencies\": "
-                        + JsonUtil.stringify(toJsonArray(scriptDependencies)));
+                writer.write(", \"scriptDependencies\": ");
+                writeStringArray(writer, scriptDependencies);
             }
 
             // Include style dependencies in output if there are any
             if (!styleDependencies.isEmpty()) {
-                writer.write(", \"styleDependencies\": "
-                        + JsonUtil.stringify(toJsonArray(styleDependencies)));
+                writer.write(", \"styleDependencies\": ");
+                writeStringArray(writer, styleDependencies);
             }
 
             session.getDragAndDropService().printJSONResponse(writer);
@@ -305,13 +318,32 @@ public class UidlWriter implements Serializable {
         }
     }
 
-    private JsonArray toJsonArray(List<String> list) {
-        JsonArray result = Json.createArray();
-        for (int i = 0; i < list.size(); i++) {
-            result.set(i, list.get(i));
-        }
+    /**
+     * Creates the streaming JSON emitter used for writing the shared state,
+     * connector hierarchy and RPC sections of the response. Override to use a
+     * customized emitter. The returned emitter is closed after each section.
+     * 
+     * @since 7.5
+     * @param writer
+     *            the writer the response is written to
+     * @return a new JSON emitter writing to the given writer
+     */
+    protected JsonStreamWriter createJsonWriter(Writer writer) {
+        return new JsonStreamWriter(writer);
+    }
 
-        return result;
+    private void writeStringArray(Writer writer, List<String> list)
+            throws IOException {
+        JsonStreamWriter json = createJsonWriter(writer);
+        try {
+            json.beginArray();
+            for (String value : list) {
+                json.value(value);
+            }
+            json.endArray();
+        } finally {
+            json.close();
+        }
     }
 
     /**
@@ -321,9 +353,12 @@ public class UidlWriter implements Serializable {
      * @throws IOException
      */
     private void writePerformanceData(UI ui, Writer writer) throws IOException {
-        writer.write(String.format(", \"timings\":[%d, %d]", ui.getSession()
-                .getCumulativeRequestDuration(), ui.getSession()
-                .getLastRequestDuration()));
+        writer.write(", \"timings\":[");
+        writer.write(String.valueOf(ui.getSession()
+                .getCumulativeRequestDuration()));
+        writer.write(", ");
+        writer.write(String.valueOf(ui.getSession().getLastRequestDuration()));
+        writer.write("]");
     }
 
     private static final Logger getLogger() {
@@ -45,6 +45,7 @@ import com.vaadin.event.dd.TargetDetailsImpl;
 import com.vaadin.event.dd.acceptcriteria.ClientSideCriterion;
 import com.vaadin.event.dd.acceptcriteria.ContainsDataFlavor;
 import com.vaadin.event.dd.acceptcriteria.TargetDetailIs;
+import com.vaadin.server.CompactKeyMapper;
 import com.vaadin.server.KeyMapper;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
@@ -220,7 +221,7 @@ public abstract class AbstractSelect extends AbstractField<Object> implements
     /**
      * Keymapper used to map key values.
      */
-    protected KeyMapper<Object> itemIdMapper = new KeyMapper<Object>();
+    protected KeyMapper<Object> itemIdMapper = new CompactKeyMapper<Object>();
 
     /**
      * Item icons.
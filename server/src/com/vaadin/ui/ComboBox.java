@@ -30,6 +30,7 @@ import com.vaadin.event.FieldEvents.BlurEvent;
 import com.vaadin.event.FieldEvents.BlurListener;
 import com.vaadin.event.FieldEvents.FocusEvent;
 import com.vaadin.event.FieldEvents.FocusListener;
+import com.vaadin.server.CompactKeyMapper;
 import com.vaadin.server.PaintException;
 import com.vaadin.server.PaintTarget;
 import com.vaadin.server.Resource;
@@ -85,6 +86,14 @@ public class ComboBox extends AbstractSelect implements
      */
     private boolean isPainting;
 
+    /**
+     * The number of most recent paints whose option keys are kept. Keys of
+     * options that have not been painted during these paints are released so
+     * that paging through a large container does not retain a key for every
+     * option ever shown.
+     */
+    private static final int RETAINED_OPTION_KEY_PAINTS = 5;
+
     /**
      * Flag to indicate whether to scroll the selected item visible (select the
      * page on which it is) when opening the popup or not. Only applies to
@@ -159,6 +168,9 @@ public class ComboBox extends AbstractSelect implements
     @Override
     public void paintContent(PaintTarget target) throws PaintException {
         isPainting = true;
+        if (itemIdMapper instanceof CompactKeyMapper) {
+            ((CompactKeyMapper<Object>) itemIdMapper).advanceGeneration();
+        }
         try {
             if (inputPrompt != null) {
                 target.addAttribute(ComboBoxConstants.ATTR_INPUTPROMPT,
@@ -298,12 +310,28 @@ public class ComboBox extends AbstractSelect implements
             currentPage = -1; // current page is always set by client
 
             optionRequest = true;
+
+            releaseInactiveOptionKeys();
         } finally {
             isPainting = false;
         }
 
     }
 
+    /**
+     * Releases the keys of options that have not been sent to the client in
+     * recent paints. The key of the selected item is always kept.
+     */
+    private void releaseInactiveOptionKeys() {
+        if (itemIdMapper instanceof CompactKeyMapper) {
+            CompactKeyMapper<Object> mapper = (CompactKeyMapper<Object>) itemIdMapper;
+            if (getValue() != null) {
+                mapper.key(getValue());
+            }
+            mapper.removeInactive(RETAINED_OPTION_KEY_PAINTS);
+        }
+    }
+
     /**
      * Sets whether it is possible to input text into the field or whether the
      * field area of the component is just used to show what is selected. By
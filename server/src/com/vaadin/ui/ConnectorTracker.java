@@ -34,6 +34,8 @@ import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.DragAndDropService;
 import com.vaadin.server.GlobalResourceHandler;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.JsonCodec.PropertySnapshot;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.StreamVariable;
 
@@ -78,6 +80,20 @@ public class ConnectorTracker implements Serializable {
 
     private UI uI;
     private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<ClientConnector, JsonObject>();
+    private transient Map<ClientConnector, PropertySnapshot> statePropertySnapshots = new HashMap<ClientConnector, PropertySnapshot>();
+
+    /**
+     * The connector type tags that have been sent to the client, used for
+     * only sending the type of each connector once.
+     */
+    private Map<ClientConnector, String> clientSideTypes = new HashMap<ClientConnector, String>();
+
+    /**
+     * Hashes of the child connector id lists that have been sent to the
+     * client, used for only sending hierarchy information when it has
+     * changed.
+     */
+    private Map<ClientConnector, Long> clientSideHierarchyHashes = new HashMap<ClientConnector, Long>();
 
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
@@ -249,6 +265,9 @@ public class ConnectorTracker implements Serializable {
     public void markAllClientSidesUninitialized() {
         uninitializedConnectors.addAll(connectorIdToConnector.values());
         diffStates.clear();
+        statePropertySnapshots.clear();
+        clientSideTypes.clear();
+        clientSideHierarchyHashes.clear();
     }
 
     /**
@@ -319,12 +338,16 @@ public class ConnectorTracker implements Serializable {
                 }
                 uninitializedConnectors.remove(connector);
                 diffStates.remove(connector);
+                statePropertySnapshots.remove(connector);
+                forgetClientSideStructure(connector);
                 iterator.remove();
             } else if (!uninitializedConnectors.contains(connector)
                     && !LegacyCommunicationManager
                             .isConnectorVisibleToClient(connector)) {
                 uninitializedConnectors.add(connector);
                 diffStates.remove(connector);
+                statePropertySnapshots.remove(connector);
+                forgetClientSideStructure(connector);
                 if (getLogger().isLoggable(Level.FINE)) {
                     getLogger()
                             .log(Level.FINE,
@@ -351,6 +374,8 @@ public class ConnectorTracker implements Serializable {
             }
             uninitializedConnectors.remove(connector);
             diffStates.remove(connector);
+            statePropertySnapshots.remove(connector);
+            forgetClientSideStructure(connector);
         }
         unregisteredConnectors.clear();
     }
@@ -567,6 +592,106 @@ public class ConnectorTracker implements Serializable {
         diffStates.put(connector, diffState);
     }
 
+    /**
+     * Gets the snapshot of state property values that was recorded when the
+     * state of the given connector was last encoded incrementally.
+     * 
+     * @see JsonCodec#encodeIncrementally(Object, JsonObject, Class,
+     *      PropertySnapshot, ConnectorTracker)
+     * @since 7.5
+     * @param connector
+     *            the connector to check
+     * @return the snapshot, or <code>null</code> if no snapshot is available
+     */
+    public PropertySnapshot getStatePropertySnapshot(ClientConnector connector) {
+        return statePropertySnapshots.get(connector);
+    }
+
+    /**
+     * Sets the snapshot of state property values that matches the current
+     * {@link #getDiffState(ClientConnector) diff state} of the given connector.
+     * The snapshot is cleared together with the diff state.
+     * 
+     * @since 7.5
+     * @param connector
+     *            the connector for which the state was encoded
+     * @param snapshot
+     *            the snapshot to set
+     */
+    public void setStatePropertySnapshot(ClientConnector connector,
+            PropertySnapshot snapshot) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        statePropertySnapshots.put(connector, snapshot);
+    }
+
+    /**
+     * Gets the connector type tag that has most recently been sent to the
+     * client for the given connector.
+     * 
+     * @since 7.5
+     * @param connector
+     *            the connector to check
+     * @return the type tag known by the client, or <code>null</code> if the
+     *         type has not been sent since the connector was last initialized
+     *         on the client
+     */
+    public String getClientSideType(ClientConnector connector) {
+        return clientSideTypes.get(connector);
+    }
+
+    /**
+     * Records the connector type tag that has been sent to the client for the
+     * given connector. The information is cleared when the client side of the
+     * connector is reset.
+     * 
+     * @since 7.5
+     * @param connector
+     *            the connector for which the type was sent
+     * @param type
+     *            the type tag that was sent
+     */
+    public void setClientSideType(ClientConnector connector, String type) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        clientSideTypes.put(connector, type);
+    }
+
+    /**
+     * Gets the hash of the child connector id list that has most recently
+     * been sent to the client for the given connector.
+     * 
+     * @since 7.5
+     * @param connector
+     *            the connector to check
+     * @return the hash of the child list known by the client, or
+     *         <code>null</code> if the hierarchy of the connector has not been
+     *         sent since the connector was last initialized on the client
+     */
+    public Long getClientSideHierarchyHash(ClientConnector connector) {
+        return clientSideHierarchyHashes.get(connector);
+    }
+
+    /**
+     * Records the hash of the child connector id list that has been sent to
+     * the client for the given connector. The information is cleared when the
+     * client side of the connector is reset.
+     * 
+     * @since 7.5
+     * @param connector
+     *            the connector for which the hierarchy was sent
+     * @param hash
+     *            the hash of the child connector ids that were sent
+     */
+    public void setClientSideHierarchyHash(ClientConnector connector,
+            long hash) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        clientSideHierarchyHashes.put(connector, Long.valueOf(hash));
+    }
+
+    private void forgetClientSideStructure(ClientConnector connector) {
+        clientSideTypes.remove(connector);
+        clientSideHierarchyHashes.remove(connector);
+    }
+
     public boolean isDirty(ClientConnector connector) {
         return dirtyConnectors.contains(connector);
     }
@@ -643,6 +768,9 @@ public class ConnectorTracker implements Serializable {
         // Read String versions of JsonObjects and parse into JsonObjects as
         // JsonObject is not serializable
         diffStates = new HashMap<ClientConnector, JsonObject>();
+        // Snapshots are not serialized, which causes the next encoding of each
+        // state to be done in full
+        statePropertySnapshots = new HashMap<ClientConnector, PropertySnapshot>();
         @SuppressWarnings("unchecked")
         HashMap<ClientConnector, String> stringDiffStates = (HashMap<ClientConnector, String>) in
                 .readObject();
@@ -70,6 +70,7 @@ import com.vaadin.event.SortEvent.SortListener;
 import com.vaadin.event.SortEvent.SortNotifier;
 import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.AbstractExtension;
+import com.vaadin.server.CompactKeyMapper;
 import com.vaadin.server.ErrorMessage;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.server.KeyMapper;
@@ -2794,7 +2795,7 @@ public class Grid extends AbstractComponent implements SelectionNotifier,
     /**
      * Key generator for column server-to-client communication
      */
-    private final KeyMapper<Object> columnKeys = new KeyMapper<Object>();
+    private final KeyMapper<Object> columnKeys = new CompactKeyMapper<Object>();
 
     /**
      * The current sort order
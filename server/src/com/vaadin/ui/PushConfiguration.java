@@ -159,10 +159,67 @@ public interface PushConfiguration extends Serializable {
      */
     public void setParameter(String parameter, String value);
 
+    /**
+     * Returns the minimum time between two asynchronous push messages.
+     * 
+     * @since 7.5
+     * @return the coalescing window in milliseconds, 0 if pushes are not
+     *         coalesced
+     * @see #setCoalescingWindow(int)
+     */
+    public int getCoalescingWindow();
+
+    /**
+     * Sets the minimum time between two asynchronous push messages. Changes
+     * made within the window after a push message has been sent are collected
+     * and sent in one message when the window has elapsed. This bounds the
+     * rate of push messages when the UI is updated very frequently from
+     * background threads. Responses to client requests are never delayed.
+     * <p>
+     * The default is 0, which means that every push is sent right away.
+     * </p>
+     * 
+     * @since 7.5
+     * @param coalescingWindow
+     *            the coalescing window in milliseconds, 0 to disable
+     *            coalescing
+     * @throws IllegalArgumentException
+     *             if the window is negative
+     */
+    public void setCoalescingWindow(int coalescingWindow);
+
+    /**
+     * Returns the number of dirty connectors after which a push is sent even
+     * if the coalescing window has not yet elapsed.
+     * 
+     * @since 7.5
+     * @return the dirty connector threshold, 0 if there is no threshold
+     * @see #setCoalescingThreshold(int)
+     */
+    public int getCoalescingThreshold();
+
+    /**
+     * Sets the number of dirty connectors after which a push is sent even if
+     * the {@link #setCoalescingWindow(int) coalescing window} has not yet
+     * elapsed. This prevents a single push message from growing too large.
+     * <p>
+     * The default is 0, which means that there is no threshold.
+     * </p>
+     * 
+     * @since 7.5
+     * @param coalescingThreshold
+     *            the dirty connector threshold, 0 for no threshold
+     * @throws IllegalArgumentException
+     *             if the threshold is negative
+     */
+    public void setCoalescingThreshold(int coalescingThreshold);
+
 }
 
 class PushConfigurationImpl implements PushConfiguration {
     private UI ui;
+    private int coalescingWindow = 0;
+    private int coalescingThreshold = 0;
 
     public PushConfigurationImpl(UI ui) {
         this.ui = ui;
@@ -323,6 +380,54 @@ class PushConfigurationImpl implements PushConfiguration {
 
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.ui.PushConfiguration#getCoalescingWindow()
+     */
+    @Override
+    public int getCoalescingWindow() {
+        return coalescingWindow;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.ui.PushConfiguration#setCoalescingWindow(int)
+     */
+    @Override
+    public void setCoalescingWindow(int coalescingWindow) {
+        if (coalescingWindow < 0) {
+            throw new IllegalArgumentException(
+                    "Coalescing window cannot be negative");
+        }
+        this.coalescingWindow = coalescingWindow;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.ui.PushConfiguration#getCoalescingThreshold()
+     */
+    @Override
+    public int getCoalescingThreshold() {
+        return coalescingThreshold;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.vaadin.ui.PushConfiguration#setCoalescingThreshold(int)
+     */
+    @Override
+    public void setCoalescingThreshold(int coalescingThreshold) {
+        if (coalescingThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "Coalescing threshold cannot be negative");
+        }
+        this.coalescingThreshold = coalescingThreshold;
+    }
+
     private PushConfigurationState getState() {
         return ui.getState().pushConfiguration;
     }
@@ -53,6 +53,7 @@ import com.vaadin.event.dd.DragSource;
 import com.vaadin.event.dd.DropHandler;
 import com.vaadin.event.dd.DropTarget;
 import com.vaadin.event.dd.acceptcriteria.ServerSideCriterion;
+import com.vaadin.server.CompactKeyMapper;
 import com.vaadin.server.KeyMapper;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyPaint;
@@ -360,7 +361,7 @@ public class Table extends AbstractSelect implements Action.Container,
     /**
      * Keymapper for column ids.
      */
-    private final KeyMapper<Object> columnIdMap = new KeyMapper<Object>();
+    private final KeyMapper<Object> columnIdMap = new CompactKeyMapper<Object>();
 
     /**
      * Holds visible column propertyIds - in order.
@@ -533,6 +534,14 @@ public class Table extends AbstractSelect implements Action.Container,
 
     private int pageBufferFirstIndex;
 
+    /**
+     * True while refreshing the rendered cells after the client has only
+     * changed the range of rows it wants to render, e.g. when scrolling. The
+     * rows that are already in the page buffer can then be kept as they are
+     * and only the missing rows need to be rendered.
+     */
+    private boolean reusePageBufferRows = false;
+
     private boolean containerChangeToBeRendered = false;
 
     /**
@@ -1721,7 +1730,14 @@ public class Table extends AbstractSelect implements Action.Container,
         }
 
         // Saves the results to internal buffer
-        pageBuffer = getVisibleCellsNoCache(firstIndex, rows, true);
+        Object[][] cells = null;
+        if (reusePageBufferRows) {
+            cells = getVisibleCellsReusingCache(firstIndex, rows);
+        }
+        if (cells == null) {
+            cells = getVisibleCellsNoCache(firstIndex, rows, true);
+        }
+        pageBuffer = cells;
 
         if (rows > 0) {
             pageBufferFirstIndex = firstIndex;
@@ -2137,6 +2153,92 @@ public class Table extends AbstractSelect implements Action.Container,
         return minPageBufferIndex;
     }
 
+    /**
+     * Render rows with index "firstIndex" to "firstIndex+rows-1" to a new
+     * buffer, keeping the rows that are already in the current page buffer as
+     * they are. Only the rows that are not in the page buffer are rendered and
+     * only the rows that are no longer needed are unregistered, so scrolling
+     * does not revisit the cells of the rows that stay in the buffer.
+     * 
+     * @param firstIndex
+     * @param rows
+     * @return the new page buffer or null if the rows in the current page
+     *         buffer cannot be reused and all rows must be rendered
+     */
+    private Object[][] getVisibleCellsReusingCache(int firstIndex, int rows) {
+        if (pageBuffer == null || rows <= 0
+                || !(items instanceof Container.Indexed)
+                || pageBuffer.length != getVisibleColumns().length
+                        + CELL_FIRSTCOL) {
+            return null;
+        }
+        int cachedRows = pageBuffer[CELL_ITEMID].length;
+        int firstKept = Math.max(firstIndex, pageBufferFirstIndex);
+        int lastKept = Math.min(firstIndex + rows, pageBufferFirstIndex
+                + cachedRows) - 1;
+        int keptRows = lastKept - firstKept + 1;
+        if (keptRows <= 0) {
+            return null;
+        }
+
+        // The kept rows must still show the same items
+        int firstKeptInPageBuffer = firstKept - pageBufferFirstIndex;
+        List<?> itemIds = getItemIds(firstKept, keptRows);
+        if (itemIds.size() != keptRows) {
+            return null;
+        }
+        for (int i = 0; i < keptRows; i++) {
+            if (!itemIds.get(i).equals(
+                    pageBuffer[CELL_ITEMID][firstKeptInPageBuffer + i])) {
+                return null;
+            }
+        }
+
+        getLogger().log(Level.FINEST,
+                "Keeping rows {0}-{1} of the page buffer",
+                new Object[] { firstKept, lastKept });
+
+        // Release the rows that fall outside the new range
+        if (firstKeptInPageBuffer > 0) {
+            unregisterComponentsAndPropertiesInRows(pageBufferFirstIndex,
+                    firstKeptInPageBuffer);
+        }
+        int rowsAfterKept = cachedRows - firstKeptInPageBuffer - keptRows;
+        if (rowsAfterKept > 0) {
+            unregisterComponentsAndPropertiesInRows(lastKept + 1,
+                    rowsAfterKept);
+        }
+
+        // Render only the rows that are missing
+        Object[][] cellsBefore = null;
+        int rowsBefore = firstKept - firstIndex;
+        if (rowsBefore > 0) {
+            cellsBefore = getVisibleCellsNoCache(firstIndex, rowsBefore, false);
+            rowsBefore = cellsBefore[CELL_ITEMID].length;
+        }
+        Object[][] cellsAfter = null;
+        int rowsAfter = firstIndex + rows - lastKept - 1;
+        if (rowsAfter > 0) {
+            cellsAfter = getVisibleCellsNoCache(lastKept + 1, rowsAfter, false);
+            rowsAfter = cellsAfter[CELL_ITEMID].length;
+        }
+
+        Object[][] cells = new Object[pageBuffer.length][rowsBefore
+                + keptRows + rowsAfter];
+        for (int i = 0; i < cells.length; i++) {
+            if (rowsBefore > 0) {
+                System.arraycopy(cellsBefore[i], 0, cells[i], 0, rowsBefore);
+            }
+            System.arraycopy(pageBuffer[i], firstKeptInPageBuffer, cells[i],
+                    rowsBefore, keptRows);
+            if (rowsAfter > 0) {
+                System.arraycopy(cellsAfter[i], 0, cells[i], rowsBefore
+                        + keptRows, rowsAfter);
+            }
+        }
+        return cells;
+    }
+
     /**
      * Render rows with index "firstIndex" to "firstIndex+rows-1" to a new
      * buffer.
@@ -2922,6 +3024,8 @@ public class Table extends AbstractSelect implements Action.Container,
     public void changeVariables(Object source, Map<String, Object> variables) {
 
         boolean clientNeedsContentRefresh = false;
+        boolean renderedRowsChanged = false;
+        boolean renderedColumnsChanged = false;
 
         handleClickEvent(variables);
 
@@ -3012,6 +3116,7 @@ public class Table extends AbstractSelect implements Action.Container,
                                 (reqFirstRowToPaint + reqRowsToPaint - 1) });
             }
             clientNeedsContentRefresh = true;
+            renderedRowsChanged = true;
         }
 
         if (isSortEnabled()) {
@@ -3067,6 +3172,7 @@ public class Table extends AbstractSelect implements Action.Container,
                             "Could not determine column collapsing state", e);
                 }
                 clientNeedsContentRefresh = true;
+                renderedColumnsChanged = true;
             }
         }
         if (isColumnReorderingAllowed()) {
@@ -3089,10 +3195,16 @@ public class Table extends AbstractSelect implements Action.Container,
                             "Could not determine column reordering state", e);
                 }
                 clientNeedsContentRefresh = true;
+                renderedColumnsChanged = true;
             }
         }
 
-        enableContentRefreshing(clientNeedsContentRefresh);
+        reusePageBufferRows = renderedRowsChanged && !renderedColumnsChanged;
+        try {
+            enableContentRefreshing(clientNeedsContentRefresh);
+        } finally {
+            reusePageBufferRows = false;
+        }
 
         // Actions
         if (variables.containsKey("action")) {
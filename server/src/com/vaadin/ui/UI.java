@@ -218,7 +218,7 @@ public abstract class UI extends AbstractSingleComponentContainer implements
      * current time whenever the application receives a heartbeat or UIDL
      * request from the client for this UI.
      */
-    private long lastHeartbeatTimestamp = System.currentTimeMillis();
+    private volatile long lastHeartbeatTimestamp = System.currentTimeMillis();
 
     private boolean closing = false;
 
@@ -1379,6 +1379,12 @@ public abstract class UI extends AbstractSingleComponentContainer implements
      * The returned future can be used to check for task completion and to
      * cancel the task.
      * </p>
+     * <p>
+     * All UIs in a session share the session lock, so a long-running task
+     * delays tasks, requests and heartbeats for all other UIs in the same
+     * session. See {@link VaadinSession#lock()} for the rules that should be
+     * followed to avoid deadlocks and lock contention.
+     * </p>
      * 
      * @see #getCurrent()
      * @see #accessSynchronously(Runnable)
@@ -1469,6 +1475,11 @@ public abstract class UI extends AbstractSingleComponentContainer implements
      * If push is enabled, but the push connection is not currently open, the
      * push will be done when the connection is established.
      * <p>
+     * If a {@link PushConfiguration#setCoalescingWindow(int) coalescing
+     * window} has been configured and the previous push was sent less than the
+     * window ago, the push is deferred until the window has elapsed and then
+     * sent together with any further changes.
+     * <p>
      * As with all UI methods, the session must be locked when calling this
      * method. It is also recommended that {@link UI#getCurrent()} is set up to
      * return this UI since writing the response may invoke logic in any
@@ -20,6 +20,7 @@ import java.beans.PropertyDescriptor;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 /**
  * An util class with helpers for reflection operations. Used internally by
@@ -187,6 +188,28 @@ public class ReflectTools implements Serializable {
         field.set(object, value);
     }
 
+    /**
+     * Suppresses the access checks done by {@link Method#invoke} for a public
+     * method of a public class, which would pass anyway. Other methods are
+     * left as they are, so access to non-public methods is not widened.
+     * 
+     * @since 7.5
+     * @param method
+     *            the method to make accessible, or <code>null</code>
+     * @return the given method
+     */
+    public static Method makeAccessible(Method method) {
+        if (method != null && Modifier.isPublic(method.getModifiers())
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            try {
+                method.setAccessible(true);
+            } catch (RuntimeException e) {
+                // security manager or module restrictions, use as is
+            }
+        }
+        return method;
+    }
+
     /**
      * @since 7.4
      */
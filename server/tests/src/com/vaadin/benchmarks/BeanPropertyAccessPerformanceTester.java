@@ -0,0 +1,129 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.util.BeanItem;
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.data.util.MethodProperty;
+import com.vaadin.data.util.NestedMethodProperty;
+
+/**
+ * Measures the cost of the different ways of accessing bean properties: a
+ * direct getter call, {@link MethodProperty}, {@link NestedMethodProperty},
+ * creating {@link BeanItem}s and populating a {@link BeanItemContainer}.
+ *
+ * Please run with -server
+ */
+public class BeanPropertyAccessPerformanceTester {
+
+    private static final int ITERATIONS = 2000000;
+    private static final int ITEMS = 100000;
+    private static final int ROUNDS = 5;
+
+    public static class Address {
+        private String street = "Street";
+
+        public String getStreet() {
+            return street;
+        }
+
+        public void setStreet(String street) {
+            this.street = street;
+        }
+    }
+
+    public static class Person {
+        private String name = "Name";
+        private int age;
+        private Address address = new Address();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+
+    // Prevents the JIT from eliminating the measured calls
+    private static int sink;
+
+    public static void main(String[] args) {
+        Person person = new Person();
+        List<Person> persons = new ArrayList<Person>();
+        for (int i = 0; i < ITEMS; i++) {
+            persons.add(new Person());
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += person.getName().length();
+            }
+            report("Direct getter", start, ITERATIONS);
+
+            MethodProperty<String> name = new MethodProperty<String>(person,
+                    "name");
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += name.getValue().length();
+            }
+            report("MethodProperty.getValue", start, ITERATIONS);
+
+            MethodProperty<Integer> age = new MethodProperty<Integer>(person,
+                    "age");
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                age.setValue(i);
+            }
+            report("MethodProperty.setValue", start, ITERATIONS);
+
+            NestedMethodProperty<String> street = new NestedMethodProperty<String>(
+                    person, "address.street");
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += street.getValue().length();
+            }
+            report("NestedMethodProperty.getValue", start, ITERATIONS);
+
+            start = System.nanoTime();
+            for (Person p : persons) {
+                sink += new BeanItem<Person>(p).getItemPropertyIds().size();
+            }
+            report("BeanItem creation", start, ITEMS);
+
+            start = System.nanoTime();
+            BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                    Person.class, persons);
+            sink += container.size();
+            report("BeanItemContainer population", start, ITEMS);
+
+            System.out.println();
+        }
+        System.out.println(sink == 42 ? "" : "Done");
+    }
+
+    private static void report(String name, long start, int operations) {
+        long nanos = System.nanoTime() - start;
+        System.out.println(name + ": " + (nanos / 1000000) + " ms, "
+                + (nanos / operations) + " ns/op");
+    }
+}
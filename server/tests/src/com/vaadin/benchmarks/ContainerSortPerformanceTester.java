@@ -0,0 +1,80 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.data.util.DefaultItemSorter;
+
+/**
+ * Compares sorting a large {@link BeanItemContainer} by two properties using
+ * {@link DefaultItemSorter#sort(List)}, which extracts the sort keys once, with
+ * sorting the same items using <code>Collections.sort</code> and the sorter as
+ * a comparator.
+ *
+ * Please run with -server
+ */
+public class ContainerSortPerformanceTester {
+
+    private static final int ITEMS = 500000;
+    private static final int ROUNDS = 5;
+
+    public static class Person {
+        private final String lastName;
+        private final int age;
+
+        public Person(String lastName, int age) {
+            this.lastName = lastName;
+            this.age = age;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public int getAge() {
+            return age;
+        }
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        List<Person> persons = new ArrayList<Person>();
+        for (int i = 0; i < ITEMS; i++) {
+            persons.add(new Person("Name" + random.nextInt(10000), random
+                    .nextInt(100)));
+        }
+        BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                Person.class, persons);
+        Object[] sortProperties = new Object[] { "lastName", "age" };
+        boolean[] ascending = new boolean[] { true, false };
+
+        for (int round = 0; round < ROUNDS; round++) {
+            DefaultItemSorter sorter = new DefaultItemSorter();
+            sorter.setSortProperties(container, sortProperties, ascending);
+
+            List<Object> itemIds = new ArrayList<Object>(persons);
+            Collections.shuffle(itemIds, random);
+            long start = System.nanoTime();
+            Collections.sort(itemIds, sorter);
+            long comparatorTime = System.nanoTime() - start;
+
+            itemIds = new ArrayList<Object>(persons);
+            Collections.shuffle(itemIds, random);
+            start = System.nanoTime();
+            sorter.sort(itemIds);
+            long extractingTime = System.nanoTime() - start;
+
+            System.out.println("Round " + round + ": comparator "
+                    + comparatorTime / 1000000 + " ms, key extraction "
+                    + extractingTime / 1000000 + " ms");
+        }
+
+        long start = System.nanoTime();
+        container.sort(sortProperties, ascending);
+        System.out.println("BeanItemContainer.sort: "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,61 @@
+package com.vaadin.benchmarks;
+
+import com.vaadin.data.Property.ValueChangeEvent;
+import com.vaadin.data.Property.ValueChangeListener;
+import com.vaadin.event.FieldEvents.FocusEvent;
+import com.vaadin.event.FieldEvents.FocusListener;
+import com.vaadin.ui.TextField;
+
+/**
+ * Measures firing value change events on fields that also have listeners for
+ * other event types registered to the same event router.
+ *
+ * Please run with -server
+ */
+public class EventRouterPerformanceTester {
+
+    private static final int FIELDS = 500;
+    private static final int EVENTS_PER_FIELD = 2000;
+    private static final int OTHER_LISTENERS = 10;
+    private static final int ROUNDS = 5;
+
+    private static int valueChanges = 0;
+
+    public static void main(String[] args) {
+        TextField[] fields = new TextField[FIELDS];
+        for (int i = 0; i < FIELDS; i++) {
+            TextField field = new TextField();
+            field.setImmediate(true);
+            field.addValueChangeListener(new ValueChangeListener() {
+                @Override
+                public void valueChange(ValueChangeEvent event) {
+                    valueChanges++;
+                }
+            });
+            for (int j = 0; j < OTHER_LISTENERS; j++) {
+                field.addFocusListener(new FocusListener() {
+                    @Override
+                    public void focus(FocusEvent event) {
+                    }
+                });
+            }
+            fields[i] = field;
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENTS_PER_FIELD; i++) {
+                String value = String.valueOf(i);
+                for (TextField field : fields) {
+                    field.setValue(value);
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            int events = FIELDS * EVENTS_PER_FIELD;
+            System.out.println("Fired " + events + " value change events in "
+                    + (nanos / 1000000) + " ms, " + (nanos / events)
+                    + " ns/event");
+        }
+        System.out.println("Listener calls: " + valueChanges);
+    }
+}
@@ -0,0 +1,128 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Item;
+import com.vaadin.data.util.HierarchicalContainer;
+
+/**
+ * Measures building, traversing, filtering, moving and removing items of a
+ * {@link HierarchicalContainer} holding a synthetic tree with one million
+ * nodes where every node has ten children.
+ *
+ * Please run with -server and a heap of at least 2 GB
+ */
+public class HierarchicalContainerPerformanceTester {
+
+    private static final int NODES = 1000000;
+    private static final int BRANCHING = 10;
+    private static final int MOVES = 1000;
+    private static final int ROUNDS = 3;
+
+    private static class EveryThousandthFilter implements Filter {
+        @Override
+        public boolean passesFilter(Object itemId, Item item) {
+            return ((Integer) itemId).intValue() % 1000 == 0;
+        }
+
+        @Override
+        public boolean appliesToProperty(Object propertyId) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) {
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            HierarchicalContainer container = buildOneByOne();
+            System.out.println("Build with addItem and setParent: "
+                    + millisSince(start) + " ms");
+            container = null;
+
+            start = System.nanoTime();
+            container = buildInBulk();
+            System.out.println("Build with addItems: " + millisSince(start)
+                    + " ms");
+
+            start = System.nanoTime();
+            int count = countDescendants(container, Integer.valueOf(0));
+            System.out.println("Traverse " + count + " nodes with getChildren: "
+                    + millisSince(start) + " ms");
+
+            start = System.nanoTime();
+            container.addContainerFilter(new EveryThousandthFilter());
+            System.out.println("Filter including parents: "
+                    + millisSince(start) + " ms (" + container.size()
+                    + " included)");
+
+            Random random = new Random(round);
+            start = System.nanoTime();
+            for (int i = 0; i < MOVES; i++) {
+                Integer itemId = Integer.valueOf(NODES / 2
+                        + random.nextInt(NODES / 2));
+                Integer parentId = Integer.valueOf(random.nextInt(NODES / 10));
+                container.setParent(itemId, parentId);
+            }
+            System.out.println(MOVES + " x setParent while filtered: "
+                    + millisSince(start) + " ms");
+            container.removeAllContainerFilters();
+
+            start = System.nanoTime();
+            container.removeItemRecursively(Integer.valueOf(1));
+            System.out.println("removeItemRecursively: " + millisSince(start)
+                    + " ms (" + container.size() + " left)");
+            System.out.println();
+        }
+    }
+
+    private static HierarchicalContainer buildOneByOne() {
+        HierarchicalContainer container = new HierarchicalContainer();
+        container.addItem(Integer.valueOf(0));
+        for (int i = 1; i < NODES; i++) {
+            Integer itemId = Integer.valueOf(i);
+            container.addItem(itemId);
+            container.setParent(itemId, Integer.valueOf((i - 1) / BRANCHING));
+        }
+        return container;
+    }
+
+    private static HierarchicalContainer buildInBulk() {
+        HierarchicalContainer container = new HierarchicalContainer();
+        List<Integer> ids = new ArrayList<Integer>(BRANCHING);
+        ids.add(Integer.valueOf(0));
+        container.addItems(null, ids);
+        int parentId = 0;
+        for (int first = 1; first < NODES; first += BRANCHING) {
+            ids.clear();
+            for (int i = first; i < Math.min(first + BRANCHING, NODES); i++) {
+                ids.add(Integer.valueOf(i));
+            }
+            container.addItems(Integer.valueOf(parentId++), ids);
+        }
+        return container;
+    }
+
+    private static int countDescendants(HierarchicalContainer container,
+            Object itemId) {
+        int count = 1;
+        List<Object> pending = new ArrayList<Object>();
+        pending.add(itemId);
+        while (!pending.isEmpty()) {
+            Object id = pending.remove(pending.size() - 1);
+            if (container.hasChildren(id)) {
+                for (Object childId : container.getChildren(id)) {
+                    pending.add(childId);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1000000;
+    }
+}
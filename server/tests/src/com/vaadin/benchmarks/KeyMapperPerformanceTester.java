@@ -0,0 +1,66 @@
+package com.vaadin.benchmarks;
+
+import com.vaadin.server.CompactKeyMapper;
+import com.vaadin.server.KeyMapper;
+
+/**
+ * Compares the time and retained memory of issuing and resolving keys for a
+ * large number of item ids using {@link KeyMapper} and
+ * {@link CompactKeyMapper}.
+ *
+ * Please run with -server
+ */
+public class KeyMapperPerformanceTester {
+
+    private static final int ITEMS = 1000000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Integer[] itemIds = new Integer[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            itemIds[i] = Integer.valueOf(i);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            test("KeyMapper", new KeyMapper<Object>(), itemIds);
+            test("CompactKeyMapper", new CompactKeyMapper<Object>(), itemIds);
+        }
+    }
+
+    private static void test(String name, KeyMapper<Object> mapper,
+            Integer[] itemIds) {
+        long memoryBefore = usedMemory();
+        long start = System.nanoTime();
+        String[] keys = new String[itemIds.length];
+        for (int i = 0; i < itemIds.length; i++) {
+            keys[i] = mapper.key(itemIds[i]);
+        }
+        long keyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (mapper.get(keys[i]) != null) {
+                found++;
+            }
+        }
+        long getNanos = System.nanoTime() - start;
+
+        // Only measure what the mapper retains
+        keys = null;
+        long retained = usedMemory() - memoryBefore;
+
+        System.out.println(name + ": key " + (keyNanos / 1000000)
+                + " ms, get " + (getNanos / 1000000) + " ms, retained "
+                + (retained / 1024 / 1024) + " MB (" + found + " found, "
+                + mapper.key(itemIds[0]) + ")");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
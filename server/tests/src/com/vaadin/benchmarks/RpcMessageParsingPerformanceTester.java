@@ -0,0 +1,72 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import com.vaadin.server.communication.JsonStreamReader;
+
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Compares parsing a large client-to-server RPC message by first reading it
+ * into a string and then parsing it with {@link JsonUtil#parse(String)} with
+ * parsing it directly from the reader using {@link JsonStreamReader}.
+ *
+ * Please run with -server
+ */
+public class RpcMessageParsingPerformanceTester {
+
+    private static final int INVOCATIONS = 20000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException {
+        String message = createMessage();
+        System.out.println("Message length: " + message.length());
+
+        int checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            String read = readFully(new StringReader(message));
+            JsonValue parsed = JsonUtil.parse(read);
+            checksum += parsed.getType().ordinal();
+            long stringNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            JsonValue streamed = new JsonStreamReader(
+                    new StringReader(message)).nextValue();
+            checksum += streamed.getType().ordinal();
+            long streamNanos = System.nanoTime() - start;
+
+            System.out.println("String + parse: " + (stringNanos / 1000000)
+                    + " ms, streaming: " + (streamNanos / 1000000) + " ms");
+        }
+        System.out.println(checksum);
+    }
+
+    private static String createMessage() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"csrfToken\":\"1234-5678\",\"rpc\":[");
+        for (int i = 0; i < INVOCATIONS; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("[\"").append(i)
+                    .append("\",\"v\",\"v\",[\"text\",[\"s\",\"Value ")
+                    .append(i).append(" with \\\"quotes\\\"\"]]]");
+        }
+        sb.append("],\"syncId\":1}");
+        return sb.toString();
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder(64 * 1024);
+        char[] buffer = new char[64 * 1024];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            sb.append(buffer, 0, read);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package com.vaadin.benchmarks;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.util.sqlcontainer.DataGenerator;
+import com.vaadin.data.util.sqlcontainer.SQLContainer;
+import com.vaadin.data.util.sqlcontainer.SQLTestsConstants;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+/*
+ * Measures the time spent in SQLContainer.commit() for inserting, updating and removing 5000
+ * rows in an in-memory HSQLDB database, without batching (batch size 1) and
+ * with JDBC batches. An embedded database has no network round trips, so the
+ * difference against a remote database is considerably larger.
+ *
+ * Please run with -server
+ */
+public class SQLContainerCommitPerformanceTester {
+
+    private static final int ROWS = 5000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        JDBCConnectionPool connectionPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+
+        // warmup
+        for (int i = 0; i < ROUNDS; i++) {
+            run(connectionPool, 1, false);
+            run(connectionPool, TableQuery.DEFAULT_BATCH_SIZE, false);
+        }
+        for (int i = 0; i < ROUNDS; i++) {
+            run(connectionPool, 1, true);
+            run(connectionPool, TableQuery.DEFAULT_BATCH_SIZE, true);
+        }
+        connectionPool.destroy();
+    }
+
+    private static void run(JDBCConnectionPool connectionPool, int batchSize,
+            boolean report) throws SQLException {
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        TableQuery query = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        query.setBatchSize(batchSize);
+        SQLContainer container = new SQLContainer(query);
+
+        for (int i = 0; i < ROWS; i++) {
+            Object id = container.addItem();
+            container.getContainerProperty(id, "NAME").setValue("Person " + i);
+            container.getContainerProperty(id, "AGE").setValue(i % 99);
+        }
+        long insert = timeCommit(container);
+
+        List<Object> ids = new ArrayList<Object>(container.getItemIds());
+        for (Object id : ids) {
+            container.getContainerProperty(id, "AGE").setValue(100);
+        }
+        long update = timeCommit(container);
+
+        container.removeAllItems();
+        long remove = timeCommit(container);
+
+        if (report) {
+            System.out.println("Batch size " + batchSize + ": insert "
+                    + insert / 1000000 + " ms, update " + update / 1000000
+                    + " ms, remove " + remove / 1000000 + " ms");
+        }
+    }
+
+    private static long timeCommit(SQLContainer container)
+            throws SQLException {
+        long start = System.nanoTime();
+        container.commit();
+        return System.nanoTime() - start;
+    }
+}
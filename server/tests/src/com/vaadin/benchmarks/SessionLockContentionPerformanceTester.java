@@ -0,0 +1,198 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.EasyMock;
+
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+/**
+ * Measures contention on the session lock when several UIs (browser tabs) of
+ * the same session are updated concurrently from background threads using
+ * {@link UI#access(Runnable)}, and how fast background threads can read
+ * session attributes while a long-running task holds the session lock.
+ *
+ * Please run with -server
+ */
+public class SessionLockContentionPerformanceTester {
+
+    private static final int TASKS_PER_UI = 20000;
+    private static final int ATTRIBUTE_READS = 20000;
+
+    public static void main(String[] args) throws Exception {
+        VaadinServletService service = new VaadinServletService(
+                new VaadinServlet(), new DefaultDeploymentConfiguration(
+                        SessionLockContentionPerformanceTester.class,
+                        new Properties()));
+
+        int[] uiCounts = { 1, 2, 4, 6 };
+        // warmup
+        for (int uiCount : uiCounts) {
+            runAccess(service, uiCount, false);
+        }
+        for (int uiCount : uiCounts) {
+            runAccess(service, uiCount, true);
+        }
+
+        runAttributeReads(service, false, false);
+        runAttributeReads(service, true, false);
+        runAttributeReads(service, false, true);
+        runAttributeReads(service, true, true);
+    }
+
+    private static void runAccess(VaadinService service, int uiCount,
+            boolean report) throws Exception {
+        final VaadinSession session = new MockVaadinSession(
+                service);
+        final List<UI> uis = new ArrayList<UI>();
+        session.lock();
+        try {
+            for (int i = 0; i < uiCount; i++) {
+                UI ui = createUI(session);
+                uis.add(ui);
+            }
+        } finally {
+            session.unlock();
+        }
+
+        final AtomicLong totalLatency = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final UI ui : uis) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+                        for (int i = 0; i < TASKS_PER_UI; i++) {
+                            final long enqueued = System.nanoTime();
+                            final int value = i;
+                            futures.add(ui.access(new Runnable() {
+                                @Override
+                                public void run() {
+                                    ((Label) ui.getContent()).setValue(String
+                                            .valueOf(value));
+                                    totalLatency.addAndGet(System.nanoTime()
+                                            - enqueued);
+                                }
+                            }));
+                        }
+                        for (Future<Void> future : futures) {
+                            future.get();
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long time = System.nanoTime() - startTime;
+
+        if (report) {
+            long tasks = (long) uiCount * TASKS_PER_UI;
+            System.out.println(uiCount + " UIs: " + (tasks * 1000000000L / time)
+                    + " access tasks/s, mean latency "
+                    + (totalLatency.get() / tasks / 1000) + " us");
+        }
+    }
+
+    private static void runAttributeReads(VaadinService service,
+            final boolean withoutLock, boolean report)
+            throws Exception {
+        final VaadinSession session = new MockVaadinSession(
+                service);
+        session.lock();
+        try {
+            session.setAttribute(String.class, "value");
+        } finally {
+            session.unlock();
+        }
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        // Simulates a slow request or access task for another UI
+        Thread slowTask = new Thread() {
+            @Override
+            public void run() {
+                session.lock();
+                try {
+                    locked.countDown();
+                    while (done.getCount() > 0) {
+                        session.unlock();
+                        session.lock();
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                } finally {
+                    session.unlock();
+                }
+            }
+        };
+        slowTask.start();
+        locked.await();
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ATTRIBUTE_READS; i++) {
+            if (withoutLock) {
+                session.getAttribute(String.class);
+            } else {
+                session.accessSynchronously(new Runnable() {
+                    @Override
+                    public void run() {
+                        session.getAttribute(String.class);
+                    }
+                });
+            }
+        }
+        long time = System.nanoTime() - startTime;
+        done.countDown();
+        slowTask.join();
+
+        if (report) {
+            System.out.println("Attribute reads with"
+                    + (withoutLock ? "out" : "")
+                    + " the session lock: "
+                    + (ATTRIBUTE_READS * 1000000000L / time) + " reads/s");
+        }
+    }
+
+    private static UI createUI(VaadinSession session) {
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        VaadinRequest request = EasyMock.createNiceMock(VaadinRequest.class);
+        EasyMock.replay(request);
+        ui.doInit(request, session.getNextUIid(), null);
+        ui.setSession(session);
+        ui.setContent(new Label());
+        session.addUI(ui);
+        return ui;
+    }
+}
@@ -0,0 +1,110 @@
+package com.vaadin.benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+import com.vaadin.server.EncodeResult;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.JsonCodec.PropertySnapshot;
+import com.vaadin.shared.AbstractComponentState;
+import com.vaadin.shared.communication.SharedState;
+import com.vaadin.shared.ui.grid.GridColumnState;
+import com.vaadin.shared.ui.grid.GridState;
+import com.vaadin.shared.ui.table.TableState;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/*
+ * Measures the throughput of encoding shared state objects with JsonCodec
+ * against the encoded default state, which is what happens for every dirty
+ * connector in each response. The incremental encoding used for states
+ * annotated with @IncrementalEncoding is measured the way
+ * LegacyCommunicationManager uses it, with the encoded state stored as the diff
+ * state for the next round and the enabled flag toggled between rounds.
+ * Reports encodings per second on a single core and bytes allocated per
+ * encoding. GridState is measured with a few columns.
+ *
+ * Please run with -server
+ */
+public class StateEncodingPerformanceTester {
+
+    private static final int ROUNDS = 200000;
+
+    private static final int COLUMNS = 10;
+
+    public static void main(String[] args) throws Exception {
+        run(AbstractComponentState.class);
+        run(GridState.class);
+        run(TableState.class);
+    }
+
+    private static void run(Class<? extends SharedState> stateType)
+            throws Exception {
+        SharedState state = stateType.newInstance();
+        if (state instanceof GridState) {
+            for (int i = 0; i < COLUMNS; i++) {
+                GridColumnState column = new GridColumnState();
+                column.id = "column" + i;
+                ((GridState) state).columns.add(column);
+                ((GridState) state).columnOrder.add(column.id);
+            }
+        }
+        JsonValue reference = JsonCodec.encode(stateType.newInstance(), null,
+                stateType, null).getEncodedValue();
+
+        // warmup
+        encode(state, reference, stateType, ROUNDS);
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        encode(state, reference, stateType, ROUNDS);
+        long time = System.nanoTime() - start;
+        long bytes = allocatedBytes() - allocated;
+        report(stateType.getSimpleName(), time, bytes);
+
+        PropertySnapshot snapshot = new PropertySnapshot(stateType);
+        JsonObject diffState = (JsonObject) reference;
+
+        // warmup
+        diffState = encodeIncrementally(state, diffState, snapshot, stateType,
+                ROUNDS);
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        encodeIncrementally(state, diffState, snapshot, stateType, ROUNDS);
+        time = System.nanoTime() - start;
+        bytes = allocatedBytes() - allocated;
+        report(stateType.getSimpleName() + " incremental", time, bytes);
+    }
+
+    private static void report(String name, long time, long bytes) {
+        System.out.println(name + ": " + (ROUNDS * 1000000000L / time)
+                + " encodings/s, " + (bytes / ROUNDS)
+                + " bytes allocated per encoding");
+    }
+
+    private static void encode(SharedState state, JsonValue reference,
+            Class<? extends SharedState> stateType, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            JsonCodec.encode(state, reference, stateType, null);
+        }
+    }
+
+    private static JsonObject encodeIncrementally(SharedState state,
+            JsonObject diffState, PropertySnapshot snapshot,
+            Class<? extends SharedState> stateType, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            state.enabled = !state.enabled;
+            EncodeResult result = JsonCodec.encodeIncrementally(state,
+                    diffState, stateType, snapshot, null);
+            diffState = (JsonObject) result.getEncodedValue();
+        }
+        return diffState;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean()).getThreadAllocatedBytes(Thread
+                .currentThread().getId());
+    }
+}
@@ -0,0 +1,94 @@
+package com.vaadin.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.Table.ColumnGenerator;
+import com.vaadin.ui.UI;
+
+/**
+ * Measures the server side time spent in handling scroll requests of a Table
+ * with 40 columns showing a container with one million items. The client
+ * requests are simulated by scrolling down one page at a time.
+ *
+ * Please run with -server
+ */
+public class TableScrollPerformanceTester {
+
+    private static final int ITEMS = 1000000;
+    private static final int PROPERTIES = 10;
+    private static final int GENERATED_COLUMNS = 30;
+    private static final int PAGE_LENGTH = 25;
+    private static final int SCROLLS = 2000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Table table = createTable();
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < SCROLLS; i++) {
+                scrollTo(table, (round * SCROLLS + i) * PAGE_LENGTH % ITEMS);
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.println("Scroll: " + (nanos / SCROLLS / 1000)
+                    + " us per request");
+        }
+    }
+
+    private static Table createTable() {
+        IndexedContainer container = new IndexedContainer();
+        for (int p = 0; p < PROPERTIES; p++) {
+            container.addContainerProperty("p" + p, Integer.class, null);
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            container.addItem(Integer.valueOf(i));
+        }
+        Table table = new Table(null, container);
+        table.setPageLength(PAGE_LENGTH);
+        for (int c = 0; c < GENERATED_COLUMNS; c++) {
+            table.addGeneratedColumn("g" + c, new ColumnGenerator() {
+                @Override
+                public Object generateCell(Table source, Object itemId,
+                        Object columnId) {
+                    return columnId + "/" + itemId;
+                }
+            });
+        }
+
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setSession(new AlwaysLockedVaadinSession(null));
+        ui.setContent(table);
+        table.beforeClientResponse(true);
+        return table;
+    }
+
+    /**
+     * Simulates the request sent by the client when the first visible row
+     * changes. The client renders the page and cacheRate pages before and
+     * after it, but only requests the rows it does not already have.
+     */
+    private static void scrollTo(Table table, int firstVisible) {
+        Container container = table.getContainerDataSource();
+        int cached = (int) (PAGE_LENGTH * table.getCacheRate());
+        int first = Math.max(0, firstVisible - cached);
+        int last = Math.min(container.size() - 1, firstVisible + PAGE_LENGTH
+                + cached - 1);
+
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put("firstvisible", firstVisible);
+        variables.put("firstToBeRendered", first);
+        variables.put("lastToBeRendered", last);
+        variables.put("reqfirstrow", Math.max(first, last - PAGE_LENGTH + 1));
+        variables.put("reqrows", PAGE_LENGTH);
+        table.changeVariables(table, variables);
+    }
+}
@@ -0,0 +1,134 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import com.vaadin.server.communication.JsonStreamWriter;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+/*
+ * Compares the number of bytes allocated when writing the state and hierarchy
+ * sections of a UIDL response for a screen with 2000 connectors, using the
+ * old approach (building a JsonObject tree and stringifying it) and the
+ * streaming JsonStreamWriter.
+ *
+ * Allocation is measured with com.sun.management.ThreadMXBean, so the
+ * benchmark needs a HotSpot based JVM.
+ *
+ * Please run with -server
+ */
+public class UidlWriterPerformanceTester {
+
+    private static final int CONNECTORS = 2000;
+    private static final int ROUNDS = 500;
+
+    private static final Writer NULL_WRITER = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void write(String str) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    public static void main(String[] args) throws IOException {
+        JsonObject[] states = createStates();
+
+        // warmup
+        for (int i = 0; i < ROUNDS; i++) {
+            writeWithTree(states);
+            writeStreaming(states);
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; i++) {
+            writeWithTree(states);
+        }
+        report("JsonObject tree + stringify", allocatedBytes() - allocated,
+                System.currentTimeMillis() - start);
+
+        allocated = allocatedBytes();
+        start = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; i++) {
+            writeStreaming(states);
+        }
+        report("JsonStreamWriter", allocatedBytes() - allocated,
+                System.currentTimeMillis() - start);
+    }
+
+    private static void report(String name, long bytes, long time) {
+        System.out.println(name + ": " + (bytes / ROUNDS)
+                + " bytes allocated per response, " + time + " ms for "
+                + ROUNDS + " responses");
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean()).getThreadAllocatedBytes(Thread
+                .currentThread().getId());
+    }
+
+    private static JsonObject[] createStates() {
+        JsonObject[] states = new JsonObject[CONNECTORS];
+        for (int i = 0; i < CONNECTORS; i++) {
+            JsonObject state = Json.createObject();
+            state.put("caption", "Caption for connector " + i);
+            state.put("width", "100.0%");
+            state.put("enabled", i % 2 == 0);
+            state.put("tabIndex", i);
+            JsonArray styles = Json.createArray();
+            styles.set(0, "v-label");
+            styles.set(1, "style-" + i);
+            state.put("styles", styles);
+            states[i] = state;
+        }
+        return states;
+    }
+
+    private static void writeWithTree(JsonObject[] states) throws IOException {
+        JsonObject sharedStates = Json.createObject();
+        JsonObject hierarchy = Json.createObject();
+        for (int i = 0; i < states.length; i++) {
+            sharedStates.put(String.valueOf(i), states[i]);
+            JsonArray children = Json.createArray();
+            children.set(0, String.valueOf(i + CONNECTORS));
+            hierarchy.put(String.valueOf(i), children);
+        }
+        NULL_WRITER.write(JsonUtil.stringify(sharedStates));
+        NULL_WRITER.write(JsonUtil.stringify(hierarchy));
+    }
+
+    private static void writeStreaming(JsonObject[] states) throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(NULL_WRITER);
+        json.beginObject();
+        for (int i = 0; i < states.length; i++) {
+            json.name(String.valueOf(i)).value(states[i]);
+        }
+        json.endObject();
+        json.close();
+
+        json = new JsonStreamWriter(NULL_WRITER);
+        json.beginObject();
+        for (int i = 0; i < states.length; i++) {
+            json.name(String.valueOf(i)).beginArray()
+                    .value(String.valueOf(i + CONNECTORS)).endArray();
+        }
+        json.endObject();
+        json.close();
+    }
+}
@@ -0,0 +1,89 @@
+package com.vaadin.data.util;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.data.util.BeanPropertyCache.PropertyAccessors;
+import com.vaadin.data.util.MethodProperty.MethodException;
+import com.vaadin.data.util.NestedMethodPropertyTest.Address;
+import com.vaadin.data.util.NestedMethodPropertyTest.Person;
+
+public class BeanPropertyCacheTest {
+
+    @Test
+    public void getPropertyDescriptors_sameClass_sharedInstance() {
+        Map<String, VaadinPropertyDescriptor<Person>> first = BeanPropertyCache
+                .getPropertyDescriptors(Person.class);
+        Map<String, VaadinPropertyDescriptor<Person>> second = BeanPropertyCache
+                .getPropertyDescriptors(Person.class);
+        Assert.assertSame(first, second);
+        Assert.assertTrue(first.containsKey("name"));
+        Assert.assertTrue(first.containsKey("address"));
+        Assert.assertTrue(first.containsKey("age"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getPropertyDescriptors_shared_unmodifiable() {
+        BeanPropertyCache.getPropertyDescriptors(Person.class).remove("name");
+    }
+
+    @Test
+    public void beanItemGetPropertyDescriptors_returnsModifiableCopy() {
+        Map<String, VaadinPropertyDescriptor<Person>> copy = BeanItem
+                .getPropertyDescriptors(Person.class);
+        copy.remove("name");
+        Assert.assertTrue(BeanItem.getPropertyDescriptors(Person.class)
+                .containsKey("name"));
+    }
+
+    @Test
+    public void getAccessors_nestedProperty_resolvedAndCached()
+            throws NoSuchMethodException {
+        PropertyAccessors accessors = BeanPropertyCache.getAccessors(
+                Person.class, "address.street");
+        Assert.assertEquals(2, accessors.getGetters().size());
+        Assert.assertEquals("getAddress", accessors.getGetters().get(0)
+                .getName());
+        Assert.assertEquals("getStreet", accessors.getGetters().get(1)
+                .getName());
+        Assert.assertEquals("setStreet", accessors.getSetter().getName());
+        Assert.assertSame(accessors,
+                BeanPropertyCache.getAccessors(Person.class, "address.street"));
+    }
+
+    @Test(expected = NoSuchMethodException.class)
+    public void getAccessors_missingProperty_throws()
+            throws NoSuchMethodException {
+        BeanPropertyCache.getAccessors(Person.class, "address.city");
+    }
+
+    @Test(expected = MethodException.class)
+    public void methodProperty_nestedName_throws() {
+        new MethodProperty<Object>(new Person("John", new Address("Street",
+                12345)), "address.street");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nestedMethodProperty_missingProperty_throws() {
+        new NestedMethodProperty<Object>(new Person("John", new Address(
+                "Street", 12345)), "address.city");
+    }
+
+    @Test
+    public void propertiesUsingCachedAccessors_readAndWriteValues() {
+        Person person = new Person("John", new Address("Street", 12345));
+        MethodProperty<String> name = new MethodProperty<String>(person,
+                "name");
+        NestedMethodProperty<String> street = new NestedMethodProperty<String>(
+                person, "address.street");
+        Assert.assertEquals("John", name.getValue());
+        Assert.assertEquals("Street", street.getValue());
+
+        name.setValue("Jack");
+        street.setValue("Road");
+        Assert.assertEquals("Jack", person.getName());
+        Assert.assertEquals("Road", person.getAddress().getStreet());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.Compare;
+
+public class CachingPropertyValueGeneratorTest {
+
+    private static class CountingGenerator extends
+            PropertyValueGenerator<String> {
+        private int calls = 0;
+
+        @Override
+        public String getValue(Item item, Object itemId, Object propertyId) {
+            calls++;
+            return "Value " + item.getItemProperty("value").getValue();
+        }
+
+        @Override
+        public Class<String> getType() {
+            return String.class;
+        }
+    }
+
+    private IndexedContainer wrapped;
+    private GeneratedPropertyContainer container;
+    private CountingGenerator generator;
+    private CachingPropertyValueGenerator<String> caching;
+
+    @Before
+    public void setUp() {
+        wrapped = new IndexedContainer();
+        wrapped.addContainerProperty("value", Integer.class, 0);
+        for (int i = 0; i < 10; i++) {
+            wrapped.addItem(i).getItemProperty("value").setValue(i);
+        }
+        container = new GeneratedPropertyContainer(wrapped);
+        generator = new CountingGenerator();
+        caching = new CachingPropertyValueGenerator<String>(generator, 5);
+        container.addGeneratedProperty("generated", caching);
+    }
+
+    private Object generatedValue(Object itemId) {
+        return container.getContainerProperty(itemId, "generated").getValue();
+    }
+
+    @Test
+    public void repeatedReads_generatedOnce() {
+        Assert.assertEquals("Value 1", generatedValue(1));
+        Assert.assertEquals("Value 1", generatedValue(1));
+        Assert.assertEquals(1, generator.calls);
+        Assert.assertEquals(1, caching.getCacheSize());
+    }
+
+    @Test
+    public void propertyValueChange_invalidatesItem() {
+        generatedValue(1);
+        generatedValue(2);
+        wrapped.getContainerProperty(1, "value").setValue(100);
+
+        Assert.assertEquals("Value 100", generatedValue(1));
+        Assert.assertEquals("Value 2", generatedValue(2));
+        Assert.assertEquals(3, generator.calls);
+    }
+
+    @Test
+    public void maxSizeExceeded_leastRecentlyUsedEvicted() {
+        for (int i = 0; i < 5; i++) {
+            generatedValue(i);
+        }
+        // Use 0 so that 1 is the least recently used
+        generatedValue(0);
+        generatedValue(5);
+        Assert.assertEquals(5, caching.getCacheSize());
+        Assert.assertEquals(6, generator.calls);
+
+        generatedValue(0);
+        Assert.assertEquals(6, generator.calls);
+        generatedValue(1);
+        Assert.assertEquals(7, generator.calls);
+    }
+
+    @Test
+    public void evictedValue_changeDoesNotAffectCache() {
+        caching = new CachingPropertyValueGenerator<String>(generator, 1);
+        container.addGeneratedProperty("generated", caching);
+        generatedValue(1);
+        generatedValue(2);
+        wrapped.getContainerProperty(1, "value").setValue(100);
+        Assert.assertEquals(1, caching.getCacheSize());
+        generatedValue(2);
+        Assert.assertEquals(2, generator.calls);
+    }
+
+    @Test
+    public void itemRemoved_onlyRemovedItemInvalidated() {
+        generatedValue(1);
+        generatedValue(2);
+        wrapped.removeItem(2);
+        Assert.assertEquals(1, caching.getCacheSize());
+        generatedValue(1);
+        Assert.assertEquals(2, generator.calls);
+    }
+
+    @Test
+    public void itemReAdded_regenerated() {
+        generatedValue(2);
+        wrapped.removeItem(2);
+        wrapped.addItem(2).getItemProperty("value").setValue(200);
+        Assert.assertEquals("Value 200", generatedValue(2));
+        Assert.assertEquals(2, generator.calls);
+    }
+
+    @Test
+    public void sortedThroughContainer_cacheKept() {
+        generatedValue(1);
+        generatedValue(2);
+        container.sort(new Object[] { "value" }, new boolean[] { false });
+        Assert.assertEquals(2, caching.getCacheSize());
+        generatedValue(1);
+        Assert.assertEquals(2, generator.calls);
+    }
+
+    @Test
+    public void filteredThroughContainer_cacheKept() {
+        generatedValue(1);
+        generatedValue(2);
+        Filter filter = new Compare.Less("value", 5);
+        container.addContainerFilter(filter);
+        container.removeContainerFilter(filter);
+        Assert.assertEquals(2, caching.getCacheSize());
+        generatedValue(2);
+        Assert.assertEquals(2, generator.calls);
+    }
+
+    @Test
+    public void wrappedContainerItemsRemoved_cacheCleared() {
+        generatedValue(1);
+        generatedValue(2);
+        wrapped.removeAllItems();
+        Assert.assertEquals(0, caching.getCacheSize());
+    }
+
+    @Test
+    public void generatorRemoved_cacheCleared() {
+        generatedValue(1);
+        container.removeGeneratedProperty("generated");
+        Assert.assertEquals(0, caching.getCacheSize());
+
+        // No longer listening to the property
+        wrapped.getContainerProperty(1, "value").setValue(100);
+        Assert.assertEquals(0, caching.getCacheSize());
+    }
+
+    @Test
+    public void invalidate_regenerates() {
+        generatedValue(1);
+        caching.invalidate(1);
+        generatedValue(1);
+        Assert.assertEquals(2, generator.calls);
+    }
+}
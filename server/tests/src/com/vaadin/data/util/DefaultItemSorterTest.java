@@ -0,0 +1,143 @@
+package com.vaadin.data.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.Compare;
+
+public class DefaultItemSorterTest {
+
+    private static IndexedContainer createContainer(int size) {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("int", Integer.class, null);
+        container.addContainerProperty("double", Double.class, null);
+        container.addContainerProperty("string", String.class, null);
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            Item item = container.addItem(i);
+            item.getItemProperty("int").setValue(
+                    random.nextInt(20) == 0 ? null : random.nextInt(100));
+            item.getItemProperty("double").setValue(
+                    random.nextInt(20) == 0 ? null : random.nextInt(10) / 4.0);
+            item.getItemProperty("string").setValue(
+                    random.nextInt(20) == 0 ? null : "s" + random.nextInt(50));
+        }
+        return container;
+    }
+
+    private static void assertSameOrder(IndexedContainer container,
+            DefaultItemSorter sorter, Object[] propertyIds,
+            boolean[] ascending) {
+        sorter.setSortProperties(container, propertyIds, ascending);
+        List<Object> expected = new ArrayList<Object>(container.getAllItemIds());
+        Collections.shuffle(expected, new Random(1));
+        List<Object> actual = new ArrayList<Object>(expected);
+
+        Collections.sort(expected, sorter);
+        sorter.sort(actual);
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void sort_sameOrderAsCollectionsSort() {
+        IndexedContainer container = createContainer(1000);
+        DefaultItemSorter sorter = new DefaultItemSorter();
+        assertSameOrder(container, sorter, new Object[] { "int" },
+                new boolean[] { true });
+        assertSameOrder(container, sorter, new Object[] { "double" },
+                new boolean[] { false });
+        assertSameOrder(container, sorter, new Object[] { "string", "int" },
+                new boolean[] { true, false });
+        assertSameOrder(container, sorter, new Object[] { "double",
+                "string", "int" }, new boolean[] { false, true, true });
+    }
+
+    @Test
+    public void sort_filteredContainer_filteredItemsLast() {
+        IndexedContainer container = createContainer(500);
+        container.addContainerFilter(new Compare.Less("int", 50));
+        assertSameOrder(container, new DefaultItemSorter(), new Object[] {
+                "string", "double" }, new boolean[] { true, true });
+    }
+
+    @Test
+    public void sort_largeList_sameOrderAsCollectionsSort() {
+        IndexedContainer container = createContainer(DefaultItemSorter.PARALLEL_SORT_THRESHOLD * 2);
+        assertSameOrder(container, new DefaultItemSorter(), new Object[] {
+                "int", "string" }, new boolean[] { false, true });
+    }
+
+    @Test
+    public void sort_largeListWithExecutor_sameOrderAsCollectionsSort() {
+        IndexedContainer container = createContainer(DefaultItemSorter.PARALLEL_SORT_THRESHOLD * 2);
+        DefaultItemSorter sorter = new DefaultItemSorter();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            sorter.setSortExecutor(executor);
+            assertSameOrder(container, sorter, new Object[] { "int",
+                    "string" }, new boolean[] { false, true });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void sort_customComparator_used() {
+        IndexedContainer container = createContainer(200);
+        DefaultItemSorter sorter = new DefaultItemSorter(
+                Collections.reverseOrder(new DefaultItemSorter.DefaultPropertyValueComparator()));
+        assertSameOrder(container, sorter, new Object[] { "int", "string" },
+                new boolean[] { true, true });
+    }
+
+    @Test
+    public void sort_overriddenCompareProperty_used() {
+        IndexedContainer container = createContainer(200);
+        DefaultItemSorter sorter = new DefaultItemSorter() {
+            @Override
+            protected int compareProperty(Object propertyId,
+                    boolean sortDirection, Item item1, Item item2) {
+                // sort by the item id only
+                return ((Integer) item1.getItemProperty("id").getValue())
+                        .compareTo((Integer) item2.getItemProperty("id")
+                                .getValue());
+            }
+        };
+        container.addContainerProperty("id", Integer.class, null);
+        for (Object itemId : container.getItemIds()) {
+            container.getContainerProperty(itemId, "id").setValue(itemId);
+        }
+        sorter.setSortProperties(container, new Object[] { "int" },
+                new boolean[] { true });
+        List<Object> itemIds = new ArrayList<Object>(container.getItemIds());
+        Collections.reverse(itemIds);
+
+        sorter.sort(itemIds);
+
+        Assert.assertEquals(container.getItemIds(), itemIds);
+    }
+
+    @Test
+    public void containerSort_usesSortedOrder() {
+        IndexedContainer container = createContainer(300);
+        container.sort(new Object[] { "int" }, new boolean[] { true });
+        Integer previous = null;
+        for (Object itemId : container.getItemIds()) {
+            Integer value = (Integer) container.getContainerProperty(itemId,
+                    "int").getValue();
+            if (previous != null) {
+                Assert.assertTrue(value != null && previous <= value);
+            }
+            previous = value;
+        }
+    }
+}
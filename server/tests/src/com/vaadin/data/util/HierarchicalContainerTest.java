@@ -1,6 +1,14 @@
 package com.vaadin.data.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Container.ItemSetChangeEvent;
+import com.vaadin.data.Container.ItemSetChangeListener;
 import com.vaadin.data.Item;
 
 public class HierarchicalContainerTest extends
@@ -267,4 +275,133 @@ public class HierarchicalContainerTest extends
                 true, expectedSize, expectedRoots, false);
 
     }
+
+    public void testAddItems() {
+        HierarchicalContainer c = new HierarchicalContainer();
+        c.addItem("root");
+        final int[] events = new int[1];
+        c.addItemSetChangeListener(new ItemSetChangeListener() {
+            @Override
+            public void containerItemSetChange(ItemSetChangeEvent event) {
+                events[0]++;
+            }
+        });
+
+        assertTrue(c.addItems("root", Arrays.asList("a", "b", "root")));
+        assertEquals(1, events[0]);
+        assertEquals(Arrays.asList("root", "a", "b"), c.getItemIds());
+        assertEquals(Arrays.asList("a", "b"),
+                new ArrayList<Object>(c.getChildren("root")));
+        assertEquals("root", c.getParent("b"));
+        assertFalse(c.isRoot("a"));
+
+        assertTrue(c.addItems(null, Arrays.asList("c")));
+        assertTrue(c.isRoot("c"));
+        assertEquals(2, c.rootItemIds().size());
+
+        c.setChildrenAllowed("c", false);
+        assertFalse(c.addItems("c", Arrays.asList("d")));
+        assertFalse(c.addItems("missing", Arrays.asList("d")));
+        assertFalse(c.containsId("d"));
+    }
+
+    public void testAddItemsToFilteredContainer() {
+        HierarchicalContainer c = new HierarchicalContainer();
+        c.addItems(null, Arrays.asList("root"));
+        c.addItems("root", Arrays.asList("parent", "other"));
+        c.setIncludeParentsWhenFiltering(true);
+        c.addContainerFilter(new Filter() {
+            @Override
+            public boolean passesFilter(Object itemId, Item item) {
+                return itemId.toString().startsWith("child");
+            }
+
+            @Override
+            public boolean appliesToProperty(Object propertyId) {
+                return true;
+            }
+        });
+        assertEquals(0, c.size());
+
+        c.addItems("parent", Arrays.asList("child1", "skipped", "child2"));
+
+        assertEquals(Arrays.asList("root", "parent", "child1", "child2"),
+                c.getItemIds());
+        assertEquals("parent", c.getParent("child2"));
+        assertEquals(Arrays.asList("root"),
+                new ArrayList<Object>(c.rootItemIds()));
+        assertEquals(Arrays.asList("parent"),
+                new ArrayList<Object>(c.getChildren("root")));
+        assertEquals(Arrays.asList("child1", "child2"), new ArrayList<Object>(
+                c.getChildren("parent")));
+    }
+
+    public void testRemoveItemRecursively() {
+        HierarchicalContainer c = new HierarchicalContainer();
+        c.addItems(null, Arrays.asList("root", "other"));
+        c.addItems("root", Arrays.asList("a", "b"));
+        c.addItems("a", Arrays.asList("a1", "a2"));
+        c.setChildrenAllowed("a1", false);
+
+        assertTrue(c.removeItemRecursively("a"));
+        assertEquals(Arrays.asList("root", "other", "b"), c.getItemIds());
+        assertEquals(Arrays.asList("b"),
+                new ArrayList<Object>(c.getChildren("root")));
+        assertNull(c.getParent("a1"));
+        assertFalse(c.hasChildren("a"));
+
+        // Re-added items do not remember their old state
+        c.addItem("a1");
+        assertTrue(c.isRoot("a1"));
+        assertTrue(c.areChildrenAllowed("a1"));
+
+        assertFalse(c.removeItemRecursively("a"));
+        assertTrue(c.removeItemRecursively("root"));
+        assertEquals(Arrays.asList("other", "a1"), c.getItemIds());
+        assertEquals(2, c.rootItemIds().size());
+    }
+
+    public void testSetParentInFilteredContainerMatchesRefiltering() {
+        Random random = new Random(42);
+        HierarchicalContainer c = new HierarchicalContainer();
+        c.addContainerProperty("name", String.class, "");
+        List<Object> itemIds = new ArrayList<Object>();
+        for (int i = 0; i < 200; i++) {
+            Object itemId = Integer.valueOf(i);
+            Object parentId = i == 0 || random.nextInt(10) == 0 ? null
+                    : itemIds.get(random.nextInt(itemIds.size()));
+            c.addItems(parentId, Collections.singleton(itemId));
+            c.getContainerProperty(itemId, "name").setValue(
+                    random.nextInt(8) == 0 ? "match" : "other");
+            itemIds.add(itemId);
+        }
+        c.setIncludeParentsWhenFiltering(true);
+        c.addContainerFilter("name", "match", false, false);
+
+        for (int i = 0; i < 500; i++) {
+            Object itemId = itemIds.get(random.nextInt(itemIds.size()));
+            Object parentId = random.nextInt(10) == 0 ? null : itemIds
+                    .get(random.nextInt(itemIds.size()));
+            c.setParent(itemId, parentId);
+        }
+
+        String incremental = describeHierarchy(c, itemIds);
+        // Refilters the whole container
+        c.setIncludeParentsWhenFiltering(true);
+        assertEquals(describeHierarchy(c, itemIds), incremental);
+    }
+
+    private static String describeHierarchy(HierarchicalContainer c,
+            List<Object> itemIds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(c.getItemIds()).append(c.rootItemIds());
+        for (Object itemId : itemIds) {
+            sb.append('\n').append(itemId).append(' ')
+                    .append(c.getParent(itemId)).append(' ')
+                    .append(c.getChildren(itemId)).append(' ')
+                    .append(c.isRoot(itemId)).append(' ')
+                    .append(c.hasChildren(itemId));
+        }
+        return sb.toString();
+    }
 }
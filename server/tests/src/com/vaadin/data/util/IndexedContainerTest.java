@@ -1,5 +1,6 @@
 package com.vaadin.data.util;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.easymock.Capture;
@@ -10,6 +11,12 @@ import com.vaadin.data.Container.Indexed.ItemAddEvent;
 import com.vaadin.data.Container.Indexed.ItemRemoveEvent;
 import com.vaadin.data.Container.ItemSetChangeListener;
 import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.Between;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.filter.Not;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
 
 public class IndexedContainerTest extends AbstractInMemoryContainerTestBase {
 
@@ -393,6 +400,102 @@ public class IndexedContainerTest extends AbstractInMemoryContainerTestBase {
         assertEquals(2, capturedEvent.getValue().getRemovedItemsCount());
     }
 
+    private static class CountingContainer extends IndexedContainer {
+        private int filterChecks = 0;
+
+        @Override
+        protected boolean passesFilters(Object itemId) {
+            filterChecks++;
+            return super.passesFilters(itemId);
+        }
+    }
+
+    private CountingContainer createNameContainer(String... names) {
+        CountingContainer container = new CountingContainer();
+        container.addContainerProperty("name", String.class, null);
+        for (String name : names) {
+            container.addItem(name).getItemProperty("name").setValue(name);
+        }
+        return container;
+    }
+
+    public void testNarrowedFilter_onlyVisibleItemsChecked() {
+        CountingContainer container = createNameContainer("abc", "abd",
+                "bcd", "abe", "xyz");
+        container.addContainerFilter("name", "ab", false, true);
+        assertEquals(3, container.size());
+
+        container.filterChecks = 0;
+        container.removeAllContainerFilters();
+        container.addContainerFilter("name", "abd", false, true);
+        assertEquals(Arrays.asList("abd"), container.getItemIds());
+        assertEquals(3, container.filterChecks);
+    }
+
+    public void testNarrowedFilter_valueChanged_allItemsChecked() {
+        CountingContainer container = createNameContainer("abc", "abd",
+                "bcd");
+        Item item = container.getItem("bcd");
+        container.addContainerFilter("name", "ab", false, true);
+        item.getItemProperty("name").setValue("abdd");
+        assertEquals(3, container.size());
+
+        container.removeAllContainerFilters();
+        container.getItem("abc").getItemProperty("name").setValue("xabd");
+        container.filterChecks = 0;
+        container.addContainerFilter("name", "abd", false, true);
+        assertEquals(Arrays.asList("abd", "bcd"), container.getItemIds());
+        assertEquals(3, container.filterChecks);
+    }
+
+    public void testNarrowedFilter_widerFilter_allItemsChecked() {
+        CountingContainer container = createNameContainer("abc", "abd",
+                "bcd");
+        container.addContainerFilter("name", "abc", false, true);
+        container.removeAllContainerFilters();
+
+        container.filterChecks = 0;
+        container.addContainerFilter("name", "b", false, false);
+        assertEquals(3, container.filterChecks);
+        assertEquals(3, container.size());
+    }
+
+    public void testNarrowedFilter_contiguousRemoval_itemRemoveEventFired() {
+        CountingContainer container = createNameContainer("xyz", "abc",
+                "abd", "abe", "abf");
+        container.addContainerFilter(new Like("name", "ab%"));
+        ItemSetChangeListener removeListener = createListenerMockFor(container);
+        Capture<ItemRemoveEvent> capturedEvent = captureRemoveEvent(removeListener);
+        EasyMock.replay(removeListener);
+
+        container.addContainerFilter(new Not(new Between("name", "abd",
+                "abe")));
+
+        assertEquals(Arrays.asList("abc", "abf"), container.getItemIds());
+        assertEquals(1, capturedEvent.getValue().getFirstIndex());
+        assertEquals("abd", capturedEvent.getValue().getFirstItemId());
+        assertEquals(2, capturedEvent.getValue().getRemovedItemsCount());
+    }
+
+    public void testNarrowedFilter_scatteredRemoval_itemSetChangeFired() {
+        CountingContainer container = createNameContainer("abc", "abd",
+                "abe", "abf");
+        container.addContainerFilter(new SimpleStringFilter("name", "ab",
+                false, true));
+        ItemSetChangeListener listener = EasyMock
+                .createStrictMock(ItemSetChangeListener.class);
+        listener.containerItemSetChange(EasyMock.not(EasyMock
+                .isA(ItemRemoveEvent.class)));
+        EasyMock.replay(listener);
+        container.addItemSetChangeListener(listener);
+
+        container.addContainerFilter(new Or(new Compare.Equal("name", "abc"),
+                new Compare.Equal("name", "abe")));
+
+        assertEquals(Arrays.asList("abc", "abe"), container.getItemIds());
+        EasyMock.verify(listener);
+    }
+
     private Capture<ItemAddEvent> captureAddEvent(
             ItemSetChangeListener addListener) {
         Capture<ItemAddEvent> capturedEvent = new Capture<ItemAddEvent>();
@@ -0,0 +1,224 @@
+package com.vaadin.data.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Between;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.Not;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+
+public class PropertyValueIndexTest {
+
+    private static final String NAME = "name";
+    private static final String NUMBER = "number";
+
+    private static final String[] NAMES = { "Anna", "anders", "Bertil",
+            "bo", "Cecilia", "Anna-Lena", "Ann", null };
+
+    private IndexedContainer indexed;
+    private IndexedContainer plain;
+
+    @Before
+    public void setUp() {
+        indexed = createContainer();
+        indexed.addPropertyIndex(NAME);
+        indexed.addPropertyIndex(NUMBER);
+        plain = createContainer();
+    }
+
+    private static IndexedContainer createContainer() {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty(NAME, String.class, null);
+        container.addContainerProperty(NUMBER, Integer.class, null);
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            Item item = container.addItem(i);
+            item.getItemProperty(NAME).setValue(
+                    NAMES[random.nextInt(NAMES.length)]);
+            item.getItemProperty(NUMBER).setValue(
+                    random.nextInt(10) == 0 ? null : random.nextInt(50));
+        }
+        return container;
+    }
+
+    private void assertSameResult(Filter... filters) {
+        for (Filter filter : filters) {
+            indexed.addContainerFilter(filter);
+            plain.addContainerFilter(filter);
+        }
+        Assert.assertEquals(Arrays.toString(filters), plain.getItemIds(),
+                indexed.getItemIds());
+        indexed.removeAllContainerFilters();
+        plain.removeAllContainerFilters();
+    }
+
+    private List<Filter> getFilters() {
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(new Compare.Equal(NUMBER, 7));
+        filters.add(new Compare.Equal(NUMBER, null));
+        filters.add(new Compare.Equal(NAME, "Anna"));
+        filters.add(new Compare.Greater(NUMBER, 40));
+        filters.add(new Compare.GreaterOrEqual(NUMBER, 40));
+        filters.add(new Compare.Less(NUMBER, 5));
+        filters.add(new Compare.LessOrEqual(NUMBER, 5));
+        filters.add(new Between(NUMBER, 10, 20));
+        filters.add(new Between(NUMBER, 20, 10));
+        filters.add(new Between(NUMBER, null, 3));
+        filters.add(new Between(NAME, "B", "Bz"));
+        filters.add(new SimpleStringFilter(NAME, "Ann", false, true));
+        filters.add(new SimpleStringFilter(NAME, "an", true, true));
+        filters.add(new SimpleStringFilter(NAME, "n", true, false));
+        filters.add(new SimpleStringFilter(NUMBER, "1", false, true));
+        filters.add(new And(new Compare.Greater(NUMBER, 10),
+                new SimpleStringFilter(NAME, "b", true, true)));
+        filters.add(new Or(new Compare.Equal(NUMBER, 1), new Compare.Equal(
+                NAME, "bo")));
+        filters.add(new Not(new Compare.Equal(NUMBER, 1)));
+        return filters;
+    }
+
+    @Test
+    public void filtering_indexedFilters_sameResultAsWithoutIndex() {
+        List<Filter> filters = getFilters();
+        for (Filter filter : filters) {
+            assertSameResult(filter);
+        }
+        for (int i = 1; i < filters.size(); i++) {
+            assertSameResult(filters.get(i - 1), filters.get(i));
+        }
+    }
+
+    @Test
+    public void filtering_afterModifications_sameResultAsWithoutIndex() {
+        // build the indexes
+        assertSameResult(new Between(NUMBER, 10, 20));
+        assertSameResult(new SimpleStringFilter(NAME, "an", true, true));
+
+        for (IndexedContainer container : Arrays.asList(indexed, plain)) {
+            container.getItem(1).getItemProperty(NUMBER).setValue(15);
+            container.getItem(2).getItemProperty(NAME).setValue("Andreas");
+            container.getItem(3).getItemProperty(NUMBER).setValue(null);
+            container.removeItem(4);
+            container.removeItem(5);
+            Item item = container.addItem("new");
+            item.getItemProperty(NUMBER).setValue(12);
+            item.getItemProperty(NAME).setValue("Anton");
+        }
+
+        for (Filter filter : getFilters()) {
+            assertSameResult(filter);
+        }
+    }
+
+    @Test
+    public void filtering_valueChangedWhileFiltered_itemSetUpdated() {
+        Item item = indexed.getItem(10);
+        indexed.addContainerFilter(new Compare.Equal(NUMBER, 100));
+        Assert.assertEquals(0, indexed.size());
+
+        item.getItemProperty(NUMBER).setValue(100);
+        Assert.assertEquals(Arrays.asList(10), indexed.getItemIds());
+
+        indexed.removeItem(10);
+        Assert.assertEquals(0, indexed.size());
+    }
+
+    @Test
+    public void filtering_removeAllItems_indexRebuilt() {
+        assertSameResult(new Compare.Equal(NUMBER, 7));
+
+        indexed.removeAllItems();
+        indexed.addItem("a").getItemProperty(NUMBER).setValue(7);
+        indexed.addContainerFilter(new Compare.Equal(NUMBER, 7));
+        Assert.assertEquals(Arrays.asList("a"), indexed.getItemIds());
+    }
+
+    @Test
+    public void filtering_mixedValueClasses_fallsBackToFilters() {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty(NUMBER, Number.class, null);
+        container.addPropertyIndex(NUMBER);
+        container.addItem(1).getItemProperty(NUMBER).setValue(5);
+        container.addItem(2).getItemProperty(NUMBER).setValue(5L);
+        container.addItem(3).getItemProperty(NUMBER).setValue(7);
+
+        container.addContainerFilter(new Compare.Equal(NUMBER, 5));
+        Assert.assertEquals(Arrays.asList(1), container.getItemIds());
+        container.removeAllContainerFilters();
+
+        container.removeItem(2);
+        container.addContainerFilter(new Compare.Greater(NUMBER, 5));
+        Assert.assertEquals(Arrays.asList(3), container.getItemIds());
+    }
+
+    @Test
+    public void removePropertyIndex_filteringStillWorks() {
+        Assert.assertTrue(indexed.removePropertyIndex(NUMBER));
+        Assert.assertFalse(indexed.removePropertyIndex(NUMBER));
+        Assert.assertEquals(Arrays.asList(NAME),
+                new ArrayList<Object>(indexed.getIndexedPropertyIds()));
+        for (Filter filter : getFilters()) {
+            assertSameResult(filter);
+        }
+    }
+
+    public static class Person {
+        private String name;
+        private int age;
+
+        public Person(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+    }
+
+    @Test
+    public void beanContainer_valueChangedThroughItem_indexUpdated() {
+        BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                Person.class);
+        container.addPropertyIndex("age");
+        Person anna = new Person("Anna", 30);
+        Person bo = new Person("Bo", 40);
+        container.addBean(anna);
+        container.addBean(bo);
+
+        container.addContainerFilter(new Compare.GreaterOrEqual("age", 35));
+        Assert.assertEquals(Arrays.asList(bo), container.getItemIds());
+
+        container.getItem(anna).getItemProperty("age").setValue(50);
+        Assert.assertEquals(Arrays.asList(anna, bo), container.getItemIds());
+
+        // the index keeps listening after filters are removed
+        container.removeAllContainerFilters();
+        container.getItem(bo).getItemProperty("age").setValue(20);
+        container.addContainerFilter(new Compare.GreaterOrEqual("age", 35));
+        Assert.assertEquals(Arrays.asList(anna), container.getItemIds());
+    }
+}
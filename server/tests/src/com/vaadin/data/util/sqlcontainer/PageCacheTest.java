@@ -0,0 +1,109 @@
+package com.vaadin.data.util.sqlcontainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PageCacheTest {
+
+    private SQLContainer container;
+    private PageCache cache;
+
+    @Before
+    public void setUp() {
+        container = EasyMock.createMock(SQLContainer.class);
+        cache = new PageCache();
+        cache.setPageLength(10);
+        cache.setMaxRows(30);
+    }
+
+    @Test
+    public void putPage_rowsAvailableByIndexAndId() {
+        putPage(2, "value");
+
+        Assert.assertTrue(cache.containsPage(2));
+        Assert.assertFalse(cache.containsPage(1));
+        Assert.assertEquals(new RowId(new Object[] { 25 }), cache.getId(25));
+        Assert.assertEquals(25, cache.indexOf(new RowId(new Object[] { 25 })));
+        Assert.assertNotNull(cache.getItem(new RowId(new Object[] { 25 })));
+        Assert.assertNull(cache.getId(5));
+        Assert.assertEquals(-1, cache.indexOf(new RowId(new Object[] { 5 })));
+    }
+
+    @Test
+    public void evict_overRowLimit_leastRecentlyUsedPageEvicted() {
+        putPage(0, "value");
+        putPage(1, "value");
+        putPage(2, "value");
+        // Use page 0 so that page 1 becomes the least recently used one
+        cache.getId(0);
+        putPage(3, "value");
+        cache.evict(Collections.singleton(3));
+
+        Assert.assertTrue(cache.containsPage(0));
+        Assert.assertFalse(cache.containsPage(1));
+        Assert.assertFalse(cache.containsItem(new RowId(new Object[] { 15 })));
+        Assert.assertTrue(cache.containsPage(2));
+        Assert.assertTrue(cache.containsPage(3));
+        Assert.assertEquals(30, cache.getCachedRows());
+    }
+
+    @Test
+    public void evict_overMemoryLimit_pagesEvicted() {
+        cache.setMaxRows(1000);
+        putPage(0, "a long value that takes up quite a bit of memory");
+        long pageSize = cache.getEstimatedSize();
+        putPage(1, "a long value that takes up quite a bit of memory");
+        cache.setMaxMemory(pageSize);
+
+        Assert.assertFalse(cache.containsPage(0));
+        Assert.assertTrue(cache.containsPage(1));
+        Assert.assertEquals(pageSize, cache.getEstimatedSize());
+    }
+
+    @Test
+    public void evict_singlePageOverLimit_pageKept() {
+        cache.setMaxRows(5);
+        putPage(0, "value");
+        cache.evict(null);
+
+        Assert.assertTrue(cache.containsPage(0));
+    }
+
+    @Test
+    public void clear_unmodifiedItemsAvailableForReuse() {
+        putPage(0, "value");
+        RowId id = new RowId(new Object[] { 3 });
+        RowItem item = cache.getItem(id);
+
+        cache.clear();
+
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertNull(cache.getItem(id));
+        Assert.assertSame(item, cache.getPreviousItem(id));
+        // Each previous item can only be reused once
+        Assert.assertNull(cache.getPreviousItem(id));
+
+        cache.clear();
+        Assert.assertNull(cache.getPreviousItem(new RowId(new Object[] { 4 })));
+    }
+
+    private void putPage(int page, String value) {
+        List<RowId> ids = new ArrayList<RowId>();
+        List<RowItem> items = new ArrayList<RowItem>();
+        for (int i = page * 10; i < page * 10 + 10; i++) {
+            RowId id = new RowId(new Object[] { i });
+            ids.add(id);
+            items.add(new RowItem(container, id, Arrays
+                    .asList(new ColumnProperty("NAME", false, true, true,
+                            false, value, String.class))));
+        }
+        cache.putPage(page, ids, items);
+    }
+}
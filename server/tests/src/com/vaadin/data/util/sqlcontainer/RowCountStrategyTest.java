@@ -0,0 +1,226 @@
+package com.vaadin.data.util.sqlcontainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Container.ItemSetChangeEvent;
+import com.vaadin.data.Container.ItemSetChangeListener;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.connection.SimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+public class RowCountStrategyTest {
+
+    private JDBCConnectionPool connectionPool;
+
+    private static class CountingStrategy extends ExactRowCountStrategy {
+        private int counts = 0;
+
+        @Override
+        public int getRowCount(QueryDelegate delegate, List<Filter> filters,
+                Callback callback) throws SQLException {
+            counts++;
+            return super.getRowCount(delegate, filters, callback);
+        }
+    }
+
+    private static class QueuingExecutor implements Executor {
+        private final List<Runnable> commands = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            commands.add(command);
+        }
+
+        public void runAll() {
+            List<Runnable> queued = new ArrayList<Runnable>(commands);
+            commands.clear();
+            for (Runnable command : queued) {
+                command.run();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        DataGenerator.addPeopleToDatabase(connectionPool);
+    }
+
+    @After
+    public void tearDown() {
+        if (connectionPool != null) {
+            connectionPool.destroy();
+        }
+    }
+
+    private SQLContainer createContainer() throws SQLException {
+        return new SQLContainer(new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen));
+    }
+
+    @Test
+    public void cachedStrategy_sortAndFilterChanges_countsCachedPerFilter()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        CountingStrategy counting = new CountingStrategy();
+        container.setRowCountStrategy(new CachedRowCountStrategy(60000,
+                counting));
+
+        assertEquals(4, container.size());
+        assertEquals(1, counting.counts);
+
+        container.sort(new Object[] { "NAME" }, new boolean[] { false });
+        assertEquals(4, container.size());
+        assertEquals(1, counting.counts);
+
+        Like filter = new Like("NAME", "Vi%");
+        container.addContainerFilter(filter);
+        assertEquals(1, container.size());
+        assertEquals(2, counting.counts);
+
+        container.removeContainerFilter(filter);
+        assertEquals(4, container.size());
+        assertEquals(2, counting.counts);
+
+        container.refresh();
+        assertEquals(4, container.size());
+        assertEquals(3, counting.counts);
+    }
+
+    @Test
+    public void asynchronousStrategy_fewerRowsThanLimit_exactCountWithoutBackgroundCount()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        QueuingExecutor countExecutor = new QueuingExecutor();
+        container.setRowCountStrategy(new AsynchronousRowCountStrategy(
+                countExecutor, new QueuingExecutor(), 10));
+
+        assertEquals(4, container.size());
+        assertTrue(countExecutor.commands.isEmpty());
+    }
+
+    @Test
+    public void asynchronousStrategy_countDelivered_sizeUpdatedAndEventFired()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        QueuingExecutor countExecutor = new QueuingExecutor();
+        QueuingExecutor resultExecutor = new QueuingExecutor();
+        container.setRowCountStrategy(new AsynchronousRowCountStrategy(
+                countExecutor, resultExecutor, 2));
+        final List<ItemSetChangeEvent> events = new ArrayList<ItemSetChangeEvent>();
+        container.addItemSetChangeListener(new ItemSetChangeListener() {
+            @Override
+            public void containerItemSetChange(ItemSetChangeEvent event) {
+                events.add(event);
+            }
+        });
+
+        assertEquals(2, container.size());
+        assertEquals(1, countExecutor.commands.size());
+        events.clear();
+
+        countExecutor.runAll();
+        assertEquals(2, container.size());
+        assertEquals(1, resultExecutor.commands.size());
+
+        resultExecutor.runAll();
+        assertEquals(4, container.size());
+        assertEquals(1, events.size());
+        assertEquals(4, container.getItemIds(0, 4).size());
+    }
+
+    @Test
+    public void asynchronousStrategy_filterChangedBeforeDelivery_countIgnored()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        QueuingExecutor countExecutor = new QueuingExecutor();
+        QueuingExecutor resultExecutor = new QueuingExecutor();
+        container.setRowCountStrategy(new AsynchronousRowCountStrategy(
+                countExecutor, resultExecutor, 2));
+
+        assertEquals(2, container.size());
+        countExecutor.runAll();
+
+        container.addContainerFilter(new Like("NAME", "Vi%"));
+        assertEquals(1, container.size());
+
+        resultExecutor.runAll();
+        assertEquals(1, container.size());
+    }
+
+    @Test
+    public void asynchronousStrategy_countedAgain_lastCountUsedUntilDelivery()
+            throws SQLException {
+        QueuingExecutor countExecutor = new QueuingExecutor();
+        QueuingExecutor resultExecutor = new QueuingExecutor();
+        AsynchronousRowCountStrategy strategy = new AsynchronousRowCountStrategy(
+                countExecutor, resultExecutor, 2);
+        TableQuery query = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        final List<Integer> delivered = new ArrayList<Integer>();
+        RowCountStrategy.Callback callback = new RowCountStrategy.Callback() {
+            @Override
+            public void rowCountAvailable(int count) {
+                delivered.add(count);
+            }
+        };
+        List<Filter> filters = new ArrayList<Filter>();
+
+        assertEquals(2, strategy.getRowCount(query, filters, callback));
+        countExecutor.runAll();
+        resultExecutor.runAll();
+        assertEquals(Arrays.asList(4), delivered);
+
+        // Revalidation keeps the last count while counting again
+        strategy.invalidate();
+        assertEquals(4, strategy.getRowCount(query, filters, callback));
+        assertEquals(1, countExecutor.commands.size());
+
+        // Other filters start from the provisional count
+        filters.add(new Like("NAME", "%"));
+        assertEquals(2, strategy.getRowCount(query, filters, callback));
+    }
+
+    @Test
+    public void estimateLargerThanRowCount_sizeCorrectedWhenFetching()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        container.setRowCountStrategy(new ExactRowCountStrategy() {
+            @Override
+            public int getRowCount(QueryDelegate delegate,
+                    List<Filter> filters, Callback callback)
+                    throws SQLException {
+                return super.getRowCount(delegate, filters, callback) + 10;
+            }
+        });
+
+        assertEquals(14, container.size());
+        assertEquals(4, container.getItemIds(0, 14).size());
+        assertEquals(4, container.size());
+    }
+
+    @Test
+    public void estimatedStrategy_noEstimateFromGenerator_exactCount()
+            throws SQLException {
+        SQLContainer container = createContainer();
+        container.setRowCountStrategy(new EstimatedRowCountStrategy());
+
+        assertEquals(4, container.size());
+    }
+}
@@ -7,6 +7,8 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
@@ -480,6 +482,123 @@ public class SQLContainerTableQueryTest {
         assertEquals(200, container.getPageLength());
     }
 
+    @Test
+    public void getCacheSize_table_returnsSixPages() throws SQLException {
+        assertEquals(600, container.getCacheSize());
+        container.setPageLength(20);
+        assertEquals(120, container.getCacheSize());
+        container.setCacheSize(1000);
+        assertEquals(1000, container.getCacheSize());
+    }
+
+    @Test
+    public void getIdByIndex_scrollBackToCachedPage_returnsSameItem()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+
+        Object first = container.getIdByIndex(10);
+        Item firstItem = container.getItem(first);
+        Object far = container.getIdByIndex(2500);
+        Item farItem = container.getItem(far);
+
+        assertEquals(far, container.getIdByIndex(2500));
+        assertSame(firstItem, container.getItem(container.getIdByIndex(10)));
+        assertSame(farItem, container.getItem(far));
+        assertEquals(2500, container.indexOfId(far));
+    }
+
+    @Test
+    public void getIdByIndex_rowRemovedOnEarlierPage_laterPagesNotShifted()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        container.setPageLength(10);
+        List<Object> ids = new ArrayList<Object>(container.getItemIds());
+        container.setAutoCommit(false);
+
+        assertTrue(container.removeItem(ids.get(5)));
+        ids.remove(5);
+
+        assertEquals(ids.size(), container.size());
+        // Fetch a later page first, then the page with the removed row
+        assertEquals(ids.get(2500), container.getIdByIndex(2500));
+        for (int i = 0; i < 30; i++) {
+            assertEquals(ids.get(i), container.getIdByIndex(i));
+        }
+        assertEquals(ids.get(ids.size() - 1),
+                container.getIdByIndex(ids.size() - 1));
+        assertEquals(2500, container.indexOfId(ids.get(2500)));
+        assertEquals(ids.get(ids.size() - 1), container.lastItemId());
+    }
+
+    @Test
+    public void getIdByIndex_sortedAfterRemoval_removedRowsSkipped()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        container.setPageLength(10);
+        container.setAutoCommit(false);
+        Object removed = container.getIdByIndex(15);
+        assertTrue(container.removeItem(removed));
+
+        container.sort(new Object[] { ID }, new boolean[] { false });
+        List<Object> ids = new ArrayList<Object>(container.getItemIds());
+        assertFalse(ids.contains(removed));
+
+        // The removed row is skipped once its page has been fetched
+        List<Object> scrolled = new ArrayList<Object>();
+        for (int i = 0; i < container.size(); i++) {
+            scrolled.add(container.getIdByIndex(i));
+        }
+        assertEquals(ids, scrolled);
+        assertEquals(ids.size(), container.size());
+        Assert.assertNull(container.getItem(removed));
+    }
+
+    @Test
+    public void size_removedRowFilteredOut_sizeFromCount()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        container.setPageLength(10);
+        container.setAutoCommit(false);
+        Object removed = container.getIdByIndex(15);
+        assertTrue(container.removeItem(removed));
+
+        container.addContainerFilter(new Like(NAME, "Person 2%"));
+        List<Object> ids = new ArrayList<Object>(container.getItemIds());
+
+        assertEquals(ids.size(), container.size());
+        assertEquals(ids.get(ids.size() - 1),
+                container.getIdByIndex(ids.size() - 1));
+    }
+
+    @Test
+    public void refresh_unchangedRows_itemsReused() throws SQLException {
+        Object id = container.firstItemId();
+        Item item = container.getItem(id);
+
+        container.refresh();
+
+        assertSame(item, container.getItem(id));
+    }
+
+    @Test
+    public void refresh_rowChangedInDatabase_itemNotReused()
+            throws SQLException {
+        Object id = container.firstItemId();
+        Item item = container.getItem(id);
+
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate("update people set \"NAME\" = 'Changed'");
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+        container.refresh();
+
+        Item refreshed = container.getItem(id);
+        assertNotSame(item, refreshed);
+        assertEquals("Changed", refreshed.getItemProperty(NAME).getValue());
+    }
+
     @Test(expected = UnsupportedOperationException.class)
     public void addContainerProperty_normal_isUnsupported() throws SQLException {
         container.addContainerProperty("asdf", String.class, "");
@@ -0,0 +1,164 @@
+package com.vaadin.data.util.sqlcontainer.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.sqlcontainer.DataGenerator;
+import com.vaadin.data.util.sqlcontainer.SQLContainer;
+import com.vaadin.data.util.sqlcontainer.SQLTestsConstants;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+
+public class ConcurrentJDBCConnectionPoolTest {
+    private ConcurrentJDBCConnectionPool connectionPool;
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new ConcurrentJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2);
+        connectionPool.setMaxWait(0);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.destroy();
+    }
+
+    @Test
+    public void reserveConnection_connectionReleased_connectionReused()
+            throws SQLException {
+        Assert.assertEquals(0, connectionPool.getIdleConnectionCount());
+        Connection conn = connectionPool.reserveConnection();
+        Assert.assertEquals(1, connectionPool.getBorrowedConnectionCount());
+
+        connectionPool.releaseConnection(conn);
+        Assert.assertFalse(conn.isClosed());
+        Assert.assertEquals(0, connectionPool.getBorrowedConnectionCount());
+        Assert.assertEquals(1, connectionPool.getIdleConnectionCount());
+
+        Assert.assertSame(conn, connectionPool.reserveConnection());
+        Assert.assertEquals(2, connectionPool.getBorrowCount());
+    }
+
+    @Test
+    public void reserveConnection_severalIdle_mostRecentlyReleasedReused()
+            throws SQLException {
+        Connection first = connectionPool.reserveConnection();
+        Connection second = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(first);
+        connectionPool.releaseConnection(second);
+
+        Assert.assertSame(second, connectionPool.reserveConnection());
+        Assert.assertSame(first, connectionPool.reserveConnection());
+    }
+
+    @Test
+    public void reserveConnection_noConnectionsLeft_shouldFail()
+            throws SQLException {
+        connectionPool.reserveConnection();
+        connectionPool.reserveConnection();
+        try {
+            connectionPool.reserveConnection();
+            Assert.fail("Reserving connection didn't fail even though no connections are available!");
+        } catch (SQLException e) {
+            // expected
+        }
+        Assert.assertEquals(1, connectionPool.getTimeoutCount());
+    }
+
+    @Test
+    public void reserveConnection_connectionReleasedWhileWaiting_returnsConnection()
+            throws Exception {
+        connectionPool.setMaxWait(10000);
+        connectionPool.reserveConnection();
+        final Connection conn2 = connectionPool.reserveConnection();
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                connectionPool.releaseConnection(conn2);
+            }
+        };
+        releaser.start();
+
+        Assert.assertSame(conn2, connectionPool.reserveConnection());
+        releaser.join();
+
+        long[] histogram = connectionPool.getWaitTimeHistogram();
+        Assert.assertEquals(2, histogram[0]);
+        Assert.assertEquals(1, histogram[3]);
+        Assert.assertEquals(0, connectionPool.getWaitingThreadCount());
+    }
+
+    @Test
+    public void reserveConnection_idleConnectionClosed_newConnectionReturned()
+            throws SQLException {
+        connectionPool.setValidationInterval(0);
+        Connection conn = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(conn);
+        conn.close();
+
+        Connection conn2 = connectionPool.reserveConnection();
+        Assert.assertNotSame(conn, conn2);
+        Assert.assertFalse(conn2.isClosed());
+    }
+
+    @Test
+    public void reserveConnection_idleTimeoutExpired_connectionClosed()
+            throws Exception {
+        connectionPool.setIdleTimeout(0);
+        Connection conn = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(conn);
+        Thread.sleep(5);
+
+        Connection conn2 = connectionPool.reserveConnection();
+        Assert.assertNotSame(conn, conn2);
+        Assert.assertTrue(conn.isClosed());
+        Assert.assertEquals(0, connectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void releaseConnection_connectionNotFromPool_ignored()
+            throws SQLException {
+        SimpleJDBCConnectionPool otherPool = new SimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 1, 1);
+        Connection conn = otherPool.reserveConnection();
+        connectionPool.releaseConnection(conn);
+        Assert.assertEquals(0, connectionPool.getIdleConnectionCount());
+        otherPool.destroy();
+    }
+
+    @Test
+    public void destroy_connectionsClosed() throws SQLException {
+        Connection reserved = connectionPool.reserveConnection();
+        Connection idle = connectionPool.reserveConnection();
+        connectionPool.releaseConnection(idle);
+
+        connectionPool.destroy();
+
+        Assert.assertTrue(reserved.isClosed());
+        Assert.assertTrue(idle.isClosed());
+    }
+
+    @Test
+    public void sqlContainer_usesPool_connectionsReleased()
+            throws SQLException {
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+
+        Assert.assertEquals(4, container.size());
+        Assert.assertNotNull(container.getItem(container.firstItemId()));
+        Assert.assertEquals(0, connectionPool.getBorrowedConnectionCount());
+    }
+}
@@ -1,5 +1,9 @@
 package com.vaadin.data.util.sqlcontainer.query;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -7,7 +11,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -19,6 +25,7 @@ import com.vaadin.data.util.filter.Compare.Equal;
 import com.vaadin.data.util.filter.Like;
 import com.vaadin.data.util.sqlcontainer.DataGenerator;
 import com.vaadin.data.util.sqlcontainer.OptimisticLockException;
+import com.vaadin.data.util.sqlcontainer.RowId;
 import com.vaadin.data.util.sqlcontainer.RowItem;
 import com.vaadin.data.util.sqlcontainer.SQLContainer;
 import com.vaadin.data.util.sqlcontainer.SQLTestsConstants;
@@ -734,4 +741,357 @@ public class TableQueryTest {
             statement.execute(SQLTestsConstants.dropSchema);
         }
     }
+
+    private List<Object> fetchIds(TableQuery query, int offset, int pagelength)
+            throws SQLException {
+        List<Object> ids = new ArrayList<Object>();
+        query.beginTransaction();
+        ResultSet rs = query.getResults(offset, pagelength);
+        Map<String, Object> lastRow = new HashMap<String, Object>();
+        while (rs.next()) {
+            ids.add(rs.getObject("ID"));
+            lastRow.put("ID", rs.getObject("ID"));
+            lastRow.put("AGE", rs.getObject("AGE"));
+        }
+        rs.getStatement().close();
+        rs.close();
+        query.commit();
+        query.pageRead(offset, ids.size(), lastRow);
+        return ids;
+    }
+
+    @Test
+    public void getResults_keysetPaging_sameRowsAsOffsetPaging()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        TableQuery keyset = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        keyset.setKeysetPaging(true);
+        keyset.setOrderBy(Arrays.asList(new OrderBy("AGE", false)));
+        TableQuery offsetQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        offsetQuery.setOrderBy(Arrays.asList(new OrderBy("AGE", false),
+                new OrderBy("ID", true)));
+
+        for (int page = 0; page < 10; page++) {
+            Assert.assertEquals(fetchIds(offsetQuery, page * 500, 500),
+                    fetchIds(keyset, page * 500, 500));
+        }
+        // Random jump falls back to an offset
+        Assert.assertEquals(fetchIds(offsetQuery, 1234, 100),
+                fetchIds(keyset, 1234, 100));
+    }
+
+    @Test
+    public void getResults_keysetPaging_seeksPastPreviousPage()
+            throws SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setKeysetPaging(true);
+        List<Object> firstPage = fetchIds(tQuery, 0, 2);
+
+        // Remove the first row behind the query's back
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate("DELETE FROM people WHERE \"ID\" = "
+                + firstPage.get(0));
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+
+        // With an offset, the third row would now be skipped
+        Assert.assertEquals(Arrays.asList(2 + offset, 3 + offset),
+                fetchIds(tQuery, 2, 2));
+    }
+
+    @Test
+    public void getResults_keysetPagingWithNullValues_nullRowsIncluded()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate("UPDATE people SET \"AGE\" = NULL"
+                + " WHERE \"AGE\" < 10");
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+
+        TableQuery keyset = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        keyset.setKeysetPaging(true);
+        keyset.setOrderBy(Arrays.asList(new OrderBy("AGE", false)));
+        TableQuery offsetQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        offsetQuery.setOrderBy(Arrays.asList(new OrderBy("AGE", false),
+                new OrderBy("ID", true)));
+
+        for (int page = 0; page < 10; page++) {
+            Assert.assertEquals(fetchIds(offsetQuery, page * 500, 500),
+                    fetchIds(keyset, page * 500, 500));
+        }
+    }
+
+    @Test
+    public void getResults_keysetPagingInContainer_seeksPastFetchedPages()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setKeysetPaging(true);
+        SQLContainer container = new SQLContainer(tQuery);
+        // Fetches the first page and the pages read ahead
+        Object firstId = container.firstItemId();
+        int fetchedRows = SQLContainer.DEFAULT_PAGE_LENGTH
+                * (SQLContainer.CACHE_RATIO + 1);
+
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate("DELETE FROM people WHERE \"ID\" = "
+                + ((RowId) firstId).getId()[0]);
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+
+        // The container remembered where the fetched rows end
+        Assert.assertEquals(Arrays.asList(fetchedRows + offset),
+                fetchIds(tQuery, fetchedRows, 1));
+    }
+
+    @Test
+    public void refresh_keysetBoundariesCleared() throws SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setKeysetPaging(true);
+        SQLContainer container = new SQLContainer(tQuery);
+        List<Object> firstPage = fetchIds(tQuery, 0, 2);
+
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate("DELETE FROM people WHERE \"ID\" = "
+                + firstPage.get(0));
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+        container.refresh();
+
+        // The remembered boundary is gone, so an offset is used
+        Assert.assertEquals(Arrays.asList(3 + offset),
+                fetchIds(tQuery, 2, 2));
+    }
+
+    @Test
+    public void storeRows_batchedInserts_generatedKeysForAllRows()
+            throws SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setBatchSize(2);
+        SQLContainer container = new SQLContainer(tQuery);
+        final List<RowId> newIds = new ArrayList<RowId>();
+        tQuery.addRowIdChangeListener(new QueryDelegate.RowIdChangeListener() {
+            @Override
+            public void rowIdChange(QueryDelegate.RowIdChangeEvent event) {
+                newIds.add(event.getNewRowId());
+            }
+        });
+        List<RowItem> rows = new ArrayList<RowItem>();
+        for (int i = 0; i < 5; i++) {
+            RowItem row = (RowItem) container.getItem(container.addItem());
+            row.getItemProperty("NAME").setValue("Batch " + i);
+            row.getItemProperty("AGE").setValue(i);
+            rows.add(row);
+        }
+
+        tQuery.beginTransaction();
+        int[] results = tQuery.storeRows(rows);
+        tQuery.commit();
+
+        Assert.assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results);
+        Assert.assertEquals(9, tQuery.getCount());
+        Assert.assertEquals(5, newIds.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(new RowId(new Object[] { 4 + i + offset }),
+                    newIds.get(i));
+        }
+    }
+
+    @Test
+    public void commit_batchedUpdatesAndRemovals_shouldSucceed()
+            throws SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setBatchSize(2);
+        SQLContainer container = new SQLContainer(tQuery);
+        List<?> ids = new ArrayList<Object>(container.getItemIds());
+        for (Object id : ids.subList(1, 4)) {
+            container.getItem(id).getItemProperty("AGE").setValue(99);
+        }
+        container.removeItem(ids.get(0));
+        container.commit();
+
+        Assert.assertEquals(3, tQuery.getCount());
+        tQuery.setFilters(Arrays.<Filter> asList(new Equal("AGE", 99)));
+        Assert.assertEquals(3, tQuery.getCount());
+    }
+
+    @Test
+    public void removeRows_rowRemovedExternally_returnsFalseForRow()
+            throws SQLException {
+        TableQuery tQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        SQLContainer container = new SQLContainer(tQuery);
+        List<RowItem> rows = new ArrayList<RowItem>();
+        for (Object id : container.getItemIds()) {
+            rows.add((RowItem) container.getItem(id));
+        }
+
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate("DELETE FROM people WHERE \"ID\" = "
+                + (1 + offset));
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+
+        tQuery.beginTransaction();
+        boolean[] removed = tQuery.removeRows(rows);
+        tQuery.commit();
+
+        Assert.assertTrue(Arrays.equals(new boolean[] { true, false, true,
+                true }, removed));
+        Assert.assertEquals(0, tQuery.getCount());
+    }
+
+    /*
+     * Connection pool wrapper that counts executed batches and optionally
+     * hides the update counts of batched statements like some drivers do.
+     */
+    private static class BatchCountingConnectionPool implements
+            JDBCConnectionPool {
+        private final JDBCConnectionPool pool;
+        private final boolean hideBatchCounts;
+        private int batches = 0;
+
+        public BatchCountingConnectionPool(JDBCConnectionPool pool,
+                boolean hideBatchCounts) {
+            this.pool = pool;
+            this.hideBatchCounts = hideBatchCounts;
+        }
+
+        @Override
+        public Connection reserveConnection() throws SQLException {
+            final Connection connection = pool.reserveConnection();
+            return (Connection) Proxy.newProxyInstance(getClass()
+                    .getClassLoader(), new Class<?>[] { Connection.class },
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method,
+                                Object[] args) throws Throwable {
+                            if ("unwrap".equals(method.getName())) {
+                                return connection;
+                            }
+                            Object result = invokeTarget(connection, method,
+                                    args);
+                            if (result instanceof PreparedStatement) {
+                                return wrap((PreparedStatement) result);
+                            }
+                            return result;
+                        }
+                    });
+        }
+
+        private PreparedStatement wrap(final PreparedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass()
+                    .getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method,
+                                Object[] args) throws Throwable {
+                            Object result = invokeTarget(statement, method,
+                                    args);
+                            if ("executeBatch".equals(method.getName())) {
+                                batches++;
+                                if (hideBatchCounts) {
+                                    Arrays.fill((int[]) result,
+                                            Statement.SUCCESS_NO_INFO);
+                                }
+                            }
+                            return result;
+                        }
+                    });
+        }
+
+        private static Object invokeTarget(Object target, Method method,
+                Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public void releaseConnection(Connection conn) {
+            if (conn != null && Proxy.isProxyClass(conn.getClass())) {
+                try {
+                    conn = conn.unwrap(Connection.class);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            pool.releaseConnection(conn);
+        }
+
+        @Override
+        public void destroy() {
+            pool.destroy();
+        }
+    }
+
+    private int[] updateAgesInBatches(TableQuery tQuery) throws SQLException {
+        tQuery.setBatchSize(2);
+        SQLContainer container = new SQLContainer(tQuery);
+        List<RowItem> rows = new ArrayList<RowItem>();
+        for (Object id : container.getItemIds()) {
+            RowItem row = (RowItem) container.getItem(id);
+            row.getItemProperty("AGE").setValue(99);
+            rows.add(row);
+        }
+
+        tQuery.beginTransaction();
+        int[] results = tQuery.storeRows(rows);
+        tQuery.commit();
+        return results;
+    }
+
+    @Test
+    public void storeRows_versionColumnSet_rowsWrittenOneByOne()
+            throws SQLException {
+        BatchCountingConnectionPool pool = new BatchCountingConnectionPool(
+                connectionPool, false);
+        TableQuery tQuery = new TableQuery("people", pool,
+                SQLTestsConstants.sqlGen);
+        tQuery.setVersionColumn("ID");
+
+        int[] results = updateAgesInBatches(tQuery);
+
+        Assert.assertArrayEquals(new int[] { 1, 1, 1, 1 }, results);
+        Assert.assertEquals(0, pool.batches);
+    }
+
+    @Test
+    public void storeRows_noBatchUpdateCounts_remainingRowsWrittenOneByOne()
+            throws SQLException {
+        BatchCountingConnectionPool pool = new BatchCountingConnectionPool(
+                connectionPool, true);
+        TableQuery tQuery = new TableQuery("people", pool,
+                SQLTestsConstants.sqlGen);
+
+        int[] results = updateAgesInBatches(tQuery);
+
+        Assert.assertArrayEquals(new int[] { 1, 1, 1, 1 }, results);
+        Assert.assertEquals(1, pool.batches);
+        tQuery.setFilters(Arrays.<Filter> asList(new Equal("AGE", 99)));
+        Assert.assertEquals(4, tQuery.getCount());
+    }
 }
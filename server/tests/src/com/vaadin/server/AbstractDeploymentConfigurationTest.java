@@ -127,6 +127,11 @@ public class AbstractDeploymentConfigurationTest {
             return 0;
         }
 
+        @Override
+        public int getMaxRpcMessageLength() {
+            return 0;
+        }
+
         @Override
         public boolean isCloseIdleSessions() {
             return false;
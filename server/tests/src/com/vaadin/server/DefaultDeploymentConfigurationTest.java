@@ -50,4 +50,26 @@ public class DefaultDeploymentConfigurationTest {
                 DefaultDeploymentConfigurationTest.class, new Properties());
         Assert.assertEquals(value, config.getSystemProperty(prop));
     }
+
+    @Test
+    public void testMaxRpcMessageLength() {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH, "1000");
+        DefaultDeploymentConfiguration config = new DefaultDeploymentConfiguration(
+                DefaultDeploymentConfigurationTest.class, initParameters);
+        Assert.assertEquals(1000, config.getMaxRpcMessageLength());
+    }
+
+    @Test
+    public void testMaxRpcMessageLengthNotNumeric() {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH, "foo");
+        DefaultDeploymentConfiguration config = new DefaultDeploymentConfiguration(
+                DefaultDeploymentConfigurationTest.class, initParameters);
+        Assert.assertEquals(
+                DefaultDeploymentConfiguration.DEFAULT_MAX_RPC_MESSAGE_LENGTH,
+                config.getMaxRpcMessageLength());
+    }
 }
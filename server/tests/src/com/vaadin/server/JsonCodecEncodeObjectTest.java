@@ -0,0 +1,75 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.shared.communication.SharedState;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+
+public class JsonCodecEncodeObjectTest {
+
+    public static class PrimitiveState extends SharedState {
+        public boolean flag = true;
+        public int intValue = 42;
+        public long longValue = -7;
+        public double doubleValue = 0.5;
+        public float floatValue = 1.5f;
+        public char charValue = 'c';
+        public String stringValue = "foo";
+        public String nullString;
+        public Integer boxed = Integer.valueOf(3);
+    }
+
+    @Test
+    public void primitiveFieldsEncoded() {
+        JsonObject encoded = (JsonObject) JsonCodec.encode(
+                new PrimitiveState(), null, PrimitiveState.class, null)
+                .getEncodedValue();
+
+        Assert.assertTrue(encoded.getBoolean("flag"));
+        Assert.assertEquals(42, encoded.getNumber("intValue"), 0);
+        Assert.assertEquals(-7, encoded.getNumber("longValue"), 0);
+        Assert.assertEquals(0.5, encoded.getNumber("doubleValue"), 0);
+        Assert.assertEquals(1.5, encoded.getNumber("floatValue"), 0);
+        Assert.assertEquals("c", encoded.getString("charValue"));
+        Assert.assertEquals("foo", encoded.getString("stringValue"));
+        Assert.assertEquals(JsonType.NULL, encoded.get("nullString").getType());
+        Assert.assertEquals(3, encoded.getNumber("boxed"), 0);
+    }
+
+    @Test
+    public void onlyChangedFieldsInDiff() {
+        JsonObject reference = (JsonObject) JsonCodec.encode(
+                new PrimitiveState(), null, PrimitiveState.class, null)
+                .getEncodedValue();
+
+        PrimitiveState state = new PrimitiveState();
+        state.flag = false;
+        state.intValue = 1;
+        state.nullString = "bar";
+        JsonObject diff = (JsonObject) JsonCodec.encode(state, reference,
+                PrimitiveState.class, null).getDiff();
+
+        Assert.assertEquals(3, diff.keys().length);
+        Assert.assertFalse(diff.getBoolean("flag"));
+        Assert.assertEquals(1, diff.getNumber("intValue"), 0);
+        Assert.assertEquals("bar", diff.getString("nullString"));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.JsonCodec.PropertySnapshot;
+import com.vaadin.shared.communication.SharedState;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class JsonCodecIncrementalEncodingTest {
+
+    public static class NestedBean {
+        public String name = "nested";
+        public int value = 0;
+    }
+
+    public static class WideState extends SharedState {
+        public String caption = "caption";
+        public int count = 1;
+        public Boolean flag;
+        public List<String> items = new ArrayList<String>();
+        public String[] names = new String[] { "a", "b" };
+        public Map<String, Integer> counts = new HashMap<String, Integer>();
+        public NestedBean nested = new NestedBean();
+        public List<NestedBean> beans = new ArrayList<NestedBean>();
+    }
+
+    private WideState state;
+    private PropertySnapshot snapshot;
+    private JsonObject encoded;
+
+    @Before
+    public void setup() {
+        state = new WideState();
+        snapshot = new PropertySnapshot(WideState.class);
+        encoded = (JsonObject) JsonCodec.encode(new WideState(), null,
+                WideState.class, null).getEncodedValue();
+    }
+
+    private JsonObject encode() {
+        EncodeResult result = JsonCodec.encodeIncrementally(state, encoded,
+                WideState.class, snapshot, null);
+        encoded = (JsonObject) result.getEncodedValue();
+        return (JsonObject) result.getDiff();
+    }
+
+    @Test
+    public void emptySnapshotEncodesEverything() {
+        state.caption = "foo";
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals("foo", diff.getString("caption"));
+        Assert.assertTrue(JsonCodec.jsonEquals(encoded, JsonCodec.encode(
+                state, null, WideState.class, null).getEncodedValue()));
+    }
+
+    @Test
+    public void unchangedPropertiesReused() {
+        encode();
+        JsonObject previous = encoded;
+
+        state.count = 5;
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals(5, (int) diff.getNumber("count"));
+        Assert.assertSame(previous.get("caption"), encoded.get("caption"));
+        Assert.assertSame(previous.get("flag"), encoded.get("flag"));
+    }
+
+    @Test
+    public void changeBackToPreviousValueDetected() {
+        state.flag = Boolean.TRUE;
+        encode();
+        state.flag = null;
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertTrue(diff.hasKey("flag"));
+    }
+
+    @Test
+    public void mutableContentChangeDetected() {
+        encode();
+        state.items.add("bar");
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals("bar", diff.getArray("items").getString(0));
+    }
+
+    @Test
+    public void unchangedContentsReused() {
+        state.items.add("foo");
+        state.counts.put("foo", 1);
+        encode();
+        JsonObject previous = encoded;
+
+        state.count = 5;
+        encode();
+
+        Assert.assertSame(previous.get("items"), encoded.get("items"));
+        Assert.assertSame(previous.get("names"), encoded.get("names"));
+        Assert.assertSame(previous.get("counts"), encoded.get("counts"));
+    }
+
+    @Test
+    public void arrayContentChangeDetected() {
+        encode();
+        state.names[1] = "c";
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals("c", diff.getArray("names").getString(1));
+    }
+
+    @Test
+    public void mapContentChangeDetected() {
+        state.counts.put("foo", 1);
+        encode();
+        state.counts.put("foo", 2);
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals(2, (int) diff.getObject("counts").getNumber("foo"));
+    }
+
+    @Test
+    public void unchangedNestedBeanReused() {
+        state.beans.add(new NestedBean());
+        encode();
+        encode();
+        JsonObject previous = encoded;
+
+        state.count = 5;
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertSame(previous.get("nested"), encoded.get("nested"));
+        Assert.assertSame(previous.get("beans"), encoded.get("beans"));
+    }
+
+    @Test
+    public void nestedBeanChangeDetected() {
+        encode();
+        encode();
+        state.nested.value = 3;
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        JsonObject nestedDiff = diff.getObject("nested");
+        Assert.assertEquals(1, nestedDiff.keys().length);
+        Assert.assertEquals(3, (int) nestedDiff.getNumber("value"));
+    }
+
+    @Test
+    public void beanCollectionChangeDetected() {
+        state.beans.add(new NestedBean());
+        state.beans.add(new NestedBean());
+        encode();
+        encode();
+
+        state.beans.get(1).name = "changed";
+        JsonObject diff = encode();
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals("changed", diff.getArray("beans").getObject(1)
+                .getString("name"));
+
+        state.beans.remove(0);
+        diff = encode();
+        Assert.assertEquals(1, diff.getArray("beans").length());
+        Assert.assertEquals("changed", diff.getArray("beans").getObject(0)
+                .getString("name"));
+        Assert.assertTrue(JsonCodec.jsonEquals(encoded, JsonCodec.encode(
+                state, null, WideState.class, null).getEncodedValue()));
+    }
+
+    @Test
+    public void modifiedReferenceValueDetected() {
+        encode();
+        // Simulates what e.g. Button does when the client has changed a value
+        encoded.put("caption", Json.create("client value"));
+        JsonObject diff = encode();
+
+        Assert.assertEquals(1, diff.keys().length);
+        Assert.assertEquals("caption", diff.getString("caption"));
+    }
+}
@@ -15,8 +15,14 @@
  */
 package com.vaadin.server;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -249,4 +255,72 @@ public class VaadinSessionTest {
                         + "method for closing session", 1,
                 vaadinSession.getCloseCount());
     }
+
+    private Throwable useAttributesInOtherThread() throws InterruptedException {
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    session.setAttribute("foo", "bar");
+                    Assert.assertEquals("bar", session.getAttribute("foo"));
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        return error.get();
+    }
+
+    @Test
+    public void attributesUsedWithoutLock() throws InterruptedException {
+        Assert.assertNull(useAttributesInOtherThread());
+        Assert.assertEquals("bar", session.getAttribute("foo"));
+    }
+
+    @Test
+    public void attributes_serializedWhileModified() throws Exception {
+        final VaadinSession serializedSession = new VaadinSession(mockService);
+        for (int i = 0; i < 100; i++) {
+            serializedSession.setAttribute("attribute" + i, i);
+        }
+
+        final AtomicBoolean done = new AtomicBoolean(false);
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                int i = 0;
+                while (!done.get()) {
+                    // attribute0 is never changed
+                    serializedSession.setAttribute("attribute"
+                            + (1 + i % 199), i % 2 == 0 ? i : null);
+                    i++;
+                }
+            }
+        };
+        writer.start();
+        try {
+            for (int i = 0; i < 50; i++) {
+                VaadinSession deserialized = (VaadinSession) serializeAndDeserialize(
+                        serializedSession);
+                Assert.assertEquals(0,
+                        deserialized.getAttribute("attribute0"));
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+
+    private static Object serializeAndDeserialize(Object object)
+            throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return new ObjectInputStream(new ByteArrayInputStream(
+                bytes.toByteArray())).readObject();
+    }
 }
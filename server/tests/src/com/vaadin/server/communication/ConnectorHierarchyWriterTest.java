@@ -0,0 +1,102 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class ConnectorHierarchyWriterTest {
+
+    private UI ui;
+    private VerticalLayout layout;
+    private Label label;
+
+    @Before
+    public void setup() {
+        VaadinSession session = new AlwaysLockedVaadinSession(null);
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setSession(session);
+
+        layout = new VerticalLayout();
+        label = new Label("foo");
+        layout.addComponent(label);
+        ui.setContent(layout);
+    }
+
+    private JsonObject writeHierarchy() throws IOException {
+        StringWriter writer = new StringWriter();
+        new ConnectorHierarchyWriter().write(ui, writer);
+        ui.getConnectorTracker().markAllConnectorsClean();
+        return Json.parse(writer.toString());
+    }
+
+    @Test
+    public void unchangedHierarchyNotResent() throws IOException {
+        JsonObject initial = writeHierarchy();
+        Assert.assertTrue(initial.hasKey(ui.getConnectorId()));
+        Assert.assertTrue(initial.hasKey(layout.getConnectorId()));
+        Assert.assertEquals(0, initial.getArray(label.getConnectorId())
+                .length());
+
+        layout.markAsDirty();
+        label.setValue("bar");
+        Assert.assertEquals(0, writeHierarchy().keys().length);
+    }
+
+    @Test
+    public void changedHierarchyResent() throws IOException {
+        writeHierarchy();
+
+        Label other = new Label("other");
+        layout.addComponent(other);
+        JsonObject hierarchy = writeHierarchy();
+        Assert.assertEquals(2, hierarchy.getArray(layout.getConnectorId())
+                .length());
+        Assert.assertFalse(hierarchy.hasKey(ui.getConnectorId()));
+
+        layout.removeComponent(other);
+        hierarchy = writeHierarchy();
+        Assert.assertEquals(1, hierarchy.getArray(layout.getConnectorId())
+                .length());
+    }
+
+    @Test
+    public void hierarchyResentAfterClientReset() throws IOException {
+        writeHierarchy();
+
+        ui.getConnectorTracker().markAllClientSidesUninitialized();
+        layout.markAsDirty();
+        Assert.assertTrue(writeHierarchy().hasKey(layout.getConnectorId()));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import elemental.json.JsonException;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamReaderTest {
+
+    private static JsonStreamReader reader(String json) {
+        return new JsonStreamReader(new StringReader(json));
+    }
+
+    @Test
+    public void readNestedStructure() throws IOException {
+        JsonStreamReader json = reader(" { \"a\" : 1 , \"b\" : [ \"x\", true ,"
+                + "null, {} ], \"c\": -1.5e1 } ");
+        json.beginObject();
+        Assert.assertEquals("a", json.nextName());
+        Assert.assertEquals(1, json.nextNumber(), 0);
+        Assert.assertEquals("b", json.nextName());
+        json.beginArray();
+        Assert.assertEquals(JsonType.STRING, json.peek());
+        Assert.assertEquals("x", json.nextString());
+        Assert.assertTrue(json.nextBoolean());
+        json.nextNull();
+        json.beginObject();
+        Assert.assertFalse(json.hasNext());
+        json.endObject();
+        Assert.assertFalse(json.hasNext());
+        json.endArray();
+        Assert.assertEquals("c", json.nextName());
+        Assert.assertEquals(-15, json.nextNumber(), 0);
+        Assert.assertFalse(json.hasNext());
+        json.endObject();
+        Assert.assertFalse(json.hasNext());
+    }
+
+    @Test
+    public void nextValueMatchesParse() throws IOException {
+        String source = "{\"string\":\"foo\\\"bar\\u00e4\\n\",\"number\":42,"
+                + "\"fraction\":-0.25,\"bool\":false,\"null\":null,"
+                + "\"array\":[{},[],\"baz\"]}";
+        JsonValue value = reader(source).nextValue();
+        Assert.assertEquals(JsonUtil.stringify(JsonUtil.parse(source)),
+                JsonUtil.stringify(value));
+    }
+
+    @Test
+    public void readLongStringAcrossBuffers() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < JsonStreamReader.BUFFER_SIZE * 3; i++) {
+            expected.append((char) ('a' + i % 26));
+        }
+        JsonStreamReader json = reader("[\"" + expected + "\", 1]");
+        json.beginArray();
+        Assert.assertEquals(expected.toString(), json.nextString());
+        Assert.assertEquals(1, json.nextNumber(), 0);
+        json.endArray();
+    }
+
+    @Test
+    public void skipValue() throws IOException {
+        JsonStreamReader json = reader("[{\"a\":[1,\"\\\"]\"]},2]");
+        json.beginArray();
+        json.skipValue();
+        Assert.assertEquals(2, json.nextNumber(), 0);
+        json.endArray();
+    }
+
+    @Test
+    public void emptyInput_hasNoNext() throws IOException {
+        Assert.assertFalse(reader("  ").hasNext());
+    }
+
+    @Test(expected = JsonException.class)
+    public void missingSeparator_throws() throws IOException {
+        JsonStreamReader json = reader("[1 2]");
+        json.beginArray();
+        json.nextNumber();
+        json.nextNumber();
+    }
+
+    @Test(expected = JsonException.class)
+    public void unterminatedString_throws() throws IOException {
+        reader("\"abc").nextString();
+    }
+
+    @Test(expected = JsonException.class)
+    public void inputExceedingMaxLength_throws() throws IOException {
+        StringBuilder source = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            source.append("1,");
+        }
+        source.append("1]");
+        new JsonStreamReader(new StringReader(source.toString()), 5000)
+                .nextValue();
+    }
+
+    @Test
+    public void inputWithinMaxLength_read() throws IOException {
+        Assert.assertEquals(3, new JsonStreamReader(new StringReader("3"), 1)
+                .nextNumber(), 0);
+    }
+}
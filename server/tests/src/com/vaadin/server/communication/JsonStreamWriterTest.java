@@ -0,0 +1,116 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamWriterTest {
+
+    private StringWriter writer;
+    private JsonStreamWriter json;
+
+    @Before
+    public void setup() {
+        writer = new StringWriter();
+        json = new JsonStreamWriter(writer);
+    }
+
+    private String result() throws IOException {
+        json.close();
+        return writer.toString();
+    }
+
+    @Test
+    public void writeNestedStructure() throws IOException {
+        json.beginObject().name("a").value(1).name("b").beginArray()
+                .value("x").value(true).nullValue().beginObject().endObject()
+                .endArray().name("c").value(1.5).endObject();
+        Assert.assertEquals("{\"a\":1,\"b\":[\"x\",true,null,{}],\"c\":1.5}",
+                result());
+    }
+
+    @Test
+    public void escapeSpecialCharacters() throws IOException {
+        json.value("quote\" backslash\\ tab\t newline\n"
+                + " ctrl\u0001 sep\u2028 \u00e4");
+        Assert.assertEquals("\"quote\\\" backslash\\\\ tab\\t newline\\n"
+                + " ctrl\\u0001 sep\\u2028 \u00e4\"", result());
+    }
+
+    @Test
+    public void jsonValueMatchesStringify() throws IOException {
+        JsonObject object = Json.createObject();
+        object.put("string", "foo\"bar");
+        object.put("number", 42);
+        object.put("fraction", -0.25);
+        object.put("bool", false);
+        object.put("null", Json.createNull());
+        JsonArray array = Json.createArray();
+        array.set(0, Json.createObject());
+        array.set(1, Json.createArray());
+        array.set(2, "baz");
+        object.put("array", array);
+
+        json.value(object);
+        Assert.assertEquals(JsonUtil.stringify(object), result());
+    }
+
+    @Test
+    public void longStringSpanningBuffers() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < JsonStreamWriter.BUFFER_SIZE * 3; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        json.beginArray().value(sb.toString()).value(Long.MIN_VALUE)
+                .value(-123).endArray();
+        Assert.assertEquals("[\"" + sb + "\"," + Long.MIN_VALUE + ",-123]",
+                result());
+    }
+
+    @Test
+    public void deeplyNestedStructure() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            json.beginArray();
+            expected.append('[');
+        }
+        for (int i = 0; i < 200; i++) {
+            json.endArray();
+            expected.append(']');
+        }
+        Assert.assertEquals(expected.toString(), result());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void valueWithoutNameInObject() throws IOException {
+        json.beginObject().value("foo");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unbalancedEnd() throws IOException {
+        json.beginArray().endObject();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+public class PushSchedulerTest {
+
+    private UI ui;
+    private PushScheduler scheduler;
+    private ScheduledThreadPoolExecutor executor;
+
+    @Before
+    public void setUp() {
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.getConnectorTracker().markAllConnectorsClean();
+        scheduler = new PushScheduler(ui);
+        executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void noCoalescingByDefault() {
+        scheduler.pushed();
+        Assert.assertFalse(scheduler.deferPush(executor));
+        Assert.assertEquals(0, scheduler.getCoalescedPushCount());
+    }
+
+    @Test
+    public void firstPushIsNotDeferred() {
+        ui.getPushConfiguration().setCoalescingWindow(10000);
+        Assert.assertFalse(scheduler.deferPush(executor));
+    }
+
+    @Test
+    public void pushWithinWindowIsDeferred() {
+        ui.getPushConfiguration().setCoalescingWindow(10000);
+        scheduler.pushed();
+
+        Assert.assertTrue(scheduler.deferPush(executor));
+        Assert.assertTrue(scheduler.deferPush(executor));
+        Assert.assertEquals(2, scheduler.getCoalescedPushCount());
+        Assert.assertEquals(1, scheduler.getPushCount());
+        // Only one flush is scheduled on the given executor
+        Assert.assertEquals(1, executor.getQueue().size());
+    }
+
+    @Test
+    public void pushCancelsScheduledFlush() {
+        executor.setRemoveOnCancelPolicy(true);
+        ui.getPushConfiguration().setCoalescingWindow(10000);
+        scheduler.pushed();
+        scheduler.deferPush(executor);
+
+        scheduler.pushed();
+        Assert.assertEquals(0, executor.getQueue().size());
+    }
+
+    @Test
+    public void pushAfterWindowIsNotDeferred() throws InterruptedException {
+        ui.getPushConfiguration().setCoalescingWindow(20);
+        scheduler.pushed();
+
+        Thread.sleep(40);
+
+        Assert.assertFalse(scheduler.deferPush(executor));
+    }
+
+    @Test
+    public void pushOverThresholdIsNotDeferred() {
+        ui.getPushConfiguration().setCoalescingWindow(10000);
+        ui.getPushConfiguration().setCoalescingThreshold(2);
+        scheduler.pushed();
+
+        ui.getConnectorTracker().markDirty(new Label());
+        Assert.assertTrue(scheduler.deferPush(executor));
+
+        ui.getConnectorTracker().markDirty(new Label());
+        Assert.assertFalse(scheduler.deferPush(executor));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeWindowIsRejected() {
+        ui.getPushConfiguration().setCoalescingWindow(-1);
+    }
+}
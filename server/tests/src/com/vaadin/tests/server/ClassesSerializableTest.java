@@ -55,6 +55,8 @@ public class ClassesSerializableTest extends TestCase {
             "com\\.vaadin\\.server\\.communication\\.PushHandler.*", // PushHandler
             "com\\.vaadin\\.server\\.communication\\.DateSerializer", //
             "com\\.vaadin\\.server\\.communication\\.JSONSerializer", //
+            "com\\.vaadin\\.server\\.communication\\.JsonStreamWriter", //
+            "com\\.vaadin\\.server\\.communication\\.JsonStreamReader", //
             // and its inner classes do not need to be serializable
             "com\\.vaadin\\.util\\.SerializerHelper", // fully static
             // class level filtering, also affecting nested classes and
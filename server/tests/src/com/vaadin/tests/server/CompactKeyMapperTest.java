@@ -0,0 +1,114 @@
+package com.vaadin.tests.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.server.CompactKeyMapper;
+
+public class CompactKeyMapperTest {
+
+    @Test
+    public void key_sameObject_sameKey() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<Object>();
+        String key = mapper.key("a");
+        Assert.assertEquals(key, mapper.key("a"));
+        Assert.assertFalse(key.equals(mapper.key("b")));
+        Assert.assertEquals(2, mapper.size());
+    }
+
+    @Test
+    public void key_manyObjects_allResolvable() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<Object>();
+        Map<Integer, String> keys = new HashMap<Integer, String>();
+        for (int i = 0; i < 5000; i++) {
+            keys.put(i, mapper.key(i));
+        }
+        Assert.assertEquals(5000, mapper.size());
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertEquals(Integer.valueOf(i), mapper.get(keys.get(i)));
+        }
+        // Keys are decimal like the keys of KeyMapper, Table parses them
+        Assert.assertEquals("10", keys.get(9));
+    }
+
+    @Test
+    public void nullAndUnknownKeys() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<Object>();
+        mapper.key("a");
+        Assert.assertEquals("null", mapper.key(null));
+        Assert.assertNull(mapper.get("null"));
+        Assert.assertNull(mapper.get(null));
+        Assert.assertNull(mapper.get(""));
+        Assert.assertNull(mapper.get("0"));
+        Assert.assertNull(mapper.get("01"));
+        Assert.assertNull(mapper.get("A"));
+        Assert.assertNull(mapper.get("a"));
+        Assert.assertNull(mapper.get("99999999999"));
+        Assert.assertNull(mapper.get("2"));
+    }
+
+    @Test
+    public void remove_otherKeysStillResolvable() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<Object>();
+        Map<Integer, String> keys = new HashMap<Integer, String>();
+        for (int i = 0; i < 1000; i++) {
+            keys.put(i, mapper.key(i));
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            mapper.remove(i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            Object expected = i % 3 == 0 ? null : Integer.valueOf(i);
+            Assert.assertEquals(expected, mapper.get(keys.get(i)));
+        }
+
+        // Remove -> add gives a new key
+        String newKey = mapper.key(0);
+        Assert.assertFalse(newKey.equals(keys.get(0)));
+        Assert.assertEquals(Integer.valueOf(0), mapper.get(newKey));
+    }
+
+    @Test
+    public void removeAll_clearsMappings() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<Object>();
+        String key = mapper.key("a");
+        mapper.removeAll();
+        Assert.assertEquals(0, mapper.size());
+        Assert.assertNull(mapper.get(key));
+    }
+
+    @Test
+    public void removeInactive_keepsRecentGenerations() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<Object>();
+        String old = mapper.key("old");
+        String reused = mapper.key("reused");
+
+        mapper.advanceGeneration();
+        mapper.key("reused");
+        String recent = mapper.key("recent");
+
+        Assert.assertEquals(0, mapper.removeInactive(2));
+        Assert.assertEquals(1, mapper.removeInactive(1));
+
+        Assert.assertNull(mapper.get(old));
+        Assert.assertEquals("reused", mapper.get(reused));
+        Assert.assertEquals("recent", mapper.get(recent));
+        Assert.assertEquals(2, mapper.size());
+    }
+
+    @Test
+    public void removeInactive_largeMapperShrinks() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<Object>();
+        for (int i = 0; i < 10000; i++) {
+            mapper.key(i);
+        }
+        mapper.advanceGeneration();
+        String key = mapper.key(5);
+        Assert.assertEquals(9999, mapper.removeInactive(1));
+        Assert.assertEquals(1, mapper.size());
+        Assert.assertEquals(Integer.valueOf(5), mapper.get(key));
+    }
+}
@@ -1,10 +1,18 @@
 package com.vaadin.tests.server;
 
+import java.util.ArrayList;
+import java.util.EventObject;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import com.vaadin.data.Property.ValueChangeEvent;
 import com.vaadin.data.Property.ValueChangeListener;
+import com.vaadin.event.EventRouter;
+import com.vaadin.event.ListenerMethod;
+import com.vaadin.ui.AbstractField;
 import com.vaadin.ui.TextField;
+import com.vaadin.util.ReflectTools;
 
 public class EventRouterTest extends TestCase {
 
@@ -36,4 +44,116 @@ public class EventRouterTest extends TestCase {
         tf.setValue("ghi"); // Two inner listener calls, adds one inner
         assert (innerListenerCalls == 3);
     }
+
+    public static class BaseEvent extends EventObject {
+        public BaseEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class SubEvent extends BaseEvent {
+        public SubEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class RecordingListener {
+        private final String name;
+        private final List<String> calls;
+
+        public RecordingListener(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        public void handle(EventObject event) {
+            calls.add(name + ":" + event.getClass().getSimpleName());
+        }
+    }
+
+    public void testFireEventOnlyNotifiesMatchingListenersInOrder() {
+        List<String> calls = new ArrayList<String>();
+        EventRouter router = new EventRouter();
+        router.addListener(SubEvent.class,
+                new RecordingListener("sub", calls), "handle");
+        router.addListener(BaseEvent.class, new RecordingListener("base",
+                calls), "handle");
+        router.addListener(SubEvent.class, new RecordingListener("sub2",
+                calls), "handle");
+
+        router.fireEvent(new BaseEvent(this));
+        router.fireEvent(new SubEvent(this));
+        router.fireEvent(new BaseEvent(this));
+
+        assertEquals("[base:BaseEvent, sub:SubEvent, base:SubEvent, "
+                + "sub2:SubEvent, base:BaseEvent]", calls.toString());
+    }
+
+    public void testListenerChangesAreSeenByLaterEvents() {
+        List<String> calls = new ArrayList<String>();
+        EventRouter router = new EventRouter();
+        RecordingListener first = new RecordingListener("first", calls);
+        router.addListener(BaseEvent.class, first, "handle");
+        router.fireEvent(new SubEvent(this));
+
+        router.addListener(SubEvent.class, new RecordingListener("second",
+                calls), "handle");
+        router.fireEvent(new SubEvent(this));
+
+        router.removeListener(BaseEvent.class, first);
+        router.fireEvent(new SubEvent(this));
+
+        router.removeAllListeners();
+        router.fireEvent(new SubEvent(this));
+
+        assertEquals("[first:SubEvent, first:SubEvent, second:SubEvent, "
+                + "second:SubEvent]", calls.toString());
+    }
+
+    public static class ArgumentListener {
+        private final List<String> calls;
+
+        public ArgumentListener(List<String> calls) {
+            this.calls = calls;
+        }
+
+        public void handle(String prefix, EventObject event) {
+            calls.add(prefix + ":" + event.getClass().getSimpleName());
+        }
+    }
+
+    public void testEventArgumentReplacedForEachEvent() {
+        List<String> calls = new ArrayList<String>();
+        Object[] arguments = new Object[] { "arg", null };
+        ListenerMethod listener = new ListenerMethod(BaseEvent.class,
+                new ArgumentListener(calls), "handle", arguments, 1);
+
+        listener.receiveEvent(new BaseEvent(this));
+        listener.receiveEvent(new SubEvent(this));
+
+        assertEquals("[arg:BaseEvent, arg:SubEvent]", calls.toString());
+        assertNull(arguments[1]);
+    }
+
+    public void testDirectlyCalledListenerFailureWrapped() {
+        final RuntimeException failure = new RuntimeException();
+        ValueChangeListener listener = new ValueChangeListener() {
+            @Override
+            public void valueChange(ValueChangeEvent event) {
+                throw failure;
+            }
+        };
+        ListenerMethod listenerMethod = new ListenerMethod(
+                AbstractField.ValueChangeEvent.class, listener,
+                ReflectTools.findMethod(ValueChangeListener.class,
+                        "valueChange", ValueChangeEvent.class));
+
+        try {
+            listenerMethod.receiveEvent(new AbstractField.ValueChangeEvent(
+                    new TextField()));
+            fail("Listener failure should be propagated");
+        } catch (ListenerMethod.MethodException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
 }
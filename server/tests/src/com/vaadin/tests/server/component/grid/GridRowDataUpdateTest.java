@@ -0,0 +1,241 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.tests.server.component.grid;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.RpcDataProviderExtension;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.data.util.converter.Converter;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.shared.data.DataRequestRpc;
+import com.vaadin.shared.ui.grid.GridState;
+import com.vaadin.ui.renderers.TextRenderer;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+public class GridRowDataUpdateTest {
+
+    private static class CountingConverter implements
+            Converter<String, String> {
+        private int conversions = 0;
+
+        @Override
+        public String convertToModel(String value,
+                Class<? extends String> targetType, Locale locale) {
+            return value;
+        }
+
+        @Override
+        public String convertToPresentation(String value,
+                Class<? extends String> targetType, Locale locale) {
+            conversions++;
+            return value;
+        }
+
+        @Override
+        public Class<String> getModelType() {
+            return String.class;
+        }
+
+        @Override
+        public Class<String> getPresentationType() {
+            return String.class;
+        }
+    }
+
+    /**
+     * Renderer that equals every other instance, so that only the column key
+     * differs between a removed and a re-added column.
+     */
+    private static class EqualTextRenderer extends TextRenderer {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof EqualTextRenderer;
+        }
+
+        @Override
+        public int hashCode() {
+            return EqualTextRenderer.class.hashCode();
+        }
+    }
+
+    private IndexedContainer container;
+    private TestGrid grid;
+    private RpcDataProviderExtension dataProvider;
+    private CountingConverter converter;
+
+    @Before
+    public void setUp() throws Exception {
+        container = new IndexedContainer();
+        container.addContainerProperty("a", String.class, "");
+        container.addContainerProperty("b", String.class, "");
+        for (int i = 0; i < 100; i++) {
+            container.addItem(i);
+            setValue(i, "a", "a" + i);
+            setValue(i, "b", "b" + i);
+        }
+
+        grid = new TestGrid(container);
+        converter = new CountingConverter();
+        grid.getColumn("b").setConverter(converter);
+        dataProvider = grid.getDataProvider();
+
+        dataProvider.beforeClientResponse(true);
+        dataProvider.retrievePendingRpcCalls();
+        converter.conversions = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setValue(Object itemId, Object propertyId, String value) {
+        container.getContainerProperty(itemId, propertyId).setValue(value);
+    }
+
+    private List<ClientMethodInvocation> getRpcCalls() {
+        dataProvider.beforeClientResponse(false);
+        return dataProvider.retrievePendingRpcCalls();
+    }
+
+    private void requestRows(int firstRow, int numberOfRows,
+            int firstCachedRow, int cacheSize) throws Exception {
+        Method getImplementation = dataProvider
+                .getRpcManager(DataRequestRpc.class.getName()).getClass()
+                .getDeclaredMethod("getImplementation");
+        getImplementation.setAccessible(true);
+        DataRequestRpc rpc = (DataRequestRpc) getImplementation
+                .invoke(dataProvider.getRpcManager(DataRequestRpc.class
+                        .getName()));
+        rpc.requestRows(firstRow, numberOfRows, firstCachedRow, cacheSize);
+    }
+
+    @Test
+    public void valueChange_onlyChangedCellSent() {
+        setValue(5, "a", "changed");
+
+        List<ClientMethodInvocation> calls = getRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        ClientMethodInvocation call = calls.get(0);
+        Assert.assertEquals("updateRowCells", call.getMethodName());
+        Assert.assertEquals(5, call.getParameters()[0]);
+
+        JsonObject row = (JsonObject) call.getParameters()[1];
+        JsonObject data = row.getObject(GridState.JSONKEY_DATA);
+        Assert.assertEquals(1, data.keys().length);
+        Assert.assertEquals("changed", data.getString(data.keys()[0]));
+        Assert.assertTrue(row.hasKey(GridState.JSONKEY_ROWKEY));
+
+        // Only the changed cell was converted
+        Assert.assertEquals(0, converter.conversions);
+    }
+
+    @Test
+    public void updateRowData_wholeRowSent() {
+        setValue(5, "a", "changed");
+        dataProvider.updateRowData(5);
+
+        List<ClientMethodInvocation> calls = getRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals("setRowData", calls.get(0).getMethodName());
+        JsonArray rows = (JsonArray) calls.get(0).getParameters()[1];
+        Assert.assertEquals(2, rows.getObject(0)
+                .getObject(GridState.JSONKEY_DATA).keys().length);
+    }
+
+    @Test
+    public void activeRowsPushedAgain_cachedDataUsed() throws Exception {
+        requestRows(0, 20, 0, 40);
+        Assert.assertEquals(0, converter.conversions);
+
+        requestRows(40, 20, 0, 40);
+        Assert.assertEquals(20, converter.conversions);
+    }
+
+    @Test
+    public void cachedDataUpdatedOnChange() throws Exception {
+        setValue(5, "b", "changed");
+        getRpcCalls();
+        Assert.assertEquals(1, converter.conversions);
+
+        requestRows(0, 10, 0, 40);
+        Assert.assertEquals(1, converter.conversions);
+        JsonArray rows = (JsonArray) dataProvider.retrievePendingRpcCalls()
+                .get(0).getParameters()[1];
+        JsonObject data = rows.getObject(5).getObject(
+                GridState.JSONKEY_DATA);
+        List<String> values = new ArrayList<String>();
+        for (String key : data.keys()) {
+            values.add(data.getString(key));
+        }
+        Assert.assertTrue(values.contains("changed"));
+        Assert.assertTrue(values.contains("a5"));
+    }
+
+    @Test
+    public void rendererChanged_cachedDataDiscarded() throws Exception {
+        grid.getColumn("b").setRenderer(new TextRenderer(), converter);
+        requestRows(0, 10, 0, 40);
+        Assert.assertEquals(10, converter.conversions);
+    }
+
+    @Test
+    public void columnRemovedAndAdded_cachedDataDiscarded() throws Exception {
+        grid.getColumn("a").setRenderer(new EqualTextRenderer());
+        getRpcCalls();
+        String oldKey = getRowDataKeys(5, "a5").get(0);
+
+        // The column gets a new key when the property is removed and re-added
+        container.removeContainerProperty("a");
+        container.addContainerProperty("a", String.class, "new");
+        grid.getColumn("a").setRenderer(new EqualTextRenderer());
+        grid.setColumnOrder("a", "b");
+        getRpcCalls();
+
+        List<String> newKeys = getRowDataKeys(5, "new");
+        Assert.assertEquals(1, newKeys.size());
+        Assert.assertFalse(newKeys.contains(oldKey));
+    }
+
+    private List<String> getRowDataKeys(int row, String value)
+            throws Exception {
+        requestRows(0, 10, 0, 40);
+        JsonArray rows = (JsonArray) dataProvider.retrievePendingRpcCalls()
+                .get(0).getParameters()[1];
+        JsonObject data = rows.getObject(row).getObject(
+                GridState.JSONKEY_DATA);
+        List<String> keys = new ArrayList<String>();
+        for (String key : data.keys()) {
+            if (value.equals(data.getString(key))) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void refreshCache_cachedDataDiscarded() throws Exception {
+        dataProvider.refreshCache();
+        getRpcCalls();
+        Assert.assertEquals(40, converter.conversions);
+    }
+}
@@ -0,0 +1,131 @@
+package com.vaadin.tests.server.component.table;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.Table.ColumnGenerator;
+import com.vaadin.ui.UI;
+
+public class TableScrollingTest {
+
+    private Table table;
+    private Map<Object, Label> generated = new HashMap<Object, Label>();
+
+    @Before
+    public void setUp() {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("value", String.class, "");
+        for (int i = 0; i < 1000; i++) {
+            container.addItem(Integer.valueOf(i)).getItemProperty("value")
+                    .setValue("Value " + i);
+        }
+        table = new Table(null, container);
+        table.setPageLength(10);
+        table.addGeneratedColumn("generated", new ColumnGenerator() {
+            @Override
+            public Object generateCell(Table source, Object itemId,
+                    Object columnId) {
+                Label label = new Label("Generated " + itemId);
+                generated.put(itemId, label);
+                return label;
+            }
+        });
+
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setSession(new AlwaysLockedVaadinSession(null));
+        ui.setContent(table);
+        table.beforeClientResponse(true);
+    }
+
+    private void requestRows(int firstVisible, int firstToBeRendered,
+            int lastToBeRendered, int reqFirstRow, int reqRows) {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put("firstvisible", firstVisible);
+        variables.put("firstToBeRendered", firstToBeRendered);
+        variables.put("lastToBeRendered", lastToBeRendered);
+        variables.put("reqfirstrow", reqFirstRow);
+        variables.put("reqrows", reqRows);
+        table.changeVariables(table, variables);
+    }
+
+    private List<Component> getTableComponents() {
+        List<Component> components = new ArrayList<Component>();
+        for (Iterator<Component> i = table.iterator(); i.hasNext();) {
+            components.add(i.next());
+        }
+        return components;
+    }
+
+    @Test
+    public void scroll_keptRowsReused_droppedRowsReleased() {
+        requestRows(0, 0, 29, 10, 20);
+        Assert.assertEquals(30, generated.size());
+        Label keptLabel = generated.get(Integer.valueOf(15));
+        Label droppedLabel = generated.get(Integer.valueOf(5));
+
+        requestRows(20, 10, 49, 30, 20);
+
+        Assert.assertEquals(50, generated.size());
+        Assert.assertSame(keptLabel, generated.get(Integer.valueOf(15)));
+        Assert.assertSame(table, keptLabel.getParent());
+        Assert.assertNull(droppedLabel.getParent());
+
+        List<Component> components = getTableComponents();
+        Assert.assertEquals(40, components.size());
+        for (int i = 10; i < 50; i++) {
+            Assert.assertTrue(components.contains(generated.get(Integer
+                    .valueOf(i))));
+        }
+    }
+
+    @Test
+    public void scrollBackwards_missingRowsRendered() {
+        requestRows(40, 30, 69, 30, 40);
+        generated.clear();
+
+        requestRows(30, 20, 59, 20, 10);
+
+        // Only the rows before the previous range are generated again
+        Assert.assertEquals(10, generated.size());
+        for (int i = 20; i < 30; i++) {
+            Assert.assertTrue(generated.containsKey(Integer.valueOf(i)));
+        }
+        Assert.assertEquals(40, getTableComponents().size());
+    }
+
+    @Test
+    public void scrollAfterItemRemoval_rowsMatchContainer() {
+        requestRows(0, 0, 29, 10, 20);
+        Label removedLabel = generated.get(Integer.valueOf(15));
+        table.getContainerDataSource().removeItem(Integer.valueOf(15));
+
+        requestRows(20, 10, 49, 30, 20);
+
+        Assert.assertNull(removedLabel.getParent());
+        List<Component> components = getTableComponents();
+        Assert.assertEquals(40, components.size());
+        for (int i = 10; i <= 50; i++) {
+            if (i != 15) {
+                Assert.assertTrue(components.contains(generated.get(Integer
+                        .valueOf(i))));
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@ public class MockDeploymentConfiguration extends
 
     private int resourceCacheTime = 12;
     private int heartbeatInterval = 300;
+    private int maxRpcMessageLength = 0;
     private boolean closeIdleSessions = false;
     private PushMode pushMode = PushMode.DISABLED;
     private Properties initParameters = new Properties();
@@ -69,6 +70,15 @@ public class MockDeploymentConfiguration extends
         this.heartbeatInterval = heartbeatInterval;
     }
 
+    @Override
+    public int getMaxRpcMessageLength() {
+        return maxRpcMessageLength;
+    }
+
+    public void setMaxRpcMessageLength(int maxRpcMessageLength) {
+        this.maxRpcMessageLength = maxRpcMessageLength;
+    }
+
     @Override
     public boolean isCloseIdleSessions() {
         return closeIdleSessions;
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2000-2014 Vaadin Ltd.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.shared.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation used to opt in to incremental encoding of a shared state class.
+ * <p>
+ * For annotated state types, the server remembers the values of all state
+ * properties of primitive, wrapper, <code>String</code> or enum type at the
+ * time the state was last sent to the client, as well as a copy of the
+ * contents of collections, maps and arrays of such values. These properties
+ * are only encoded again when their value has changed since then, which
+ * avoids re-encoding and comparing all properties of wide states for every
+ * small change. Nested beans and collections of beans are tracked in the same
+ * way property by property. Properties of other types, e.g. connectors or
+ * collections of other mutable values, are always encoded and compared as for
+ * other states.
+ * <p>
+ * The annotation is inherited by subclasses of the annotated state type.
+ * 
+ * @since 7.5
+ * 
+ * @author Vaadin Ltd
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface IncrementalEncoding {
+    // Just an empty marker annotation
+}
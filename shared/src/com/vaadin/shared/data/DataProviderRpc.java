@@ -20,6 +20,7 @@ import com.vaadin.shared.annotations.NoLayout;
 import com.vaadin.shared.communication.ClientRpc;
 
 import elemental.json.JsonArray;
+import elemental.json.JsonObject;
 
 /**
  * RPC interface used for pushing container data to the client.
@@ -57,6 +58,24 @@ public interface DataProviderRpc extends ClientRpc {
     @NoLayout
     public void setRowData(int firstRowIndex, JsonArray rowDataJson);
 
+    /**
+     * Sends the changed cells of a row to a client. The row object has the
+     * same format as the rows sent using {@link #setRowData(int, JsonArray)},
+     * except that the data object only contains the changed cells. The row
+     * styles are always included.
+     * <p>
+     * The client ignores the update if it does not have the row with the same
+     * key cached at the given index.
+     * 
+     * @since 7.5
+     * @param rowIndex
+     *            the index of the updated row
+     * @param rowDataJson
+     *            the row object with the changed cells
+     */
+    @NoLayout
+    public void updateRowCells(int rowIndex, JsonObject rowDataJson);
+
     /**
      * Informs the client to remove row data.
      * 
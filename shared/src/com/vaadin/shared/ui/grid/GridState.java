@@ -21,6 +21,7 @@ import java.util.List;
 
 import com.vaadin.shared.AbstractComponentState;
 import com.vaadin.shared.annotations.DelegateToWidget;
+import com.vaadin.shared.annotations.IncrementalEncoding;
 import com.vaadin.shared.data.sort.SortDirection;
 
 /**
@@ -29,6 +30,7 @@ import com.vaadin.shared.data.sort.SortDirection;
  * @since 7.4
  * @author Vaadin Ltd
  */
+@IncrementalEncoding
 public class GridState extends AbstractComponentState {
 
     /**
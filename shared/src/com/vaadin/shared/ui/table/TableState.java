@@ -16,7 +16,9 @@
 package com.vaadin.shared.ui.table;
 
 import com.vaadin.shared.AbstractFieldState;
+import com.vaadin.shared.annotations.IncrementalEncoding;
 
+@IncrementalEncoding
 public class TableState extends AbstractFieldState {
     {
         primaryStyleName = "v-table";